@@ -0,0 +1,282 @@
+package com.jg.poiet.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 为@ELModel注解的类生成ModelReader：与类在同一个包中的<类名>_ModelReader，运行时按名称从该类的类加载器中查找。
+ * 属性的查找规则与运行时反射相同：先public getter（getXxx、返回boolean/Boolean的isXxx），
+ * 再属性、@Name注解的属性（子类优先于父类，同一个类中属性名优先于@Name）。
+ * 生成的读取器直接调用getter或读取属性，无法直接访问的属性（如没有getter的private属性）交由反射读取。
+ * 处理器只依赖注解和接口的类名，不依赖poi-et
+ */
+@SupportedAnnotationTypes(ModelReaderProcessor.EL_MODEL)
+public class ModelReaderProcessor extends AbstractProcessor {
+
+    static final String EL_MODEL = "com.jg.poiet.config.ELModel";
+    private static final String NAME = "com.jg.poiet.config.Name";
+    private static final String MODEL_READER = "com.jg.poiet.el.ModelReader";
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (TypeElement annotation : annotations) {
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                if (element.getKind() != ElementKind.CLASS) {
+                    error("@ELModel can only be used on classes", element);
+                    continue;
+                }
+                generate((TypeElement) element);
+            }
+        }
+        return true;
+    }
+
+    private void generate(TypeElement type) {
+        String packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+        if (!isAccessible(type, packageName)) {
+            error("@ELModel class must not be private: " + type.getQualifiedName(), type);
+            return;
+        }
+        String typeName = type.getQualifiedName().toString();
+        String readerName = flatName(type) + "_ModelReader";
+        String qualifiedReaderName = packageName.isEmpty() ? readerName : packageName + "." + readerName;
+
+        List<String> reads = new ArrayList<>();
+        Map<String, Integer> getters = new LinkedHashMap<>();
+        for (Map.Entry<String, ExecutableElement> entry : getters(type).entrySet()) {
+            getters.put(entry.getKey(), reads.size());
+            reads.add("((" + typeName + ") bean)." + entry.getValue().getSimpleName() + "()");
+        }
+        Map<String, Integer> fields = new LinkedHashMap<>();
+        for (Map.Entry<String, VariableElement> entry : fields(type).entrySet()) {
+            if (getters.containsKey(suffix(entry.getKey()))) continue;   //getter优先
+            VariableElement field = entry.getValue();
+            TypeElement declaring = (TypeElement) field.getEnclosingElement();
+            if (!isAccessible(field, declaring, packageName)) {
+                fields.put(entry.getKey(), null);
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, "Property " + entry.getKey()
+                        + " of " + typeName + " cannot be read directly and will be read by reflection", field);
+                continue;
+            }
+            fields.put(entry.getKey(), reads.size());
+            String declaringName = declaring.getQualifiedName().toString();
+            reads.add(field.getModifiers().contains(Modifier.STATIC) ? declaringName + "." + field.getSimpleName()
+                    : "((" + declaringName + ") bean)." + field.getSimpleName());
+        }
+
+        try (PrintWriter out = new PrintWriter(new OutputStreamWriter(
+                processingEnv.getFiler().createSourceFile(qualifiedReaderName, type).openOutputStream(), "UTF-8"))) {
+            if (!packageName.isEmpty()) {
+                out.println("package " + packageName + ";");
+                out.println();
+            }
+            out.println("/**");
+            out.println(" * Generated by poi-et-processor for " + typeName + ", do not edit");
+            out.println(" */");
+            out.println("@SuppressWarnings(\"rawtypes\")");
+            out.println("public final class " + readerName + " implements " + MODEL_READER + " {");
+            out.println();
+            out.println("    @Override");
+            out.println("    public Class<?> getType() {");
+            out.println("        return " + typeName + ".class;");
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public int indexOf(String key) {");
+            out.println("        if (key.isEmpty()) return MISSING;");
+            if (!getters.isEmpty()) {
+                out.println("        switch (Character.toUpperCase(key.charAt(0)) + key.substring(1)) {");
+                for (Map.Entry<String, Integer> entry : getters.entrySet()) {
+                    out.println("            case " + literal(entry.getKey()) + ": return " + entry.getValue() + ";");
+                }
+                out.println("        }");
+            }
+            if (!fields.isEmpty()) {
+                out.println("        switch (key) {");
+                for (Map.Entry<String, Integer> entry : fields.entrySet()) {
+                    out.println("            case " + literal(entry.getKey()) + ": return "
+                            + (null == entry.getValue() ? "REFLECTIVE" : entry.getValue()) + ";");
+                }
+                out.println("        }");
+            }
+            out.println("        return MISSING;");
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public Object read(Object bean, int index) {");
+            out.println("        switch (index) {");
+            for (int i = 0; i < reads.size(); i++) {
+                out.println("            case " + i + ": return " + reads.get(i) + ";");
+            }
+            out.println("            default: throw new IllegalArgumentException(\"Unknown property index: \" + index);");
+            out.println("        }");
+            out.println("    }");
+            out.println();
+            out.println("}");
+        } catch (IOException e) {
+            error("Cannot generate ModelReader for " + typeName + ": " + e.getMessage(), type);
+        }
+    }
+
+    /**
+     * getter对应的属性后缀（getName -> Name），与运行时查找规则相同：getXxx优先于isXxx
+     */
+    private Map<String, ExecutableElement> getters(TypeElement type) {
+        Map<String, ExecutableElement> gets = new HashMap<>();
+        Map<String, ExecutableElement> iss = new HashMap<>();
+        for (ExecutableElement method : ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(type))) {
+            Set<Modifier> modifiers = method.getModifiers();
+            if (!modifiers.contains(Modifier.PUBLIC) || modifiers.contains(Modifier.STATIC)
+                    || !method.getParameters().isEmpty() || method.getReturnType().getKind() == TypeKind.VOID
+                    || ((TypeElement) method.getEnclosingElement()).getQualifiedName().contentEquals("java.lang.Object")) {
+                continue;
+            }
+            String name = method.getSimpleName().toString();
+            if (name.startsWith("get") && isSuffix(name.substring(3))) {
+                gets.put(name.substring(3), method);
+            } else if (name.startsWith("is") && isSuffix(name.substring(2)) && isBoolean(method.getReturnType())) {
+                iss.put(name.substring(2), method);
+            }
+        }
+        Map<String, ExecutableElement> getters = new LinkedHashMap<>(iss);
+        getters.putAll(gets);
+        return getters;
+    }
+
+    /**
+     * 属性名、@Name注解值到属性，包含父类的属性
+     */
+    private Map<String, VariableElement> fields(TypeElement type) {
+        Map<String, VariableElement> fields = new LinkedHashMap<>();
+        for (TypeElement clazz = type; null != clazz; clazz = superclass(clazz)) {
+            List<VariableElement> declared = ElementFilter.fieldsIn(clazz.getEnclosedElements());
+            Map<String, VariableElement> level = new LinkedHashMap<>();
+            for (VariableElement field : declared) {
+                String alias = nameValue(field);
+                if (null != alias && !alias.isEmpty() && !level.containsKey(alias)) level.put(alias, field);
+            }
+            for (VariableElement field : declared) {
+                level.put(field.getSimpleName().toString(), field);
+            }
+            for (Map.Entry<String, VariableElement> entry : level.entrySet()) {
+                if (!fields.containsKey(entry.getKey())) fields.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return fields;
+    }
+
+    private TypeElement superclass(TypeElement type) {
+        TypeMirror superclass = type.getSuperclass();
+        if (superclass.getKind() != TypeKind.DECLARED) return null;
+        TypeElement element = (TypeElement) processingEnv.getTypeUtils().asElement(superclass);
+        return element.getQualifiedName().contentEquals("java.lang.Object") ? null : element;
+    }
+
+    private static String nameValue(VariableElement field) {
+        for (AnnotationMirror annotation : field.getAnnotationMirrors()) {
+            if (!((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName().contentEquals(NAME)) {
+                continue;
+            }
+            for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry
+                    : annotation.getElementValues().entrySet()) {
+                if (entry.getKey().getSimpleName().contentEquals("value")) return (String) entry.getValue().getValue();
+            }
+        }
+        return null;
+    }
+
+    private static boolean isBoolean(TypeMirror type) {
+        return type.getKind() == TypeKind.BOOLEAN || "java.lang.Boolean".equals(type.toString());
+    }
+
+    /**
+     * 运行时按key首字母大写查找getter，首字母不是大写的getter不会被找到
+     */
+    private static boolean isSuffix(String suffix) {
+        return !suffix.isEmpty() && Character.toUpperCase(suffix.charAt(0)) == suffix.charAt(0);
+    }
+
+    private static String suffix(String key) {
+        return Character.toUpperCase(key.charAt(0)) + key.substring(1);
+    }
+
+    /**
+     * 生成的读取器（与类在同一个包中）能否访问属性
+     */
+    private boolean isAccessible(VariableElement field, TypeElement declaring, String packageName) {
+        Set<Modifier> modifiers = field.getModifiers();
+        if (modifiers.contains(Modifier.PRIVATE) || !isAccessible(declaring, packageName)) return false;
+        return modifiers.contains(Modifier.PUBLIC) || packageName.equals(
+                processingEnv.getElementUtils().getPackageOf(declaring).getQualifiedName().toString());
+    }
+
+    /**
+     * 包packageName中的类能否访问类type
+     */
+    private boolean isAccessible(TypeElement type, String packageName) {
+        boolean samePackage = packageName.equals(
+                processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString());
+        for (Element element = type; element instanceof TypeElement; element = element.getEnclosingElement()) {
+            Set<Modifier> modifiers = element.getModifiers();
+            if (modifiers.contains(Modifier.PRIVATE)) return false;
+            if (!modifiers.contains(Modifier.PUBLIC) && !samePackage) return false;
+        }
+        return true;
+    }
+
+    /**
+     * 内部类的名称以_连接外部类名：Outer.Inner -> Outer_Inner
+     */
+    private static String flatName(TypeElement type) {
+        String name = type.getSimpleName().toString();
+        Element enclosing = type.getEnclosingElement();
+        return enclosing instanceof TypeElement ? flatName((TypeElement) enclosing) + "_" + name : name;
+    }
+
+    private static String literal(String value) {
+        StringBuilder literal = new StringBuilder("\"");
+        for (char c : value.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                literal.append('\\').append(c);
+            } else if (c < 0x20 || c > 0x7e) {
+                literal.append(String.format("\\u%04x", (int) c));
+            } else {
+                literal.append(c);
+            }
+        }
+        return literal.append('"').toString();
+    }
+
+    private void error(String message, Element element) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+}
@@ -0,0 +1,375 @@
+package com.jg.poiet;
+
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellCopyPolicy;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.usermodel.XSSFCell;
+import org.apache.poi.xssf.usermodel.XSSFHyperlink;
+import org.apache.poi.xssf.usermodel.XSSFRow;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTCell;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTCol;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTCols;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTWorksheet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 列的整体移动：poi 3.17没有移动列的方法，逐行将单元格直接移到新列号并填充插入的列，多处插入、删除列时每行也只遍历一次；
+ * 合并单元格、列定义（列宽、列样式）、超链接按新列号一次调整，不逐个增删合并单元格
+ */
+final class ColumnShifter {
+
+    private static final int MAX_COLUMN_INDEX = SpreadsheetVersion.EXCEL2007.getLastColumnIndex();
+
+    /**
+     * 移动单元格时不复制超链接，超链接的位置统一调整
+     */
+    private static final CellCopyPolicy MOVE_POLICY = new CellCopyPolicy.Builder().copyHyperlink(false).build();
+
+    /**
+     * 插入、删除前的列号 -> 之后的列号。插入点与删除的列均使用执行前的列号，同一列先在其后插入再删除该列；
+     * 是否跨越插入点、是否只剩一个单元格均按执行前、后的范围判断，不经过中间状态：
+     * 跨越插入点的范围随之扩展（插入点右侧的列同时被删除时也是如此），包含删除列的范围随之缩小
+     */
+    static final class ColumnMapping {
+
+        /**
+         * 插入点，升序，在其后插入，-1表示在第一列之前插入
+         */
+        final int[] anchorColumns;
+
+        final int[] insertNums;
+
+        /**
+         * 删除的列，升序
+         */
+        final int[] removedColumns;
+
+        /**
+         * insertedBefore[i]为前i个插入点插入的列数之和
+         */
+        private final int[] insertedBefore;
+
+        /**
+         * @param anchorColumns 插入点，升序且不重复
+         * @param insertNums    各插入点插入的列数
+         * @param removedColumns    删除的列，升序且不重复
+         */
+        ColumnMapping(int[] anchorColumns, int[] insertNums, int[] removedColumns) {
+            this.anchorColumns = anchorColumns;
+            this.insertNums = insertNums;
+            this.removedColumns = removedColumns;
+            this.insertedBefore = new int[anchorColumns.length + 1];
+            for (int i = 0; i < anchorColumns.length; i++) {
+                insertedBefore[i + 1] = insertedBefore[i] + insertNums[i];
+            }
+        }
+
+        /**
+         * 第column列及其右侧的列移动的列数
+         */
+        private int offset(int column) {
+            return insertedBefore[countLess(anchorColumns, column)] - countLess(removedColumns, column);
+        }
+
+        /**
+         * @param column    执行前的列号
+         * @return  执行后的列号，该列被删除时返回-1
+         */
+        int column(int column) {
+            if (Arrays.binarySearch(removedColumns, column) >= 0) return -1;
+            return column + offset(column);
+        }
+
+        /**
+         * 第k个插入点插入的第一列在执行后的列号
+         */
+        int insertedColumn(int k) {
+            return anchorColumns[k] + 1 + offset(anchorColumns[k] + 1) - insertedBefore[k + 1] + insertedBefore[k];
+        }
+
+        /**
+         * 第k个插入点插入的列是否位于插入点右侧：是则需先将右侧的单元格移走再填充，否则需先将左侧的单元格移走
+         */
+        boolean fillsRightward(int k) {
+            return insertedColumn(k) > anchorColumns[k];
+        }
+
+        /**
+         * 范围随之移动，跨越插入点的范围扩展，包含删除列的范围缩小
+         *
+         * @param region    执行前的范围
+         * @return  执行后的范围，未改变时返回region本身，全部列被删除时返回null
+         */
+        CellRangeAddress shift(CellRangeAddress region) {
+            int firstColumn = region.getFirstColumn() + offset(region.getFirstColumn());
+            int lastColumn = region.getLastColumn() + offset(region.getLastColumn() + 1) - insertedAt(region.getLastColumn());
+            if (firstColumn > lastColumn || firstColumn > MAX_COLUMN_INDEX) return null;
+            if (firstColumn == region.getFirstColumn() && lastColumn == region.getLastColumn()) return region;
+            return new CellRangeAddress(region.getFirstRow(), region.getLastRow(),
+                    firstColumn, Math.min(lastColumn, MAX_COLUMN_INDEX));
+        }
+
+        /**
+         * 合并单元格随之移动，缩小到只剩一个单元格时同全部删除，返回null
+         */
+        CellRangeAddress shiftMergedRegion(CellRangeAddress region) {
+            CellRangeAddress shifted = shift(region);
+            if (null != shifted && shifted != region && shifted.getFirstRow() == shifted.getLastRow()
+                    && shifted.getFirstColumn() == shifted.getLastColumn()) return null;
+            return shifted;
+        }
+
+        /**
+         * 在第column列之后插入的列数
+         */
+        private int insertedAt(int column) {
+            int k = Arrays.binarySearch(anchorColumns, column);
+            return k < 0 ? 0 : insertNums[k];
+        }
+
+        /**
+         * 第一个可能移动或删除的列
+         */
+        int firstShiftedColumn() {
+            int first = Integer.MAX_VALUE;
+            if (anchorColumns.length > 0) first = anchorColumns[0] + 1;
+            if (removedColumns.length > 0) first = Math.min(first, removedColumns[0]);
+            return first;
+        }
+    }
+
+    private ColumnShifter() {}
+
+    /**
+     * 升序数组中小于value的元素个数
+     */
+    private static int countLess(int[] sorted, int value) {
+        int index = Arrays.binarySearch(sorted, value);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    /**
+     * 按mapping一次完成多处插入、删除列，插入的列为空白单元格。跨越插入点的合并单元格随之扩展，
+     * 其中插入的单元格复制插入点的单元格；包含删除列的合并单元格随之缩小，只剩一个单元格时删除；
+     * 其后的合并单元格、列定义、超链接随之移动，删除列中的超链接一并删除
+     *
+     * @param sheet sheet
+     * @param index 执行前的合并单元格索引
+     * @param mapping   插入点与删除的列
+     * @param width 插入列的列宽
+     * @param copyColumn    是否将插入点不在合并单元格中的单元格同样复制到插入的列
+     */
+    static void shiftColumns(XSSFSheet sheet, MergedRegionIndex index, ColumnMapping mapping,
+                             int width, boolean copyColumn) {
+        CTWorksheet worksheet = sheet.getCTWorksheet();
+        RowShifter.clearCalculationChain(sheet);
+        //先删除、调整超链接，之后复制到插入列的超链接不再移动
+        shiftHyperlinks(sheet, mapping);
+        int lowest = mapping.firstShiftedColumn();
+        int[] anchors = mapping.anchorColumns;
+        boolean[] fills = new boolean[anchors.length];   //是否以插入点的单元格填充插入的列
+        int[] columns = new int[16];
+        BitSet written = new BitSet();
+        CellCopyPolicy fillPolicy = new CellCopyPolicy();
+        for (Row r : sheet) {
+            XSSFRow row = (XSSFRow) r;
+            int n = 0;
+            for (Cell cell : row) {
+                if (cell.getColumnIndex() < lowest) continue;
+                if (n == columns.length) columns = Arrays.copyOf(columns, 2 * n);
+                columns[n++] = cell.getColumnIndex();
+            }
+            for (int k = 0; k < anchors.length; k++) {
+                fills[k] = false;
+                if (anchors[k] >= 0 && null != row.getCell(anchors[k])) {
+                    CellRangeAddress region = index.get(row.getRowNum(), anchors[k]);
+                    fills[k] = null == region ? copyColumn : region.getLastColumn() > anchors[k];
+                }
+            }
+            written.clear();
+            //右移的单元格自右向左、左移的单元格自左向右移动，目标位置的原有单元格已先被移走或属于删除的列；
+            //插入的列在其占用位置的原有单元格移走之后、插入点的单元格被覆盖之前填充
+            int k = anchors.length - 1;
+            for (int i = n - 1; i >= -1; i--) {
+                int column = i < 0 ? Integer.MIN_VALUE : columns[i];
+                for (; k >= 0 && anchors[k] > column; k--) {
+                    if (mapping.fillsRightward(k)) fill(row, mapping, k, fills[k], fillPolicy, written);
+                }
+                if (i < 0) break;
+                int target = mapping.column(column);
+                if (target > column && target <= MAX_COLUMN_INDEX) {
+                    move(row.getCell(column), row.createCell(target));
+                    written.set(target);
+                }
+            }
+            k = 0;
+            for (int i = 0; i <= n; i++) {
+                int column = i == n ? Integer.MAX_VALUE : columns[i];
+                for (; k < anchors.length && anchors[k] < column; k++) {
+                    if (!mapping.fillsRightward(k)) fill(row, mapping, k, fills[k], fillPolicy, written);
+                }
+                if (i == n) break;
+                int target = mapping.column(column);
+                if (target >= 0 && target < column) {
+                    move(row.getCell(column), row.createCell(target));
+                    written.set(target);
+                } else if (target == column) {
+                    written.set(column);
+                }
+            }
+            //原有单元格所在的位置没有移入单元格时删除
+            for (int i = 0; i < n; i++) {
+                if (!written.get(columns[i])) row.removeCell(row.getCell(columns[i]));
+            }
+        }
+        List<CellRangeAddress> mergedRegions = sheet.getMergedRegions();
+        List<CellRangeAddress> shifted = new ArrayList<>(mergedRegions.size());
+        boolean changed = false;
+        for (CellRangeAddress region : mergedRegions) {
+            CellRangeAddress shiftedRegion = mapping.shiftMergedRegion(region);
+            if (null != shiftedRegion) shifted.add(shiftedRegion);
+            changed |= shiftedRegion != region;
+        }
+        if (changed) RowShifter.setMergedRegions(worksheet, shifted);
+        shiftColumnDefinitions(worksheet, mapping, width);
+    }
+
+    /**
+     * 填充第k个插入点插入的列：copy为true时复制插入点的单元格（此时已在执行后的列号，插入点被删除时仍在原位置），
+     * 否则为空白单元格
+     */
+    private static void fill(XSSFRow row, ColumnMapping mapping, int k, boolean copy,
+                             CellCopyPolicy fillPolicy, BitSet written) {
+        int anchorColumn = mapping.anchorColumns[k];
+        XSSFCell source = null;
+        int sourceColumn = -1;
+        if (copy) {
+            int target = mapping.column(anchorColumn);
+            sourceColumn = target < 0 ? anchorColumn : target;
+            source = row.getCell(sourceColumn);
+        }
+        int first = mapping.insertedColumn(k);
+        for (int j = first; j <= Math.min(first + mapping.insertNums[k] - 1, MAX_COLUMN_INDEX); j++) {
+            written.set(j);
+            if (j == sourceColumn) continue;    //被删除的插入点恰好位于插入的列中，保留原单元格
+            XSSFCell cell = row.createCell(j);
+            if (null != source) cell.copyCellFrom(source, fillPolicy);
+        }
+    }
+
+    /**
+     * 移动单元格：非公式单元格直接复制其xml（样式、共享字符串序号不变），不经过copyCellFrom的类型判断与日期格式解析；
+     * 公式单元格可能是共享公式的主单元格，被sheet引用，仍通过copyCellFrom复制为普通公式
+     */
+    private static void move(XSSFCell sourceCell, XSSFCell targetCell) {
+        CTCell source = sourceCell.getCTCell();
+        if (source.isSetF()) {
+            targetCell.copyCellFrom(sourceCell, MOVE_POLICY);
+            return;
+        }
+        CTCell target = targetCell.getCTCell();
+        String reference = target.getR();
+        target.set(source);
+        target.setR(reference);
+    }
+
+    /**
+     * 超链接随之移动，全部位于删除列中的超链接删除
+     */
+    private static void shiftHyperlinks(XSSFSheet sheet, ColumnMapping mapping) {
+        List<XSSFHyperlink> moved = new ArrayList<>();
+        List<CellRangeAddress> targets = new ArrayList<>();
+        for (XSSFHyperlink hyperlink : new ArrayList<>(sheet.getHyperlinkList())) {
+            CellRangeAddress region = CellRangeAddress.valueOf(hyperlink.getCellRef());
+            CellRangeAddress shifted = mapping.shift(region);
+            if (null == shifted) {
+                //poi只能按单元格删除超链接，先删除，以免与移入该单元格的超链接混淆
+                hyperlink.setCellReference(new CellRangeAddress(region.getFirstRow(), region.getFirstRow(),
+                        region.getFirstColumn(), region.getFirstColumn()).formatAsString());
+                sheet.removeHyperlink(region.getFirstRow(), region.getFirstColumn());
+            } else if (shifted != region) {
+                moved.add(hyperlink);
+                targets.add(shifted);
+            }
+        }
+        for (int i = 0; i < moved.size(); i++) {
+            moved.get(i).setCellReference(targets.get(i).formatAsString());
+        }
+    }
+
+    /**
+     * 列定义（cols中的col，列号从1开始）随之移动，跨越插入点的列定义拆分，删除的列从中去掉，插入的列使用指定的列宽
+     */
+    private static void shiftColumnDefinitions(CTWorksheet worksheet, ColumnMapping mapping, int width) {
+        if (worksheet.sizeOfColsArray() == 0 && mapping.anchorColumns.length == 0) return;
+        CTCols cols = worksheet.sizeOfColsArray() == 0 ? worksheet.addNewCols() : worksheet.getColsArray(0);
+        List<CTCol> result = new ArrayList<>();
+        for (CTCol col : cols.getColArray()) {
+            if (col.getMax() < mapping.firstShiftedColumn() + 1) {
+                result.add((CTCol) col.copy());
+                continue;
+            }
+            CTCol last = null;
+            int column = (int) col.getMin() - 1;
+            int end = (int) Math.min(col.getMax() - 1, MAX_COLUMN_INDEX);
+            while (column <= end) {
+                int target = mapping.column(column);
+                if (target < 0) {
+                    column++;
+                    continue;
+                }
+                //列号连续且移动的列数相同的一段：至下一个插入点或下一个删除列之前
+                int segmentEnd = end;
+                int k = countLess(mapping.anchorColumns, column);
+                if (k < mapping.anchorColumns.length) segmentEnd = Math.min(segmentEnd, mapping.anchorColumns[k]);
+                int removed = countLess(mapping.removedColumns, column);
+                if (removed < mapping.removedColumns.length) {
+                    segmentEnd = Math.min(segmentEnd, mapping.removedColumns[removed] - 1);
+                }
+                if (target > MAX_COLUMN_INDEX) break;
+                int targetEnd = Math.min(target + segmentEnd - column, MAX_COLUMN_INDEX);
+                if (null != last && last.getMax() == target) {    //删除的列两侧的两段相邻时合并
+                    last.setMax(targetEnd + 1);
+                } else {
+                    last = (CTCol) col.copy();
+                    last.setMin(target + 1);
+                    last.setMax(targetEnd + 1);
+                    result.add(last);
+                }
+                column = segmentEnd + 1;
+            }
+        }
+        for (int k = 0; k < mapping.anchorColumns.length; k++) {
+            int first = mapping.insertedColumn(k);
+            int lastColumn = Math.min(first + mapping.insertNums[k] - 1, MAX_COLUMN_INDEX);
+            if (first > lastColumn) continue;
+            CTCol inserted = CTCol.Factory.newInstance();
+            inserted.setMin(first + 1);
+            inserted.setMax(lastColumn + 1);
+            inserted.setWidth(width / 256.0);
+            inserted.setCustomWidth(true);
+            result.add(inserted);
+        }
+        Collections.sort(result, new Comparator<CTCol>() {
+            @Override
+            public int compare(CTCol o1, CTCol o2) {
+                return Long.compare(o1.getMin(), o2.getMin());
+            }
+        });
+        if (result.isEmpty()) {
+            worksheet.removeCols(0);
+            return;
+        }
+        cols.setColArray(result.toArray(new CTCol[result.size()]));
+    }
+
+}
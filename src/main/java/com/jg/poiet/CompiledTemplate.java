@@ -0,0 +1,276 @@
+package com.jg.poiet;
+
+import com.jg.poiet.config.Configure;
+import com.jg.poiet.exception.RenderException;
+import com.jg.poiet.exception.ResolverException;
+import com.jg.poiet.resolver.StreamingTemplateScanner;
+import com.jg.poiet.template.TagPlan;
+import org.apache.poi.util.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 已编译的模板：模板只以流式方式扫描一次（不构建工作簿对象模型），保存模板字节和标签计划，
+ * 之后每次渲染由newTemplate()生成新的渲染实例，渲染时只访问标签计划中列出的单元格。
+ * 省去的只是每次渲染对全部单元格的扫描，在静态单元格较多的模板上约为渲染耗时的一成，单元格很少时几乎没有差别；
+ * 渲染耗时的大部分仍是由模板字节加载工作簿。渲染结果与XSSFTemplate.compile(...).render(...)相同。
+ * 该对象创建后不可变，可在多个线程间共享并发调用newTemplate()和render()，每次渲染使用各自独立的工作簿。
+ */
+public final class CompiledTemplate {
+
+    private static Logger logger = LoggerFactory.getLogger(CompiledTemplate.class);
+
+    /**
+     * 单个标签在标签计划中大致占用的字节数（对象头、字段及字符串）
+     */
+    private static final int PLANNED_TAG_SIZE = 160;
+
+    private final byte[] data;
+    private final Configure config;
+    private final TagPlan tagPlan;
+
+    private CompiledTemplate(byte[] data, Configure config, TagPlan tagPlan) {
+        this.data = data;
+        this.config = config;
+        this.tagPlan = tagPlan;
+    }
+
+    public static CompiledTemplate compile(String filePath) {
+        return compile(new File(filePath));
+    }
+
+    public static CompiledTemplate compile(File file) {
+        return compile(file, Configure.createDefault());
+    }
+
+    public static CompiledTemplate compile(InputStream inputStream) {
+        return compile(inputStream, Configure.createDefault());
+    }
+
+    public static CompiledTemplate compile(String filePath, Configure config) {
+        return compile(new File(filePath), config);
+    }
+
+    public static CompiledTemplate compile(File file, Configure config) {
+        try {
+            return compile(new FileInputStream(file), config);
+        } catch (FileNotFoundException e) {
+            logger.error("Cannot find the file", e);
+            throw new ResolverException("Cannot find the file [" + file.getPath() + "]");
+        }
+    }
+
+    public static CompiledTemplate compile(InputStream inputStream, Configure config) {
+        try {
+            return compile(IOUtils.toByteArray(inputStream), config);
+        } catch (IOException e) {
+            logger.error("Compile template failed", e);
+            throw new ResolverException("Compile template failed");
+        } finally {
+            IOUtils.closeQuietly(inputStream);
+        }
+    }
+
+    /**
+     * 编译模板字节
+     *
+     * @param data  模板字节
+     * @param config    配置
+     * @return  已编译的模板
+     */
+    public static CompiledTemplate compile(byte[] data, Configure config) {
+        TagPlan tagPlan = new StreamingTemplateScanner(config).scan(data);
+        return new CompiledTemplate(data, config, tagPlan);
+    }
+
+    /**
+     * 以另一配置渲染同一模板：共享模板字节，标签计划按该配置重新绑定渲染策略，不重新扫描模板。
+     * 配置的语法（前后缀、标签名正则、语法符号）需与编译时的配置相同，见TemplateCache
+     *
+     * @param config    配置
+     * @return  已编译的模板，配置相同时返回自身
+     */
+    CompiledTemplate withConfig(Configure config) {
+        return config == this.config ? this : new CompiledTemplate(data, config, tagPlan.bind(config));
+    }
+
+    /**
+     * 生成新的渲染实例，工作簿由模板字节重新加载，标签计划共享
+     *
+     * @return  渲染实例
+     */
+    public XSSFTemplate newTemplate() {
+        try {
+            return XSSFTemplate.create(new NiceXSSFWorkbook(new ByteArrayInputStream(data)), config, tagPlan);
+        } catch (IOException e) {
+            logger.error("Create template instance failed", e);
+            throw new ResolverException("Create template instance failed");
+        }
+    }
+
+    /**
+     * 生成新的渲染实例并渲染
+     *
+     * @param model 数据模型
+     * @return  渲染后的实例
+     */
+    public XSSFTemplate render(Object model) {
+        return newTemplate().render(model);
+    }
+
+    /**
+     * 批量渲染：使用默认线程池（支持时为虚拟线程，见RenderExecutors），同时渲染的工作簿不超过CPU核数的2倍
+     *
+     * @param models    数据模型
+     * @param sink  输出目标
+     * @return  渲染的工作簿数量
+     */
+    public int renderAll(Iterable<?> models, RenderSink sink) {
+        ExecutorService executor = RenderExecutors.newDefaultExecutor();
+        try {
+            return renderAll(models, sink, executor, Runtime.getRuntime().availableProcessors() * 2);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * 批量渲染，同时渲染的工作簿不超过CPU核数的2倍
+     *
+     * @see #renderAll(Iterable, RenderSink, Executor, int)
+     */
+    public int renderAll(Iterable<?> models, RenderSink sink, Executor executor) {
+        return renderAll(models, sink, executor, Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    /**
+     * 批量渲染：每个数据模型由模板字节生成独立的工作簿，共享标签计划，在executor中渲染并写入sink。
+     * 调用线程按顺序提交任务，在途（已提交未写完）的工作簿超过maxInFlight时阻塞，使堆内存占用保持平稳。
+     * 任一模型渲染或写出失败后不再提交新任务，等待在途任务结束后抛出RenderException，其余失败附加为suppressed。
+     *
+     * @param models    数据模型
+     * @param sink  输出目标，返回的输出流写完后关闭
+     * @param executor  执行渲染的线程池，不会被关闭
+     * @param maxInFlight   最多同时存在的工作簿数量
+     * @return  渲染的工作簿数量
+     */
+    public int renderAll(Iterable<?> models, RenderSink sink, Executor executor, int maxInFlight) {
+        if (maxInFlight <= 0) throw new IllegalArgumentException("maxInFlight must be positive: " + maxInFlight);
+        Batch batch = new Batch(sink, maxInFlight);
+        int index = 0;
+        try {
+            for (Object model : models) {
+                if (batch.isFailed()) break;
+                batch.permits.acquire();
+                try {
+                    executor.execute(batch.task(model, index));
+                } catch (RejectedExecutionException e) {
+                    batch.permits.release();
+                    batch.fail(e);
+                    break;
+                }
+                index++;
+            }
+            batch.permits.acquire(maxInFlight);
+            batch.permits.release(maxInFlight);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RenderException("Batch render interrupted", e);
+        }
+        if (batch.isFailed()) {
+            throw new RenderException("Batch render failed", batch.failure);
+        }
+        logger.info("Batch render end, write {} workbooks.", batch.rendered.get());
+        return batch.rendered.get();
+    }
+
+    /**
+     * 渲染单个模型并写出，写完后关闭工作簿
+     */
+    private void renderTo(Object model, int index, RenderSink sink) throws IOException {
+        XSSFTemplate template = newTemplate();
+        try {
+            template.render(model);
+            OutputStream out = sink.open(model, index);
+            try {
+                template.write(out);
+            } finally {
+                out.close();
+            }
+        } finally {
+            template.close();
+        }
+    }
+
+    /**
+     * 一次批量渲染的状态
+     */
+    private class Batch {
+
+        private final RenderSink sink;
+        private final Semaphore permits;
+        private final AtomicInteger rendered = new AtomicInteger();
+        private volatile Throwable failure;
+
+        Batch(RenderSink sink, int maxInFlight) {
+            this.sink = sink;
+            this.permits = new Semaphore(maxInFlight);
+        }
+
+        Runnable task(final Object model, final int index) {
+            return new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        if (!isFailed()) {
+                            renderTo(model, index, sink);
+                            rendered.incrementAndGet();
+                        }
+                    } catch (Throwable e) {
+                        logger.error("Render model [" + index + "] failed", e);
+                        fail(e);
+                    } finally {
+                        permits.release();
+                    }
+                }
+            };
+        }
+
+        boolean isFailed() {
+            return null != failure;
+        }
+
+        synchronized void fail(Throwable e) {
+            if (null == failure) {
+                failure = e;
+            } else {
+                failure.addSuppressed(e);
+            }
+        }
+    }
+
+    /**
+     * 估算该对象占用的内存（模板字节 + 标签计划）
+     *
+     * @return  字节数
+     */
+    public long retainedSize() {
+        return data.length + (long) tagPlan.size() * PLANNED_TAG_SIZE;
+    }
+
+    public Configure getConfig() {
+        return config;
+    }
+
+    public TagPlan getTagPlan() {
+        return tagPlan;
+    }
+
+}
@@ -0,0 +1,603 @@
+package com.jg.poiet;
+
+import org.apache.poi.ss.util.CellRangeAddress;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 单个sheet的合并单元格索引：将行按覆盖的合并单元格分段，每段记录覆盖该段所有行的合并单元格，按起始列排序。
+ * 合并单元格互不重叠，同一行中的合并单元格列范围互不相交，按单元格查找时二分查找行段和列，
+ * O(log n)且不创建对象；占用空间与合并单元格数量及其跨越的行段数有关，与覆盖的单元格数量无关。
+ * 增删合并单元格时只调整其跨越的行段，插入、删除行时只重建移动点之下的行段，插入、删除列时只替换移动点右侧的合并单元格，无需重新创建。
+ * 合并单元格在sheet中的序号由树状数组统计，查找和删除时不遍历全部合并单元格
+ */
+final class MergedRegionIndex {
+
+    private static final Comparator<CellRangeAddress> BY_FIRST_ROW = new Comparator<CellRangeAddress>() {
+        @Override
+        public int compare(CellRangeAddress o1, CellRangeAddress o2) {
+            return compareInt(o1.getFirstRow(), o2.getFirstRow());
+        }
+    };
+
+    private static final Comparator<CellRangeAddress> BY_LAST_ROW = new Comparator<CellRangeAddress>() {
+        @Override
+        public int compare(CellRangeAddress o1, CellRangeAddress o2) {
+            return compareInt(o1.getLastRow(), o2.getLastRow());
+        }
+    };
+
+    /**
+     * 行段：第start行至第end行被同一组合并单元格覆盖。regions按起始列排序，拆分后的行段共用同一数组，
+     * 因此数组创建后不再修改，增删时替换为新数组
+     */
+    private static final class Band {
+
+        int start;
+        int end;
+        CellRangeAddress[] regions;
+
+        Band(int start, int end, CellRangeAddress[] regions) {
+            this.start = start;
+            this.end = end;
+            this.regions = regions;
+        }
+    }
+
+    /**
+     * 合并单元格按加入sheet的顺序编号：编号 -> 合并单元格，已删除的为null。
+     * sheet中的序号即编号在仍存在的合并单元格中的排名
+     */
+    private CellRangeAddress[] byId;
+
+    /**
+     * 树状数组，统计各编号的合并单元格是否存在，下标从1开始
+     */
+    private int[] tree;
+
+    private int nextId;
+
+    private final Map<CellRangeAddress, Integer> ids = new IdentityHashMap<>();
+
+    /**
+     * 按起始行排序的行段，只包含有合并单元格覆盖的行段
+     */
+    private final List<Band> bands = new ArrayList<>();
+
+    MergedRegionIndex(List<CellRangeAddress> regions) {
+        CellRangeAddress[] array = regions.toArray(new CellRangeAddress[regions.size()]);
+        renumber(array, array.length);
+        bands.addAll(sweep(array, 0));
+    }
+
+    private static int compareInt(int x, int y) {
+        return x < y ? -1 : (x == y ? 0 : 1);
+    }
+
+    /**
+     * 自上而下扫描各合并单元格的起止行，相邻两个起止行之间即为一个行段；
+     * 只生成第fromRow行及其下方的行段，合并单元格的起始行小于fromRow时按fromRow计算
+     *
+     * @param regions   合并单元格，结束行均不小于fromRow
+     * @param fromRow   起始行
+     * @return  行段
+     */
+    private static List<Band> sweep(CellRangeAddress[] regions, final int fromRow) {
+        List<Band> result = new ArrayList<>();
+        int n = regions.length;
+        if (n == 0) return result;
+        CellRangeAddress[] byFirstRow = regions.clone();
+        CellRangeAddress[] byLastRow = regions.clone();
+        Arrays.sort(byFirstRow, BY_FIRST_ROW);
+        Arrays.sort(byLastRow, BY_LAST_ROW);
+        int[] bounds = new int[2 * n];
+        for (int i = 0; i < n; i++) {
+            bounds[2 * i] = Math.max(byFirstRow[i].getFirstRow(), fromRow);
+            bounds[2 * i + 1] = byLastRow[i].getLastRow() + 1;
+        }
+        Arrays.sort(bounds);
+        List<CellRangeAddress> active = new ArrayList<>();    //覆盖当前行段的合并单元格，按起始列排序
+        int started = 0;
+        int ended = 0;
+        for (int i = 0; i < bounds.length; i++) {
+            int bound = bounds[i];
+            if (i > 0 && bound == bounds[i - 1]) continue;
+            while (ended < n && byLastRow[ended].getLastRow() + 1 == bound) {
+                removeIdentity(active, byLastRow[ended++]);
+            }
+            while (started < n && Math.max(byFirstRow[started].getFirstRow(), fromRow) == bound) {
+                CellRangeAddress region = byFirstRow[started++];
+                active.add(insertionPoint(active, region.getFirstColumn()), region);
+            }
+            if (!active.isEmpty()) {
+                int next = i + 1;
+                while (bounds[next] == bound) next++;     //最后一个边界之后没有合并单元格，active必为空
+                result.add(new Band(bound, bounds[next] - 1, active.toArray(new CellRangeAddress[active.size()])));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 按sheet中的顺序重新编号，并预留同样数量的编号
+     */
+    private void renumber(CellRangeAddress[] live, int n) {
+        byId = new CellRangeAddress[Math.max(16, 2 * n)];
+        System.arraycopy(live, 0, byId, 0, n);
+        tree = new int[byId.length + 1];
+        for (int i = 1; i < tree.length; i++) {
+            if (i <= n) tree[i]++;
+            int parent = i + (i & -i);
+            if (parent < tree.length) tree[parent] += tree[i];
+        }
+        ids.clear();
+        for (int i = 0; i < n; i++) {
+            ids.put(live[i], i);
+        }
+        nextId = n;
+    }
+
+    private void update(int id, int delta) {
+        for (int i = id + 1; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    /**
+     * 编号小于id的合并单元格数量，即编号为id的合并单元格在sheet中的序号
+     */
+    private int rank(int id) {
+        int sum = 0;
+        for (int i = id; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    /**
+     * sheet中第position个合并单元格的编号
+     */
+    private int select(int position) {
+        int id = 0;
+        int remaining = position + 1;
+        for (int step = Integer.highestOneBit(tree.length - 1); step > 0; step >>= 1) {
+            int next = id + step;
+            if (next < tree.length && tree[next] < remaining) {
+                id = next;
+                remaining -= tree[next];
+            }
+        }
+        return id;
+    }
+
+    /**
+     * 编号在sheet中的最后加入的合并单元格，编号用尽时按sheet中的顺序重新编号
+     */
+    private void append(CellRangeAddress region) {
+        if (nextId == byId.length) {
+            CellRangeAddress[] live = new CellRangeAddress[ids.size()];
+            int n = 0;
+            for (int i = 0; i < nextId; i++) {
+                if (null != byId[i]) live[n++] = byId[i];
+            }
+            renumber(live, n);
+        }
+        int id = nextId++;
+        byId[id] = region;
+        ids.put(region, id);
+        update(id, 1);
+    }
+
+    private void delete(CellRangeAddress region) {
+        int id = ids.remove(region);
+        byId[id] = null;
+        update(id, -1);
+    }
+
+    /**
+     * 调整后的合并单元格使用原合并单元格的编号，sheet中的序号不变
+     */
+    private void replace(CellRangeAddress region, CellRangeAddress replacement) {
+        int id = ids.remove(region);
+        byId[id] = replacement;
+        ids.put(replacement, id);
+    }
+
+    private static void removeIdentity(List<CellRangeAddress> list, CellRangeAddress region) {
+        for (int i = 0; i < list.size(); i++) {
+            if (list.get(i) == region) {
+                list.remove(i);
+                return;
+            }
+        }
+    }
+
+    /**
+     * 按起始列排序时插入的位置
+     */
+    private static int insertionPoint(List<CellRangeAddress> list, int firstColumn) {
+        int low = 0;
+        int high = list.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (list.get(mid).getFirstColumn() <= firstColumn) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    /**
+     * 最后一个起始行不大于row的行段，没有时返回-1
+     */
+    private int bandIndex(int row) {
+        int low = 0;
+        int high = bands.size() - 1;
+        int found = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (bands.get(mid).start <= row) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * 单元格所在的合并单元格
+     *
+     * @param row   行号
+     * @param column    列号
+     * @return  合并单元格，不在合并单元格中时返回null
+     */
+    CellRangeAddress get(int row, int column) {
+        int index = bandIndex(row);
+        if (index < 0) return null;
+        Band band = bands.get(index);
+        if (band.end < row) return null;
+        CellRangeAddress[] candidates = band.regions;
+        int low = 0;
+        int high = candidates.length - 1;
+        int found = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (candidates[mid].getFirstColumn() <= column) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return found >= 0 && candidates[found].getLastColumn() >= column ? candidates[found] : null;
+    }
+
+    /**
+     * 与region范围相同的合并单元格在sheet中的序号
+     *
+     * @param region    合并单元格
+     * @return  序号，不存在时返回-1
+     */
+    int indexOf(CellRangeAddress region) {
+        CellRangeAddress found = get(region.getFirstRow(), region.getFirstColumn());
+        if (null == found || found.getFirstRow() != region.getFirstRow() || found.getFirstColumn() != region.getFirstColumn()
+                || found.getLastRow() != region.getLastRow() || found.getLastColumn() != region.getLastColumn()) {
+            return -1;
+        }
+        return rank(ids.get(found));
+    }
+
+    /**
+     * 与指定范围相交的合并单元格，每个只返回一次，按所在行段的顺序
+     *
+     * @param firstRow  起始行
+     * @param lastRow   结束行
+     * @param firstColumn   起始列
+     * @param lastColumn    结束列
+     * @param result    结果
+     */
+    void collect(int firstRow, int lastRow, int firstColumn, int lastColumn, List<CellRangeAddress> result) {
+        for (int i = Math.max(bandIndex(firstRow), 0); i < bands.size(); i++) {
+            Band band = bands.get(i);
+            if (band.start > lastRow) break;
+            if (band.end < firstRow) continue;
+            for (CellRangeAddress region : band.regions) {
+                if (region.getFirstColumn() > lastColumn) break;
+                if (region.getLastColumn() < firstColumn) continue;
+                //只在与查询范围相交的第一个行段中返回
+                if (Math.max(region.getFirstRow(), firstRow) >= band.start) result.add(region);
+            }
+        }
+    }
+
+    /**
+     * 添加合并单元格（sheet中新增的合并单元格位于最后）
+     *
+     * @param region    合并单元格
+     */
+    void add(CellRangeAddress region) {
+        append(region);
+        int firstRow = region.getFirstRow();
+        int lastRow = region.getLastRow();
+        split(firstRow);
+        split(lastRow + 1);
+        int index = bandIndex(firstRow);
+        if (index < 0 || bands.get(index).end < firstRow) index++;
+        int row = firstRow;
+        while (row <= lastRow) {
+            Band band = index < bands.size() ? bands.get(index) : null;
+            if (null == band || band.start > row) {     //没有合并单元格的行，新建行段
+                int end = null == band ? lastRow : Math.min(lastRow, band.start - 1);
+                bands.add(index, new Band(row, end, new CellRangeAddress[]{region}));
+                row = end + 1;
+            } else {
+                band.regions = insert(band.regions, region);
+                row = band.end + 1;
+            }
+            index++;
+        }
+    }
+
+    /**
+     * 删除sheet中第position个合并单元格（sheet中其后的合并单元格序号随之减1）
+     *
+     * @param position  序号
+     */
+    void remove(int position) {
+        CellRangeAddress region = byId[select(position)];
+        delete(region);
+        int index = bandIndex(region.getFirstRow());
+        if (index < 0) return;
+        int first = index;
+        while (index < bands.size() && bands.get(index).start <= region.getLastRow()) {
+            Band band = bands.get(index);
+            band.regions = without(band.regions, region);
+            if (band.regions.length == 0) {
+                bands.remove(index);
+            } else {
+                index++;
+            }
+        }
+        //删除后两端的行段可能与相邻行段相同，合并以免行段越拆越碎
+        merge(index - 1);
+        merge(first - 1);
+    }
+
+    /**
+     * 多处插入行之后调整，与RowShifter.insertRows相同：跨越插入点的合并单元格随之扩展，其后的随之下移。
+     * 第一个插入点及其上方的行段不变（只替换其中扩展的合并单元格），只重建其下方的行段
+     *
+     * @param anchorRows    插入点，升序，在其后插入
+     * @param offsets   行号大于anchorRows[i]（且不大于下一个插入点）的行移动的行数
+     */
+    void insertRows(int[] anchorRows, int[] offsets) {
+        int fromRow = anchorRows[0] + 1;
+        Map<CellRangeAddress, CellRangeAddress> changes = new IdentityHashMap<>();
+        for (CellRangeAddress region : regionsFrom(fromRow)) {
+            int firstRow = RowShifter.shiftRowIndex(anchorRows, offsets, region.getFirstRow());
+            int lastRow = RowShifter.shiftRowIndex(anchorRows, offsets, region.getLastRow());
+            CellRangeAddress shifted = region;
+            if (firstRow != region.getFirstRow() || lastRow != region.getLastRow()) {
+                shifted = new CellRangeAddress(firstRow, lastRow, region.getFirstColumn(), region.getLastColumn());
+                replace(region, shifted);
+            }
+            changes.put(region, shifted);
+        }
+        rebuildFrom(fromRow, changes);
+    }
+
+    /**
+     * 一次删除多行之后调整，与NiceXSSFWorkbook.removeRows相同：以删除行为起点的合并单元格删除；
+     * 其余位置改变的合并单元格在sheet中删除后按原顺序加在最后，只剩一个单元格的不再加入。
+     * 第一个删除行上方的行段不变（只替换其中缩短的合并单元格），只重建其下方的行段
+     *
+     * @param removedRows   删除的行号，升序
+     */
+    void removeRows(int[] removedRows) {
+        int fromRow = removedRows[0];
+        List<CellRangeAddress> affected = regionsFrom(fromRow);
+        Collections.sort(affected, new Comparator<CellRangeAddress>() {
+            @Override
+            public int compare(CellRangeAddress o1, CellRangeAddress o2) {
+                return compareInt(ids.get(o1), ids.get(o2));
+            }
+        });
+        Map<CellRangeAddress, CellRangeAddress> changes = new IdentityHashMap<>();
+        List<CellRangeAddress> shifted = new ArrayList<>();
+        for (CellRangeAddress region : affected) {
+            int firstRow = region.getFirstRow();
+            int lastRow = region.getLastRow();
+            int newFirstRow = firstRow - RowShifter.countRemovedRows(removedRows, firstRow);
+            int newLastRow = lastRow - RowShifter.countRemovedRows(removedRows, lastRow);
+            if (Arrays.binarySearch(removedRows, firstRow) < 0 && newFirstRow == firstRow && newLastRow == lastRow) {
+                changes.put(region, region);
+                continue;
+            }
+            delete(region);
+            CellRangeAddress replacement = null;
+            if (Arrays.binarySearch(removedRows, firstRow) < 0
+                    && (newFirstRow != newLastRow || region.getFirstColumn() != region.getLastColumn())) {
+                replacement = new CellRangeAddress(newFirstRow, newLastRow, region.getFirstColumn(), region.getLastColumn());
+                shifted.add(replacement);
+            }
+            changes.put(region, replacement);
+        }
+        for (CellRangeAddress region : shifted) {
+            append(region);
+        }
+        rebuildFrom(fromRow, changes);
+    }
+
+    /**
+     * 插入、删除列之后调整，与ColumnShifter.shiftColumns相同：跨越插入点的合并单元格随之扩展，包含删除列的随之缩小，
+     * 只剩一个单元格时删除，其后的随之移动。行段不变，只替换其中插入点、删除列右侧的合并单元格，
+     * 删除合并单元格后去掉空的行段并合并相同的相邻行段；移动后各行段中的合并单元格仍按起始列排序
+     *
+     * @param mapping   插入点与删除的列
+     */
+    void shiftColumns(ColumnShifter.ColumnMapping mapping) {
+        int firstColumn = mapping.firstShiftedColumn();
+        Map<CellRangeAddress, CellRangeAddress> shifted = new IdentityHashMap<>();
+        Map<CellRangeAddress[], CellRangeAddress[]> arrays = new IdentityHashMap<>();  //拆分后的行段共用同一数组
+        boolean removed = false;
+        for (Band band : bands) {
+            CellRangeAddress[] result = arrays.get(band.regions);
+            if (null == result) {
+                List<CellRangeAddress> kept = null;
+                for (int i = 0; i < band.regions.length; i++) {
+                    CellRangeAddress region = band.regions[i];
+                    CellRangeAddress moved = region;
+                    if (region.getLastColumn() >= firstColumn) {
+                        moved = shifted.get(region);
+                        if (!shifted.containsKey(region)) {
+                            moved = mapping.shiftMergedRegion(region);
+                            shifted.put(region, moved);
+                            if (null == moved) {
+                                delete(region);
+                            } else if (moved != region) {
+                                replace(region, moved);
+                            }
+                        }
+                    }
+                    if (moved != region && null == kept) {
+                        kept = new ArrayList<>(Arrays.asList(band.regions).subList(0, i));
+                    }
+                    if (null != kept && null != moved) kept.add(moved);
+                }
+                result = null == kept ? band.regions : kept.toArray(new CellRangeAddress[kept.size()]);
+                removed |= result.length < band.regions.length;
+                arrays.put(band.regions, result);
+            }
+            band.regions = result;
+        }
+        if (!removed) return;
+        for (int i = bands.size() - 1; i >= 0; i--) {
+            if (bands.get(i).regions.length == 0) {
+                bands.remove(i);
+            } else {
+                merge(i);
+            }
+        }
+    }
+
+    /**
+     * 与第row行及其下方的行相交的合并单元格
+     */
+    private List<CellRangeAddress> regionsFrom(int row) {
+        Map<CellRangeAddress, Boolean> found = new IdentityHashMap<>();
+        List<CellRangeAddress> result = new ArrayList<>();
+        for (int i = Math.max(bandIndex(row), 0); i < bands.size(); i++) {
+            Band band = bands.get(i);
+            if (band.end < row) continue;
+            for (CellRangeAddress region : band.regions) {
+                if (null == found.put(region, Boolean.TRUE)) result.add(region);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 按调整后的合并单元格重建第fromRow行及其下方的行段；其上方的行段中，
+     * 跨越第fromRow行的合并单元格替换为调整后的合并单元格，调整后不存在的移除
+     *
+     * @param fromRow   起始行，其上方的行未移动
+     * @param changes   与第fromRow行及其下方的行相交的全部合并单元格 -> 调整后的合并单元格，删除时为null
+     */
+    private void rebuildFrom(int fromRow, Map<CellRangeAddress, CellRangeAddress> changes) {
+        split(fromRow);
+        int first = bandIndex(fromRow - 1) + 1;
+        List<CellRangeAddress> lower = new ArrayList<>();
+        for (CellRangeAddress region : changes.values()) {
+            if (null != region && region.getLastRow() >= fromRow) lower.add(region);
+        }
+        bands.subList(first, bands.size()).clear();
+        bands.addAll(sweep(lower.toArray(new CellRangeAddress[lower.size()]), fromRow));
+        int touched = first;
+        for (Map.Entry<CellRangeAddress, CellRangeAddress> entry : changes.entrySet()) {
+            CellRangeAddress region = entry.getKey();
+            if (region.getFirstRow() >= fromRow || entry.getValue() == region) continue;
+            int start = bandIndex(region.getFirstRow());
+            touched = Math.min(touched, start);
+            for (int i = start; i < first; i++) {
+                Band band = bands.get(i);
+                band.regions = null == entry.getValue() ? without(band.regions, region)
+                        : replaced(band.regions, region, entry.getValue());
+            }
+        }
+        for (int i = first - 1; i >= touched; i--) {
+            if (bands.get(i).regions.length == 0) {
+                bands.remove(i);
+                first--;
+            }
+        }
+        for (int i = first - 1; i >= touched - 1; i--) {
+            merge(i);
+        }
+    }
+
+    private static CellRangeAddress[] replaced(CellRangeAddress[] sorted, CellRangeAddress region,
+                                               CellRangeAddress replacement) {
+        for (int i = 0; i < sorted.length; i++) {
+            if (sorted[i] != region) continue;
+            CellRangeAddress[] result = sorted.clone();
+            result[i] = replacement;
+            return result;
+        }
+        return sorted;
+    }
+
+    /**
+     * 第i个行段与其后相邻的行段包含的合并单元格相同时，合并为一个行段
+     */
+    private void merge(int i) {
+        if (i < 0 || i + 1 >= bands.size()) return;
+        Band band = bands.get(i);
+        Band next = bands.get(i + 1);
+        if (band.end + 1 != next.start || band.regions.length != next.regions.length) return;
+        for (int j = 0; j < band.regions.length; j++) {
+            if (band.regions[j] != next.regions[j]) return;
+        }
+        band.end = next.end;
+        bands.remove(i + 1);
+    }
+
+    private static CellRangeAddress[] without(CellRangeAddress[] sorted, CellRangeAddress region) {
+        for (int i = 0; i < sorted.length; i++) {
+            if (sorted[i] != region) continue;
+            CellRangeAddress[] result = new CellRangeAddress[sorted.length - 1];
+            System.arraycopy(sorted, 0, result, 0, i);
+            System.arraycopy(sorted, i + 1, result, i, sorted.length - i - 1);
+            return result;
+        }
+        return sorted;
+    }
+
+    /**
+     * 在第row行处拆分行段，使row成为行段的起点
+     */
+    private void split(int row) {
+        int index = bandIndex(row);
+        if (index < 0) return;
+        Band band = bands.get(index);
+        if (band.start == row || band.end < row) return;
+        bands.add(index + 1, new Band(row, band.end, band.regions));
+        band.end = row - 1;
+    }
+
+    private static CellRangeAddress[] insert(CellRangeAddress[] sorted, CellRangeAddress region) {
+        int position = insertionPoint(Arrays.asList(sorted), region.getFirstColumn());
+        CellRangeAddress[] result = new CellRangeAddress[sorted.length + 1];
+        System.arraycopy(sorted, 0, result, 0, position);
+        result[position] = region;
+        System.arraycopy(sorted, position, result, position + 1, sorted.length - position);
+        return result;
+    }
+
+}
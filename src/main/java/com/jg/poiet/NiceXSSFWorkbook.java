@@ -11,7 +11,9 @@ import com.jg.poiet.util.CellUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.poi.ss.usermodel.CellCopyPolicy;
 import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xssf.usermodel.XSSFCell;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
 import org.apache.poi.xssf.usermodel.XSSFRow;
 import org.apache.poi.xssf.usermodel.XSSFSheet;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
@@ -30,12 +32,80 @@ public class NiceXSSFWorkbook extends XSSFWorkbook {
 
     private static Logger logger = LoggerFactory.getLogger(NiceXSSFWorkbook.class);
 
-    protected Map<String, CellRangeAddress> cellRangeAddressMap = new HashMap<>();
-    protected Map<CellRangeAddress, Integer> cellRangeAddressIntegerMap = new HashMap<>();
-    protected List<CellRangeAddress> allCellRangeAddress = new ArrayList<>();
+    /**
+     * 各sheet的合并单元格索引，首次查询时创建，通过本类的方法增删合并单元格时同步更新，
+     * updateCellRangeAddress后重新创建
+     */
+    private Map<XSSFSheet, MergedRegionIndex> mergedRegionIndexes = new IdentityHashMap<>();
 
     private int DEFAULT_COLUMN_WIDTH = 2340;
 
+    private List<ShiftListener> shiftListeners = new ArrayList<>();
+
+    /**
+     * 由Style和原单元格样式派生出的单元格样式，按原样式序号缓存，只在本工作簿内有效
+     */
+    private Map<Style, Map<Short, XSSFCellStyle>> derivedCellStyles = new HashMap<>();
+
+    /**
+     * 写出时才生成的流式内容，及流式写出时内存中保留的行数
+     */
+    private List<StreamingContent> streamingContents = new ArrayList<>();
+    private int streamingWindowSize;
+    private boolean streamed;
+
+    /**
+     * 行列移动监听器，插入、删除行列后通知原有单元格坐标的变化
+     */
+    public interface ShiftListener {
+
+        /**
+         * 第sheetIndex个sheet中，行号大于等于startRowIndex的行整体移动了offset行
+         * @param sheetIndex    sheetIndex
+         * @param startRowIndex startRowIndex
+         * @param offset    正数为下移，负数为上移
+         */
+        void onRowsShifted(int sheetIndex, int startRowIndex, int offset);
+
+        /**
+         * 第sheetIndex个sheet中，列号大于等于startColumnIndex的列整体移动了offset列
+         * @param sheetIndex    sheetIndex
+         * @param startColumnIndex  startColumnIndex
+         * @param offset    正数为右移，负数为左移
+         */
+        void onColumnsShifted(int sheetIndex, int startColumnIndex, int offset);
+    }
+
+    /**
+     * 流式内容：写出工作簿时才生成的行，经SXSSFWorkbook按窗口大小刷新到临时文件，不在内存中保留
+     */
+    public interface StreamingContent {
+
+        /**
+         * 写出前调用，从工作簿中移除将由流式写出重新生成的行（SXSSF只能在已有行之后追加行）
+         */
+        void prepare();
+
+        /**
+         * 向流式工作簿追加行
+         * @param workbook  包装当前工作簿的流式工作簿
+         * @throws IOException  刷新行失败
+         */
+        void write(SXSSFWorkbook workbook) throws IOException;
+    }
+
+    /**
+     * 批量结构修改，在回调中通过SheetBatch记录操作
+     */
+    public interface BatchOperation {
+
+        /**
+         * 记录操作，返回后统一执行
+         * @param batch batch
+         */
+        void apply(SheetBatch batch);
+    }
+
     /**
      * 新建空白工作簿
      */
@@ -51,7 +121,6 @@ public class NiceXSSFWorkbook extends XSSFWorkbook {
      */
     public NiceXSSFWorkbook(InputStream in) throws IOException {
         super(in);
-        buildAllCellRangeAddress();
     }
 
     /**
@@ -83,10 +152,47 @@ public class NiceXSSFWorkbook extends XSSFWorkbook {
      * @throws IOException
      */
     public void writeToOutputStream(OutputStream outputStream) throws IOException {
-        this.write(outputStream);
+        this.writeTo(outputStream);
         this.close();
     }
 
+    /**
+     * 将结果输出到流中，包含流式内容。
+     * 存在流式内容时工作簿只能写出一次；直接调用write(OutputStream)不会写出流式内容
+     * @param outputStream
+     * @throws IOException
+     */
+    public void writeTo(OutputStream outputStream) throws IOException {
+        if (streamingContents.isEmpty()) {
+            this.write(outputStream);
+            return;
+        }
+        if (streamed) throw new RenderException("工作簿包含流式内容，只能写出一次！");
+        streamed = true;
+        for (StreamingContent content : streamingContents) {
+            content.prepare();
+        }
+        SXSSFWorkbook workbook = new SXSSFWorkbook(this, streamingWindowSize);
+        try {
+            for (StreamingContent content : streamingContents) {
+                content.write(workbook);
+            }
+            workbook.write(outputStream);
+        } finally {
+            workbook.dispose();
+        }
+    }
+
+    /**
+     * 添加写出时才生成的流式内容
+     * @param content   流式内容
+     * @param windowSize    流式写出时内存中保留的行数，多个流式内容取最大值
+     */
+    public void addStreamingContent(StreamingContent content, int windowSize) {
+        streamingContents.add(content);
+        streamingWindowSize = Math.max(streamingWindowSize, windowSize);
+    }
+
     /**
      * 将结果输出到本地文件中
      * @param path  文件路径
@@ -94,7 +200,7 @@ public class NiceXSSFWorkbook extends XSSFWorkbook {
      */
     public void writeToFile(String path) throws IOException {
         FileOutputStream out = new FileOutputStream(path);
-        this.write(out);
+        this.writeTo(out);
         this.close();
         out.flush();
         out.close();
@@ -283,48 +389,135 @@ public class NiceXSSFWorkbook extends XSSFWorkbook {
     }
 
     /**
-     * 构建所有的合并单元格对象
-     */
-    private void buildAllCellRangeAddress() {
-        for (int i = 0; i < this.getNumberOfSheets(); i++) {
-            XSSFSheet xssfSheet = this.getSheetAt(i);
-            List<CellRangeAddress> cellRangeAddresses = xssfSheet.getMergedRegions();
-            if (null == cellRangeAddresses) continue;
-            allCellRangeAddress.addAll(cellRangeAddresses);
-            for (int j = 0; j < xssfSheet.getNumMergedRegions(); j++) {
-                CellRangeAddress cellAddress = xssfSheet.getMergedRegion(j);
-                cellRangeAddressIntegerMap.put(cellAddress, j);
-                int firstRow = cellAddress.getFirstRow();
-                int firstColumn = cellAddress.getFirstColumn();
-                for (int ri = firstRow; ri <= cellAddress.getLastRow(); ri++) {
-                    for (int cj = firstColumn; cj <= cellAddress.getLastColumn(); cj++) {
-                        String key = this.getCellRangeAddressMapKey(i, ri, cj);
-                        cellRangeAddressMap.put(key, cellAddress);
-                    }
-                }
-            }
+     * 注册行列移动监听器
+     * @param listener  listener
+     */
+    public void addShiftListener(ShiftListener listener) {
+        shiftListeners.add(listener);
+    }
+
+    /**
+     * 移除行列移动监听器
+     * @param listener  listener
+     */
+    public void removeShiftListener(ShiftListener listener) {
+        shiftListeners.remove(listener);
+    }
+
+    private void fireRowsShifted(int sheetIndex, int startRowIndex, int offset) {
+        for (ShiftListener listener : shiftListeners) {
+            listener.onRowsShifted(sheetIndex, startRowIndex, offset);
+        }
+    }
+
+    private void fireColumnsShifted(int sheetIndex, int startColumnIndex, int offset) {
+        for (ShiftListener listener : shiftListeners) {
+            listener.onColumnsShifted(sheetIndex, startColumnIndex, offset);
         }
     }
 
     /**
-     * 获取合并单元格map的key
-     * @param sheetIndex
-     * @param rowIndex
-     * @param columnIndex
-     * @return
+     * 获取已派生的单元格样式
+     * @param style 样式对象
+     * @param baseCellStyle 原单元格样式
+     * @return  未派生过时返回null
      */
-    private String getCellRangeAddressMapKey(int sheetIndex, int rowIndex, int columnIndex) {
-        return sheetIndex + "_" + rowIndex + "_" + columnIndex;
+    public XSSFCellStyle getDerivedCellStyle(Style style, XSSFCellStyle baseCellStyle) {
+        Map<Short, XSSFCellStyle> cellStyles = derivedCellStyles.get(style);
+        return null == cellStyles ? null : cellStyles.get(baseCellStyle.getIndex());
     }
 
     /**
-     * 更新合并单元格
+     * 缓存派生的单元格样式
+     * @param style 样式对象
+     * @param baseCellStyle 原单元格样式
+     * @param cellStyle 派生的单元格样式
+     */
+    public void putDerivedCellStyle(Style style, XSSFCellStyle baseCellStyle, XSSFCellStyle cellStyle) {
+        Map<Short, XSSFCellStyle> cellStyles = derivedCellStyles.get(style);
+        if (null == cellStyles) {
+            cellStyles = new HashMap<>();
+            derivedCellStyles.put(style, cellStyles);
+        }
+        cellStyles.put(baseCellStyle.getIndex(), cellStyle);
+    }
+
+    /**
+     * sheet的合并单元格索引
+     * @param sheet sheet
+     * @return  索引
+     */
+    private MergedRegionIndex getMergedRegionIndex(XSSFSheet sheet) {
+        MergedRegionIndex index = mergedRegionIndexes.get(sheet);
+        if (null == index) {
+            index = new MergedRegionIndex(sheet.getMergedRegions());
+            mergedRegionIndexes.put(sheet, index);
+        }
+        return index;
+    }
+
+    /**
+     * 从sheet中删除与region范围相同的合并单元格
+     * @param sheet sheet
+     * @param region    合并单元格
+     */
+    private void removeMergedRegion(XSSFSheet sheet, CellRangeAddress region) {
+        MergedRegionIndex mergedRegionIndex = getMergedRegionIndex(sheet);
+        int index = mergedRegionIndex.indexOf(region);
+        if (index < 0) return;
+        sheet.removeMergedRegion(index);
+        mergedRegionIndex.remove(index);
+    }
+
+    /**
+     * 向sheet中添加合并单元格，校验规则与poi的XSSFSheet.addMergedRegion相同，
+     * 但通过索引查找重叠的合并单元格，不必每次读取sheet中的全部合并单元格
+     * @param sheet sheet
+     * @param region    合并单元格
+     */
+    private void addMergedRegion(XSSFSheet sheet, CellRangeAddress region) {
+        validateArrayFormulas(sheet, region);
+        MergedRegionIndex index = getMergedRegionIndex(sheet);
+        List<CellRangeAddress> overlapped = new ArrayList<>();
+        index.collect(region.getFirstRow(), region.getLastRow(), region.getFirstColumn(), region.getLastColumn(), overlapped);
+        if (!overlapped.isEmpty()) {
+            throw new IllegalStateException("Cannot add merged region " + region.formatAsString()
+                    + " to sheet because it overlaps with an existing merged region (" + overlapped.get(0).formatAsString() + ").");
+        }
+        sheet.addMergedRegionUnsafe(region);
+        index.add(region);
+    }
+
+    /**
+     * 合并单元格不能与多单元格的数组公式相交
+     */
+    private void validateArrayFormulas(XSSFSheet sheet, CellRangeAddress region) {
+        for (int i = region.getFirstRow(); i <= region.getLastRow(); i++) {
+            XSSFRow row = sheet.getRow(i);
+            if (null == row) continue;
+            for (int j = region.getFirstColumn(); j <= region.getLastColumn(); j++) {
+                XSSFCell cell = row.getCell(j);
+                if (null == cell || !cell.isPartOfArrayFormulaGroup()) continue;
+                CellRangeAddress arrayRange = cell.getArrayFormulaRange();
+                if (arrayRange.getNumberOfCells() > 1 && region.intersects(arrayRange)) {
+                    throw new IllegalStateException("The range " + region.formatAsString()
+                            + " intersects with a multi-cell array formula. You cannot merge cells of an array.");
+                }
+            }
+        }
+    }
+
+    /**
+     * 更新合并单元格：本类的方法已同步更新合并单元格索引，只在直接通过poi修改了合并单元格后需要调用
      */
     public void updateCellRangeAddress() {
-        cellRangeAddressMap.clear();
-        allCellRangeAddress.clear();
-        cellRangeAddressIntegerMap.clear();
-        buildAllCellRangeAddress();
+        mergedRegionIndexes.clear();
+    }
+
+    @Override
+    public void removeSheetAt(int index) {
+        mergedRegionIndexes.remove(getSheetAt(index));
+        super.removeSheetAt(index);
     }
 
     /**
@@ -333,10 +526,7 @@ public class NiceXSSFWorkbook extends XSSFWorkbook {
      * @return
      */
     public boolean isMergedRegion(XSSFCell cell) {
-        int sheetIndex = this.getSheetIndex(cell.getSheet());
-        int rowIndex = cell.getRowIndex();
-        int columnIndex = cell.getColumnIndex();
-        return isMergedRegion(sheetIndex, rowIndex, columnIndex);
+        return getCellRangeAddress(cell) != null;
     }
 
     /**
@@ -380,7 +570,8 @@ public class NiceXSSFWorkbook extends XSSFWorkbook {
      * @return  CellRangeAddress
      */
     public CellRangeAddress getCellRangeAddress(int sheetIndex, int rowIndex, int columnIndex) {
-        return cellRangeAddressMap.get(getCellRangeAddressMapKey(sheetIndex, rowIndex, columnIndex));
+        if (sheetIndex < 0 || sheetIndex >= this.getNumberOfSheets()) return null;
+        return getMergedRegionIndex(this.getSheetAt(sheetIndex)).get(rowIndex, columnIndex);
     }
 
     /**
@@ -389,10 +580,7 @@ public class NiceXSSFWorkbook extends XSSFWorkbook {
      * @return  CellRangeAddress
      */
     public CellRangeAddress getCellRangeAddress(XSSFCell cell) {
-        int sheetIndex = this.getSheetIndex(cell.getSheet());
-        int rowIndex = cell.getRowIndex();
-        int columnIndex = cell.getColumnIndex();
-        return getCellRangeAddress(sheetIndex, rowIndex, columnIndex);
+        return getMergedRegionIndex(cell.getSheet()).get(cell.getRowIndex(), cell.getColumnIndex());
     }
 
     /**
@@ -402,7 +590,7 @@ public class NiceXSSFWorkbook extends XSSFWorkbook {
      * @param lastRowIndex  lastRowIndex
      * @param firstColumnIndex  firstColumnIndex
      * @param lastColumnIndex   lastColumnIndex
-     * @param isUpdate  是否更新
+     * @param isUpdate  是否更新合并单元格信息，合并单元格索引已同步更新，保留此参数以兼容
      */
     public void addMergedRegion(int sheetIndex, int firstRowIndex, int lastRowIndex, int firstColumnIndex, int lastColumnIndex, boolean isUpdate) {
         if (firstRowIndex > lastRowIndex || firstColumnIndex > lastColumnIndex) return ;
@@ -425,18 +613,7 @@ public class NiceXSSFWorkbook extends XSSFWorkbook {
                 }
             }
         }
-        sheet.addMergedRegion(region);
-        if (isUpdate) {
-            updateCellRangeAddress();
-        } else {
-            allCellRangeAddress.add(region);
-            for (int ri = firstRowIndex; ri <= lastRowIndex; ri++) {
-                for (int cj = firstColumnIndex; cj <= lastColumnIndex; cj++) {
-                    String key = this.getCellRangeAddressMapKey(sheetIndex, ri, cj);
-                    cellRangeAddressMap.put(key, region);
-                }
-            }
-        }
+        addMergedRegion(sheet, region);
     }
 
     /**
@@ -462,125 +639,123 @@ public class NiceXSSFWorkbook extends XSSFWorkbook {
     /**
      * 拆分单元格
      * @param cell   单元格
-     * @param isUpdate 是否更新合并单元格信息
+     * @param isUpdate 是否更新合并单元格信息，合并单元格索引已同步更新，保留此参数以兼容
      */
     public void removeMergedRegion(XSSFCell cell, boolean isUpdate) {
         CellRangeAddress cellAddress = this.getCellRangeAddress(cell);
         if (null == cellAddress) return;
-        cell.getSheet().removeMergedRegion(cellRangeAddressIntegerMap.get(cellAddress));
-        if (isUpdate) {
-            updateCellRangeAddress();
-        }
+        removeMergedRegion(cell.getSheet(), cellAddress);
+    }
+
+    /**
+     * 批量修改第sheetIndex个sheet的结构：operation中记录的行列插入、删除、复制与合并单元格在其返回后合并执行，
+     * 多处插入、删除只移动一次行，合并单元格索引只调整一次，坐标规则见SheetBatch
+     * @param sheetIndex    sheetIndex
+     * @param operation 记录操作的回调
+     */
+    public void batch(int sheetIndex, BatchOperation operation) {
+        if (null == this.getSheetAt(sheetIndex)) throw new RenderException("工作表不存在！") ;
+        SheetBatch batch = new SheetBatch();
+        operation.apply(batch);
+        batch.commit(this, sheetIndex);
     }
 
     /**
-     * 在第sheetIndex个sheet中的第insertRowIndex行之前插入insertNum行
+     * 在第sheetIndex个sheet中的第insertRowIndex行之前插入insertNum行，
+     * 跨越插入位置的合并单元格随之扩展，扩展出的行复制原第insertRowIndex行的单元格样式
      * @param sheetIndex    sheetIndex
      * @param insertRowIndex    insertRowIndex
      * @param insertNum insertNum
      */
     public void insertRowsBefore(int sheetIndex, int insertRowIndex, int insertNum) {
-        if (insertNum <= 0) return;
-        //TO DO 插入行
-        XSSFSheet sheet = this.getSheetAt(sheetIndex);
-        if (null == sheet) throw new RenderException("工作表不存在！") ;
-        //插入行
-        sheet.createRow(sheet.getLastRowNum() + insertNum);
-        for (int i = sheet.getLastRowNum(); i >= insertRowIndex + insertNum; i--) {
-            XSSFRow targetRow = sheet.createRow(i);
-            XSSFRow sourceRow = sheet.getRow(i - insertNum);
-            this.copyRow(targetRow, sourceRow);
-        }
-        //清空行数据和样式（单元格除外）
-        for (int i = insertRowIndex + insertNum - 1; i >= insertRowIndex; i--) {
-            sheet.createRow(i);
-        }
-        //遍历合并单元格
-        XSSFRow currentRow = sheet.getRow(insertRowIndex + insertNum);
-        List<CellRangeAddress> cellRangeAddressList = new ArrayList<>(sheet.getMergedRegions());
-        for (CellRangeAddress cellAddress : cellRangeAddressList) {
-            int firstRow = cellAddress.getFirstRow();
-            int lastRow = cellAddress.getLastRow();
-            int firstColumn = cellAddress.getFirstColumn();
-            int lastColumn = cellAddress.getLastColumn();
-            if (firstRow < insertRowIndex && lastRow >= insertRowIndex) {
-
-                for (int i = insertRowIndex; i <= insertRowIndex + insertNum - 1; i ++) {   //复制单元格样式
-                    XSSFRow row = sheet.getRow(i);
-                    if (row == null) {
-                        row = sheet.createRow(i);
-                    }
-                    for (int j = firstColumn; j <= lastColumn; j++) {
-                        XSSFCell sourceCell = currentRow.getCell(j);
-                        if (sourceCell != null) {
-                            XSSFCell targetCell = row.createCell(j);
-                            targetCell.copyCellFrom(sourceCell, new CellCopyPolicy());
-                        }
-                    }
-                }
-
-                sheet.removeMergedRegion(cellRangeAddressIntegerMap.get(cellAddress));
-                addMergedRegion(this.getSheetIndex(sheet),
-                        firstRow,
-                        lastRow + insertNum,
-                        firstColumn, lastColumn);
-            }
-        }
-        this.updateCellRangeAddress();
+        Map<Integer, Integer> insertNums = Collections.singletonMap(insertRowIndex - 1, insertNum);
+        insertRows(sheetIndex, insertNums, insertNums);
     }
 
     /**
-     * 在第sheetIndex个sheet中的第insertRowIndex行之后插入insertNum行
+     * 在第sheetIndex个sheet中的第insertRowIndex行之后插入insertNum行，
+     * 跨越插入位置的合并单元格随之扩展，扩展出的行复制第insertRowIndex行的单元格样式
      * @param sheetIndex    sheetIndex
      * @param insertRowIndex    insertRowIndex
      * @param insertNum insertNum
      */
     public void insertRowsAfter(int sheetIndex, int insertRowIndex, int insertNum) {
-        if (insertNum <= 0) return;
-        //TO DO 插入行
+        insertRows(sheetIndex, Collections.singletonMap(insertRowIndex, insertNum), Collections.<Integer, Integer>emptyMap());
+    }
+
+    /**
+     * 在第sheetIndex个sheet中一次完成多处插入：insertNums的key为行号，value为在该行之后插入的行数。
+     * 自下而上每行只移动一次，合并单元格统一调整一次，结果等同于自下而上依次调用insertRowsAfter
+     * @param sheetIndex    sheetIndex
+     * @param insertNums    行号 -> 插入行数
+     */
+    public void insertRowsAfter(int sheetIndex, Map<Integer, Integer> insertNums) {
+        insertRows(sheetIndex, insertNums, Collections.<Integer, Integer>emptyMap());
+    }
+
+    /**
+     * 插入行：行对象由RowShifter整体移动，不逐行复制，公式、超链接、条件格式、数据有效性随之调整，
+     * 合并单元格一次写回，索引只调整插入点之下的行段
+     * @param sheetIndex    sheetIndex
+     * @param insertNums    行号 -> 在其后插入的行数
+     * @param fromBelow 行号 -> 其中最后几行（即在下一行之前插入的行）扩展时复制下一行（而非插入点所在行）的单元格样式
+     */
+    void insertRows(int sheetIndex, Map<Integer, Integer> insertNums, Map<Integer, Integer> fromBelow) {
+        TreeMap<Integer, Integer> anchors = new TreeMap<>();
+        for (Map.Entry<Integer, Integer> entry : insertNums.entrySet()) {
+            if (entry.getValue() > 0) anchors.put(entry.getKey(), entry.getValue());
+        }
+        if (anchors.isEmpty()) return;
         XSSFSheet sheet = this.getSheetAt(sheetIndex);
         if (null == sheet) throw new RenderException("工作表不存在！") ;
-        sheet.createRow(sheet.getLastRowNum() + insertNum);
-        for (int i = sheet.getLastRowNum(); i > insertRowIndex + insertNum; i--) {
-            XSSFRow targetRow = sheet.createRow(i);
-            XSSFRow sourceRow = sheet.getRow(i - insertNum);
-            this.copyRow(targetRow, sourceRow);
+        int[] anchorRows = new int[anchors.size()];
+        int[] insertNumArray = new int[anchors.size()];
+        int[] fromBelowArray = new int[anchors.size()];
+        int[] offsets = new int[anchors.size()];    //行号大于anchorRows[i]（且不大于下一个插入点）的行移动的行数
+        int k = 0;
+        for (Map.Entry<Integer, Integer> entry : anchors.entrySet()) {
+            anchorRows[k] = entry.getKey();
+            insertNumArray[k] = entry.getValue();
+            Integer below = fromBelow.get(entry.getKey());
+            fromBelowArray[k] = null == below ? 0 : Math.min(below, entry.getValue());
+            offsets[k] = (k == 0 ? 0 : offsets[k - 1]) + entry.getValue();
+            k++;
         }
-        for (int i = insertRowIndex + insertNum; i > insertRowIndex; i--) {
-            sheet.createRow(i);
+        List<CellRangeAddress> cellRangeAddressList = sheet.getMergedRegions();
+        RowShifter.insertRows(sheet, anchorRows, offsets);
+        MergedRegionIndex index = mergedRegionIndexes.get(sheet);   //尚未建立时之后按sheet建立
+        if (null != index) index.insertRows(anchorRows, offsets);
+        //插入的行为空行
+        for (k = 0; k < anchorRows.length; k++) {
+            int anchorRow = RowShifter.shiftRowIndex(anchorRows, offsets, anchorRows[k]);
+            for (int i = anchorRow + 1; i <= anchorRow + insertNumArray[k]; i++) {
+                sheet.createRow(i);
+            }
         }
-        //遍历合并单元格
-        XSSFRow currentRow = sheet.getRow(insertRowIndex);
-        List<CellRangeAddress> cellRangeAddressList = new ArrayList<>(sheet.getMergedRegions());
+        //跨越插入点的合并单元格已随之扩展，将插入点所在行（或下一行）的单元格样式复制到扩展出的行
         for (CellRangeAddress cellAddress : cellRangeAddressList) {
-            int firstRow = cellAddress.getFirstRow();
-            int lastRow = cellAddress.getLastRow();
-            int firstColumn = cellAddress.getFirstColumn();
-            int lastColumn = cellAddress.getLastColumn();
-            if (lastRow > insertRowIndex && firstRow <= insertRowIndex) {
-
-                for (int i = insertRowIndex + 1; i <= insertRowIndex + insertNum; i ++) {   //复制单元格样式
-                    XSSFRow row = sheet.getRow(i);
-                    if (row == null) {
-                        row = sheet.createRow(i);
-                    }
-                    for (int j = firstColumn; j <= lastColumn; j++) {
+            for (k = 0; k < anchorRows.length; k++) {
+                if (cellAddress.getFirstRow() > anchorRows[k] || cellAddress.getLastRow() <= anchorRows[k]) continue;
+                int anchorRow = RowShifter.shiftRowIndex(anchorRows, offsets, anchorRows[k]);
+                XSSFRow aboveRow = sheet.getRow(anchorRow);
+                XSSFRow belowRow = sheet.getRow(RowShifter.shiftRowIndex(anchorRows, offsets, anchorRows[k] + 1));
+                int firstFromBelow = anchorRow + insertNumArray[k] - fromBelowArray[k] + 1;
+                for (int r = anchorRow + 1; r <= anchorRow + insertNumArray[k]; r++) {
+                    XSSFRow currentRow = r < firstFromBelow ? aboveRow : belowRow;
+                    if (null == currentRow) continue;
+                    XSSFRow row = sheet.getRow(r);
+                    for (int j = cellAddress.getFirstColumn(); j <= cellAddress.getLastColumn(); j++) {
                         XSSFCell sourceCell = currentRow.getCell(j);
                         if (sourceCell != null) {
-                            XSSFCell targetCell = row.createCell(j);
-                            targetCell.copyCellFrom(sourceCell, new CellCopyPolicy());
+                            row.createCell(j).copyCellFrom(sourceCell, new CellCopyPolicy());
                         }
                     }
                 }
-
-                sheet.removeMergedRegion(cellRangeAddressIntegerMap.get(cellAddress));
-                addMergedRegion(this.getSheetIndex(sheet),
-                        firstRow,
-                        lastRow + insertNum,
-                        firstColumn, lastColumn);
             }
         }
-        this.updateCellRangeAddress();
+        for (k = anchorRows.length - 1; k >= 0; k--) {  //自下而上通知，与依次插入的顺序一致
+            fireRowsShifted(sheetIndex, anchorRows[k] + 1, insertNumArray[k]);
+        }
     }
 
     /**
@@ -592,7 +767,8 @@ public class NiceXSSFWorkbook extends XSSFWorkbook {
         if (sourceRow == null) {
             return ;
         }
-        targetRow.copyRowFrom(sourceRow, new CellCopyPolicy());
+        //合并单元格在下方统一移动，不由poi复制
+        targetRow.copyRowFrom(sourceRow, new CellCopyPolicy.Builder().mergedRegions(false).build());
         XSSFSheet sheet = targetRow.getSheet();
         for (int i = 0; i <= sourceRow.getLastCellNum(); i++) {
             XSSFCell xssfCell = sourceRow.getCell(i);
@@ -605,8 +781,7 @@ public class NiceXSSFWorkbook extends XSSFWorkbook {
             int firstColumn = cellAddresses.getFirstColumn();
             int lastRow = cellAddresses.getLastRow();
             int lastColumn = cellAddresses.getLastColumn();
-            int regionIndex = cellRangeAddressIntegerMap.get(cellAddresses);
-            sheet.removeMergedRegion(cellRangeAddressIntegerMap.get(cellAddresses));
+            removeMergedRegion(sheet, cellAddresses);
             addMergedRegion(this.getSheetIndex(sheet),
                     targetRow.getRowNum(),
                     targetRow.getRowNum() + (lastRow - firstRow),
@@ -630,6 +805,29 @@ public class NiceXSSFWorkbook extends XSSFWorkbook {
         copyRow(targetRow, sourceRow);
     }
 
+    /**
+     * 复制行，与poi的XSSFRow.copyRowFrom相同：源行中只占一行的合并单元格复制到目标行，源行的合并单元格不变。
+     * 合并单元格从索引中查找并同步更新索引，不必每行读取sheet中的全部合并单元格
+     * @param targetRow 目标行
+     * @param sourceRow 源行，为null时清空目标行，并拆分目标行中只占一行的合并单元格
+     */
+    public void copyRowFrom(XSSFRow targetRow, XSSFRow sourceRow) {
+        targetRow.copyRowFrom(sourceRow, new CellCopyPolicy.Builder().mergedRegions(false).build());
+        XSSFRow row = null == sourceRow ? targetRow : sourceRow;
+        int rowIndex = row.getRowNum();
+        List<CellRangeAddress> cellRangeAddressList = new ArrayList<>();
+        getMergedRegionIndex(row.getSheet()).collect(rowIndex, rowIndex, 0, Integer.MAX_VALUE, cellRangeAddressList);
+        for (CellRangeAddress cellAddress : cellRangeAddressList) {
+            if (cellAddress.getFirstRow() != rowIndex || cellAddress.getLastRow() != rowIndex) continue;
+            if (null == sourceRow) {
+                removeMergedRegion(targetRow.getSheet(), cellAddress);
+            } else {
+                addMergedRegion(targetRow.getSheet(), new CellRangeAddress(targetRow.getRowNum(), targetRow.getRowNum(),
+                        cellAddress.getFirstColumn(), cellAddress.getLastColumn()));
+            }
+        }
+    }
+
     /**
      * 删除行
      * @param sheetIndex    sheetIndex
@@ -637,47 +835,72 @@ public class NiceXSSFWorkbook extends XSSFWorkbook {
      */
     public void removeRow(int sheetIndex, int rowIndex) {
         if (rowIndex < 0) return;
+        removeRows(sheetIndex, Collections.singleton(rowIndex));
+    }
+
+    /**
+     * 在第sheetIndex个sheet中一次删除多行，rowIndexes为删除前的行号。行对象由RowShifter整体移动，每行只移动一次，
+     * 合并单元格统一调整一次，耗时与删除的行数无关。以删除行为起点的合并单元格拆分，并清空其中的单元格；跨越删除行的合并单元格随之缩短；
+     * 删除行之下的合并单元格随之上移
+     * @param sheetIndex    sheetIndex
+     * @param rowIndexes    删除的行号
+     */
+    public void removeRows(int sheetIndex, Collection<Integer> rowIndexes) {
+        TreeSet<Integer> rowSet = new TreeSet<>();
+        for (Integer rowIndex : rowIndexes) {
+            if (rowIndex >= 0) rowSet.add(rowIndex);
+        }
+        if (rowSet.isEmpty()) return;
         XSSFSheet sheet = this.getSheetAt(sheetIndex);
         if (null == sheet) return ;
-
+        int[] removedRows = new int[rowSet.size()];
+        int k = 0;
+        for (Integer rowIndex : rowSet) {
+            removedRows[k++] = rowIndex;
+        }
         //处理合并单元格
-        List<CellRangeAddress> cellRangeAddressList = new ArrayList<>(sheet.getMergedRegions());
-        for (CellRangeAddress cellAddress : cellRangeAddressList) {
+        List<Integer> removed = new ArrayList<>();
+        List<CellRangeAddress> shifted = new ArrayList<>();
+        List<CellRangeAddress> cellRangeAddressList = sheet.getMergedRegions();
+        for (int i = 0; i < cellRangeAddressList.size(); i++) {
+            CellRangeAddress cellAddress = cellRangeAddressList.get(i);
             int firstRow = cellAddress.getFirstRow();
             int lastRow = cellAddress.getLastRow();
             int firstColumn = cellAddress.getFirstColumn();
             int lastColumn = cellAddress.getLastColumn();
-            //以删除行为起点的合并单元格全部拆分，不保留，如果存在跨行的合并单元格，单元格全部清除。
-            if (firstRow == rowIndex) {
-                sheet.removeMergedRegion(cellRangeAddressIntegerMap.get(cellAddress));
-                updateCellRangeAddress();
-                for (int i = firstRow; i <= lastRow; i++) {
-                    XSSFRow row = sheet.getRow(i);
+            if (Arrays.binarySearch(removedRows, firstRow) >= 0) {    //以删除行为起点，拆分并清空单元格
+                removed.add(i);
+                for (int r = firstRow; r <= lastRow; r++) {
+                    XSSFRow row = sheet.getRow(r);
                     if (row == null) continue;
                     for (int j = firstColumn; j <= lastColumn; j++) {
                         row.createCell(j);
                     }
                 }
+                continue;
             }
-            else if (lastRow >= rowIndex) {  //不以删除行为起点的合并单元格，合并行统一-1，样式保留。
-                sheet.removeMergedRegion(cellRangeAddressIntegerMap.get(cellAddress));
-                updateCellRangeAddress();
-                addMergedRegion(this.getSheetIndex(sheet),
-                        firstRow,
-                        lastRow - 1,
-                        firstColumn, lastColumn);
+            int newFirstRow = firstRow - RowShifter.countRemovedRows(removedRows, firstRow);
+            int newLastRow = lastRow - RowShifter.countRemovedRows(removedRows, lastRow);
+            if (newFirstRow == firstRow && newLastRow == lastRow) continue;
+            removed.add(i);
+            if (newFirstRow == newLastRow && firstColumn == lastColumn) continue;    //只剩一个单元格
+            shifted.add(new CellRangeAddress(newFirstRow, newLastRow, firstColumn, lastColumn));
+        }
+        List<CellRangeAddress> kept = new ArrayList<>(cellRangeAddressList.size());
+        for (int i = 0, j = 0; i < cellRangeAddressList.size(); i++) {
+            if (j < removed.size() && removed.get(j) == i) {
+                j++;
+            } else {
+                kept.add(cellRangeAddressList.get(i));
             }
         }
-
-        //从删除行开始遍历，复制行。
-        for (int i = rowIndex; i < sheet.getLastRowNum(); i++) {
-            XSSFRow targetRow = sheet.createRow(i);
-            XSSFRow sourceRow = sheet.getRow(i + 1);
-            targetRow.copyRowFrom(sourceRow, new CellCopyPolicy());
+        kept.addAll(shifted);
+        RowShifter.removeRows(sheet, removedRows, kept);
+        MergedRegionIndex index = mergedRegionIndexes.get(sheet);   //尚未建立时之后按sheet建立
+        if (null != index) index.removeRows(removedRows);
+        for (k = removedRows.length - 1; k >= 0; k--) {  //自下而上通知，与依次删除的顺序一致
+            fireRowsShifted(sheetIndex, removedRows[k] + 1, -1);
         }
-        //删除最后一行
-        sheet.removeRow(sheet.getRow(sheet.getLastRowNum()));
-        updateCellRangeAddress();
     }
 
     /**
@@ -688,92 +911,7 @@ public class NiceXSSFWorkbook extends XSSFWorkbook {
      * @param insertNum insertNum
      */
     public void insertColumnsBefore(int sheetIndex, int columnIndex, int insertNum) {
-        if (insertNum <= 0) return;
-        //TO DO 插入列
-        XSSFSheet sheet = this.getSheetAt(sheetIndex);
-        if (null == sheet) return ;
-        List<int[]> mergeList = new ArrayList<>();
-        int maxColumnIndex = -1;    //查找最大列
-        for (int i = sheet.getLastRowNum(); i >= 0; i--) {  //从后往前遍历所有行
-            XSSFRow row = sheet.getRow(i);
-            if (row == null) {  //行为空，则不作任何操作
-                continue;
-            }
-            if (row.getLastCellNum() > maxColumnIndex) {
-                maxColumnIndex = row.getLastCellNum();
-            }
-            for (int j = row.getLastCellNum(); j >= columnIndex; j--) {   //从后往前遍历列之后的所有单元格
-                XSSFCell sourceCell = row.getCell(j);
-                //创建新的单元格
-                XSSFCell targetCell = row.createCell(j + insertNum);
-                if (sourceCell == null) { //单元格为空，则不作任何操作
-                    continue;
-                }
-                targetCell.copyCellFrom(sourceCell, new CellCopyPolicy());  //复制单元格
-                CellRangeAddress cellAddresses = getCellRangeAddress(sourceCell);   //获取原单元是否为合并单元格
-                if (null == cellAddresses) continue;
-                int firstRow = cellAddresses.getFirstRow();
-                int firstColumn = cellAddresses.getFirstColumn();
-                int lastRow = cellAddresses.getLastRow();
-                int lastColumn = cellAddresses.getLastColumn();
-                if (sourceCell.getRowIndex() != lastRow
-                        || sourceCell.getColumnIndex() != lastColumn) continue;
-                int regionIndex = cellRangeAddressIntegerMap.get(cellAddresses);
-                sheet.removeMergedRegion(cellRangeAddressIntegerMap.get(cellAddresses));
-                updateCellRangeAddress();
-                if (firstColumn >= columnIndex) {
-                    mergeList.add(new int[]{firstRow, lastRow, firstColumn + insertNum, lastColumn + insertNum});
-                } else {
-                    mergeList.add(new int[]{firstRow, lastRow, firstColumn, lastColumn + insertNum});
-                }
-            }
-            for (int k = columnIndex + insertNum - 1; k >= columnIndex; k--) {
-                XSSFCell xssfCell = row.getCell(k);
-                if (xssfCell == null) {
-                    xssfCell = row.createCell(k);
-                }
-                CellRangeAddress cellAddresses = getCellRangeAddress(xssfCell);   //获取原单元是否为合并单元格
-                if (null == cellAddresses) {
-                    row.createCell(k);
-                }
-            }
-        }
-        for (int[] merge : mergeList) {
-            int firstRow = merge[0];
-            int lastRow = merge[1];
-            int firstColumn = merge[2];
-            int lastColumn = merge[3];
-            if (firstColumn < columnIndex && lastColumn >= columnIndex) {
-                for (int i = firstRow; i <= lastRow; i++) {
-                    XSSFRow row = sheet.getRow(i);
-                    if (row == null) {
-                        continue;
-                    }
-                    XSSFCell sourceCell = row.getCell(columnIndex - 1);
-                    if (sourceCell == null) {
-                        continue;
-                    }
-                    for (int j = columnIndex; j <= columnIndex + insertNum - 1; j++) {
-                        XSSFCell targetCell = row.getCell(j);
-                        if (targetCell == null) {
-                            targetCell = row.createCell(j);
-                        }
-                        targetCell.copyCellFrom(sourceCell, new CellCopyPolicy());
-                    }
-                }
-            }
-            addMergedRegion(this.getSheetIndex(sheet), firstRow, lastRow, firstColumn, lastColumn);
-        }
-        //设置列宽
-        if (maxColumnIndex > 0) {
-            for (int j = maxColumnIndex; j >= columnIndex; j--) {
-                int width = sheet.getColumnWidth(j);
-                sheet.setColumnWidth(j + insertNum, width);
-            }
-        }
-        for (int j = columnIndex + insertNum - 1; j >= columnIndex; j--) {
-            sheet.setColumnWidth(j, DEFAULT_COLUMN_WIDTH);
-        }
+        insertColumns(sheetIndex, columnIndex - 1, insertNum, false);
     }
 
     /**
@@ -784,94 +922,93 @@ public class NiceXSSFWorkbook extends XSSFWorkbook {
      * @param insertNum insertNum
      */
     public void insertColumnsAfter(int sheetIndex, int columnIndex, int insertNum) {
+        insertColumns(sheetIndex, columnIndex, insertNum, false);
+    }
+
+    /**
+     * 插入列
+     * 在第sheetIndex个sheet中的第columnIndex列之后插入insertNum列，copyColumn为true时同时将第columnIndex列中
+     * 不在合并单元格内的单元格复制到插入的列，与插入列在同一次遍历中完成
+     * @param sheetIndex    sheetIndex
+     * @param columnIndex   columnIndex
+     * @param insertNum insertNum
+     * @param copyColumn    是否复制第columnIndex列
+     */
+    public void insertColumnsAfter(int sheetIndex, int columnIndex, int insertNum, boolean copyColumn) {
+        insertColumns(sheetIndex, columnIndex, insertNum, copyColumn);
+    }
+
+    /**
+     * 插入列：单元格、合并单元格、列宽与列样式由ColumnShifter一次移动，跨越插入点的合并单元格随之扩展，
+     * 合并单元格索引只替换插入点右侧的合并单元格
+     * @param sheetIndex    sheetIndex
+     * @param anchorColumn  在其后插入，-1表示在第一列之前插入
+     * @param insertNum insertNum
+     * @param copyColumn    是否复制插入点所在列
+     */
+    private void insertColumns(int sheetIndex, int anchorColumn, int insertNum, boolean copyColumn) {
         if (insertNum <= 0) return;
-        //TO DO 插入列
         XSSFSheet sheet = this.getSheetAt(sheetIndex);
         if (null == sheet) return ;
-        int maxColumnIndex = -1;    //查找最大列
-        List<int[]> mergeList = new ArrayList<>();
-        for (int i = sheet.getLastRowNum(); i >= 0; i--) {  //从后往前遍历所有行
-            XSSFRow row = sheet.getRow(i);
-            if (row == null) {  //行为空，则不作任何操作
-                continue;
-            }
-            if (row.getLastCellNum() > maxColumnIndex) {
-                maxColumnIndex = row.getLastCellNum();
-            }
-            for (int j = row.getLastCellNum(); j > columnIndex; j--) {   //从后往前遍历列之后的所有单元格
-                XSSFCell sourceCell = row.getCell(j);
-                //创建新的单元格
-                XSSFCell targetCell = row.createCell(j + insertNum);
-                if (sourceCell == null) { //单元格为空，则不作任何操作
-                    continue;
-                }
-                targetCell.copyCellFrom(sourceCell, new CellCopyPolicy());  //复制单元格
-                CellRangeAddress cellAddresses = getCellRangeAddress(sourceCell);   //获取原单元是否为合并单元格
-                if (null == cellAddresses) continue;
-                int firstRow = cellAddresses.getFirstRow();
-                int firstColumn = cellAddresses.getFirstColumn();
-                int lastRow = cellAddresses.getLastRow();
-                int lastColumn = cellAddresses.getLastColumn();
-                if (sourceCell.getRowIndex() != lastRow
-                        || sourceCell.getColumnIndex() != lastColumn) continue;
-                int regionIndex = cellRangeAddressIntegerMap.get(cellAddresses);
-                sheet.removeMergedRegion(cellRangeAddressIntegerMap.get(cellAddresses));
-                updateCellRangeAddress();
-                if (firstColumn > columnIndex) {
-                    mergeList.add(new int[]{firstRow, lastRow, firstColumn + insertNum, lastColumn + insertNum});
-                } else {
-                    mergeList.add(new int[]{firstRow, lastRow, firstColumn, lastColumn + insertNum});
-                }
-            }
-            for (int k = columnIndex + insertNum; k > columnIndex; k--) {
-                XSSFCell xssfCell = row.getCell(k);
-                if (xssfCell == null) {
-                    xssfCell = row.createCell(k);
-                }
-                CellRangeAddress cellAddresses = getCellRangeAddress(xssfCell);   //获取原单元是否为合并单元格
-                if (null == cellAddresses) {
-                    row.createCell(k);
-                }
-            }
+        shiftColumns(sheet, new ColumnShifter.ColumnMapping(new int[]{anchorColumn}, new int[]{insertNum}, new int[0]),
+                copyColumn);
+        fireColumnsShifted(sheetIndex, anchorColumn + 1, insertNum);
+    }
+
+    /**
+     * 在第sheetIndex个sheet中一次完成多处插入列和删除列，均使用执行前的列号：insertNums的key为列号（-1表示第一列之前），
+     * value为在该列之后插入的列数。每行只遍历一次，合并单元格统一调整一次，
+     * 结果等同于自右向左依次插入、删除（同一列先在其后插入再删除该列），只是跨越插入点的合并单元格按执行前的范围判断：
+     * 插入点右侧的列同时被删除时，依次执行会先缩小合并单元格使其不再跨越插入点，这里仍随插入扩展
+     * @param sheetIndex    sheetIndex
+     * @param insertNums    列号 -> 在其后插入的列数
+     * @param removedColumns    删除的列
+     */
+    void shiftColumns(int sheetIndex, Map<Integer, Integer> insertNums, Collection<Integer> removedColumns) {
+        TreeMap<Integer, Integer> anchors = new TreeMap<>();
+        for (Map.Entry<Integer, Integer> entry : insertNums.entrySet()) {
+            if (entry.getKey() >= -1 && entry.getValue() > 0) anchors.put(entry.getKey(), entry.getValue());
         }
-        for (int[] merge : mergeList) {
-            int firstRow = merge[0];
-            int lastRow = merge[1];
-            int firstColumn = merge[2];
-            int lastColumn = merge[3];
-            if (firstColumn <= columnIndex && lastColumn > columnIndex) {
-                for (int i = firstRow; i <= lastRow; i++) {
-                    XSSFRow row = sheet.getRow(i);
-                    if (row == null) {
-                        continue;
-                    }
-                    XSSFCell sourceCell = row.getCell(columnIndex);
-                    if (sourceCell == null) {
-                        continue;
-                    }
-                    for (int j = columnIndex + 1; j <= columnIndex + insertNum; j++) {
-                        XSSFCell targetCell = row.getCell(j);
-                        if (targetCell == null) {
-                            targetCell = row.createCell(j);
-                        }
-                        targetCell.copyCellFrom(sourceCell, new CellCopyPolicy());
-                    }
-                }
-            }
-            addMergedRegion(this.getSheetIndex(sheet), firstRow, lastRow, firstColumn, lastColumn);
+        TreeSet<Integer> removed = new TreeSet<>();
+        for (Integer columnIndex : removedColumns) {
+            if (columnIndex >= 0) removed.add(columnIndex);
         }
-        //设置列宽
-        if (maxColumnIndex > 0) {
-            for (int j = maxColumnIndex; j > columnIndex; j--) {
-                int width = sheet.getColumnWidth(j);
-                sheet.setColumnWidth(j + insertNum, width);
-            }
+        if (anchors.isEmpty() && removed.isEmpty()) return;
+        XSSFSheet sheet = this.getSheetAt(sheetIndex);
+        if (null == sheet) throw new RenderException("工作表不存在！") ;
+        int[] anchorColumns = new int[anchors.size()];
+        int[] insertNumArray = new int[anchors.size()];
+        int k = 0;
+        for (Map.Entry<Integer, Integer> entry : anchors.entrySet()) {
+            anchorColumns[k] = entry.getKey();
+            insertNumArray[k++] = entry.getValue();
+        }
+        int[] removedArray = new int[removed.size()];
+        k = 0;
+        for (Integer columnIndex : removed) {
+            removedArray[k++] = columnIndex;
         }
-        for (int j = columnIndex + insertNum; j > columnIndex; j--) {
-            sheet.setColumnWidth(j, DEFAULT_COLUMN_WIDTH);
+        shiftColumns(sheet, new ColumnShifter.ColumnMapping(anchorColumns, insertNumArray, removedArray), false);
+        //自右向左通知，与依次插入、删除的顺序一致
+        TreeSet<Integer> columns = new TreeSet<>(anchors.keySet());
+        columns.addAll(removed);
+        for (Integer columnIndex : columns.descendingSet()) {
+            Integer insertNum = anchors.get(columnIndex);
+            if (null != insertNum) fireColumnsShifted(sheetIndex, columnIndex + 1, insertNum);
+            if (removed.contains(columnIndex)) fireColumnsShifted(sheetIndex, columnIndex + 1, -1);
         }
     }
 
+    /**
+     * 插入、删除列：单元格、合并单元格、列宽与列样式、超链接由ColumnShifter一次移动，
+     * 合并单元格索引只替换移动点右侧的合并单元格
+     */
+    private void shiftColumns(XSSFSheet sheet, ColumnShifter.ColumnMapping mapping, boolean copyColumn) {
+        MergedRegionIndex index = getMergedRegionIndex(sheet);
+        ColumnShifter.shiftColumns(sheet, index, mapping, DEFAULT_COLUMN_WIDTH, copyColumn);
+        index.shiftColumns(mapping);
+    }
+
     /**
      * 复制列
      * @param sheetIndex    sheetIndex
@@ -924,7 +1061,7 @@ public class NiceXSSFWorkbook extends XSSFWorkbook {
     }
 
     /**
-     * 移除列
+     * 移除列：右侧的单元格、合并单元格、列宽与列样式、超链接左移一列，包含该列的合并单元格随之缩小，只剩一个单元格时拆分
      * @param sheetIndex    工作表位置
      * @param columnIndex   列位置
      */
@@ -933,36 +1070,9 @@ public class NiceXSSFWorkbook extends XSSFWorkbook {
         if (sheet == null) {
             throw new RenderException("工作表不存在！");
         }
-        XSSFSheet tempSheet = this.createSheet();
-        int tempSheetIndex = this.getSheetIndex(tempSheet);
-        int maxColumnIndex = -1;
-        for (int i = 0 ; i <= sheet.getLastRowNum(); i++) {
-            XSSFRow row = sheet.getRow(i);
-            if (row == null) continue;
-            if (row.getLastCellNum() > maxColumnIndex) {
-                maxColumnIndex = row.getLastCellNum();
-            }
-        }
-        //移动
-        for (int i = columnIndex; i <= maxColumnIndex; i++) {
-            copyColumn(tempSheetIndex, 0, sheetIndex, i + 1);
-            for (int j = 0; j <= sheet.getLastRowNum(); j++) {
-                XSSFCell tempCell = getCell(sheetIndex, j, i + 1);
-                if (isMergedRegionBegin(tempCell)) {
-                    removeMergedRegion(tempCell);
-                } else if ( i == columnIndex && isMergedRegion(tempCell)) {
-                    CellRangeAddress cellAddresses = this.getCellRangeAddress(tempCell);
-                    int firstRow = cellAddresses.getFirstRow();
-                    int lastRow = cellAddresses.getLastRow();
-                    int firstColumn = cellAddresses.getFirstColumn();
-                    int lastColumn = cellAddresses.getLastColumn() - 1;
-                    this.removeMergedRegion(tempCell);
-                    this.addMergedRegion(sheetIndex, firstRow, lastRow, firstColumn, lastColumn);
-                }
-            }
-            copyColumn(sheetIndex, i, tempSheetIndex,0);
-        }
-        this.removeSheetAt(tempSheetIndex);
+        if (columnIndex < 0) return;
+        shiftColumns(sheet, new ColumnShifter.ColumnMapping(new int[0], new int[0], new int[]{columnIndex}), false);
+        fireColumnsShifted(sheetIndex, columnIndex + 1, -1);
     }
 
     /**
@@ -0,0 +1,183 @@
+package com.jg.poiet;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 批量渲染使用的线程池。
+ * 运行时支持虚拟线程（Java 21+）时可为每个渲染任务创建一个虚拟线程，否则退回固定大小的线程池。
+ * 项目以Java 7编译，虚拟线程通过反射获取。
+ */
+public final class RenderExecutors {
+
+    private static Logger logger = LoggerFactory.getLogger(RenderExecutors.class);
+
+    private static final Method VIRTUAL_THREAD_FACTORY = findVirtualThreadFactory();
+
+    /**
+     * 进程内共用的标签数据计算线程池：线程数 -> 线程池
+     */
+    private static final Map<Integer, Executor> EVALUATORS = new HashMap<>();
+
+    private RenderExecutors() {}
+
+    private static Method findVirtualThreadFactory() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 当前运行时是否支持虚拟线程
+     */
+    public static boolean isVirtualThreadSupported() {
+        return null != VIRTUAL_THREAD_FACTORY;
+    }
+
+    /**
+     * 创建每个任务一个虚拟线程的线程池
+     *
+     * @return  线程池
+     * @throws UnsupportedOperationException    运行时不支持虚拟线程
+     */
+    public static ExecutorService newVirtualThreadPerTaskExecutor() {
+        if (null == VIRTUAL_THREAD_FACTORY) {
+            throw new UnsupportedOperationException("Virtual threads are not supported by this runtime");
+        }
+        try {
+            return (ExecutorService) VIRTUAL_THREAD_FACTORY.invoke(null);
+        } catch (Exception e) {
+            throw new UnsupportedOperationException("Create virtual thread executor failed", e);
+        }
+    }
+
+    /**
+     * 创建默认的渲染线程池：支持虚拟线程时使用虚拟线程，否则使用与CPU核数相同的固定线程池
+     *
+     * @return  线程池
+     */
+    public static ExecutorService newDefaultExecutor() {
+        if (isVirtualThreadSupported()) {
+            try {
+                return newVirtualThreadPerTaskExecutor();
+            } catch (UnsupportedOperationException e) {
+                logger.warn("Fall back to platform threads: {}", e.getMessage());
+            }
+        }
+        return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * 创建流水线渲染中计算标签数据的线程池，线程为守护线程，空闲60秒后回收
+     *
+     * @param threads   线程数
+     * @return  线程池
+     */
+    public static ExecutorService newEvaluatorExecutor(int threads) {
+        if (threads <= 0) throw new IllegalArgumentException("threads must be positive: " + threads);
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "poi-et-evaluator-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * 进程内共用的标签数据计算线程池（newEvaluatorExecutor），线程数相同的配置共用一个，首次使用时创建。
+     * Configure.supportPipelinedRender(int)使用该线程池，每次渲染新建Configure也不会增加线程；
+     * 空闲线程自动回收，不需要（也不能）关闭
+     *
+     * @param threads   线程数
+     * @return  线程池
+     */
+    public static Executor sharedEvaluatorExecutor(int threads) {
+        if (threads <= 0) throw new IllegalArgumentException("threads must be positive: " + threads);
+        synchronized (EVALUATORS) {
+            Executor executor = EVALUATORS.get(threads);
+            if (null == executor) {
+                executor = unclosable(newEvaluatorExecutor(threads));
+                EVALUATORS.put(threads, executor);
+            }
+            return executor;
+        }
+    }
+
+    /**
+     * 进程内共用的延迟数据线程池（newDeferredExecutor），首次使用时创建。
+     * 未指定延迟数据线程池的Configure都使用该线程池，每次渲染新建Configure也不会增加线程；
+     * 虚拟线程或空闲60秒后回收的守护线程，不需要（也不能）关闭
+     *
+     * @return  线程池
+     */
+    public static Executor sharedDeferredExecutor() {
+        return SharedDeferredExecutor.EXECUTOR;
+    }
+
+    /**
+     * 延迟创建：类首次被访问时初始化
+     */
+    private static final class SharedDeferredExecutor {
+        static final Executor EXECUTOR = unclosable(newDeferredExecutor());
+    }
+
+    /**
+     * 只暴露execute，共用的线程池不会被调用方关闭
+     */
+    private static Executor unclosable(final ExecutorService executor) {
+        return new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                executor.execute(command);
+            }
+        };
+    }
+
+    /**
+     * 创建计算延迟数据（Callable、Supplier）的线程池：支持虚拟线程时使用虚拟线程，
+     * 否则按需创建守护线程，空闲线程60秒后回收。这类计算通常阻塞在I/O上，不限制线程数
+     *
+     * @return  线程池
+     */
+    public static ExecutorService newDeferredExecutor() {
+        if (isVirtualThreadSupported()) {
+            try {
+                return newVirtualThreadPerTaskExecutor();
+            } catch (UnsupportedOperationException e) {
+                logger.warn("Fall back to platform threads: {}", e.getMessage());
+            }
+        }
+        return Executors.newCachedThreadPool(new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "poi-et-deferred-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+}
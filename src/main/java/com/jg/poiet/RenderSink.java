@@ -0,0 +1,22 @@
+package com.jg.poiet;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * 批量渲染的输出目标：为每个数据模型提供写出工作簿的输出流。
+ * 可能在多个工作线程中并发调用，实现需线程安全；返回的输出流由批量渲染负责关闭。
+ */
+public interface RenderSink {
+
+    /**
+     * 打开数据模型对应的输出流
+     *
+     * @param model 数据模型
+     * @param index 数据模型在批次中的序号，从0开始
+     * @return  输出流
+     * @throws IOException  打开失败
+     */
+    OutputStream open(Object model, int index) throws IOException;
+
+}
@@ -0,0 +1,165 @@
+package com.jg.poiet;
+
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.model.CalculationChain;
+import org.apache.poi.xssf.usermodel.XSSFRow;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTCalcCell;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTDataValidation;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTMergeCell;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTWorksheet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 行的整体移动：通过poi的XSSFSheet.shiftRows移动行对象，不复制单元格，公式、名称、批注、超链接、条件格式由poi随之调整。
+ * poi每次移动时逐个校验并重新添加全部合并单元格，且不调整数据有效性，
+ * 因此移动期间暂时移除合并单元格，移动完成后与数据有效性一起按新行号一次写回
+ */
+final class RowShifter {
+
+    private static final int MAX_ROW_INDEX = SpreadsheetVersion.EXCEL2007.getLastRowIndex();
+
+    private RowShifter() {}
+
+    /**
+     * 在多处插入行：插入点之间的行作为一段，自下而上各段整体移动一次，每行只移动一次。
+     * 跨越插入点的合并单元格、数据有效性随之扩展，其后的随之下移；公式的调整与在Excel中插入行相同
+     *
+     * @param sheet sheet
+     * @param anchorRows    插入点，升序，在其后插入
+     * @param offsets   行号大于anchorRows[i]（且不大于下一个插入点）的行移动的行数
+     */
+    static void insertRows(XSSFSheet sheet, int[] anchorRows, int[] offsets) {
+        CTWorksheet worksheet = sheet.getCTWorksheet();
+        List<CellRangeAddress> mergedRegions = sheet.getMergedRegions();
+        List<CellRangeAddress> shifted = new ArrayList<>(mergedRegions.size());
+        for (CellRangeAddress region : mergedRegions) {
+            shifted.add(shift(region, anchorRows, offsets));
+        }
+        if (worksheet.isSetMergeCells()) worksheet.unsetMergeCells();
+        clearCalculationChain(sheet);
+        //最后一段移动至最大行号，引用插入点之下空行的公式同样随之调整
+        for (int k = anchorRows.length - 1; k >= 0; k--) {
+            int start = anchorRows[k] + 1;
+            int end = k + 1 < anchorRows.length ? anchorRows[k + 1] : MAX_ROW_INDEX;
+            if (start <= end) sheet.shiftRows(start, end, offsets[k], true, false);
+        }
+        shiftDataValidations(worksheet, anchorRows, offsets);
+        setMergedRegions(worksheet, shifted);
+    }
+
+    /**
+     * 删除多行：删除行之间的行作为一段，自上而下各段整体上移一次，每行只移动一次。
+     * 公式的调整与在Excel中删除行相同，合并单元格由调用方按删除后的行号给出，移动完成后一次写回
+     *
+     * @param sheet sheet
+     * @param removedRows   删除的行号，升序
+     * @param mergedRegions 删除后的全部合并单元格
+     */
+    static void removeRows(XSSFSheet sheet, int[] removedRows, List<CellRangeAddress> mergedRegions) {
+        CTWorksheet worksheet = sheet.getCTWorksheet();
+        if (worksheet.isSetMergeCells()) worksheet.unsetMergeCells();
+        clearCalculationChain(sheet);
+        int lastRowNum = sheet.getLastRowNum();
+        for (int rowIndex : removedRows) {
+            XSSFRow row = sheet.getRow(rowIndex);
+            if (null != row) sheet.removeRow(row);
+        }
+        for (int k = 0; k < removedRows.length; k++) {
+            int start = removedRows[k] + 1;
+            int end = k + 1 < removedRows.length ? removedRows[k + 1] - 1 : lastRowNum;
+            if (start <= end) sheet.shiftRows(start, end, -(k + 1), true, false);
+        }
+        setMergedRegions(worksheet, mergedRegions);
+    }
+
+    /**
+     * 一次写入sheet的全部合并单元格，替换原有的合并单元格，不做校验
+     *
+     * @param worksheet worksheet
+     * @param regions   合并单元格
+     */
+    static void setMergedRegions(CTWorksheet worksheet, List<CellRangeAddress> regions) {
+        if (worksheet.isSetMergeCells()) worksheet.unsetMergeCells();
+        if (regions.isEmpty()) return;
+        CTMergeCell[] mergeCells = new CTMergeCell[regions.size()];
+        for (int i = 0; i < mergeCells.length; i++) {
+            mergeCells[i] = CTMergeCell.Factory.newInstance();
+            mergeCells[i].setRef(regions.get(i).formatAsString());
+        }
+        worksheet.addNewMergeCells().setMergeCellArray(mergeCells);
+    }
+
+    /**
+     * 多处插入后原第rowIndex行的新行号
+     *
+     * @param anchorRows    插入点，升序
+     * @param offsets   各插入点之后的行移动的行数
+     * @param rowIndex  原行号
+     * @return  新行号
+     */
+    static int shiftRowIndex(int[] anchorRows, int[] offsets, int rowIndex) {
+        int k = Arrays.binarySearch(anchorRows, rowIndex - 1);
+        if (k < 0) k = -k - 2;  //最后一个小于rowIndex的插入点
+        return k < 0 ? rowIndex : Math.min(rowIndex + offsets[k], MAX_ROW_INDEX);
+    }
+
+    /**
+     * 行号不大于rowIndex的删除行数
+     *
+     * @param removedRows   删除的行号，升序
+     * @param rowIndex  行号
+     * @return  删除行数
+     */
+    static int countRemovedRows(int[] removedRows, int rowIndex) {
+        int k = Arrays.binarySearch(removedRows, rowIndex);
+        return k >= 0 ? k + 1 : -k - 1;
+    }
+
+    private static CellRangeAddress shift(CellRangeAddress region, int[] anchorRows, int[] offsets) {
+        int firstRow = shiftRowIndex(anchorRows, offsets, region.getFirstRow());
+        int lastRow = shiftRowIndex(anchorRows, offsets, region.getLastRow());
+        if (firstRow == region.getFirstRow() && lastRow == region.getLastRow()) return region;
+        return new CellRangeAddress(firstRow, lastRow, region.getFirstColumn(), region.getLastColumn());
+    }
+
+    /**
+     * 数据有效性的区域按与合并单元格相同的规则调整，整列的区域不变
+     */
+    private static void shiftDataValidations(CTWorksheet worksheet, int[] anchorRows, int[] offsets) {
+        if (!worksheet.isSetDataValidations()) return;
+        for (CTDataValidation validation : worksheet.getDataValidations().getDataValidationArray()) {
+            List<String> sqref = new ArrayList<>();
+            boolean changed = false;
+            for (Object ref : validation.getSqref()) {
+                CellRangeAddress region = CellRangeAddress.valueOf(ref.toString());
+                CellRangeAddress shifted = region.isFullColumnRange() ? region : shift(region, anchorRows, offsets);
+                if (shifted == region) {
+                    sqref.add(ref.toString());
+                } else {
+                    sqref.add(shifted.formatAsString());
+                    changed = true;
+                }
+            }
+            if (changed) validation.setSqref(sqref);
+        }
+    }
+
+    /**
+     * poi移动每个单元格时都会遍历整个计算链删除其引用；计算链只是Excel的计算顺序缓存，
+     * 清空后poi写出时不再保存，Excel打开时重新生成
+     *
+     * @param sheet sheet
+     */
+    static void clearCalculationChain(XSSFSheet sheet) {
+        CalculationChain calculationChain = sheet.getWorkbook().getCalculationChain();
+        if (null != calculationChain) {
+            calculationChain.getCTCalcChain().setCArray(new CTCalcCell[0]);
+        }
+    }
+
+}
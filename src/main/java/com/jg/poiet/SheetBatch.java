@@ -0,0 +1,215 @@
+package com.jg.poiet;
+
+import org.apache.poi.ss.util.CellRangeAddress;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * 一个sheet的批量结构修改，由NiceXSSFWorkbook.batch创建：先记录操作，回调正常返回后合并同类操作一次执行，
+ * 回调抛出异常时不执行任何操作。
+ * 行列的插入、删除使用执行前的行号、列号，与记录的顺序无关：删除的行一次移除，同一位置的插入合并，
+ * 各处插入的行自下而上一次移动，各处插入、删除的列一次移动（每行只遍历一次，跨越插入点的合并单元格按执行前的范围判断，
+ * 见NiceXSSFWorkbook.shiftColumns）；
+ * 复制行列与合并单元格使用插入、删除完成后的行号、列号，在其后按记录的顺序执行，重复的合并单元格只执行一次。
+ * 合并单元格索引在插入、删除时统一调整，之后随复制、合并增量更新，不会重新读取sheet中的全部合并单元格
+ */
+public class SheetBatch {
+
+    /**
+     * 行号 -> 在其后插入的行数
+     */
+    private final TreeMap<Integer, Integer> rowInserts = new TreeMap<>();
+
+    /**
+     * 行号 -> 其中在下一行之前插入的行数，这些行位于在该行之后插入的行的最后，扩展时复制下一行的单元格样式
+     */
+    private final Map<Integer, Integer> rowInsertsBefore = new HashMap<>();
+
+    private final TreeSet<Integer> removedRows = new TreeSet<>();
+
+    /**
+     * 列号 -> 在其后插入的列数
+     */
+    private final TreeMap<Integer, Integer> columnInserts = new TreeMap<>();
+
+    private final TreeSet<Integer> removedColumns = new TreeSet<>();
+
+    /**
+     * 复制与合并单元格，按记录的顺序执行
+     */
+    private final List<Step> steps = new ArrayList<>();
+
+    private final Set<CellRangeAddress> mergedRegions = new HashSet<>();
+
+    SheetBatch() {}
+
+    /**
+     * 在第rowIndex行之后插入insertNum行
+     * @param rowIndex  执行前的行号
+     * @param insertNum insertNum
+     * @return  this
+     */
+    public SheetBatch insertRowsAfter(int rowIndex, int insertNum) {
+        if (rowIndex < 0 || insertNum <= 0) return this;
+        add(rowInserts, rowIndex, insertNum);
+        return this;
+    }
+
+    /**
+     * 在第rowIndex行之前插入insertNum行，同NiceXSSFWorkbook.insertRowsBefore：跨越插入位置的合并单元格随之扩展，
+     * 扩展出的行复制原第rowIndex行的单元格样式。与在第rowIndex - 1行之后的插入位于同一位置，这些行排在其后
+     * @param rowIndex  执行前的行号
+     * @param insertNum insertNum
+     * @return  this
+     */
+    public SheetBatch insertRowsBefore(int rowIndex, int insertNum) {
+        if (rowIndex < 0 || insertNum <= 0) return this;
+        add(rowInserts, rowIndex - 1, insertNum);
+        add(rowInsertsBefore, rowIndex - 1, insertNum);
+        return this;
+    }
+
+    /**
+     * 删除第rowIndex行
+     * @param rowIndex  执行前的行号
+     * @return  this
+     */
+    public SheetBatch removeRow(int rowIndex) {
+        if (rowIndex >= 0) removedRows.add(rowIndex);
+        return this;
+    }
+
+    /**
+     * 在第columnIndex列之后插入insertNum列
+     * @param columnIndex   执行前的列号
+     * @param insertNum insertNum
+     * @return  this
+     */
+    public SheetBatch insertColumnsAfter(int columnIndex, int insertNum) {
+        if (columnIndex < 0 || insertNum <= 0) return this;
+        add(columnInserts, columnIndex, insertNum);
+        return this;
+    }
+
+    /**
+     * 在第columnIndex列之前插入insertNum列
+     * @param columnIndex   执行前的列号
+     * @param insertNum insertNum
+     * @return  this
+     */
+    public SheetBatch insertColumnsBefore(int columnIndex, int insertNum) {
+        if (columnIndex < 0 || insertNum <= 0) return this;
+        add(columnInserts, columnIndex - 1, insertNum);
+        return this;
+    }
+
+    /**
+     * 删除第columnIndex列
+     * @param columnIndex   执行前的列号
+     * @return  this
+     */
+    public SheetBatch removeColumn(int columnIndex) {
+        if (columnIndex >= 0) removedColumns.add(columnIndex);
+        return this;
+    }
+
+    /**
+     * 复制行，同NiceXSSFWorkbook.copyRow
+     * @param targetRowIndex    插入、删除完成后的目标行号
+     * @param sourceRowIndex    插入、删除完成后的源行号
+     * @return  this
+     */
+    public SheetBatch copyRow(final int targetRowIndex, final int sourceRowIndex) {
+        steps.add(new Step() {
+            @Override
+            void apply(NiceXSSFWorkbook workbook, int sheetIndex) {
+                workbook.copyRow(sheetIndex, targetRowIndex, sourceRowIndex);
+            }
+        });
+        return this;
+    }
+
+    /**
+     * 复制列，同NiceXSSFWorkbook.copyColumn
+     * @param targetColumnIndex 插入、删除完成后的目标列号
+     * @param sourceColumnIndex 插入、删除完成后的源列号
+     * @return  this
+     */
+    public SheetBatch copyColumn(final int targetColumnIndex, final int sourceColumnIndex) {
+        steps.add(new Step() {
+            @Override
+            void apply(NiceXSSFWorkbook workbook, int sheetIndex) {
+                workbook.copyColumn(sheetIndex, targetColumnIndex, sourceColumnIndex);
+            }
+        });
+        return this;
+    }
+
+    /**
+     * 合并单元格，同NiceXSSFWorkbook.addMergedRegion
+     * @param firstRowIndex 插入、删除完成后的起始行号
+     * @param lastRowIndex  插入、删除完成后的结束行号
+     * @param firstColumnIndex  插入、删除完成后的起始列号
+     * @param lastColumnIndex   插入、删除完成后的结束列号
+     * @return  this
+     */
+    public SheetBatch addMergedRegion(final int firstRowIndex, final int lastRowIndex,
+                                      final int firstColumnIndex, final int lastColumnIndex) {
+        if (!mergedRegions.add(new CellRangeAddress(firstRowIndex, lastRowIndex, firstColumnIndex, lastColumnIndex))) {
+            return this;
+        }
+        steps.add(new Step() {
+            @Override
+            void apply(NiceXSSFWorkbook workbook, int sheetIndex) {
+                workbook.addMergedRegion(sheetIndex, firstRowIndex, lastRowIndex, firstColumnIndex, lastColumnIndex);
+            }
+        });
+        return this;
+    }
+
+    /**
+     * 依次执行：删除行、插入行、插入和删除列、复制与合并单元格
+     */
+    void commit(NiceXSSFWorkbook workbook, int sheetIndex) {
+        if (!removedRows.isEmpty()) {
+            workbook.removeRows(sheetIndex, removedRows);
+        }
+        if (!rowInserts.isEmpty()) {
+            //插入位置换算为删除行之后的行号：第r行之后即删除后不大于r的最后一行之后
+            TreeMap<Integer, Integer> inserts = new TreeMap<>();
+            Map<Integer, Integer> insertsBefore = new HashMap<>();
+            for (Map.Entry<Integer, Integer> entry : rowInserts.entrySet()) {
+                int rowIndex = entry.getKey();
+                int shifted = rowIndex - removedRows.headSet(rowIndex, true).size();
+                add(inserts, shifted, entry.getValue());
+                Integer before = rowInsertsBefore.get(rowIndex);
+                if (null != before) add(insertsBefore, shifted, before);
+            }
+            workbook.insertRows(sheetIndex, inserts, insertsBefore);
+        }
+        if (!columnInserts.isEmpty() || !removedColumns.isEmpty()) {
+            workbook.shiftColumns(sheetIndex, columnInserts, removedColumns);
+        }
+        for (Step step : steps) {
+            step.apply(workbook, sheetIndex);
+        }
+    }
+
+    private static void add(Map<Integer, Integer> inserts, int index, int insertNum) {
+        Integer current = inserts.get(index);
+        inserts.put(index, null == current ? insertNum : current + insertNum);
+    }
+
+    private abstract static class Step {
+
+        abstract void apply(NiceXSSFWorkbook workbook, int sheetIndex);
+    }
+
+}
@@ -0,0 +1,302 @@
+package com.jg.poiet;
+
+import com.jg.poiet.config.Configure;
+import com.jg.poiet.exception.ResolverException;
+import org.apache.poi.util.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.zip.CRC32;
+
+/**
+ * 模板缓存：以文件路径和配置的语法（前后缀、标签名正则、语法符号）为键缓存已编译的模板（模板字节 + 标签计划），
+ * 语法相同的配置（如每次新建的Configure）共用同一份编译结果，取得时按调用方的配置重新绑定渲染策略；
+ * 文件的修改时间或长度变化时比对内容摘要，内容变化才重新编译，同一键同时只编译一次，其余线程等待其结果；
+ * 按估算的内存占用做LRU淘汰，最近加入的模板即使单独超过上限也保留。线程安全，进程内可通过getDefault()共享。
+ */
+public class TemplateCache {
+
+    private static Logger logger = LoggerFactory.getLogger(TemplateCache.class);
+
+    /**
+     * 默认缓存上限：64MB
+     */
+    public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+    private static final TemplateCache DEFAULT = new TemplateCache(DEFAULT_MAX_BYTES);
+
+    private final long maxBytes;
+    private final Configure defaultConfig = Configure.createDefault();
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(32, 0.75f, true);
+    /**
+     * 正在读取、编译的模板
+     */
+    private final Map<Key, Load> loading = new HashMap<>();
+    private long retainedBytes;
+
+    public TemplateCache(long maxBytes) {
+        if (maxBytes <= 0) throw new IllegalArgumentException("maxBytes must be positive");
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * 进程级共享的缓存
+     */
+    public static TemplateCache getDefault() {
+        return DEFAULT;
+    }
+
+    public CompiledTemplate get(String filePath) {
+        return get(new File(filePath));
+    }
+
+    public CompiledTemplate get(File file) {
+        return get(file, defaultConfig);
+    }
+
+    public CompiledTemplate get(String filePath, Configure config) {
+        return get(new File(filePath), config);
+    }
+
+    /**
+     * 获取已编译的模板，未缓存或文件内容已变化时重新编译；多个线程同时请求同一键时只编译一次
+     *
+     * @param file  模板文件
+     * @param config    配置，语法不同的配置分别缓存
+     * @return  已编译的模板，使用该配置渲染
+     */
+    public CompiledTemplate get(final File file, final Configure config) {
+        final Key key = new Key(file.getAbsolutePath(), config);
+        while (true) {
+            final long lastModified = file.lastModified();
+            final long length = file.length();
+            Load load;
+            boolean owner = false;
+            synchronized (this) {
+                final Entry entry = entries.get(key);
+                if (null != entry && entry.lastModified == lastModified && entry.length == length) {
+                    return entry.template.withConfig(config);
+                }
+                load = loading.get(key);
+                if (null == load) {
+                    load = new Load(lastModified, length, new FutureTask<>(new Callable<CompiledTemplate>() {
+                        @Override
+                        public CompiledTemplate call() {
+                            return load(file, key, config, entry, lastModified, length);
+                        }
+                    }));
+                    loading.put(key, load);
+                    owner = true;
+                }
+            }
+            if (owner) {
+                try {
+                    load.task.run();
+                } finally {
+                    synchronized (this) {
+                        loading.remove(key);
+                    }
+                }
+            }
+            CompiledTemplate template = await(load.task, key);
+            if (load.lastModified == lastModified && load.length == length) return template.withConfig(config);
+            // 等待的编译开始于文件再次变化之前，重新检查
+        }
+    }
+
+    /**
+     * 读取文件，内容未变（文件被touch）时沿用之前的编译结果，否则重新编译，结果放入缓存
+     */
+    private CompiledTemplate load(File file, Key key, Configure config, Entry previous, long lastModified,
+                                  long length) {
+        byte[] data = read(file);
+        long checksum = checksum(data);
+        CompiledTemplate template;
+        if (null != previous && previous.checksum == checksum) {
+            template = previous.template;
+        } else {
+            logger.debug("Compile template [{}] into the cache", key.path);
+            template = CompiledTemplate.compile(data, config);
+        }
+        put(key, new Entry(template, lastModified, length, checksum));
+        return template;
+    }
+
+    private static CompiledTemplate await(FutureTask<CompiledTemplate> task, Key key) {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResolverException("Interrupted while compiling the template [" + key.path + "]", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new ResolverException("Compile template failed", cause);
+        }
+    }
+
+    /**
+     * 从缓存获取已编译的模板并生成新的渲染实例
+     *
+     * @param file  模板文件
+     * @return  渲染实例
+     */
+    public XSSFTemplate newTemplate(File file) {
+        return get(file).newTemplate();
+    }
+
+    public XSSFTemplate newTemplate(File file, Configure config) {
+        return get(file, config).newTemplate();
+    }
+
+    /**
+     * 移除某个文件的所有缓存
+     *
+     * @param file  模板文件
+     */
+    public synchronized void invalidate(File file) {
+        String path = file.getAbsolutePath();
+        Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Key, Entry> e = iterator.next();
+            if (e.getKey().path.equals(path)) {
+                retainedBytes -= e.getValue().size;
+                iterator.remove();
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        retainedBytes = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * 当前缓存估算占用的字节数
+     */
+    public synchronized long getRetainedBytes() {
+        return retainedBytes;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * 加入缓存，从最久未使用的开始淘汰；刚加入的模板排在最后，即使单独超过上限也保留
+     */
+    private synchronized void put(Key key, Entry entry) {
+        Entry old = entries.remove(key);
+        if (null != old) retainedBytes -= old.size;
+        entries.put(key, entry);
+        retainedBytes += entry.size;
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (retainedBytes > maxBytes && entries.size() > 1) {
+            Entry eldest = iterator.next();
+            retainedBytes -= eldest.size;
+            iterator.remove();
+        }
+    }
+
+    private static byte[] read(File file) {
+        FileInputStream in = null;
+        try {
+            in = new FileInputStream(file);
+            return IOUtils.toByteArray(in);
+        } catch (IOException e) {
+            logger.error("Cannot read the file", e);
+            throw new ResolverException("Cannot read the file [" + file.getPath() + "]");
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+    }
+
+    private static long checksum(byte[] data) {
+        CRC32 crc32 = new CRC32();
+        crc32.update(data, 0, data.length);
+        return crc32.getValue();
+    }
+
+    /**
+     * 文件路径及配置中影响扫描结果的语法，渲染策略在取得时按调用方的配置绑定，不影响编译结果
+     */
+    private static final class Key {
+        private final String path;
+        private final String prefix;
+        private final String suffix;
+        private final String regex;
+        private final Set<Character> gramerChars;
+
+        Key(String path, Configure config) {
+            this.path = path;
+            this.prefix = config.getGramerPrefix();
+            this.suffix = config.getGramerSuffix();
+            this.regex = config.getGrammerRegex();
+            this.gramerChars = new HashSet<>(config.getGramerChars());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return path.equals(key.path) && Objects.equals(prefix, key.prefix) && Objects.equals(suffix, key.suffix)
+                    && Objects.equals(regex, key.regex) && gramerChars.equals(key.gramerChars);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(path, prefix, suffix, regex, gramerChars);
+        }
+    }
+
+    /**
+     * 一次读取、编译，开始时文件的修改时间和长度
+     */
+    private static final class Load {
+        private final long lastModified;
+        private final long length;
+        private final FutureTask<CompiledTemplate> task;
+
+        Load(long lastModified, long length, FutureTask<CompiledTemplate> task) {
+            this.lastModified = lastModified;
+            this.length = length;
+            this.task = task;
+        }
+    }
+
+    private static final class Entry {
+        private final CompiledTemplate template;
+        private final long checksum;
+        private final long size;
+        private final long lastModified;
+        private final long length;
+
+        Entry(CompiledTemplate template, long lastModified, long length, long checksum) {
+            this.template = template;
+            this.lastModified = lastModified;
+            this.length = length;
+            this.checksum = checksum;
+            this.size = template.retainedSize();
+        }
+    }
+
+}
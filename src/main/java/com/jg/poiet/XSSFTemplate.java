@@ -3,13 +3,20 @@ package com.jg.poiet;
 import com.jg.poiet.config.Configure;
 import com.jg.poiet.exception.ResolverException;
 import com.jg.poiet.render.RenderFactory;
+import com.jg.poiet.template.TagPlan;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
+import java.util.concurrent.Executor;
 
 /**
  * 模板
+ * <p>
+ * 线程安全说明：单个XSSFTemplate实例（及其工作簿）不是线程安全的，同一时间只能在一个线程中渲染；
+ * 不同实例之间不共享任何可变状态，可在多个线程中并发渲染。Configure、渲染策略、Style、
+ * CompiledTemplate及TemplateCache均可在线程间共享，前提是Configure在构建完成后不再修改。
+ * </p>
  */
 public class XSSFTemplate {
 
@@ -17,9 +24,24 @@ public class XSSFTemplate {
 
     private NiceXSSFWorkbook workbook;
     private Configure config;
+    /**
+     * 编译期的标签计划，为null时渲染时扫描整个工作簿
+     */
+    private TagPlan tagPlan;
 
     private XSSFTemplate() {}
 
+    /**
+     * 由已编译的模板创建渲染实例，渲染时不再扫描工作簿
+     */
+    static XSSFTemplate create(NiceXSSFWorkbook workbook, Configure config, TagPlan tagPlan) {
+        XSSFTemplate instance = new XSSFTemplate();
+        instance.workbook = workbook;
+        instance.config = config;
+        instance.tagPlan = tagPlan;
+        return instance;
+    }
+
     public static XSSFTemplate compile(String filePath) {
         return compile(new File(filePath));
     }
@@ -57,13 +79,26 @@ public class XSSFTemplate {
         }
     }
 
+    /**
+     * 批量渲染：模板经TemplateCache编译并缓存，每个数据模型使用独立的工作簿，在executor中渲染并写入sink
+     *
+     * @see CompiledTemplate#renderAll(Iterable, RenderSink, Executor, int)
+     */
+    public static int renderAll(File file, Iterable<?> models, RenderSink sink, Executor executor) {
+        return TemplateCache.getDefault().get(file).renderAll(models, sink, executor);
+    }
+
+    public static int renderAll(File file, Configure config, Iterable<?> models, RenderSink sink, Executor executor) {
+        return TemplateCache.getDefault().get(file, config).renderAll(models, sink, executor);
+    }
+
     public XSSFTemplate render(Object model) {
-        RenderFactory.getRender(model, config.getElMode()).render(this);
+        RenderFactory.getRender(model, config).render(this);
         return this;
     }
 
     public void write(OutputStream out) throws IOException {
-        this.workbook.write(out);
+        this.workbook.writeTo(out);
     }
 
     public void writeToFile(String path) throws IOException {
@@ -82,4 +117,8 @@ public class XSSFTemplate {
         return config;
     }
 
+    public TagPlan getTagPlan() {
+        return tagPlan;
+    }
+
 }
@@ -1,10 +1,12 @@
 package com.jg.poiet.config;
 
+import com.jg.poiet.RenderExecutors;
 import com.jg.poiet.policy.*;
 
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executor;
 
 /**
  * 插件化配置
@@ -12,7 +14,7 @@ import java.util.Set;
 public class Configure {
 
     // defalut expression
-    private static final String DEFAULT_GRAMER_REGEX = "[\\w\\u4e00-\\u9fa5]+(\\.[\\w\\u4e00-\\u9fa5]+)*";
+    public static final String DEFAULT_GRAMER_REGEX = "[\\w\\u4e00-\\u9fa5]+(\\.[\\w\\u4e00-\\u9fa5]+)*";
 
     // Highest priority
     private Map<String, RenderPolicy> customPolicys = new HashMap<>();
@@ -44,6 +46,31 @@ public class Configure {
      */
     private boolean nullToBlank = true;
 
+    /**
+     * 流水线渲染的标签数据计算线程数，大于0时启用流水线渲染
+     */
+    private int evaluatorThreads;
+
+    /**
+     * 流水线渲染的标签数据计算线程池，为空时使用进程内按evaluatorThreads共用的线程池
+     */
+    private Executor evaluatorExecutor;
+
+    /**
+     * 计算延迟数据（Callable、Supplier）的线程池，为空时使用进程内共用的线程池
+     */
+    private Executor deferredExecutor;
+
+    /**
+     * 等待单个延迟数据的超时时间（毫秒），不大于0时一直等待
+     */
+    private long deferredTimeoutMillis;
+
+    /**
+     * 是否按1.0.3及之前的方式渲染：逐个单元格扫描并立即渲染，每个表格、垂直列表各自插入行
+     */
+    private boolean legacyLayout;
+
     private Configure() {
         plugin(GramerSymbol.TEXT, new TextRenderPolicy());
         plugin(GramerSymbol.TABLE, new TableRenderPolicy());
@@ -156,6 +183,39 @@ public class Configure {
         return nullToBlank;
     }
 
+    /**
+     * 计算延迟数据的线程池，未配置时使用RenderExecutors.sharedDeferredExecutor()，进程内所有配置共用，
+     * Configure本身不持有需要关闭的线程池
+     */
+    public Executor getDeferredExecutor() {
+        return null != deferredExecutor ? deferredExecutor : RenderExecutors.sharedDeferredExecutor();
+    }
+
+    public long getDeferredTimeoutMillis() {
+        return deferredTimeoutMillis;
+    }
+
+    public boolean isLegacyLayout() {
+        return legacyLayout;
+    }
+
+    /**
+     * 是否启用流水线渲染
+     */
+    public boolean isPipelined() {
+        return null != evaluatorExecutor || evaluatorThreads > 0;
+    }
+
+    /**
+     * 流水线渲染的标签数据计算线程池，未启用时返回null。
+     * 未指定线程池时使用RenderExecutors.sharedEvaluatorExecutor(evaluatorThreads)，线程数相同的所有配置共用，
+     * Configure本身不持有需要关闭的线程池
+     */
+    public Executor getEvaluatorExecutor() {
+        if (null != evaluatorExecutor || evaluatorThreads <= 0) return evaluatorExecutor;
+        return RenderExecutors.sharedEvaluatorExecutor(evaluatorThreads);
+    }
+
     public static class ConfigureBuilder {
         private Configure config = new Configure();
 
@@ -172,6 +232,54 @@ public class Configure {
             return this;
         }
 
+        /**
+         * 启用流水线渲染：由threads个线程按标签计划顺序提前计算所有标签的数据，
+         * 渲染线程按顺序写入工作簿。数据模型（及自定义的RenderDataCompute）需支持多线程读取。
+         * 线程池由进程内线程数相同的配置共用（见RenderExecutors.sharedEvaluatorExecutor），空闲线程自动回收，不需要关闭
+         */
+        public ConfigureBuilder supportPipelinedRender(int threads) {
+            if (threads < 0) throw new IllegalArgumentException("threads must not be negative: " + threads);
+            config.evaluatorThreads = threads;
+            return this;
+        }
+
+        /**
+         * 启用流水线渲染，由指定的线程池计算标签数据，线程池由调用方关闭
+         */
+        public ConfigureBuilder supportPipelinedRender(Executor executor) {
+            config.evaluatorExecutor = executor;
+            return this;
+        }
+
+        /**
+         * 计算数据模型中延迟数据（Future、Callable、Supplier）的线程池。
+         * 默认渲染方式下，标签的值和作为前缀的延迟数据（如user.name中的user）都先收集再同时计算，
+         * 前缀的属性仍为延迟数据时逐层计算；流水线渲染时由各计算线程在计算标签时取得其值。
+         * 指定的线程池由调用方关闭，未指定时使用进程内共用的线程池（见RenderExecutors.sharedDeferredExecutor）
+         */
+        public ConfigureBuilder buildDeferredExecutor(Executor executor) {
+            config.deferredExecutor = executor;
+            return this;
+        }
+
+        /**
+         * 等待单个延迟数据的超时时间（毫秒），超时后渲染失败；不大于0时一直等待
+         */
+        public ConfigureBuilder buildDeferredTimeout(long timeoutMillis) {
+            config.deferredTimeoutMillis = timeoutMillis;
+            return this;
+        }
+
+        /**
+         * 按1.0.3及之前的方式渲染：逐行逐个单元格扫描工作簿，发现标签即渲染，每个表格、垂直列表各自在其所在行之后插入行。
+         * 与默认方式的区别：表格或列表所在行复制出的行中的其他标签也会被扫描到并渲染；同一行上的多个表格、垂直列表各自插入行，
+         * 而不是共用按最大行数插入的行。启用后不使用标签计划（包括CompiledTemplate），也不支持流水线渲染
+         */
+        public ConfigureBuilder supportLegacyLayout(boolean legacyLayout) {
+            config.legacyLayout = legacyLayout;
+            return this;
+        }
+
         public ConfigureBuilder customPolicy(String tagName, RenderPolicy policy) {
             config.customPolicy(tagName, policy);
             return this;
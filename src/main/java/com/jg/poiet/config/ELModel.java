@@ -0,0 +1,16 @@
+package com.jg.poiet.config;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 数据模型类：编译时使用poi-et-processor注解处理器，为该类生成ModelReader，
+ * 渲染时直接调用getter或读取属性，不再使用反射。运行时只为有该注解的类查找ModelReader
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ELModel {
+
+}
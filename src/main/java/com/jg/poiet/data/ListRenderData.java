@@ -1,5 +1,7 @@
 package com.jg.poiet.data;
 
+import com.jg.poiet.data.flow.BlockingSubscriber;
+import com.jg.poiet.data.flow.Flow;
 import com.jg.poiet.data.style.Style;
 
 import java.util.ArrayList;
@@ -16,6 +18,12 @@ public class ListRenderData implements RenderData {
      */
     private List<CellRenderData> cellDatas;
 
+    /**
+     * 异步提供的列数据，首次访问列数据时按批请求并读入cellDatas
+     */
+    private Flow.Publisher<CellRenderData> publisher;
+    private int batchSize;
+
     /**
      * 列样式
      */
@@ -54,6 +62,19 @@ public class ListRenderData implements RenderData {
         this.style = style;
     }
 
+    /**
+     * 由Publisher提供列数据。列表渲染前需要知道单元格数量，首次访问列数据时订阅，
+     * 每批请求batchSize个单元格直到结束，读入的数据保存在cellDatas中
+     *
+     * @param publisher 列数据发布者，JDK 9的Flow.Publisher可通过Flow.fromJdkPublisher转换
+     * @param batchSize 每批请求的单元格数量
+     */
+    public ListRenderData(Flow.Publisher<CellRenderData> publisher, int batchSize) {
+        if (batchSize <= 0) throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        this.publisher = publisher;
+        this.batchSize = batchSize;
+    }
+
     public static ListRenderData build(String... cellStr) {
         List<TextRenderData> cellDatas = new ArrayList<>();
         if (null != cellStr) {
@@ -88,14 +109,25 @@ public class ListRenderData implements RenderData {
     }
 
     public int size() {
+        List<CellRenderData> cellDatas = getCellDatas();
         return null == cellDatas ? 0 : cellDatas.size();
     }
 
-    public List<CellRenderData> getCellDatas() {
+    public synchronized List<CellRenderData> getCellDatas() {
+        if (null != publisher) {
+            BlockingSubscriber<CellRenderData> subscriber = new BlockingSubscriber<>(batchSize, 0);
+            publisher.subscribe(subscriber);
+            publisher = null;
+            cellDatas = new ArrayList<>();
+            while (subscriber.hasNext()) {
+                cellDatas.add(subscriber.next());
+            }
+        }
         return cellDatas;
     }
 
-    public void setCellDatas(List<CellRenderData> cellDatas) {
+    public synchronized void setCellDatas(List<CellRenderData> cellDatas) {
+        this.publisher = null;
         this.cellDatas = cellDatas;
     }
 
@@ -109,6 +141,7 @@ public class ListRenderData implements RenderData {
     }
 
     public boolean isEmpty() {
+        List<CellRenderData> cellDatas = getCellDatas();
         return cellDatas == null || cellDatas.size() <= 0;
     }
 
@@ -0,0 +1,268 @@
+package com.jg.poiet.data;
+
+import com.jg.poiet.data.style.Style;
+import com.jg.poiet.exception.RenderException;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * 由JDBC ResultSet直接提供的表格数据：按列映射逐行读取ResultSet，读取一行生成一行RowRenderData，
+ * 不需要预先把查询结果复制成RowRenderData列表。
+ * 配合ResultSetTableRenderPolicy时按fetchSize分批写入，配合StreamingTableRenderPolicy时在写出工作簿时逐行读取。
+ * ResultSet只能遍历一次，由调用方负责关闭
+ */
+public class ResultSetTableRenderData extends TableRenderData {
+
+    private final ResultSet resultSet;
+    /**
+     * 列映射，为空时按ResultSet的所有列输出
+     */
+    private List<Column> columns = new ArrayList<>();
+    /**
+     * 每次从数据库读取的行数，大于0时在读取前设置到ResultSet
+     */
+    private int fetchSize;
+    /**
+     * 是否以列标题生成表头
+     */
+    private boolean showHeader = true;
+
+    public ResultSetTableRenderData(ResultSet resultSet) {
+        this(resultSet, null, null);
+    }
+
+    public ResultSetTableRenderData(ResultSet resultSet, Style headerStyle, Style bodyStyle) {
+        super((RowRenderData) null, (RowSource) null, headerStyle, bodyStyle);
+        if (null == resultSet) throw new IllegalArgumentException("ResultSet must not be null");
+        this.resultSet = resultSet;
+        setRowSource(new ResultSetRowSource());
+    }
+
+    /**
+     * 添加列，标题为列名
+     *
+     * @param label 列名（SQL中的列名或别名）
+     * @return  this
+     */
+    public ResultSetTableRenderData addColumn(String label) {
+        return addColumn(label, label, null);
+    }
+
+    public ResultSetTableRenderData addColumn(String label, String title) {
+        return addColumn(label, title, null);
+    }
+
+    /**
+     * 添加列，列按添加顺序输出
+     *
+     * @param label 列名（SQL中的列名或别名）
+     * @param title 表头标题
+     * @param style 该列单元格的样式，可为空
+     * @return  this
+     */
+    public ResultSetTableRenderData addColumn(String label, String title, Style style) {
+        columns.add(new Column(label, title, style));
+        return this;
+    }
+
+    /**
+     * 列映射，未添加列时由ResultSetMetaData生成
+     *
+     * @return  列映射
+     */
+    public List<Column> getColumns() {
+        if (columns.isEmpty()) {
+            try {
+                ResultSetMetaData metaData = resultSet.getMetaData();
+                for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                    String label = metaData.getColumnLabel(i);
+                    columns.add(new Column(label, label, null));
+                }
+            } catch (SQLException e) {
+                throw new RenderException("Read ResultSet metadata failed", e);
+            }
+        }
+        return columns;
+    }
+
+    @Override
+    public List<RowRenderData> getHeader() {
+        List<RowRenderData> header = super.getHeader();
+        if (showHeader && (null == header || header.isEmpty())) {
+            List<TextRenderData> titles = new ArrayList<>();
+            for (Column column : getColumns()) {
+                titles.add(new TextRenderData(column.getTitle()));
+            }
+            header = new ArrayList<>();
+            header.add(RowRenderData.build(titles.toArray(new TextRenderData[0])));
+            setHeader(header);
+        }
+        return header;
+    }
+
+    @Override
+    public boolean isSetHeader() {
+        List<RowRenderData> header = getHeader();
+        return null != header && header.size() > 0;
+    }
+
+    /**
+     * 将单元格的值转换为文本数据：数值按数值写入，null为空字符串，其余取toString()。
+     * 需要其他格式（如日期格式）时可覆盖该方法
+     *
+     * @param column    列
+     * @param value 值
+     * @return  文本数据
+     */
+    protected TextRenderData toTextRenderData(Column column, Object value) {
+        if (null == value) return new TextRenderData("", column.getStyle());
+        TextRenderData textData = new TextRenderData(value.toString(), column.getStyle());
+        if (value instanceof Number) textData.setDataType(TextRenderData.DataType.Double);
+        return textData;
+    }
+
+    public ResultSet getResultSet() {
+        return resultSet;
+    }
+
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    public ResultSetTableRenderData setFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+        return this;
+    }
+
+    public boolean isShowHeader() {
+        return showHeader;
+    }
+
+    public ResultSetTableRenderData setShowHeader(boolean showHeader) {
+        this.showHeader = showHeader;
+        return this;
+    }
+
+    /**
+     * 列映射
+     */
+    public static class Column {
+
+        private final String label;
+        private final String title;
+        private final Style style;
+
+        public Column(String label, String title, Style style) {
+            this.label = label;
+            this.title = title;
+            this.style = style;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+
+        public Style getStyle() {
+            return style;
+        }
+    }
+
+    /**
+     * 逐行读取ResultSet的数据源。可滚动的ResultSet移动到末行取得行数，forward-only的ResultSet行数未知
+     */
+    private class ResultSetRowSource extends RowSource.SingleUse {
+
+        private boolean opened;
+        private Integer size;
+
+        @Override
+        protected synchronized Iterator<RowRenderData> open() {
+            opened = true;
+            try {
+                if (fetchSize > 0) resultSet.setFetchSize(fetchSize);
+                List<Column> columns = getColumns();
+                int[] indexes = new int[columns.size()];
+                for (int i = 0; i < indexes.length; i++) {
+                    indexes[i] = resultSet.findColumn(columns.get(i).getLabel());
+                }
+                return new ResultSetIterator(columns, indexes);
+            } catch (SQLException e) {
+                throw new RenderException("Read ResultSet failed", e);
+            }
+        }
+
+        @Override
+        public synchronized int size() {
+            if (null == size) {
+                size = UNKNOWN_SIZE;
+                try {
+                    if (!opened && resultSet.getType() != ResultSet.TYPE_FORWARD_ONLY) {
+                        int current = resultSet.getRow();
+                        if (resultSet.last()) size = resultSet.getRow() - current;
+                        else size = 0;
+                        if (current == 0) resultSet.beforeFirst();
+                        else resultSet.absolute(current);
+                    }
+                } catch (SQLException e) {
+                    throw new RenderException("Read ResultSet failed", e);
+                }
+            }
+            return size;
+        }
+    }
+
+    private class ResultSetIterator implements Iterator<RowRenderData> {
+
+        private final List<Column> columns;
+        private final int[] indexes;
+        private Boolean hasNext;
+
+        ResultSetIterator(List<Column> columns, int[] indexes) {
+            this.columns = columns;
+            this.indexes = indexes;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (null == hasNext) {
+                try {
+                    hasNext = resultSet.next();
+                } catch (SQLException e) {
+                    throw new RenderException("Read ResultSet failed", e);
+                }
+            }
+            return hasNext;
+        }
+
+        @Override
+        public RowRenderData next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            hasNext = null;
+            TextRenderData[] cells = new TextRenderData[indexes.length];
+            try {
+                for (int i = 0; i < indexes.length; i++) {
+                    cells[i] = toTextRenderData(columns.get(i), resultSet.getObject(indexes[i]));
+                }
+            } catch (SQLException e) {
+                throw new RenderException("Read ResultSet failed", e);
+            }
+            return RowRenderData.build(cells);
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+}
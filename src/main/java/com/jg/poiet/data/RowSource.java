@@ -0,0 +1,181 @@
+package com.jg.poiet.data;
+
+import com.jg.poiet.data.flow.BlockingSubscriber;
+import com.jg.poiet.data.flow.Flow;
+
+import java.util.Collection;
+import java.util.Iterator;
+
+/**
+ * 表格行数据源：渲染时逐行读取RowRenderData，已写出的行不再被引用，可被及时回收。
+ * 适合与StreamingTableRenderPolicy配合输出大表格，Java 8的Stream可通过stream.iterator()接入，
+ * 异步服务提供的数据可通过Flow.Publisher接入。
+ * 由Iterator或Publisher创建的数据源只能遍历一次
+ */
+public abstract class RowSource implements Iterable<RowRenderData> {
+
+    /**
+     * 行数未知
+     */
+    public static final int UNKNOWN_SIZE = -1;
+
+    /**
+     * 行数。按XSSF渲染时据此预先插入行，因此不是预估值：已知行数时必须与遍历得到的行数一致，
+     * 不一致时渲染抛出RenderException；行数未知时按批读取、按实际读到的行数插入行（见batchSize）。
+     * 流式渲染不依赖该值
+     *
+     * @return  行数，未知时返回UNKNOWN_SIZE
+     */
+    public int size() {
+        return UNKNOWN_SIZE;
+    }
+
+    /**
+     * 是否没有任何行。行数未知时读取第一行是否存在（可能等待数据到达），不消耗该行。
+     * 默认实现调用iterator()，只能遍历一次的数据源需覆盖此方法，如继承SingleUse
+     *
+     * @return  没有行时返回true
+     */
+    public boolean isEmpty() {
+        int size = size();
+        return size == UNKNOWN_SIZE ? !iterator().hasNext() : size == 0;
+    }
+
+    /**
+     * 行数未知时每批读取的行数。TableRenderPolicy每读取一批插入一批行并写入，内存中只保留一批数据
+     *
+     * @return  每批行数，0表示不分批，所有行作为一批读入内存
+     */
+    public int batchSize() {
+        return 0;
+    }
+
+    /**
+     * 由集合或其他Iterable创建，集合的行数作为行数
+     *
+     * @param rows  行数据
+     * @return  数据源
+     */
+    public static RowSource of(final Iterable<RowRenderData> rows) {
+        final int size = rows instanceof Collection ? ((Collection<?>) rows).size() : UNKNOWN_SIZE;
+        return new RowSource() {
+            @Override
+            public Iterator<RowRenderData> iterator() {
+                return rows.iterator();
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * 由Iterator创建，行数未知
+     *
+     * @param iterator  行数据
+     * @return  只能遍历一次的数据源
+     */
+    public static RowSource of(Iterator<RowRenderData> iterator) {
+        return of(iterator, UNKNOWN_SIZE);
+    }
+
+    /**
+     * 由Iterator创建
+     *
+     * @param iterator  行数据
+     * @param size  行数，必须与iterator的元素数一致，未知时为UNKNOWN_SIZE
+     * @return  只能遍历一次的数据源
+     */
+    public static RowSource of(final Iterator<RowRenderData> iterator, final int size) {
+        return new SingleUse() {
+            @Override
+            protected Iterator<RowRenderData> open() {
+                return iterator;
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * 由Publisher创建：遍历时订阅，每批请求batchSize行，写入过半后补充请求，
+     * 内存中最多缓存batchSize行，生产与写入并行进行
+     *
+     * @param publisher 行数据发布者，JDK 9的Flow.Publisher可通过Flow.fromJdkPublisher转换
+     * @param batchSize 每批请求的行数
+     * @return  只能遍历一次的数据源
+     */
+    public static RowSource of(Flow.Publisher<RowRenderData> publisher, int batchSize) {
+        return of(publisher, batchSize, 0);
+    }
+
+    /**
+     * 由Publisher创建
+     *
+     * @param publisher 行数据发布者
+     * @param batchSize 每批请求的行数
+     * @param timeoutMillis 等待单行数据的超时时间（毫秒），不大于0时一直等待
+     * @return  只能遍历一次的数据源
+     */
+    public static RowSource of(final Flow.Publisher<RowRenderData> publisher, final int batchSize,
+                               final long timeoutMillis) {
+        if (batchSize <= 0) throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        return new SingleUse() {
+            @Override
+            protected Iterator<RowRenderData> open() {
+                BlockingSubscriber<RowRenderData> subscriber = new BlockingSubscriber<>(batchSize, timeoutMillis);
+                publisher.subscribe(subscriber);
+                return subscriber;
+            }
+
+            @Override
+            public int batchSize() {
+                return batchSize;
+            }
+        };
+    }
+
+    /**
+     * 只能遍历一次的数据源：首次遍历或判断是否为空时才打开数据（如订阅Publisher），
+     * 判断是否为空不消耗数据，之后的遍历从第一行开始
+     */
+    public abstract static class SingleUse extends RowSource {
+
+        private Iterator<RowRenderData> rows;
+        private boolean consumed;
+
+        /**
+         * 打开数据，只调用一次
+         *
+         * @return  行数据
+         */
+        protected abstract Iterator<RowRenderData> open();
+
+        @Override
+        public synchronized Iterator<RowRenderData> iterator() {
+            if (consumed) throw new IllegalStateException("The RowSource can only be iterated once.");
+            consumed = true;
+            return opened();
+        }
+
+        /**
+         * 应在遍历前调用，遍历开始后返回剩余的行是否为空
+         */
+        @Override
+        public synchronized boolean isEmpty() {
+            int size = size();
+            return size == UNKNOWN_SIZE ? !opened().hasNext() : size == 0;
+        }
+
+        private Iterator<RowRenderData> opened() {
+            if (null == rows) rows = open();
+            return rows;
+        }
+    }
+
+}
@@ -1,8 +1,10 @@
 package com.jg.poiet.data;
 
+import com.jg.poiet.data.flow.Flow;
 import com.jg.poiet.data.style.Style;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -18,6 +20,10 @@ public class TableRenderData implements RenderData {
      * 表格数据
      */
     private List<RowRenderData> rowDatas;
+    /**
+     * 按需读取的表格数据，设置后优先于rowDatas
+     */
+    private RowSource rowSource;
     /**
      *  表格头部数据样式
      */
@@ -50,6 +56,22 @@ public class TableRenderData implements RenderData {
         this.bodyStyle = bodyStyle;
     }
 
+    public TableRenderData(RowRenderData header, RowSource rowSource) {
+        this(header, rowSource, null, null);
+    }
+
+    public TableRenderData(RowRenderData header, RowSource rowSource, Style headerStyle, Style bodyStyle) {
+        this(header, (List<RowRenderData>) null, headerStyle, bodyStyle);
+        this.rowSource = rowSource;
+    }
+
+    /**
+     * 由Publisher异步提供表格数据，按批请求行数据，见RowSource.of(Flow.Publisher, int)
+     */
+    public TableRenderData(RowRenderData header, Flow.Publisher<RowRenderData> publisher, int batchSize) {
+        this(header, RowSource.of(publisher, batchSize));
+    }
+
     public TableRenderData(List<RowRenderData> header, List<RowRenderData> datas, Style headerStyle, Style bodyStyle) {
         this.header = header;
         this.rowDatas = datas;
@@ -61,10 +83,36 @@ public class TableRenderData implements RenderData {
         return null != header && header.size() > 0;
     }
 
+    /**
+     * 是否有表格数据行，rowSource行数未知时读取第一行是否存在，不消耗该行
+     *
+     * @return  有数据行时返回true
+     */
     public boolean isSetBody() {
+        if (null != rowSource) return !rowSource.isEmpty();
         return null != rowDatas && rowDatas.size() > 0;
     }
 
+    /**
+     * 表格数据行，设置了rowSource时从rowSource中读取
+     *
+     * @return  数据行
+     */
+    public Iterable<RowRenderData> getBodyRows() {
+        if (null != rowSource) return rowSource;
+        return null == rowDatas ? Collections.<RowRenderData>emptyList() : rowDatas;
+    }
+
+    /**
+     * 表格数据行数
+     *
+     * @return  行数，rowSource行数未知时返回RowSource.UNKNOWN_SIZE
+     */
+    public int getBodySize() {
+        if (null != rowSource) return rowSource.size();
+        return null == rowDatas ? 0 : rowDatas.size();
+    }
+
     public List<RowRenderData> getHeader() {
         return header;
     }
@@ -83,6 +131,15 @@ public class TableRenderData implements RenderData {
         return this;
     }
 
+    public RowSource getRowSource() {
+        return rowSource;
+    }
+
+    public TableRenderData setRowSource(RowSource rowSource) {
+        this.rowSource = rowSource;
+        return this;
+    }
+
     public Style getHeaderStyle() {
         return headerStyle;
     }
@@ -20,7 +20,7 @@ public class TextRenderData implements RenderData {
     protected String text;
 
     /**
-     * 数据写入类型（默认字符串）
+     * 数据写入类型（默认字符串）。Double：文本可解析为数字时以数值写入单元格，否则仍以文本写入
      */
     protected DataType dataType = DataType.String;
 
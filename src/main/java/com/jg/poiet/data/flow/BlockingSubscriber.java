@@ -0,0 +1,143 @@
+package com.jg.poiet.data.flow;
+
+import com.jg.poiet.exception.RenderException;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 以阻塞迭代器的方式消费Publisher：订阅后请求batchSize个元素，消费过半后补充请求，
+ * 已到达未消费的元素不超过batchSize个，生产端按消费速度被限流（背压）。
+ * 迭代在渲染线程中进行，onNext等回调可来自任意线程
+ *
+ * @param <T> 元素类型
+ */
+public class BlockingSubscriber<T> implements Flow.Subscriber<T>, Iterator<T> {
+
+    private static final Object COMPLETE = new Object();
+
+    private final int batchSize;
+    private final long timeoutMillis;
+    private final BlockingQueue<Object> queue;
+    private volatile Flow.Subscription subscription;
+    /**
+     * 上次请求后已消费的元素数
+     */
+    private int consumed;
+    private Object next;
+    private boolean done;
+
+    /**
+     * @param batchSize 每批请求的元素数
+     * @param timeoutMillis 等待单个元素的超时时间（毫秒），不大于0时一直等待
+     */
+    public BlockingSubscriber(int batchSize, long timeoutMillis) {
+        if (batchSize <= 0) throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        this.batchSize = batchSize;
+        this.timeoutMillis = timeoutMillis;
+        this.queue = new ArrayBlockingQueue<>(batchSize + 1);  //多留一个位置给结束信号
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        if (null != this.subscription) {
+            subscription.cancel();
+            return;
+        }
+        this.subscription = subscription;
+        subscription.request(batchSize);
+    }
+
+    @Override
+    public void onNext(T item) {
+        if (null == item) {
+            onError(new NullPointerException("Publisher emitted null"));
+            return;
+        }
+        if (!queue.offer(item)) {   //超出请求数量，发布者违反了背压约定
+            subscription.cancel();
+            onError(new IllegalStateException("Publisher emitted more items than requested"));
+        }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        queue.clear();
+        queue.offer(new Failure(throwable));
+    }
+
+    @Override
+    public void onComplete() {
+        queue.offer(COMPLETE);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (done) return false;
+        if (null == next) next = take();
+        if (next == COMPLETE) {
+            done = true;
+            return false;
+        }
+        if (next instanceof Failure) {
+            done = true;
+            throw new RenderException("Publisher failed", ((Failure) next).cause);
+        }
+        return true;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T next() {
+        if (!hasNext()) throw new NoSuchElementException();
+        T item = (T) next;
+        next = null;
+        if (++consumed >= Math.max(batchSize / 2, 1)) {
+            subscription.request(consumed);
+            consumed = 0;
+        }
+        return item;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * 取消订阅，不再接收元素
+     */
+    public void cancel() {
+        done = true;
+        if (null != subscription) subscription.cancel();
+    }
+
+    private Object take() {
+        try {
+            if (timeoutMillis <= 0) return queue.take();
+            Object item = queue.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+            if (null == item) {
+                cancel();
+                throw new RenderException("Publisher timed out after " + timeoutMillis + " ms");
+            }
+            return item;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancel();
+            throw new RenderException("Interrupted while waiting for publisher", e);
+        }
+    }
+
+    private static class Failure {
+
+        private final Throwable cause;
+
+        Failure(Throwable cause) {
+            this.cause = cause;
+        }
+    }
+
+}
@@ -0,0 +1,136 @@
+package com.jg.poiet.data.flow;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+/**
+ * 与java.util.concurrent.Flow（Reactive Streams）一致的发布/订阅接口。
+ * 项目以Java 7编译，无法直接引用JDK 9的Flow，运行在Java 9及以上时可用fromJdkPublisher转换JDK的Flow.Publisher
+ */
+public final class Flow {
+
+    private static final String JDK_FLOW = "java.util.concurrent.Flow";
+
+    private Flow() {}
+
+    public interface Publisher<T> {
+        void subscribe(Subscriber<? super T> subscriber);
+    }
+
+    public interface Subscriber<T> {
+        void onSubscribe(Subscription subscription);
+
+        void onNext(T item);
+
+        void onError(Throwable throwable);
+
+        void onComplete();
+    }
+
+    public interface Subscription {
+        void request(long n);
+
+        void cancel();
+    }
+
+    /**
+     * 将java.util.concurrent.Flow.Publisher转换为Publisher
+     *
+     * @param publisher JDK的Flow.Publisher
+     * @param <T>   元素类型
+     * @return  Publisher
+     */
+    public static <T> Publisher<T> fromJdkPublisher(final Object publisher) {
+        final Class<?> publisherClass;
+        final Class<?> subscriberClass;
+        try {
+            publisherClass = Class.forName(JDK_FLOW + "$Publisher");
+            subscriberClass = Class.forName(JDK_FLOW + "$Subscriber");
+        } catch (ClassNotFoundException e) {
+            throw new UnsupportedOperationException("java.util.concurrent.Flow requires Java 9 or later", e);
+        }
+        if (!publisherClass.isInstance(publisher)) {
+            throw new IllegalArgumentException("Not a java.util.concurrent.Flow.Publisher: " + publisher);
+        }
+        return new Publisher<T>() {
+            @Override
+            public void subscribe(Subscriber<? super T> subscriber) {
+                Object jdkSubscriber = Proxy.newProxyInstance(subscriberClass.getClassLoader(),
+                        new Class<?>[]{subscriberClass}, new SubscriberHandler(subscriber));
+                invoke(publisherClass, "subscribe", publisher, jdkSubscriber);
+            }
+        };
+    }
+
+    private static Object invoke(Class<?> type, String name, Object target, Object... args) {
+        for (Method method : type.getMethods()) {
+            if (method.getName().equals(name) && method.getParameterTypes().length == args.length) {
+                try {
+                    return method.invoke(target, args);
+                } catch (IllegalAccessException e) {
+                    throw new IllegalStateException(e);
+                } catch (InvocationTargetException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+                    if (cause instanceof Error) throw (Error) cause;
+                    throw new IllegalStateException(cause);
+                }
+            }
+        }
+        throw new IllegalStateException("No method " + name + " in " + type);
+    }
+
+    /**
+     * 将JDK Flow.Subscriber的回调转发给Subscriber
+     */
+    private static class SubscriberHandler implements InvocationHandler {
+
+        private final Subscriber<Object> subscriber;
+
+        @SuppressWarnings("unchecked")
+        SubscriberHandler(Subscriber<?> subscriber) {
+            this.subscriber = (Subscriber<Object>) subscriber;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            switch (method.getName()) {
+                case "onSubscribe":
+                    final Object subscription = args[0];
+                    final Class<?> subscriptionClass = method.getParameterTypes()[0];
+                    subscriber.onSubscribe(new Subscription() {
+                        @Override
+                        public void request(long n) {
+                            Flow.invoke(subscriptionClass, "request", subscription, n);
+                        }
+
+                        @Override
+                        public void cancel() {
+                            Flow.invoke(subscriptionClass, "cancel", subscription);
+                        }
+                    });
+                    return null;
+                case "onNext":
+                    subscriber.onNext(args[0]);
+                    return null;
+                case "onError":
+                    subscriber.onError((Throwable) args[0]);
+                    return null;
+                case "onComplete":
+                    subscriber.onComplete();
+                    return null;
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                case "toString":
+                    return "Subscriber(" + subscriber + ")";
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        }
+    }
+
+}
@@ -1,17 +1,22 @@
 package com.jg.poiet.data.style;
 
+import com.jg.poiet.NiceXSSFWorkbook;
 import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.xssf.model.StylesTable;
 import org.apache.poi.xssf.usermodel.XSSFCellStyle;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.lang.reflect.Field;
 
 /**
- * 样式
+ * 样式，只描述样式属性，不持有任何工作簿中的对象，可在多个模板、多个线程间共享
  */
 public class Style {
 
-    private Map<XSSFCellStyle, XSSFCellStyle> cellStyleMap = new HashMap<>();
+    /**
+     * XSSFCellStyle._stylesSource，用于已废弃的getCellStyle、setCellStyle取得单元格样式所属的工作簿
+     */
+    private static final Field STYLES_SOURCE = findStylesSource();
+
     /**
      * 字体颜色
      */
@@ -266,12 +271,54 @@ public class Style {
         this.color = color;
     }
 
+    /**
+     * 获取由该样式和原单元格样式派生出的单元格样式
+     *
+     * @param key   原单元格样式
+     * @return  未派生过、或原单元格样式不属于NiceXSSFWorkbook时返回null
+     * @deprecated  派生的单元格样式改由工作簿缓存（Style可在多个工作簿间共享），
+     *              使用NiceXSSFWorkbook.getDerivedCellStyle或StyleUtils.getCellStyle
+     */
+    @Deprecated
     public XSSFCellStyle getCellStyle(XSSFCellStyle key) {
-        return cellStyleMap.get(key);
+        NiceXSSFWorkbook workbook = workbookOf(key);
+        return null == workbook ? null : workbook.getDerivedCellStyle(this, key);
     }
 
+    /**
+     * 缓存由该样式和原单元格样式派生出的单元格样式，原单元格样式不属于NiceXSSFWorkbook时不缓存
+     *
+     * @param key   原单元格样式
+     * @param value 派生的单元格样式
+     * @deprecated  派生的单元格样式改由工作簿缓存（Style可在多个工作簿间共享），使用NiceXSSFWorkbook.putDerivedCellStyle
+     */
+    @Deprecated
     public void setCellStyle(XSSFCellStyle key, XSSFCellStyle value) {
-        this.cellStyleMap.put(key, value);
+        NiceXSSFWorkbook workbook = workbookOf(key);
+        if (null != workbook) workbook.putDerivedCellStyle(this, key, value);
+    }
+
+    /**
+     * 单元格样式所属的工作簿：XSSFCellStyle不公开其StylesTable，通过反射读取
+     */
+    private static NiceXSSFWorkbook workbookOf(XSSFCellStyle cellStyle) {
+        if (null == STYLES_SOURCE || null == cellStyle) return null;
+        try {
+            Object workbook = ((StylesTable) STYLES_SOURCE.get(cellStyle)).getParent();
+            return workbook instanceof NiceXSSFWorkbook ? (NiceXSSFWorkbook) workbook : null;
+        } catch (IllegalAccessException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static Field findStylesSource() {
+        try {
+            Field field = XSSFCellStyle.class.getDeclaredField("_stylesSource");
+            field.setAccessible(true);
+            return field;
+        } catch (Exception e) {
+            return null;
+        }
     }
 
 }
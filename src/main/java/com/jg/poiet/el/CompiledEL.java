@@ -0,0 +1,213 @@
+package com.jg.poiet.el;
+
+import com.jg.poiet.exception.ExpressionEvalException;
+import com.jg.poiet.util.ObjectUtils;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 编译后的表达式：校验一次格式，将a.b.c拆分为属性数组[a, b, c]和各级前缀表达式[a, a.b, a.b.c]，
+ * 求值时按数组逐级读取，除结果外不再创建对象。
+ * 编译结果在进程内全局缓存，所有模板、所有渲染共用，数量超过上限时每次淘汰一个近期未使用的表达式
+ */
+public final class CompiledEL {
+
+    /**
+     * 全局缓存的最大表达式数量
+     */
+    static final int MAX_CACHE_SIZE = 4096;
+
+    /**
+     * 命中时不加锁；未命中时加锁（CACHE本身）加入，缓存已满时先淘汰一个
+     */
+    private static final ConcurrentHashMap<String, CompiledEL> CACHE = new ConcurrentHashMap<>(256);
+
+    /**
+     * 淘汰时的扫描位置（CLOCK算法，近似LRU）：依次扫描缓存，清除扫描到的表达式的使用标记，
+     * 淘汰第一个未再使用的；持有CACHE的锁时访问
+     */
+    private static Iterator<CompiledEL> hand;
+
+    /**
+     * 加入缓存或被扫描后是否再次使用
+     */
+    private volatile boolean used = true;
+
+    private final String el;
+    /**
+     * 各级属性
+     */
+    private final String[] keys;
+    /**
+     * 各级表达式，paths[i]为keys[0..i]组成的表达式，paths[keys.length - 1]即el
+     */
+    private final String[] paths;
+    /**
+     * 表达式树，兼容使用Dot的代码
+     */
+    private final Dot dot;
+
+    private CompiledEL(String el) {
+        this.el = el;
+        this.keys = el.split("\\.");
+        this.paths = new String[keys.length];
+        int end = -1;
+        for (int i = 0; i < keys.length; i++) {
+            end += keys[i].length() + 1;
+            paths[i] = i == keys.length - 1 ? el : el.substring(0, end);
+        }
+        this.dot = new Dot(el);
+    }
+
+    /**
+     * 取得编译后的表达式，首次使用时校验格式并编译
+     *
+     * @param el    表达式
+     * @return  编译后的表达式
+     * @throws ExpressionEvalException  表达式格式错误
+     */
+    public static CompiledEL compile(String el) {
+        CompiledEL compiled = CACHE.get(ObjectUtils.requireNonNull(el, "EL cannot be null."));
+        if (null != compiled) {
+            if (!compiled.used) compiled.used = true;   //已标记时不再写入，常用的表达式没有写竞争
+            return compiled;
+        }
+        if (!Dot.EL_PATTERN.matcher(el).matches()) {
+            throw new ExpressionEvalException("Error EL fomart: " + el);
+        }
+        compiled = new CompiledEL(el);
+        synchronized (CACHE) {
+            CompiledEL existing = CACHE.get(el);
+            if (null != existing) return existing;
+            if (CACHE.size() >= MAX_CACHE_SIZE) evict();    //表达式数量异常增长（如动态生成）时避免无限占用内存
+            CACHE.put(el, compiled);
+        }
+        return compiled;
+    }
+
+    /**
+     * 淘汰一个近期未使用的表达式，通常不超过两遍扫描（第一遍清除使用标记）
+     */
+    private static void evict() {
+        while (true) {
+            if (null == hand || !hand.hasNext()) hand = CACHE.values().iterator();
+            CompiledEL candidate = hand.next();
+            if (candidate.used) {
+                candidate.used = false;
+            } else {
+                CACHE.remove(candidate.el, candidate);
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return  全局缓存的表达式数量
+     */
+    static int cacheSize() {
+        return CACHE.size();
+    }
+
+    /**
+     * 在数据模型上求值，与Dot.eval结果相同：各级结果（包括null）缓存在ELObject中，
+     * 从已缓存的最长前缀开始读取，作为前缀的延迟数据先取得其值
+     *
+     * @param elObject  数据模型
+     * @return  结果
+     */
+    public Object eval(ELObject elObject) {
+        return eval(elObject, true);
+    }
+
+    /**
+     * 与eval相同，但表达式无法计算时返回ELObject.ABSENT而不抛出异常，不需要异常的场景避免创建异常的开销
+     *
+     * @param elObject  数据模型
+     * @return  结果或ELObject.ABSENT
+     */
+    public Object lookup(ELObject elObject) {
+        return eval(elObject, false);
+    }
+
+    private Object eval(ELObject elObject, boolean strict) {
+        int last = keys.length - 1;
+        Object cached = elObject.getCached(el);
+        if (null != cached && (ELObject.ABSENT != cached || !strict)) return ELObject.unmask(cached);
+        int start = 0;
+        Object current = elObject.model;
+        for (int i = last - 1; i >= 0; i--) {
+            cached = elObject.getCached(paths[i]);
+            if (null == cached) continue;
+            if (ELObject.ABSENT == cached) {
+                if (!strict) return cached;
+                continue;   //严格模式重新读取以抛出异常
+            }
+            current = ELObject.unmask(cached);
+            start = i + 1;
+            break;
+        }
+        for (int i = start; i <= last; i++) {
+            if (i > 0 && Deferred.isDeferred(current)) {
+                current = elObject.resolve(paths[i - 1], current);
+                elObject.putCached(paths[i - 1], current);
+            }
+            if (strict) {
+                current = Dot.evalKey(current, keys[i], i > 0 ? paths[i - 1] : null);
+            } else {
+                current = Dot.readKey(current, keys[i]);
+                if (ELObject.ABSENT == current) {
+                    elObject.putCached(paths[i], current);
+                    if (i < last) elObject.putCached(el, current);
+                    return current;
+                }
+            }
+            elObject.putCached(paths[i], current);
+        }
+        return current;
+    }
+
+    /**
+     * 沿各级前缀读取到第一个值为延迟数据的前缀（或表达式本身）为止，不计算延迟数据，读取的结果与求值时一样缓存；
+     * 表达式无法计算或读取失败时同样返回null，由之后的求值报告
+     *
+     * @param elObject  数据模型
+     * @return  值为延迟数据的前缀表达式或表达式本身，没有时返回null
+     */
+    String findDeferred(ELObject elObject) {
+        Object current = elObject.model;
+        for (int i = 0; i < keys.length; i++) {
+            Object cached = elObject.getCached(paths[i]);
+            if (null != cached) {
+                current = ELObject.unmask(cached);
+            } else {
+                try {
+                    current = Dot.readKey(current, keys[i]);
+                } catch (RuntimeException e) {
+                    return null;
+                }
+                elObject.putCached(paths[i], current);
+            }
+            if (null == current || ELObject.ABSENT == current) return null;
+            if (Deferred.isDeferred(current)) return paths[i];
+        }
+        return null;
+    }
+
+    public String getEl() {
+        return el;
+    }
+
+    /**
+     * @return  表达式树
+     */
+    public Dot getDot() {
+        return dot;
+    }
+
+    @Override
+    public String toString() {
+        return el;
+    }
+
+}
@@ -0,0 +1,162 @@
+package com.jg.poiet.el;
+
+import com.jg.poiet.exception.RenderException;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 延迟计算的数据：Future（含CompletableFuture）、Callable和java.util.function.Supplier。
+ * 项目以Java 7编译，Supplier通过反射识别
+ */
+public final class Deferred {
+
+    private static final Class<?> SUPPLIER = findSupplier();
+    private static final Method SUPPLIER_GET = null == SUPPLIER ? null : findMethod(SUPPLIER, "get");
+
+    private Deferred() {}
+
+    private static Class<?> findSupplier() {
+        try {
+            return Class.forName("java.util.function.Supplier");
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+    }
+
+    private static Method findMethod(Class<?> clazz, String name) {
+        try {
+            return clazz.getMethod(name);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 是否为延迟计算的数据
+     *
+     * @param value 数据
+     * @return  是否延迟计算
+     */
+    public static boolean isDeferred(Object value) {
+        return value instanceof Future || value instanceof Callable
+                || (null != SUPPLIER && SUPPLIER.isInstance(value));
+    }
+
+    /**
+     * 在当前线程取得延迟数据的值，值仍为延迟数据时继续计算
+     *
+     * @param value 数据
+     * @param timeoutMillis 等待Future的超时时间（毫秒），不大于0时一直等待
+     * @return  计算后的值，非延迟数据原样返回
+     */
+    public static Object resolve(Object value, long timeoutMillis) {
+        while (isDeferred(value)) {
+            try {
+                if (value instanceof Future) {
+                    Future<?> future = (Future<?>) value;
+                    value = timeoutMillis > 0 ? future.get(timeoutMillis, TimeUnit.MILLISECONDS) : future.get();
+                } else {
+                    value = call(value);
+                }
+            } catch (TimeoutException e) {
+                //Future可能由调用方持有，不在此取消，resolveAll只取消自己提交的计算
+                throw new RenderException("Resolve deferred value timed out after " + timeoutMillis + " ms", e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RenderException("Interrupted while resolving deferred value", e);
+            } catch (ExecutionException e) {
+                throw new RenderException("Resolve deferred value failed", e.getCause());
+            } catch (CancellationException e) {
+                throw new RenderException("Deferred value was cancelled", e);
+            } catch (RenderException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new RenderException("Resolve deferred value failed", e);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * 同时计算列表中的所有延迟数据并替换为计算后的值：Callable和Supplier提交到executor执行，
+     * Future直接等待；同一对象只计算一次。所有数据共用一个截止时间，总耗时取决于最慢的数据。
+     * 按数据的顺序等待，失败或超时时取消提交到executor的计算，不取消调用方的Future
+     *
+     * @param values    数据，原地替换
+     * @param executor  执行Callable和Supplier的线程池
+     * @param timeoutMillis 超时时间（毫秒），从开始计算时算起，不大于0时一直等待
+     */
+    public static void resolveAll(List<Object> values, Executor executor, long timeoutMillis) {
+        Map<Object, Future<Object>> started = new IdentityHashMap<>();
+        List<Object> order = new ArrayList<>();     //按数据的顺序等待
+        for (Object value : values) {
+            if (isDeferred(value) && !started.containsKey(value)) {
+                started.put(value, start(value, executor));
+                order.add(value);
+            }
+        }
+        if (started.isEmpty()) return;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        Map<Object, Object> resolved = new IdentityHashMap<>();
+        try {
+            for (Object value : order) {
+                long remaining = timeoutMillis > 0 ? TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()) : 0;
+                if (timeoutMillis > 0 && remaining <= 0) remaining = 1;
+                resolved.put(value, resolve(started.get(value), remaining));
+            }
+        } catch (RuntimeException e) {
+            for (Map.Entry<Object, Future<Object>> entry : started.entrySet()) {
+                if (entry.getValue() != entry.getKey()) entry.getValue().cancel(true);  //只取消自己提交的计算
+            }
+            throw e;
+        }
+        for (int i = 0; i < values.size(); i++) {
+            Object value = values.get(i);
+            if (resolved.containsKey(value)) values.set(i, resolved.get(value));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Future<Object> start(final Object value, Executor executor) {
+        if (value instanceof Future) return (Future<Object>) value;
+        FutureTask<Object> task = new FutureTask<>(new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                return Deferred.call(value);
+            }
+        });
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            task.run();
+        }
+        return task;
+    }
+
+    private static Object call(Object value) throws Exception {
+        if (value instanceof Callable) return ((Callable<?>) value).call();
+        try {
+            return SUPPLIER_GET.invoke(value);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) throw (Exception) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw e;
+        }
+    }
+
+}
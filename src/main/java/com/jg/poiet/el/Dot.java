@@ -3,9 +3,7 @@ package com.jg.poiet.el;
 import com.jg.poiet.exception.ExpressionEvalException;
 import com.jg.poiet.util.ObjectUtils;
 
-import java.lang.reflect.Field;
 import java.util.Collection;
-import java.util.Map;
 import java.util.regex.Pattern;
 
 /**
@@ -36,37 +34,65 @@ public class Dot {
     }
 
     public Object eval(ELObject elObject) {
-        if (elObject.cache.containsKey(el)) return elObject.cache.get(el);
-        Object result = null != target ? evalKey(target.eval(elObject))
+        Object cached = elObject.getCached(el);
+        if (null != cached && ELObject.ABSENT != cached) return ELObject.unmask(cached);
+        Object result = null != target ? evalKey(target.evalTarget(elObject))
                 : evalKey(elObject.model);
-        if (null != result) elObject.cache.put(el, result);
+        elObject.putCached(el, result);
+        return result;
+    }
+
+    /**
+     * 作为前缀对象计算：延迟数据（Future、Callable、Supplier）需先取得其值
+     */
+    private Object evalTarget(ELObject elObject) {
+        Object result = eval(elObject);
+        if (!Deferred.isDeferred(result)) return result;
+        result = elObject.resolve(el, result);
+        elObject.putCached(el, result);
         return result;
     }
 
     private Object evalKey(Object obj) {
-        ObjectUtils.requireNonNull(obj,
-                "Cannot read value from null Prefix-Model, Prefix-Model EL: " + target);
-        final Class<?> objClass = obj.getClass();
-        if (obj instanceof String || obj instanceof Number || obj instanceof java.util.Date
-                || obj instanceof Collection || objClass.isArray()
-                || objClass.isPrimitive()) { throw new ExpressionEvalException(
-                "Prefix-Model must be JavaBean or Map, Prefix-Model EL: " + target
-                        + ", Prefix-Model type: " + objClass); }
-
-        if (obj instanceof Map) { return ((Map<?, ?>) obj).get(key); }
-
-        Field field = FieldFinder.find(objClass, key);
-        if (null == field) {
-            throw new ExpressionEvalException(
-                    "Cannot find the key:" + key + " from Prefix-Model EL:" + target);
-        } else {
-            try {
-                return field.get(obj);
-            } catch (Exception e) {
-                throw new ExpressionEvalException(
-                        "Error read the property:" + key + " from " + objClass);
-            }
+        return evalKey(obj, key, target);
+    }
+
+    /**
+     * 读取前缀对象obj的属性key
+     *
+     * @param obj   前缀对象
+     * @param key   属性
+     * @param target    前缀表达式，用于异常信息
+     * @return  属性值
+     */
+    static Object evalKey(Object obj, String key, Object target) {
+        Object result = readKey(obj, key);
+        if (ELObject.ABSENT != result) return result;
+        if (null == obj) {
+            throw new NullPointerException("Cannot read value from null Prefix-Model, Prefix-Model EL: " + target);
         }
+        if (!isReadable(obj)) {
+            throw new ExpressionEvalException("Prefix-Model must be JavaBean or Map, Prefix-Model EL: " + target
+                    + ", Prefix-Model type: " + obj.getClass());
+        }
+        throw new ExpressionEvalException("Cannot find the key:" + key + " from Prefix-Model EL:" + target);
+    }
+
+    /**
+     * 读取前缀对象obj的属性key，无法读取时（前缀对象为null、不是JavaBean或Map、属性不存在）
+     * 返回ELObject.ABSENT而不抛出异常
+     *
+     * @param obj   前缀对象
+     * @param key   属性
+     * @return  属性值或ELObject.ABSENT
+     */
+    static Object readKey(Object obj, String key) {
+        return null == obj ? ELObject.ABSENT : PropertyAccessor.read(obj, key);
+    }
+
+    private static boolean isReadable(Object obj) {
+        return !(obj instanceof String || obj instanceof Number || obj instanceof java.util.Date
+                || obj instanceof Collection || obj.getClass().isArray());
     }
 
     public String getEl() {
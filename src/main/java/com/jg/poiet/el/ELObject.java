@@ -1,28 +1,205 @@
 package com.jg.poiet.el;
 
+import com.jg.poiet.exception.ExpressionEvalException;
+import com.jg.poiet.exception.RenderException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
 
 /**
  * 对象点缀法访问
  */
 public class ELObject {
 
+    /**
+     * 表达式无法计算：前缀对象为null、不是JavaBean或Map、属性不存在
+     */
+    public static final Object ABSENT = new Object() {
+        @Override
+        public String toString() {
+            return "ABSENT";
+        }
+    };
+
+    /**
+     * 缓存中表示结果为null
+     */
+    private static final Object NULL = new Object();
+
     final Object model;
 
-    final Map<String, Object> cache = new ConcurrentHashMap<>(32);
+    /**
+     * 本次渲染中已计算的表达式及各级前缀的结果，null结果保存为NULL，无法计算保存为ABSENT，
+     * 共用前缀的表达式（如a.b.c和a.b.d）只读取一次前缀。
+     * 单级属性（不含.）由缓存的属性读取器直接读取，只缓存null和无法计算的结果。首次缓存时创建
+     */
+    private volatile Map<String, Object> cache;
+
+    /**
+     * 正在计算或已计算的延迟数据（表达式 -> 计算），同一表达式的延迟数据只计算一次。首次计算时创建
+     */
+    private volatile ConcurrentHashMap<String, FutureTask<Object>> resolving;
+
+    /**
+     * 等待延迟数据的超时时间（毫秒），不大于0时一直等待
+     */
+    private final long timeoutMillis;
 
     public ELObject(Object model) {
+        this(model, 0);
+    }
+
+    public ELObject(Object model, long timeoutMillis) {
         this.model = model;
+        this.timeoutMillis = timeoutMillis;
     }
 
     public static ELObject create(Object model) {
         return new ELObject(model);
     }
 
+    public static ELObject create(Object model, long timeoutMillis) {
+        return new ELObject(model, timeoutMillis);
+    }
+
     public Object eval(String el) {
-        Dot dot = new Dot(el);
-        return dot.eval(this);
+        if (isKey(el)) return evalKey(el, true);
+        return CompiledEL.compile(el).eval(this);
+    }
+
+    /**
+     * 与eval相同，但表达式无法计算时返回ABSENT而不抛出异常
+     *
+     * @param el    表达式
+     * @return  结果或ABSENT
+     */
+    public Object lookup(String el) {
+        if (isKey(el)) return evalKey(el, false);
+        return CompiledEL.compile(el).lookup(this);
+    }
+
+    /**
+     * 单级属性：格式正确（非空）且不含.
+     */
+    private static boolean isKey(String el) {
+        return null != el && !el.isEmpty() && el.indexOf('.') < 0;
+    }
+
+    /**
+     * 读取单级属性，不经过CompiledEL：非null的结果每次由缓存的属性读取器直接读取（与查询缓存的开销相当），
+     * null和无法计算的结果缓存，本次渲染中只读取一次
+     */
+    private Object evalKey(String key, boolean strict) {
+        Object cached = getCached(key);
+        if (null != cached && (ABSENT != cached || !strict)) return unmask(cached);
+        Object value = strict ? Dot.evalKey(model, key, null) : Dot.readKey(model, key);
+        if (null == value || ABSENT == value) putCached(key, value);
+        return value;
+    }
+
+    /**
+     * 已缓存的结果
+     *
+     * @param el    表达式
+     * @return  未缓存时返回null，结果为null时返回NULL（由unmask转换），无法计算时返回ABSENT
+     */
+    Object getCached(String el) {
+        Map<String, Object> map = cache;
+        return null == map ? null : map.get(el);
+    }
+
+    /**
+     * 缓存结果，null和ABSENT同样缓存
+     */
+    void putCached(String el, Object value) {
+        Map<String, Object> map = cache;
+        if (null == map) {
+            synchronized (this) {
+                map = cache;
+                if (null == map) cache = map = new ConcurrentHashMap<>(32);
+            }
+        }
+        map.put(el, null == value ? NULL : value);
+    }
+
+    static Object unmask(Object cached) {
+        return NULL == cached ? null : cached;
+    }
+
+    /**
+     * 在求值前同时计算各表达式的延迟数据，包括表达式的值和值为延迟数据的前缀（如user.name中为Future的user），
+     * 结果缓存后求值时不再逐个等待。嵌套的延迟数据（计算后的属性仍为延迟数据）逐层计算，每层同时计算，
+     * 每层的超时时间各自计算。失败或超时时只取消提交到executor的计算，不取消调用方的Future
+     *
+     * @param els   表达式，格式错误的表达式跳过
+     * @param executor  执行Callable和Supplier的线程池
+     */
+    public void resolveDeferred(Collection<String> els, Executor executor) {
+        while (true) {
+            Map<String, Object> deferred = new LinkedHashMap<>();
+            for (String el : els) {
+                CompiledEL compiled;
+                try {
+                    compiled = CompiledEL.compile(el);
+                } catch (ExpressionEvalException e) {
+                    continue;
+                }
+                String path = compiled.findDeferred(this);
+                if (null != path && !deferred.containsKey(path)) deferred.put(path, unmask(getCached(path)));
+            }
+            if (deferred.isEmpty()) return;
+            List<Object> values = new ArrayList<>(deferred.values());
+            Deferred.resolveAll(values, executor, timeoutMillis);
+            int i = 0;
+            for (String path : deferred.keySet()) {
+                putCached(path, values.get(i++));
+            }
+        }
+    }
+
+    /**
+     * 计算表达式el得到的延迟数据，多个线程同时计算同一表达式时只计算一次
+     */
+    Object resolve(String el, final Object deferred) {
+        ConcurrentHashMap<String, FutureTask<Object>> resolving = this.resolving;
+        if (null == resolving) {
+            synchronized (this) {
+                resolving = this.resolving;
+                if (null == resolving) this.resolving = resolving = new ConcurrentHashMap<>();
+            }
+        }
+        FutureTask<Object> task = resolving.get(el);
+        if (null == task) {
+            FutureTask<Object> created = new FutureTask<>(new Callable<Object>() {
+                @Override
+                public Object call() {
+                    return Deferred.resolve(deferred, timeoutMillis);
+                }
+            });
+            task = resolving.putIfAbsent(el, created);
+            if (null == task) {
+                task = created;
+                task.run();
+            }
+        }
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RenderException("Interrupted while resolving deferred value: " + el, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            throw new RenderException("Resolve deferred value failed: " + el, cause);
+        }
     }
 
 }
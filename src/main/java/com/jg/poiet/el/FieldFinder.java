@@ -5,7 +5,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.lang.reflect.Field;
-import java.util.LinkedHashMap;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * 寻找合适的属性，支持@Name注解
@@ -14,54 +16,51 @@ public class FieldFinder {
 
     private static Logger logger = LoggerFactory.getLogger(FieldFinder.class);
 
-    private static LinkedHashMap<Class<?>, Field[]> cache = new LinkedHashMap<Class<?>, Field[]>(32,
-            0.75f, true) {
-
-        private static final long serialVersionUID = -4306886008010847817L;
-
-        protected boolean removeEldestEntry(
-                java.util.Map.Entry<java.lang.Class<?>, Field[]> eldest) {
-            // TO DO 最大数可以被调整，如果是一个导出大量实体的业务，这个值应该增加来优化性能
-            return size() > 20;
+    /**
+     * 每个类的属性索引：属性名、@Name注解值到属性，包含父类的属性，已设置可访问。
+     * 按类缓存在ClassValue中，数量不受限制，类被卸载时随之释放；索引创建后不再修改，并发读取无需加锁。
+     * 索引中不存在即找不到，无需抛出NoSuchFieldException
+     */
+    private static final ClassValue<Map<String, Field>> FIELDS = new ClassValue<Map<String, Field>>() {
+        @Override
+        protected Map<String, Field> computeValue(Class<?> type) {
+            return index(type);
         }
     };
 
     static Field find(Class<?> objClass, String key) {
-        Class<?> clazz = objClass;
-        Field field;
-        while (clazz != Object.class) {
-            try {
-                field = findInClazz(clazz, key);
-                field.setAccessible(true);
-                return field;
-            } catch (NoSuchFieldException e) {
-                // do nothing, go to super class
-            } catch (Exception e) {
-                logger.error("Error read the property:" + key + " from " + objClass);
+        return FIELDS.get(objClass).get(key);
+    }
+
+    /**
+     * 查找顺序与逐级查找相同：子类优先于父类，同一个类中属性名优先于@Name
+     */
+    private static Map<String, Field> index(Class<?> clazz) {
+        Class<?> superClass = clazz.getSuperclass();
+        Map<String, Field> fields = null == superClass || superClass == Object.class
+                ? new HashMap<String, Field>() : new HashMap<>(FIELDS.get(superClass));
+        Map<String, Field> declared = new HashMap<>();
+        for (Field field : clazz.getDeclaredFields()) {
+            Name annotation = field.getAnnotation(Name.class);
+            if (null != annotation && !declared.containsKey(annotation.value()) && accessible(clazz, field)) {
+                declared.put(annotation.value(), field);
             }
-            clazz = clazz.getSuperclass();
         }
-        return null;
-
+        for (Field field : clazz.getDeclaredFields()) {
+            if (accessible(clazz, field)) declared.put(field.getName(), field);
+        }
+        fields.putAll(declared);
+        return Collections.unmodifiableMap(fields);
     }
 
-    static Field findInClazz(Class<?> clazz, String key) throws NoSuchFieldException {
-        Field field;
+    private static boolean accessible(Class<?> clazz, Field field) {
         try {
-            field = clazz.getDeclaredField(key);
-            return field;
-        } catch (Exception ignored) {}
-
-        Field[] fields = cache.get(clazz);
-        if (null == fields) {
-            fields = clazz.getDeclaredFields();
-            cache.put(clazz, fields);
-        }
-        for (Field f : fields) {
-            Name annotation = f.getAnnotation(Name.class);
-            if (null != annotation && key.equals(annotation.value())) return f;
+            field.setAccessible(true);
+            return true;
+        } catch (RuntimeException e) {  //如模块未开放
+            logger.debug("Cannot access the property:" + field.getName() + " from " + clazz);
+            return false;
         }
-        throw new NoSuchFieldException(key);
     }
 
 }
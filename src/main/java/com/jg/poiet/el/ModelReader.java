@@ -0,0 +1,42 @@
+package com.jg.poiet.el;
+
+/**
+ * 数据模型的属性读取器，一般由poi-et-processor为@ELModel注解的类生成，
+ * 命名为<类名>_ModelReader（内部类以_连接外部类名），与类在同一个包中，需有公开的无参构造方法。
+ * 查找属性的规则与反射相同：先getter（getXxx、isXxx），再属性、@Name注解的属性
+ */
+public interface ModelReader {
+
+    /**
+     * 没有该属性
+     */
+    int MISSING = -1;
+
+    /**
+     * 属性存在但无法直接读取（如没有getter的private属性），由反射读取
+     */
+    int REFLECTIVE = -2;
+
+    /**
+     * @return  读取的类，只用于该类本身，不用于其子类
+     */
+    Class<?> getType();
+
+    /**
+     * 属性key的序号
+     *
+     * @param key   属性
+     * @return  序号，或MISSING、REFLECTIVE
+     */
+    int indexOf(String key);
+
+    /**
+     * 读取属性值
+     *
+     * @param bean  对象
+     * @param index indexOf返回的序号
+     * @return  属性值
+     */
+    Object read(Object bean, int index);
+
+}
@@ -0,0 +1,72 @@
+package com.jg.poiet.el;
+
+import com.jg.poiet.config.ELModel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 数据模型类的ModelReader：@ELModel注解的类按名称（与类在同一个包中的<类名>_ModelReader，
+ * 内部类以_连接外部类名）从该类自身的类加载器中查找，不依赖线程上下文类加载器。
+ * 按类缓存在ClassValue中，类被卸载时随之释放
+ */
+final class ModelReaders {
+
+    private static Logger logger = LoggerFactory.getLogger(ModelReaders.class);
+
+    private static final ClassValue<ModelReader> READERS = new ClassValue<ModelReader>() {
+        @Override
+        protected ModelReader computeValue(Class<?> type) {
+            return load(type);
+        }
+    };
+
+    private ModelReaders() {}
+
+    private static ModelReader load(Class<?> type) {
+        ClassLoader loader = type.getClassLoader();
+        if (null == loader || type.isAnonymousClass() || type.isLocalClass()
+                || !type.isAnnotationPresent(ELModel.class)) return null;
+        String name = readerName(type);
+        try {
+            Class<?> readerClass = Class.forName(name, true, loader);
+            if (!ModelReader.class.isAssignableFrom(readerClass)) {
+                logger.warn("Ignore ModelReader " + name + ": not a " + ModelReader.class.getName()
+                        + " of this class loader");
+                return null;
+            }
+            ModelReader reader = (ModelReader) readerClass.getDeclaredConstructor().newInstance();
+            if (reader.getType() != type) {
+                logger.warn("Ignore ModelReader " + name + ": it reads " + reader.getType());
+                return null;
+            }
+            return reader;
+        } catch (ClassNotFoundException e) {
+            return null;
+        } catch (Exception | LinkageError e) {
+            logger.warn("Cannot load ModelReader " + name + ": " + e);
+            return null;
+        }
+    }
+
+    /**
+     * 与poi-et-processor生成的类名相同：pkg.Outer$Inner -> pkg.Outer_Inner_ModelReader
+     */
+    private static String readerName(Class<?> type) {
+        StringBuilder name = new StringBuilder(type.getSimpleName());
+        for (Class<?> outer = type.getEnclosingClass(); null != outer; outer = outer.getEnclosingClass()) {
+            name.insert(0, outer.getSimpleName() + "_");
+        }
+        String className = type.getName();
+        int dot = className.lastIndexOf('.');
+        return (dot < 0 ? "" : className.substring(0, dot + 1)) + name.append("_ModelReader");
+    }
+
+    /**
+     * @param clazz 类
+     * @return  该类的ModelReader，没有时返回null
+     */
+    static ModelReader get(Class<?> clazz) {
+        return READERS.get(clazz);
+    }
+
+}
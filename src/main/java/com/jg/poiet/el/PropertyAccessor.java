@@ -0,0 +1,295 @@
+package com.jg.poiet.el;
+
+import com.jg.poiet.exception.ExpressionEvalException;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 属性读取器：每个(类, 属性)只解析一次，依次查找getter（getXxx、isXxx）、属性、@Name注解的属性，
+ * 按类缓存在ClassValue中，类被卸载时随之释放；找不到属性也会缓存，之后不再重复查找。
+ * 类有ModelReader（如poi-et-processor生成）时直接使用，不再反射查找。
+ * 运行在Java 8及以上时，应用类的公开getter由LambdaMetafactory生成读取函数（与直接调用getter相当），
+ * 其余情况使用已设置可访问的Method、Field。
+ * 保存在字段中的MethodHandle无法被JIT内联，每次调用的开销远高于以上两种方式，因此不直接调用MethodHandle
+ */
+abstract class PropertyAccessor {
+
+    /**
+     * 缓存中表示找不到属性，find返回前转换为null，不会被读取
+     */
+    private static final Object MISSING = new Object();
+
+    /**
+     * 每个类的属性读取器，类型的判断随之缓存：读取时不再逐个instanceof（判断接口类型失败时开销较大）
+     */
+    private static final ClassValue<Properties> PROPERTIES = new ClassValue<Properties>() {
+        @Override
+        protected Properties computeValue(Class<?> type) {
+            return new Properties(type);
+        }
+    };
+
+    /**
+     * LambdaMetafactory.metafactory，Java 7中不存在
+     */
+    private static final Method METAFACTORY = findMetafactory();
+
+    private final String name;
+
+    private PropertyAccessor(String name) {
+        this.name = name;
+    }
+
+    private static Method findMetafactory() {
+        try {
+            return Class.forName("java.lang.invoke.LambdaMetafactory").getMethod("metafactory",
+                    MethodHandles.Lookup.class, String.class, MethodType.class, MethodType.class,
+                    MethodHandle.class, MethodType.class);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * 读取对象的属性：Map按key读取，JavaBean由缓存的属性读取器读取
+     *
+     * @param obj   对象
+     * @param key   属性
+     * @return  属性值，不是JavaBean或Map（String、Number、Date、Collection、数组）或属性不存在时返回ELObject.ABSENT
+     */
+    static Object read(Object obj, String key) {
+        Class<?> clazz = obj.getClass();
+        Properties properties = PROPERTIES.get(clazz);
+        if (properties.map) return ((Map<?, ?>) obj).get(key);
+        if (null == properties.accessors) return ELObject.ABSENT;
+        PropertyAccessor accessor = find(properties.accessors, clazz, key);
+        return null == accessor ? ELObject.ABSENT : accessor.get(obj);
+    }
+
+    /**
+     * 查找类中名为key的属性读取器
+     *
+     * @param accessors 类的属性读取器
+     * @param clazz 类
+     * @param key   属性
+     * @return  读取器，找不到时返回null
+     */
+    private static PropertyAccessor find(ConcurrentMap<String, Object> accessors, Class<?> clazz, String key) {
+        Object accessor = accessors.get(key);
+        if (null == accessor) {
+            accessor = resolve(clazz, key);
+            Object existing = accessors.putIfAbsent(key, accessor);
+            if (null != existing) accessor = existing;
+        }
+        return MISSING == accessor ? null : (PropertyAccessor) accessor;
+    }
+
+    /**
+     * @return  PropertyAccessor，找不到属性时返回MISSING
+     */
+    private static Object resolve(Class<?> clazz, String key) {
+        ModelReader reader = ModelReaders.get(clazz);
+        if (null != reader) {
+            int index = reader.indexOf(key);
+            if (index >= 0) return new ReaderAccessor(key, reader, index);
+            if (index == ModelReader.MISSING) return MISSING;
+        }
+        Method getter = findGetter(clazz, key);
+        if (null != getter) {
+            PropertyAccessor accessor = lambdaAccessor(getter);
+            return null != accessor ? accessor : new MethodAccessor(getter);
+        }
+        Field field = FieldFinder.find(clazz, key);
+        return null == field ? MISSING : new FieldAccessor(field);
+    }
+
+    private static Method findGetter(Class<?> clazz, String key) {
+        if (key.isEmpty()) return null;
+        String suffix = Character.toUpperCase(key.charAt(0)) + key.substring(1);
+        Method method = findMethod(clazz, "get" + suffix);
+        if (null == method) {
+            method = findMethod(clazz, "is" + suffix);
+            if (null != method && method.getReturnType() != boolean.class && method.getReturnType() != Boolean.class) {
+                method = null;
+            }
+        }
+        return method;
+    }
+
+    private static Method findMethod(Class<?> clazz, String name) {
+        try {
+            Method method = clazz.getMethod(name);
+            if (Modifier.isStatic(method.getModifiers()) || method.getReturnType() == void.class
+                    || method.getDeclaringClass() == Object.class) return null;
+            if (!isPublic(method.getDeclaringClass())) method.setAccessible(true);
+            return method;
+        } catch (NoSuchMethodException e) {
+            return null;
+        } catch (RuntimeException e) {     //setAccessible失败（如模块未开放）
+            return null;
+        }
+    }
+
+    /**
+     * 由LambdaMetafactory为getter生成读取函数，只用于应用类加载器加载的公开类，
+     * 生成的类可直接调用其公开方法；不支持时返回null。
+     * 生成的类由poi-et的类加载器定义，其他类加载器（如子类加载器）加载的类对它不可见，也不应被它引用（否则无法卸载）
+     */
+    private static PropertyAccessor lambdaAccessor(Method getter) {
+        Class<?> declaringClass = getter.getDeclaringClass();
+        if (null == METAFACTORY || null == declaringClass.getClassLoader() || !isPublic(declaringClass)
+                || !isVisible(declaringClass)) return null;
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            MethodHandle handle = lookup.unreflect(getter);
+            CallSite site = (CallSite) METAFACTORY.invoke(null, lookup, "get", MethodType.methodType(Getter.class),
+                    MethodType.methodType(Object.class, Object.class), handle,
+                    MethodType.methodType(handle.type().wrap().returnType(), declaringClass));
+            return new LambdaAccessor(getter.getName(), (Getter) site.getTarget().invoke());
+        } catch (Throwable e) {
+            return null;
+        }
+    }
+
+    private static boolean isVisible(Class<?> clazz) {
+        try {
+            return Class.forName(clazz.getName(), false, PropertyAccessor.class.getClassLoader()) == clazz;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    private static boolean isPublic(Class<?> clazz) {
+        for (Class<?> c = clazz; null != c; c = c.getEnclosingClass()) {
+            if (!Modifier.isPublic(c.getModifiers())) return false;
+        }
+        return true;
+    }
+
+    /**
+     * 读取属性值
+     *
+     * @param bean  对象
+     * @return  属性值
+     */
+    Object get(Object bean) {
+        try {
+            return read(bean);
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new ExpressionEvalException("Error read the property:" + name + " from " + bean.getClass(), e);
+        }
+    }
+
+    abstract Object read(Object bean) throws Throwable;
+
+    /**
+     * 一个类的属性读取器
+     */
+    private static final class Properties {
+
+        /**
+         * 是否为Map，按key读取
+         */
+        final boolean map;
+
+        /**
+         * 属性 -> PropertyAccessor或MISSING，Map及不是JavaBean的类型为null
+         */
+        final ConcurrentMap<String, Object> accessors;
+
+        Properties(Class<?> type) {
+            boolean readable = !(String.class.isAssignableFrom(type) || Number.class.isAssignableFrom(type)
+                    || Date.class.isAssignableFrom(type) || Collection.class.isAssignableFrom(type) || type.isArray());
+            this.map = readable && Map.class.isAssignableFrom(type);
+            this.accessors = readable && !map ? new ConcurrentHashMap<String, Object>(16) : null;
+        }
+    }
+
+    /**
+     * LambdaMetafactory生成的读取函数实现的接口
+     */
+    interface Getter {
+        Object get(Object bean);
+    }
+
+    private static class LambdaAccessor extends PropertyAccessor {
+
+        private final Getter getter;
+
+        LambdaAccessor(String name, Getter getter) {
+            super(name);
+            this.getter = getter;
+        }
+
+        @Override
+        Object read(Object bean) {
+            return getter.get(bean);
+        }
+    }
+
+    private static class ReaderAccessor extends PropertyAccessor {
+
+        private final ModelReader reader;
+        private final int index;
+
+        ReaderAccessor(String name, ModelReader reader, int index) {
+            super(name);
+            this.reader = reader;
+            this.index = index;
+        }
+
+        @Override
+        Object read(Object bean) {
+            return reader.read(bean, index);
+        }
+    }
+
+    private static class MethodAccessor extends PropertyAccessor {
+
+        private final Method method;
+
+        MethodAccessor(Method method) {
+            super(method.getName());
+            this.method = method;
+        }
+
+        @Override
+        Object read(Object bean) throws Throwable {
+            try {
+                return method.invoke(bean);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    private static class FieldAccessor extends PropertyAccessor {
+
+        private final Field field;
+
+        FieldAccessor(Field field) {
+            super(field.getName());
+            this.field = field;
+        }
+
+        @Override
+        Object read(Object bean) throws IllegalAccessException {
+            return field.get(bean);
+        }
+    }
+
+}
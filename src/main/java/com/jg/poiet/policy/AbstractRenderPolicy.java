@@ -56,6 +56,16 @@ public abstract class AbstractRenderPolicy<T> implements RenderPolicy {
      */
     public abstract void doRender(CellTemplate cellTemplate, T data, XSSFTemplate template) throws Exception;
 
+    /**
+     * 执行模板渲染，需要读取渲染上下文（如标签原文）的策略可覆盖此方法
+     *
+     * @param context   渲染上下文
+     */
+    @SuppressWarnings("unchecked")
+    protected void doRender(RenderContext context) throws Exception {
+        doRender((CellTemplate) context.getEleTemplate(), (T) context.getData(), context.getTemplate());
+    }
+
     /*
      * 骨架 (non-Javadoc)
      *
@@ -87,7 +97,7 @@ public abstract class AbstractRenderPolicy<T> implements RenderPolicy {
         // do render
         try {
             beforeRender(context);
-            doRender(cellTemplate, model, template);
+            doRender(context);
             afterRender(context);
         } catch (Exception e) {
             doRenderException(cellTemplate, model, e);
@@ -15,7 +15,7 @@ import org.apache.poi.xssf.usermodel.XSSFSheet;
 /**
  * 列表处理
  */
-public class ListRenderPolicy extends AbstractRenderPolicy<ListRenderData> {
+public class ListRenderPolicy extends AbstractRenderPolicy<ListRenderData> implements RowExpandable {
 
     @Override
     protected boolean validate(ListRenderData data) {
@@ -29,7 +29,15 @@ public class ListRenderPolicy extends AbstractRenderPolicy<ListRenderData> {
     @Override
     public void doRender(CellTemplate cellTemplate, ListRenderData data, XSSFTemplate template) {
         XSSFCell cell = cellTemplate.getCell();
-        Helper.renderList(template, cell, data);
+        Helper.renderList(template, cell, data, !cellTemplate.isRowsReserved());
+    }
+
+    @Override
+    public int getInsertRowNum(Object data) {
+        if (!(data instanceof ListRenderData) || !validate((ListRenderData) data)) return 0;
+        ListRenderData listData = (ListRenderData) data;
+        if (listData.getDirection() != ListRenderData.DIRECTION.VERTICAL || !listData.isExtension()) return 0;
+        return Math.max(Helper.getRowNum(listData) - 1, 0);
     }
 
     public static class Helper {
@@ -41,10 +49,21 @@ public class ListRenderPolicy extends AbstractRenderPolicy<ListRenderData> {
          * @param listData listData
          */
         public static void renderList(XSSFTemplate template, XSSFCell cell, ListRenderData listData) {
+            renderList(template, cell, listData, true);
+        }
+
+        /**
+         * 渲染列表数据
+         * @param template template
+         * @param cell  cell
+         * @param listData listData
+         * @param insertRow 垂直方向是否插入行，为false时表示行已在布局阶段插入
+         */
+        public static void renderList(XSSFTemplate template, XSSFCell cell, ListRenderData listData, boolean insertRow) {
             if (listData.getDirection() == ListRenderData.DIRECTION.HORIZONTAL) {   //水平方向
                 renderHorizontalList(template, cell, listData);
             } else if (listData.getDirection() == ListRenderData.DIRECTION.VERTICAL) {  //垂直方向
-                renderVerticalList(template, cell, listData);
+                renderVerticalList(template, cell, listData, insertRow);
             }
         }
 
@@ -91,15 +110,18 @@ public class ListRenderPolicy extends AbstractRenderPolicy<ListRenderData> {
          * @param template  template
          * @param cell  cell
          * @param listData  listData
+         * @param insertRow 是否插入行
          */
-        private static void renderVerticalList(XSSFTemplate template, XSSFCell cell, ListRenderData listData) {
+        private static void renderVerticalList(XSSFTemplate template, XSSFCell cell, ListRenderData listData, boolean insertRow) {
             NiceXSSFWorkbook workbook = template.getXSSFWorkbook();
             XSSFSheet sheet = cell.getSheet();
             cell.setCellValue("");  //将该单元格值置空
             if (listData.isEmpty()) {
                 return ;
             }
-            insertRow(workbook, cell, listData);   //插入行
+            if (insertRow) {
+                insertRow(workbook, cell, listData);   //插入行
+            }
             int columnIndex = cell.getColumnIndex();
             int rowIndex = cell.getRowIndex();
             for (int i = 0; i < listData.size(); i++) {
@@ -134,7 +156,6 @@ public class ListRenderPolicy extends AbstractRenderPolicy<ListRenderData> {
                     rowIndex = cellAddress.getLastRow() + 1;
                 }
             }
-            template.getXSSFWorkbook().updateCellRangeAddress();
         }
 
         /**
@@ -147,14 +168,23 @@ public class ListRenderPolicy extends AbstractRenderPolicy<ListRenderData> {
             if (!listData.isExtension()) {
                 return ;
             }
-            int insertNum = 0;
+            PolicyHelper.insertRow(workbook, cell, getRowNum(listData) - 1);
+        }
+
+        /**
+         * 垂直列表占用的行数
+         * @param listData  listData
+         * @return  各单元格（含合并行）的行数之和
+         */
+        static int getRowNum(ListRenderData listData) {
+            int rowNum = 0;
             for (CellRenderData cellRenderData : listData.getCellDatas()) {
                 if (cellRenderData == null) {
                     continue;
                 }
-                insertNum += cellRenderData.getRowspan() + 1;
+                rowNum += cellRenderData.getRowspan() + 1;
             }
-            PolicyHelper.insertRow(workbook, cell, insertNum - 1);
+            return rowNum;
         }
     }
 
@@ -6,7 +6,6 @@ import com.jg.poiet.data.CellRenderData;
 import com.jg.poiet.data.RowRenderData;
 import com.jg.poiet.data.style.Style;
 import com.jg.poiet.util.StyleUtils;
-import org.apache.poi.ss.usermodel.CellCopyPolicy;
 import org.apache.poi.ss.util.CellRangeAddress;
 import org.apache.poi.xssf.usermodel.XSSFCell;
 import org.apache.poi.xssf.usermodel.XSSFRow;
@@ -32,11 +31,21 @@ public class PolicyHelper {
     public static void insertRow(NiceXSSFWorkbook workbook, XSSFCell cell, int insertNum) {
         XSSFSheet sheet = cell.getSheet();
         workbook.insertRowsAfter(workbook.getSheetIndex(sheet), cell.getRowIndex(), insertNum);
-        for (int i = cell.getRowIndex() + 1; i <= cell.getRowIndex() + insertNum; i++) {
+        fillInsertedRows(workbook, cell.getRow(), insertNum);
+    }
+
+    /**
+     * 用当前行填充其后已插入的insertNum行，并将以当前行结尾的合并单元格扩展到插入的行
+     * @param workbook  workbook
+     * @param xssfRow   当前行
+     * @param insertNum insertNum
+     */
+    public static void fillInsertedRows(NiceXSSFWorkbook workbook, XSSFRow xssfRow, int insertNum) {
+        XSSFSheet sheet = xssfRow.getSheet();
+        for (int i = xssfRow.getRowNum() + 1; i <= xssfRow.getRowNum() + insertNum; i++) {
             XSSFRow row = sheet.createRow(i);
-            row.copyRowFrom(cell.getRow(), new CellCopyPolicy());
+            workbook.copyRowFrom(row, xssfRow);
         }
-        XSSFRow xssfRow = cell.getRow();
         for(int i = 0; i <= xssfRow.getLastCellNum(); i++){ //将当前行所在的合并单元格和扩展出去的行合并
             XSSFCell xssfCell = xssfRow.getCell(i);
             if (null == xssfCell) continue;
@@ -44,7 +53,7 @@ public class PolicyHelper {
             if (null == cellAddress) continue;
             if (xssfCell.getColumnIndex() != cellAddress.getFirstColumn()) continue;
             if (cellAddress.getFirstRow() == cellAddress.getLastRow()) continue;
-            if (cellAddress.getLastRow() != cell.getRowIndex()) continue;
+            if (cellAddress.getLastRow() != xssfRow.getRowNum()) continue;
             int firstRow = cellAddress.getFirstRow();
             int lastRow = cellAddress.getLastRow() + insertNum;
             int firstColumn = cellAddress.getFirstColumn();
@@ -61,25 +70,7 @@ public class PolicyHelper {
      * @param insertNum insertNum
      */
     public static void insertColumn(NiceXSSFWorkbook workbook, XSSFCell cell, int insertNum) {
-        XSSFSheet sheet = cell.getSheet();
-        workbook.insertColumnsAfter(workbook.getSheetIndex(sheet), cell.getColumnIndex(), insertNum);
-        for (int i = 0; i <= sheet.getLastRowNum(); i++) {  //写入数据
-            XSSFRow row = sheet.getRow(i);
-            if (row == null) {
-                continue;
-            }
-            XSSFCell sourceCell = row.getCell(cell.getColumnIndex());
-            if (sourceCell == null) {
-                continue;
-            }
-            if (workbook.getCellRangeAddress(sourceCell) != null) {
-                continue;
-            }
-            for (int j = cell.getColumnIndex() + insertNum; j > cell.getColumnIndex(); j--) {
-                XSSFCell targetCell = row.getCell(j);
-                targetCell.copyCellFrom(sourceCell, new CellCopyPolicy());
-            }
-        }
+        workbook.insertColumnsAfter(workbook.getSheetIndex(cell.getSheet()), cell.getColumnIndex(), insertNum, true);
     }
 
     /**
@@ -121,6 +112,5 @@ public class PolicyHelper {
                 columnIndex = cellAddress.getLastColumn() + 1;
             }
         }
-        template.getXSSFWorkbook().updateCellRangeAddress();
     }
 }
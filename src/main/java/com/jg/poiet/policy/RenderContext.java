@@ -3,6 +3,9 @@ package com.jg.poiet.policy;
 import com.jg.poiet.XSSFTemplate;
 import com.jg.poiet.template.ElementTemplate;
 
+/**
+ * 单次标签渲染的上下文，每个标签独立创建，渲染状态只经由该对象传递，策略本身不保存状态
+ */
 public class RenderContext {
 
     private ElementTemplate eleTemplate;
@@ -23,6 +26,13 @@ public class RenderContext {
         this.eleTemplate = eleTemplate;
     }
 
+    /**
+     * 标签原文，文本渲染时只替换单元格中的该部分
+     */
+    public String getSource() {
+        return null == eleTemplate ? null : eleTemplate.getSource();
+    }
+
     public Object getData() {
         return data;
     }
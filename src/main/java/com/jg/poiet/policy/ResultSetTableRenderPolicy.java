@@ -0,0 +1,54 @@
+package com.jg.poiet.policy;
+
+import com.jg.poiet.XSSFTemplate;
+import com.jg.poiet.data.ResultSetTableRenderData;
+import com.jg.poiet.data.RowSource;
+import com.jg.poiet.data.TableRenderData;
+import com.jg.poiet.exception.RenderException;
+import com.jg.poiet.template.cell.CellTemplate;
+
+import java.sql.SQLException;
+
+/**
+ * ResultSet表格处理：行数已知（可滚动的ResultSet或普通TableRenderData）时与TableRenderPolicy相同；
+ * forward-only的ResultSet行数未知，不预先读入全部行，而是每读取一批（fetchSize行）插入一批行并写入，
+ * 内存中只保留一批数据，数据库读取与单元格写入交替进行。
+ * 使用方式：configure.customPolicy("detail", new ResultSetTableRenderPolicy())
+ */
+public class ResultSetTableRenderPolicy extends TableRenderPolicy {
+
+    /**
+     * 数据和ResultSet均未设置fetchSize时每批写入的行数
+     */
+    public static final int DEFAULT_BATCH_SIZE = 100;
+
+    @Override
+    public void doRender(CellTemplate cellTemplate, TableRenderData data, XSSFTemplate template) {
+        if (!isStreamed(data)) {
+            super.doRender(cellTemplate, data, template);
+            return;
+        }
+        Helper.renderTableInBatches(template, cellTemplate.getCell(), data, getBatchSize((ResultSetTableRenderData) data));
+    }
+
+    @Override
+    public int getInsertRowNum(Object data) {
+        if (data instanceof TableRenderData && isStreamed((TableRenderData) data)) return 0;  //渲染时分批插入
+        return super.getInsertRowNum(data);
+    }
+
+    private static boolean isStreamed(TableRenderData data) {
+        return data instanceof ResultSetTableRenderData && data.getBodySize() == RowSource.UNKNOWN_SIZE;
+    }
+
+    private static int getBatchSize(ResultSetTableRenderData tableData) {
+        if (tableData.getFetchSize() > 0) return tableData.getFetchSize();
+        try {
+            int fetchSize = tableData.getResultSet().getFetchSize();
+            return fetchSize > 0 ? fetchSize : DEFAULT_BATCH_SIZE;
+        } catch (SQLException e) {
+            throw new RenderException("Read ResultSet failed", e);
+        }
+    }
+
+}
@@ -0,0 +1,18 @@
+package com.jg.poiet.policy;
+
+/**
+ * 会在标签所在行之后插入行的渲染策略，如表格和垂直列表。
+ * 按标签计划渲染时，先由布局阶段根据数据计算每个标签需要插入的行数，每个sheet自下而上只移动一次行，
+ * 再逐个填充数据；此时CellTemplate.isRowsReserved()为true，策略应直接使用已插入的行，不再自行插入
+ */
+public interface RowExpandable {
+
+    /**
+     * 渲染data需要在标签所在行之后插入的行数
+     *
+     * @param data  数据模型
+     * @return  插入行数，不需要插入时返回0
+     */
+    int getInsertRowNum(Object data);
+
+}
@@ -0,0 +1,340 @@
+package com.jg.poiet.policy;
+
+import com.jg.poiet.NiceXSSFWorkbook;
+import com.jg.poiet.XSSFTemplate;
+import com.jg.poiet.data.CellRenderData;
+import com.jg.poiet.data.RowRenderData;
+import com.jg.poiet.data.TableRenderData;
+import com.jg.poiet.data.TextRenderData;
+import com.jg.poiet.data.style.Style;
+import com.jg.poiet.exception.RenderException;
+import com.jg.poiet.template.cell.CellTemplate;
+import com.jg.poiet.util.StyleUtils;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.util.CellAddress;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFCell;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.apache.poi.xssf.usermodel.XSSFDataValidation;
+import org.apache.poi.xssf.usermodel.XSSFHyperlink;
+import org.apache.poi.xssf.usermodel.XSSFRow;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFSheetConditionalFormatting;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 流式表格处理，适用于位于sheet末尾、行数巨大的表格。
+ * 渲染时只记录表格位置和数据，其余内容仍按XSSF渲染；写出工作簿时移除标签所在行及其下方的模板行，
+ * 经SXSSFWorkbook逐行写出表格，内存中最多保留windowSize行，之后在表格下方重新写出原模板行。
+ * 使用方式：configure.customPolicy("detail", new StreamingTableRenderPolicy())。
+ * 重新写出的模板行只保留行高、单元格样式和值，因此标签所在行及其下方有公式、富文本、超链接、批注、
+ * 数据有效性或条件格式时不使用流式写出，改为与TableRenderPolicy相同地在内存中渲染，由poi调整这些内容。
+ * 限制：每个sheet最多一个流式表格；图片等绘图对象不随之移动；
+ * 工作簿只能通过XSSFTemplate.write或NiceXSSFWorkbook.writeTo写出一次
+ */
+public class StreamingTableRenderPolicy extends AbstractRenderPolicy<TableRenderData> {
+
+    private final int windowSize;
+
+    public StreamingTableRenderPolicy() {
+        this(SXSSFWorkbook.DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * @param windowSize    流式写出时内存中保留的行数
+     */
+    public StreamingTableRenderPolicy(int windowSize) {
+        this.windowSize = windowSize;
+    }
+
+    @Override
+    protected boolean validate(TableRenderData data) {
+        if (!data.isSetBody() && !data.isSetHeader()) {
+            logger.debug("Empty TableRenderData datamodel: {}", data);
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void doRender(CellTemplate cellTemplate, TableRenderData data, XSSFTemplate template) {
+        XSSFCell cell = cellTemplate.getCell();
+        String unsupported = findUnsupportedContent(cell);
+        if (null != unsupported) {
+            logger.warn("Render the table {} in memory instead of streaming, {} below the tag.",
+                    cellTemplate.getSource(), unsupported);
+            TableRenderPolicy.Helper.renderTable(template, cell, data, true);
+            return;
+        }
+        cell.setCellValue("");  //将该单元格值置空
+        template.getXSSFWorkbook().addStreamingContent(new StreamingTable(template.getXSSFWorkbook(), cell, data),
+                windowSize);
+    }
+
+    /**
+     * 查找流式写出时会丢失或错位的内容：标签所在行及其下方的公式、富文本，标签所在行下方的超链接、批注、
+     * 数据有效性和条件格式（整列的区域不受影响）
+     *
+     * @param cell  标签所在单元格
+     * @return  内容的描述，没有时返回null
+     */
+    static String findUnsupportedContent(XSSFCell cell) {
+        XSSFSheet sheet = cell.getSheet();
+        int rowIndex = cell.getRowIndex();
+        for (int i = rowIndex; i <= sheet.getLastRowNum(); i++) {
+            XSSFRow row = sheet.getRow(i);
+            if (null == row) continue;
+            for (Cell c : row) {
+                if (c.getCellTypeEnum() == CellType.FORMULA) return "formula at " + c.getAddress();
+                if (c.getCellTypeEnum() == CellType.STRING
+                        && ((XSSFCell) c).getRichStringCellValue().numFormattingRuns() > 0) {
+                    return "rich text at " + c.getAddress();
+                }
+            }
+        }
+        for (XSSFHyperlink hyperlink : sheet.getHyperlinkList()) {
+            if (hyperlink.getLastRow() > rowIndex) return "hyperlink at " + hyperlink.getCellRef();
+        }
+        for (CellAddress address : sheet.getCellComments().keySet()) {
+            if (address.getRow() > rowIndex) return "comment at " + address;
+        }
+        for (XSSFDataValidation validation : sheet.getDataValidations()) {
+            for (CellRangeAddress region : validation.getRegions().getCellRangeAddresses()) {
+                if (isBelow(region, rowIndex)) return "data validation at " + region.formatAsString();
+            }
+        }
+        XSSFSheetConditionalFormatting formatting = sheet.getSheetConditionalFormatting();
+        for (int i = 0; i < formatting.getNumConditionalFormattings(); i++) {
+            for (CellRangeAddress region : formatting.getConditionalFormattingAt(i).getFormattingRanges()) {
+                if (isBelow(region, rowIndex)) return "conditional formatting at " + region.formatAsString();
+            }
+        }
+        return null;
+    }
+
+    private static boolean isBelow(CellRangeAddress region, int rowIndex) {
+        return region.getLastRow() > rowIndex && !region.isFullColumnRange();
+    }
+
+    /**
+     * 写出时生成的表格
+     */
+    static class StreamingTable implements NiceXSSFWorkbook.StreamingContent {
+
+        private final NiceXSSFWorkbook workbook;
+        private final XSSFRow tagRow;
+        private final int columnIndex;
+        private final TableRenderData tableData;
+
+        private int sheetIndex;
+        private int rowIndex;
+        /**
+         * 标签所在行，每个表格行都以它为模板
+         */
+        private CapturedRow templateRow;
+        /**
+         * 标签所在行下方的模板行
+         */
+        private List<CapturedRow> tailRows = new ArrayList<>();
+        /**
+         * 与标签所在行及其下方相交的合并单元格
+         */
+        private List<CellRangeAddress> regions = new ArrayList<>();
+
+        StreamingTable(NiceXSSFWorkbook workbook, XSSFCell cell, TableRenderData tableData) {
+            this.workbook = workbook;
+            this.tagRow = cell.getRow();
+            this.columnIndex = cell.getColumnIndex();
+            this.tableData = tableData;
+        }
+
+        @Override
+        public void prepare() {
+            XSSFSheet sheet = tagRow.getSheet();
+            if (sheet.getRow(tagRow.getRowNum()) != tagRow) {   //已被上方的流式表格移除
+                throw new RenderException("每个工作表最多只能有一个流式表格！");
+            }
+            sheetIndex = workbook.getSheetIndex(sheet);
+            rowIndex = tagRow.getRowNum();
+            templateRow = new CapturedRow(tagRow);
+            for (int i = rowIndex + 1; i <= sheet.getLastRowNum(); i++) {
+                XSSFRow row = sheet.getRow(i);
+                if (null != row) tailRows.add(new CapturedRow(row));
+            }
+            List<Integer> removed = new ArrayList<>();
+            List<CellRangeAddress> mergedRegions = sheet.getMergedRegions();
+            for (int i = 0; i < mergedRegions.size(); i++) {
+                CellRangeAddress region = mergedRegions.get(i);
+                if (region.getLastRow() < rowIndex) continue;
+                if (region.getFirstRow() == rowIndex && region.getLastRow() == rowIndex) continue;
+                regions.add(region);
+                removed.add(i);
+            }
+            if (!removed.isEmpty()) sheet.removeMergedRegions(removed);
+            for (int i = sheet.getLastRowNum(); i >= rowIndex; i--) {
+                XSSFRow row = sheet.getRow(i);
+                if (null != row) sheet.removeRow(row);
+            }
+            workbook.updateCellRangeAddress();
+        }
+
+        @Override
+        public void write(SXSSFWorkbook streamingWorkbook) throws IOException {
+            SXSSFSheet sheet = streamingWorkbook.getSheetAt(sheetIndex);
+            Map<Integer, Integer> coveredRows = new HashMap<>();   //列 -> 被合并单元格占用到的行
+            int current = rowIndex;
+            if (tableData.isSetHeader()) {
+                for (RowRenderData rowData : tableData.getHeader()) {
+                    if (null == rowData) continue;
+                    writeRow(sheet, current++, rowData, tableData.getHeaderStyle(), coveredRows);
+                }
+            }
+            if (tableData.isSetBody()) {
+                for (RowRenderData rowData : tableData.getBodyRows()) {
+                    if (null == rowData) continue;
+                    writeRow(sheet, current++, rowData, tableData.getBodyStyle(), coveredRows);
+                }
+            }
+            if (current == rowIndex) {
+                templateRow.write(sheet.createRow(current++));
+            }
+            int offset = current - rowIndex - 1;
+            for (CapturedRow row : tailRows) {
+                row.write(sheet.createRow(row.rowNum + offset));
+            }
+            for (CellRangeAddress region : regions) {
+                int firstRow = region.getFirstRow() > rowIndex ? region.getFirstRow() + offset : region.getFirstRow();
+                sheet.addMergedRegionUnsafe(new CellRangeAddress(firstRow, region.getLastRow() + offset,
+                        region.getFirstColumn(), region.getLastColumn()));
+            }
+        }
+
+        private void writeRow(SXSSFSheet sheet, int current, RowRenderData rowData, Style tableStyle,
+                              Map<Integer, Integer> coveredRows) {
+            Row row = sheet.createRow(current);
+            templateRow.write(row);
+            int column = columnIndex;
+            for (CellRenderData cellData : rowData.getCellDatas()) {
+                if (null == cellData || null == cellData.getRenderData()) continue;
+                while (isCovered(coveredRows, column, current)) column++;
+                Cell cell = row.getCell(column);
+                if (null == cell) cell = row.createCell(column);
+                TextRenderData textData = cellData.getRenderData();
+                XSSFCellStyle cellStyle = (XSSFCellStyle) cell.getCellStyle();
+                for (Style style : new Style[]{tableStyle, rowData.getStyle(), textData.getStyle()}) {
+                    if (null == style) continue;
+                    cellStyle = StyleUtils.getCellStyle(workbook, cellStyle, style);
+                    if (style.getColumnWidth() >= 0) sheet.setColumnWidth(column, style.getColumnWidth());
+                    if (style.getRowHeight() >= 0) row.setHeightInPoints(style.getRowHeight());
+                }
+                cell.setCellStyle(cellStyle);
+                TextRenderPolicy.Helper.setCellValue(cell, textData);
+                if (cellData.getRowspan() > 0 || cellData.getColspan() > 0) {   //需要合并单元格
+                    sheet.addMergedRegionUnsafe(new CellRangeAddress(current, current + cellData.getRowspan(),
+                            column, column + cellData.getColspan()));
+                    for (int j = column; j <= column + cellData.getColspan(); j++) {
+                        coveredRows.put(j, current + cellData.getRowspan());
+                    }
+                }
+                column += cellData.getColspan() + 1;
+            }
+        }
+
+        private boolean isCovered(Map<Integer, Integer> coveredRows, int column, int current) {
+            Integer lastRow = coveredRows.get(column);
+            return null != lastRow && lastRow >= current;
+        }
+    }
+
+    /**
+     * 从工作簿中移除前保存的行：行高、单元格样式和值
+     */
+    static class CapturedRow {
+
+        private final int rowNum;
+        private final short height;
+        private final List<CapturedCell> cells = new ArrayList<>();
+
+        CapturedRow(XSSFRow row) {
+            this.rowNum = row.getRowNum();
+            this.height = row.getCTRow().isSetHt() ? row.getHeight() : -1;
+            for (int i = 0; i < row.getLastCellNum(); i++) {
+                XSSFCell cell = row.getCell(i);
+                if (null != cell) cells.add(new CapturedCell(cell));
+            }
+        }
+
+        void write(Row row) {
+            if (height >= 0) row.setHeight(height);
+            for (CapturedCell cell : cells) {
+                cell.write(row.createCell(cell.columnIndex));
+            }
+        }
+    }
+
+    static class CapturedCell {
+
+        private final int columnIndex;
+        private final XSSFCellStyle style;
+        private final CellType type;
+        private final Object value;
+
+        CapturedCell(XSSFCell cell) {
+            this.columnIndex = cell.getColumnIndex();
+            this.style = cell.getCellStyle();
+            this.type = cell.getCellTypeEnum();
+            switch (type) {
+                case STRING:
+                    value = cell.getStringCellValue();
+                    break;
+                case NUMERIC:
+                    value = cell.getNumericCellValue();
+                    break;
+                case BOOLEAN:
+                    value = cell.getBooleanCellValue();
+                    break;
+                case FORMULA:
+                    value = cell.getCellFormula();
+                    break;
+                case ERROR:
+                    value = cell.getErrorCellValue();
+                    break;
+                default:
+                    value = null;
+            }
+        }
+
+        void write(Cell cell) {
+            cell.setCellStyle(style);
+            switch (type) {
+                case STRING:
+                    cell.setCellValue((String) value);
+                    break;
+                case NUMERIC:
+                    cell.setCellValue((Double) value);
+                    break;
+                case BOOLEAN:
+                    cell.setCellValue((Boolean) value);
+                    break;
+                case FORMULA:
+                    cell.setCellFormula((String) value);
+                    break;
+                case ERROR:
+                    cell.setCellErrorValue((Byte) value);
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+}
@@ -3,18 +3,28 @@ package com.jg.poiet.policy;
 import com.jg.poiet.NiceXSSFWorkbook;
 import com.jg.poiet.XSSFTemplate;
 import com.jg.poiet.data.RowRenderData;
+import com.jg.poiet.data.RowSource;
 import com.jg.poiet.data.TableRenderData;
+import com.jg.poiet.data.style.Style;
+import com.jg.poiet.exception.RenderException;
+import com.jg.poiet.resolver.TagTokenizer;
 import com.jg.poiet.template.cell.CellTemplate;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
 import org.apache.poi.xssf.usermodel.XSSFCell;
+import org.apache.poi.xssf.usermodel.XSSFRow;
 import org.apache.poi.xssf.usermodel.XSSFSheet;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 表格处理
  */
-public class TableRenderPolicy extends AbstractRenderPolicy<TableRenderData> {
+public class TableRenderPolicy extends AbstractRenderPolicy<TableRenderData> implements RowExpandable {
 
     @Override
     protected boolean validate(TableRenderData data) {
@@ -27,8 +37,14 @@ public class TableRenderPolicy extends AbstractRenderPolicy<TableRenderData> {
 
     @Override
     public void doRender(CellTemplate cellTemplate, TableRenderData data, XSSFTemplate template) {
-        XSSFCell cell = cellTemplate.getCell();
-        Helper.renderTable(template, cell, data);
+        Helper.renderTable(template, cellTemplate.getCell(), data, !cellTemplate.isRowsReserved());
+    }
+
+    @Override
+    public int getInsertRowNum(Object data) {
+        if (!(data instanceof TableRenderData) || !validate((TableRenderData) data)) return 0;
+        if (Helper.isBatched((TableRenderData) data)) return 0;    //渲染时分批插入
+        return Math.max(Helper.getRowNum((TableRenderData) data) - 1, 0);
     }
 
     public static class Helper {
@@ -39,10 +55,27 @@ public class TableRenderPolicy extends AbstractRenderPolicy<TableRenderData> {
          * @param tableData tableData
          */
         public static void renderTable(XSSFTemplate template, XSSFCell cell, TableRenderData tableData) {
+            renderTable(template, cell, tableData, true);
+        }
+
+        /**
+         * 渲染表格数据，rowSource行数未知时按批渲染
+         * @param template template
+         * @param cell  cell
+         * @param tableData tableData
+         * @param insertRow 是否插入行，为false时表示行已在布局阶段插入
+         */
+        public static void renderTable(XSSFTemplate template, XSSFCell cell, TableRenderData tableData, boolean insertRow) {
+            if (isBatched(tableData)) {
+                renderTableInBatches(template, cell, tableData, getBatchSize(tableData));
+                return;
+            }
             NiceXSSFWorkbook workbook = template.getXSSFWorkbook();
             XSSFSheet sheet = cell.getSheet();
             cell.setCellValue("");  //将该单元格值置空
-            insertRow(workbook, cell, tableData);   //插入行
+            if (insertRow) {
+                insertRow(workbook, cell, tableData);   //插入行
+            }
             int rowIndex = cell.getRowIndex();
             if (tableData.isSetHeader()) {
                 List<RowRenderData> headerData = tableData.getHeader();
@@ -54,15 +87,78 @@ public class TableRenderPolicy extends AbstractRenderPolicy<TableRenderData> {
                 }
             }
             if (tableData.isSetBody()) {
-                List<RowRenderData> bodyData = tableData.getRowDatas();
-                Iterator<RowRenderData> iterator = bodyData.iterator();
-                for (RowRenderData rowRenderData : bodyData) {
+                //已按行数插入行，rowSource的行数与实际不一致时多出的行会覆盖表格下方的内容
+                int bodySize = tableData.getBodySize();
+                int read = 0;
+                for (RowRenderData rowRenderData : tableData.getBodyRows()) {
+                    if (++read > bodySize) {
+                        throw new RenderException("The RowSource returned more rows than its size " + bodySize);
+                    }
                     if (null != rowRenderData) {
-                        PolicyHelper.renderRow(template, sheet.getRow(rowIndex), rowRenderData, cell.getColumnIndex(), tableData.getBodyStyle());
+                        XSSFRow row = sheet.getRow(rowIndex);
+                        if (null == row) {
+                            row = sheet.createRow(rowIndex);
+                        }
+                        PolicyHelper.renderRow(template, row, rowRenderData, cell.getColumnIndex(), tableData.getBodyStyle());
                         rowIndex ++;
                     }
                 }
+                if (read < bodySize) {
+                    throw new RenderException("The RowSource returned " + read + " rows but its size is " + bodySize);
+                }
+            }
+        }
+
+        /**
+         * 分批渲染表格数据：标签所在行作为模板行，每批由模板行复制出该批所需的行后写入数据，模板行始终在已写入行的下方。
+         * 复制所用的空行按已占用的行数成倍预留（单次至多MAX_RESERVE_ROWS行），表格下方的行只需移动对数次，
+         * 写完后一次删除剩余的模板行及预留行。复制出的行去掉模板行中的标签。
+         * 内存中只保留一批数据，适用于行数未知的数据源
+         * @param template  template
+         * @param cell  cell
+         * @param tableData tableData
+         * @param batchSize 每批行数
+         */
+        public static void renderTableInBatches(XSSFTemplate template, XSSFCell cell, TableRenderData tableData,
+                                                int batchSize) {
+            cell.setCellValue("");  //将该单元格值置空
+            Batch batch = new Batch(template, cell);
+            if (tableData.isSetHeader()) {
+                List<RowRenderData> header = new ArrayList<>();
+                for (RowRenderData rowRenderData : tableData.getHeader()) {
+                    if (null != rowRenderData) header.add(rowRenderData);
+                }
+                batch.flush(header, tableData.getHeaderStyle());
+            }
+            List<RowRenderData> buffer = new ArrayList<>();
+            Iterator<RowRenderData> rows = tableData.getBodyRows().iterator();
+            while (rows.hasNext()) {
+                RowRenderData rowRenderData = rows.next();
+                if (null != rowRenderData) buffer.add(rowRenderData);
+                if (buffer.size() >= batchSize) {
+                    batch.flush(buffer, tableData.getBodyStyle());
+                    buffer.clear();
+                }
             }
+            batch.flush(buffer, tableData.getBodyStyle());
+            batch.finish();
+        }
+
+        /**
+         * 是否分批渲染：数据源行数未知，按实际读到的行数逐批插入行，不能在布局阶段预先插入
+         * @param tableData tableData
+         * @return  是否分批
+         */
+        static boolean isBatched(TableRenderData tableData) {
+            return null != tableData.getRowSource() && tableData.getBodySize() == RowSource.UNKNOWN_SIZE;
+        }
+
+        /**
+         * 每批行数，数据源未声明批大小时所有行作为一批
+         */
+        private static int getBatchSize(TableRenderData tableData) {
+            int batchSize = tableData.getRowSource().batchSize();
+            return batchSize > 0 ? batchSize : Integer.MAX_VALUE;
         }
 
         /**
@@ -72,17 +168,130 @@ public class TableRenderPolicy extends AbstractRenderPolicy<TableRenderData> {
          * @param tableData tableData
          */
         private static void insertRow(NiceXSSFWorkbook workbook, XSSFCell cell, TableRenderData tableData) {
-            int insertNum = 0;
+            int insertNum = getRowNum(tableData);
+            if (insertNum <= 1) {
+                return ;
+            }
+            PolicyHelper.insertRow(workbook, cell, insertNum - 1);
+        }
+
+        /**
+         * 表格占用的行数，只用于行数已知（非分批渲染）的表格
+         * @param tableData tableData
+         * @return  表头行数 + 表体行数
+         */
+        static int getRowNum(TableRenderData tableData) {
+            int rowNum = 0;
             if (tableData.isSetHeader()) {
-                insertNum += tableData.getHeader().size();
+                rowNum += tableData.getHeader().size();
             }
             if (tableData.isSetBody()) {
-                insertNum += tableData.getRowDatas().size();
+                rowNum += tableData.getBodySize();
             }
-            if (insertNum <= 1) {
-                return ;
+            return rowNum;
+        }
+    }
+
+    /**
+     * 分批写入的状态：rowIndex行为尚未写入的模板行（标签所在行或其副本），其后的spare行为预留的空行，
+     * 每批写入前由模板行填充所需的空行，模板行随之下移到该批之后
+     */
+    private static class Batch {
+
+        /**
+         * 单次追加的预留行数上限，避免行数很多时预留过多的空行
+         */
+        private static final int MAX_RESERVE_ROWS = 8192;
+
+        private final XSSFTemplate template;
+        private final NiceXSSFWorkbook workbook;
+        private final XSSFSheet sheet;
+        private final int columnIndex;
+        private final TagTokenizer tokenizer;
+        /**
+         * 模板行所在行号，即下一行数据写入的位置
+         */
+        private int rowIndex;
+        /**
+         * 模板行之后预留的空行数
+         */
+        private int spare;
+        private int written;
+        /**
+         * 复制出的行中去掉标签后的单元格文本：列号 -> 文本，首次复制时由模板行得出
+         */
+        private Map<Integer, String> strippedCells;
+
+        Batch(XSSFTemplate template, XSSFCell cell) {
+            this.template = template;
+            this.workbook = template.getXSSFWorkbook();
+            this.sheet = cell.getSheet();
+            this.columnIndex = cell.getColumnIndex();
+            this.rowIndex = cell.getRowIndex();
+            this.tokenizer = new TagTokenizer(template.getConfig());
+        }
+
+        void flush(List<RowRenderData> rowDatas, Style style) {
+            if (rowDatas.isEmpty()) return;
+            int insertNum = rowDatas.size();
+            reserve(insertNum);
+            XSSFRow templateRow = sheet.getRow(rowIndex);
+            if (null == strippedCells) strippedCells = stripTags(templateRow);
+            PolicyHelper.fillInsertedRows(workbook, templateRow, insertNum);
+            for (int i = rowIndex + 1; i <= rowIndex + insertNum; i++) {
+                XSSFRow row = sheet.getRow(i);
+                for (Map.Entry<Integer, String> entry : strippedCells.entrySet()) {
+                    XSSFCell copied = row.getCell(entry.getKey());
+                    if (null != copied) copied.setCellValue(entry.getValue());
+                }
             }
-            PolicyHelper.insertRow(workbook, cell, insertNum - 1);
+            for (RowRenderData rowRenderData : rowDatas) {
+                PolicyHelper.renderRow(template, sheet.getRow(rowIndex), rowRenderData, columnIndex, style);
+                rowIndex++;
+            }
+            spare -= insertNum;
+            written += insertNum;
+        }
+
+        /**
+         * 一次删除剩余的模板行副本及预留行，未写入任何行时保留模板行
+         */
+        void finish() {
+            if (written == 0) return;
+            List<Integer> rowIndexes = new ArrayList<>(spare + 1);
+            for (int i = rowIndex; i <= rowIndex + spare; i++) {
+                rowIndexes.add(i);
+            }
+            workbook.removeRows(workbook.getSheetIndex(sheet), rowIndexes);
+            spare = 0;
+        }
+
+        /**
+         * 保证模板行之后至少有required行预留行，不足时按已占用的行数成倍追加
+         */
+        private void reserve(int required) {
+            if (spare >= required) return;
+            int insertNum = Math.max(required - spare, Math.min(written + spare + 1, MAX_RESERVE_ROWS));
+            workbook.insertRowsAfter(workbook.getSheetIndex(sheet), rowIndex + spare, insertNum);
+            spare += insertNum;
+        }
+
+        /**
+         * 模板行中包含标签的单元格去掉标签后的文本
+         */
+        private Map<Integer, String> stripTags(XSSFRow row) {
+            Map<Integer, String> stripped = new HashMap<>();
+            for (Cell cell : row) {
+                if (cell.getCellTypeEnum() != CellType.STRING) continue;
+                String text = cell.getStringCellValue();
+                String result = text;
+                TagTokenizer.Cursor cursor = tokenizer.cursor(text);
+                while (cursor.next()) {
+                    result = result.replace(cursor.getSource(), "");
+                }
+                if (!result.equals(text)) stripped.put(cell.getColumnIndex(), result);
+            }
+            return stripped;
         }
     }
 
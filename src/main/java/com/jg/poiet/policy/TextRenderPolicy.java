@@ -5,26 +5,60 @@ import com.jg.poiet.XSSFTemplate;
 import com.jg.poiet.data.TextRenderData;
 import com.jg.poiet.template.cell.CellTemplate;
 import com.jg.poiet.util.StyleUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
 import org.apache.poi.xssf.usermodel.XSSFCell;
 
+/**
+ * 文本处理，无状态，可在多线程间共享
+ */
 public class TextRenderPolicy extends AbstractRenderPolicy<Object> {
 
-    private static CellTemplate tmp ;
-
     @Override
     public void doRender(CellTemplate cellTemplate, Object renderData, XSSFTemplate template) {
-        XSSFCell cell = cellTemplate.getCell();
-        tmp = cellTemplate;
-        Helper.renderTextCell(cell, renderData, template);
+        Helper.renderTextCell(cellTemplate.getCell(), renderData, template.getXSSFWorkbook(),
+                cellTemplate.getSource());
+    }
+
+    @Override
+    protected void doRender(RenderContext context) {
+        Helper.renderTextCell(context);
     }
 
     public static class Helper {
 
+        /**
+         * 渲染标签所在单元格，只替换单元格中的标签原文
+         * @param context   渲染上下文
+         */
+        public static void renderTextCell(RenderContext context) {
+            XSSFCell cell = ((CellTemplate) context.getEleTemplate()).getCell();
+            renderTextCell(cell, context.getData(), context.getTemplate().getXSSFWorkbook(), context.getSource());
+        }
+
+        /**
+         * 将数据写入整个单元格
+         */
         public static void renderTextCell(XSSFCell cell, Object renderData,XSSFTemplate template) {
             renderTextCell(cell, renderData, template.getXSSFWorkbook());
         }
 
+        /**
+         * 将数据写入整个单元格
+         */
         public static void renderTextCell(XSSFCell cell, Object renderData, NiceXSSFWorkbook workbook) {
+            renderTextCell(cell, renderData, workbook, null);
+        }
+
+        /**
+         * 写入单元格
+         * @param cell  单元格
+         * @param renderData    数据
+         * @param workbook  workbook
+         * @param source    标签原文，不为null且单元格中还有其他文本时只替换该部分，否则写入整个单元格
+         */
+        public static void renderTextCell(XSSFCell cell, Object renderData, NiceXSSFWorkbook workbook, String source) {
             if (null == renderData) {
                 renderData = new TextRenderData();
             }
@@ -37,23 +71,41 @@ public class TextRenderPolicy extends AbstractRenderPolicy<Object> {
 
             StyleUtils.styleCell(workbook, cell, textRenderData.getStyle());
 
-            String cellVal = cell.getRichStringCellValue().getString();
-            String source = tmp.getSource();
-
-            // if (cellVal.lastIndexOf("{{")>0) {
-                cell.setCellValue(cellVal.replace(source,data));
-            /*}else{
-                switch (textRenderData.getDataType()) {
-                    case String:
-                        cell.setCellValue(data);
-                        break;
-                    case Double:
-                        cell.setCellValue(data);
-                        break;
-                    default:
-                        cell.setCellValue(data);
+            if (null != source && cell.getCellTypeEnum() == CellType.STRING) {
+                String cellVal = cell.getStringCellValue();
+                if (!source.equals(cellVal)) {
+                    cell.setCellValue(cellVal.replace(source, data));
+                    return;
                 }
-            }*/
+            }
+            setCellValue(cell, textRenderData);
+        }
+
+        /**
+         * 写入整个单元格的值，不处理样式，也适用于SXSSF等其他实现的单元格。
+         * 数据类型为Double且文本可解析为数字时以数值写入，否则（包括空文本和无法解析的文本）以文本写入
+         * @param cell  单元格
+         * @param textRenderData    数据
+         */
+        public static void setCellValue(Cell cell, TextRenderData textRenderData) {
+            String data = null == textRenderData.getText() ? "" : textRenderData.getText();
+            if (textRenderData.getDataType() == TextRenderData.DataType.Double) {
+                Double number = parseDouble(data);
+                if (null != number) {
+                    cell.setCellValue(number);
+                    return;
+                }
+            }
+            cell.setCellValue(data);
+        }
+
+        private static Double parseDouble(String data) {
+            if (StringUtils.isBlank(data)) return null;
+            try {
+                return Double.valueOf(data.trim());
+            } catch (NumberFormatException e) {
+                return null;
+            }
         }
 
     }
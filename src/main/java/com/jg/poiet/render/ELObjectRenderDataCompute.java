@@ -3,24 +3,47 @@ package com.jg.poiet.render;
 import com.jg.poiet.el.ELObject;
 import com.jg.poiet.exception.ExpressionEvalException;
 
+import java.util.Collection;
+import java.util.concurrent.Executor;
+
 public class ELObjectRenderDataCompute implements RenderDataCompute{
 
     private ELObject elObject;
     private boolean isStrict;
 
     public ELObjectRenderDataCompute(Object root, boolean isStrict) {
-        elObject = ELObject.create(root);
+        this(root, isStrict, 0);
+    }
+
+    /**
+     * @param root  数据模型
+     * @param isStrict  表达式无法计算时是否抛出异常
+     * @param deferredTimeoutMillis 等待延迟数据（Future、Callable、Supplier）的超时时间（毫秒），不大于0时一直等待
+     */
+    public ELObjectRenderDataCompute(Object root, boolean isStrict, long deferredTimeoutMillis) {
+        elObject = ELObject.create(root, deferredTimeoutMillis);
         this.isStrict = isStrict;
     }
 
+    /**
+     * 在计算前同时计算各表达式的延迟数据（包括作为前缀的延迟数据），见ELObject.resolveDeferred
+     *
+     * @param els   表达式
+     * @param executor  执行Callable和Supplier的线程池
+     */
+    public void resolveDeferred(Collection<String> els, Executor executor) {
+        elObject.resolveDeferred(els, executor);
+    }
+
     @Override
     public Object compute(String el) {
+        if (isStrict) return elObject.eval(el);
         try {
-            return elObject.eval(el);
+            // mark：无法计算或者读取表达式，默认返回null，属性不存在等常见情况不抛出异常
+            Object result = elObject.lookup(el);
+            return ELObject.ABSENT == result ? null : result;
         } catch (ExpressionEvalException e) {
-            if (isStrict)
-                throw e;
-            // mark：无法计算或者读取表达式，默认返回null
+            // 表达式格式错误、读取属性失败
             return null;
         }
     }
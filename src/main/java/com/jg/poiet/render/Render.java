@@ -3,18 +3,26 @@ package com.jg.poiet.render;
 import com.jg.poiet.NiceXSSFWorkbook;
 import com.jg.poiet.XSSFTemplate;
 import com.jg.poiet.config.Configure;
+import com.jg.poiet.el.Deferred;
 import com.jg.poiet.exception.RenderException;
 import com.jg.poiet.policy.RenderPolicy;
+import com.jg.poiet.policy.RowExpandable;
 import com.jg.poiet.resolver.TemplateVisitor;
 import com.jg.poiet.template.ElementTemplate;
+import com.jg.poiet.template.PlannedTag;
+import com.jg.poiet.template.TagPlan;
+import com.jg.poiet.template.cell.CellTemplate;
 import com.jg.poiet.util.ObjectUtils;
+import org.apache.poi.ss.usermodel.CellType;
 import org.apache.poi.xssf.usermodel.XSSFCell;
 import org.apache.poi.xssf.usermodel.XSSFRow;
 import org.apache.poi.xssf.usermodel.XSSFSheet;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 /**
  * 渲染器，支持表达式计算接口RenderDataCompute的扩展
@@ -31,8 +39,16 @@ public class Render {
      * @param root  root
      */
     public Render(Object root) {
+        this(root, 0);
+    }
+
+    /**
+     * @param root  root
+     * @param deferredTimeoutMillis 等待延迟数据的超时时间（毫秒），不大于0时一直等待
+     */
+    public Render(Object root, long deferredTimeoutMillis) {
         ObjectUtils.requireNonNull(root, "Data root is null, should be setted first.");
-        renderDataCompute = new ELObjectRenderDataCompute(root, false);
+        renderDataCompute = new ELObjectRenderDataCompute(root, false, deferredTimeoutMillis);
     }
 
     public Render(RenderDataCompute dataCompute) {
@@ -45,34 +61,15 @@ public class Render {
 
         NiceXSSFWorkbook workbook = template.getXSSFWorkbook();
         if (null == workbook) return ;
-        // 策略
-        RenderPolicy policy;
-
+        TagPlan plan = template.getTagPlan();
         try {
-            TemplateVisitor visitor = new TemplateVisitor(template.getConfig());
-            for (int i = 0; i < workbook.getNumberOfSheets(); i++) {    //遍历sheet
-                XSSFSheet sheet = workbook.getSheetAt(i);
-                if (null == sheet) continue;
-                for (int j = 0; j <= sheet.getLastRowNum(); j++) {  //遍历行
-                    XSSFRow row = sheet.getRow(j);
-                    if (null == row) continue;
-                    for (int k = 0; k <= row.getLastCellNum(); k++) {   //遍历表格
-                        XSSFCell cell = row.getCell(k);
-                        /*ElementTemplate cellTemplates = visitor.visitCell(cell);
-                        if (null != cellTemplates) {
-                            policy = findPolicy(template.getConfig(), cellTemplates);
-                            doRender(cellTemplates, policy, template);
-                        }*/
-
-                        List<ElementTemplate> templates = visitor.visitCells(cell);
-                        if (templates != null && templates.size()>0) {
-                            for (ElementTemplate ele : templates) {
-                                policy = findPolicy(template.getConfig(), ele);
-                                doRender(ele, policy, template);
-                            }
-                        }
-                    }
+            if (template.getConfig().isLegacyLayout()) {
+                renderLegacy(template);
+            } else {
+                if (null == plan) {
+                    plan = visitPlan(template);
                 }
+                renderPlan(template, plan);
             }
         } catch (Exception e) {
             LOGGER.info("Render the template file failed.");
@@ -81,6 +78,108 @@ public class Render {
         LOGGER.info("Render the template file successed.");
     }
 
+    /**
+     * 1.0.3及之前的渲染方式：逐行逐个单元格扫描，发现标签即渲染，各策略自行插入行，
+     * 插入的行随后被扫描到，其中复制来的标签同样会被渲染
+     *
+     * @param template  template
+     */
+    private void renderLegacy(XSSFTemplate template) throws Exception {
+        NiceXSSFWorkbook workbook = template.getXSSFWorkbook();
+        Configure config = template.getConfig();
+        TemplateVisitor visitor = new TemplateVisitor(config);
+        for (int i = 0; i < workbook.getNumberOfSheets(); i++) {    //遍历sheet
+            XSSFSheet sheet = workbook.getSheetAt(i);
+            if (null == sheet) continue;
+            for (int j = 0; j <= sheet.getLastRowNum(); j++) {  //遍历行
+                XSSFRow row = sheet.getRow(j);
+                if (null == row) continue;
+                for (int k = 0; k <= row.getLastCellNum(); k++) {   //遍历表格
+                    List<ElementTemplate> templates = visitor.visitCells(row.getCell(k));
+                    if (null == templates) continue;
+                    for (ElementTemplate ele : templates) {
+                        Object data = Deferred.resolve(renderDataCompute.compute(ele.getTagName()),
+                                config.getDeferredTimeoutMillis());
+                        doRender(ele, findPolicy(config, ele), data, template);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 扫描整个工作簿，生成标签计划
+     *
+     * @param template  template
+     * @return  标签计划
+     */
+    private TagPlan visitPlan(XSSFTemplate template) {
+        NiceXSSFWorkbook workbook = template.getXSSFWorkbook();
+        TemplateVisitor visitor = new TemplateVisitor(template.getConfig());
+        List<PlannedTag> tags = new ArrayList<>();
+        for (ElementTemplate ele : visitor.visitExcel(workbook)) {
+            XSSFCell cell = ((CellTemplate) ele).getCell();
+            tags.add(new PlannedTag(workbook.getSheetIndex(cell.getSheet()), cell.getRowIndex(), cell.getColumnIndex(),
+                    ele.getSign(), ele.getTagName(), ele.getSource(), findPolicy(template.getConfig(), ele)));
+        }
+        return new TagPlan(tags);
+    }
+
+    /**
+     * 按标签计划渲染，只访问计划中列出的单元格。
+     * 先取得表格、垂直列表等标签的数据，由RowLayout统一插入行，再按顺序逐个填充数据。
+     * 配置了流水线渲染时，标签数据由计算线程池按计划顺序提前计算，本线程只负责按顺序写入工作簿。
+     * 延迟数据（Future、Callable、Supplier）在写入前取得其值，见TagValues
+     *
+     * @param template  template
+     * @param plan  标签计划
+     */
+    private void renderPlan(XSSFTemplate template, TagPlan plan) throws Exception {
+        NiceXSSFWorkbook workbook = template.getXSSFWorkbook();
+        List<PlannedTag> tags = plan.getTags();
+        Configure config = template.getConfig();
+        Executor evaluator = config.getEvaluatorExecutor();
+        TagValues values = null == evaluator ? TagValues.compute(renderDataCompute, tags, config)
+                : TagValues.pipeline(renderDataCompute, tags, evaluator, config.getDeferredTimeoutMillis());
+        TagLocator locator = new TagLocator();
+        workbook.addShiftListener(locator);
+        try {
+            List<Object> layoutDatas = new ArrayList<>(tags.size());
+            for (int i = 0; i < tags.size(); i++) {
+                layoutDatas.add(tags.get(i).getPolicy() instanceof RowExpandable ? values.get(i) : null);
+            }
+            boolean[] reserved = RowLayout.apply(workbook, tags, layoutDatas);
+            for (int i = 0; i < tags.size(); i++) {
+                PlannedTag tag = tags.get(i);
+                CellTemplate ele = locateTemplate(workbook, locator, tag);
+                if (null == ele) continue;
+                ele.setRowsReserved(reserved[i]);
+                doRender(ele, tag.getPolicy(), values.get(i), template);
+            }
+        } finally {
+            values.cancel();
+            workbook.removeShiftListener(locator);
+        }
+    }
+
+    private CellTemplate locateTemplate(NiceXSSFWorkbook workbook, TagLocator locator, PlannedTag tag) {
+        XSSFSheet sheet = workbook.getSheetAt(tag.getSheetIndex());
+        XSSFRow row = sheet.getRow(locator.locateRow(tag));
+        XSSFCell cell = null == row ? null : row.getCell(locator.locateColumn(tag));
+        // 单元格已不存在或不再包含该标签（如模板已被渲染过），跳过
+        if (null == cell || cell.getCellTypeEnum() != CellType.STRING
+                || !cell.getStringCellValue().contains(tag.getSource())) {
+            LOGGER.debug("Skip the tag {}, it is no longer in the cell.", tag);
+            return null;
+        }
+        CellTemplate ele = new CellTemplate();
+        ele.setSource(tag.getSource());
+        ele.setTagName(tag.getTagName());
+        ele.setSign(tag.getSign());
+        ele.setCell(cell);
+        return ele;
+    }
+
     private RenderPolicy findPolicy(Configure config, ElementTemplate cellTemplate) {
         RenderPolicy policy;
         policy = config.getPolicy(cellTemplate.getTagName(), cellTemplate.getSign());
@@ -89,10 +188,10 @@ public class Render {
         return policy;
     }
 
-    private void doRender(ElementTemplate ele, RenderPolicy policy, XSSFTemplate template) {
+    private void doRender(ElementTemplate ele, RenderPolicy policy, Object data, XSSFTemplate template) {
         LOGGER.debug("Start render TemplateName:{}, Sign:{}, policy:{}", ele.getTagName(),
                 ele.getSign(), policy.getClass().getSimpleName());
-        policy.render(ele, renderDataCompute.compute(ele.getTagName()), template);
+        policy.render(ele, data, template);
     }
 
 
@@ -1,17 +1,26 @@
 package com.jg.poiet.render;
 
+import com.jg.poiet.config.Configure;
 import com.jg.poiet.config.ELMode;
 
 public class RenderFactory {
 
     public static Render getRender(Object model, ELMode mode) {
+        return getRender(model, mode, 0);
+    }
+
+    public static Render getRender(Object model, Configure config) {
+        return getRender(model, config.getElMode(), config.getDeferredTimeoutMillis());
+    }
+
+    private static Render getRender(Object model, ELMode mode, long deferredTimeoutMillis) {
         Render render;
         switch (mode) {
             case POI_TL_STICT_MODE:
-                render = new Render(new ELObjectRenderDataCompute(model, true));
+                render = new Render(new ELObjectRenderDataCompute(model, true, deferredTimeoutMillis));
                 break;
             default:
-                render = new Render(model);
+                render = new Render(model, deferredTimeoutMillis);
                 break;
         }
         return render;
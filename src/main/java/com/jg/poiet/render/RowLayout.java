@@ -0,0 +1,109 @@
+package com.jg.poiet.render;
+
+import com.jg.poiet.NiceXSSFWorkbook;
+import com.jg.poiet.policy.PolicyHelper;
+import com.jg.poiet.policy.RowExpandable;
+import com.jg.poiet.template.PlannedTag;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.xssf.usermodel.XSSFCell;
+import org.apache.poi.xssf.usermodel.XSSFRow;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 行布局：按标签计划渲染前，根据数据计算每个RowExpandable标签需要在其所在行之后插入的行数，
+ * 每个sheet自下而上只移动一次行并填充插入的行，之后再由各策略写入数据。
+ * 同一行上有多个此类标签时按最大行数插入，各标签共用插入的行
+ */
+class RowLayout {
+
+    private RowLayout() {}
+
+    /**
+     * 为标签计划插入行
+     *
+     * @param workbook  workbook
+     * @param tags  标签计划中的标签
+     * @param datas 与tags一一对应的数据
+     * @return  与tags一一对应，为true的标签所需的行已插入
+     */
+    static boolean[] apply(NiceXSSFWorkbook workbook, List<PlannedTag> tags, List<Object> datas) {
+        boolean[] reserved = new boolean[tags.size()];
+        // sheetIndex -> (行号 -> 插入行数)
+        Map<Integer, TreeMap<Integer, Integer>> insertNums = new TreeMap<>();
+        for (int i = 0; i < tags.size(); i++) {
+            PlannedTag tag = tags.get(i);
+            if (!(tag.getPolicy() instanceof RowExpandable) || !containsTag(workbook, tag)) continue;
+            int insertNum = ((RowExpandable) tag.getPolicy()).getInsertRowNum(datas.get(i));
+            reserved[i] = true;
+            if (insertNum <= 0) continue;
+            TreeMap<Integer, Integer> sheetInsertNums = insertNums.get(tag.getSheetIndex());
+            if (null == sheetInsertNums) {
+                sheetInsertNums = new TreeMap<>();
+                insertNums.put(tag.getSheetIndex(), sheetInsertNums);
+            }
+            Integer current = sheetInsertNums.get(tag.getRowIndex());
+            if (null == current || current < insertNum) sheetInsertNums.put(tag.getRowIndex(), insertNum);
+        }
+        if (insertNums.isEmpty()) return reserved;
+
+        // 插入点所在行上的所有标签，插入的行由该行复制而来，需去掉其中的标签
+        Map<Integer, Map<Integer, List<PlannedTag>>> anchorTags = new HashMap<>();
+        for (PlannedTag tag : tags) {
+            TreeMap<Integer, Integer> sheetInsertNums = insertNums.get(tag.getSheetIndex());
+            if (null == sheetInsertNums || !sheetInsertNums.containsKey(tag.getRowIndex())) continue;
+            Map<Integer, List<PlannedTag>> rowTags = anchorTags.get(tag.getSheetIndex());
+            if (null == rowTags) {
+                rowTags = new HashMap<>();
+                anchorTags.put(tag.getSheetIndex(), rowTags);
+            }
+            List<PlannedTag> list = rowTags.get(tag.getRowIndex());
+            if (null == list) {
+                list = new ArrayList<>();
+                rowTags.put(tag.getRowIndex(), list);
+            }
+            list.add(tag);
+        }
+
+        for (Map.Entry<Integer, TreeMap<Integer, Integer>> entry : insertNums.entrySet()) {
+            int sheetIndex = entry.getKey();
+            workbook.insertRowsAfter(sheetIndex, entry.getValue());
+            XSSFSheet sheet = workbook.getSheetAt(sheetIndex);
+            int offset = 0;
+            for (Map.Entry<Integer, Integer> insert : entry.getValue().entrySet()) {
+                int rowIndex = insert.getKey() + offset;
+                int insertNum = insert.getValue();
+                PolicyHelper.fillInsertedRows(workbook, sheet.getRow(rowIndex), insertNum);
+                for (PlannedTag tag : anchorTags.get(sheetIndex).get(insert.getKey())) {
+                    for (int i = rowIndex + 1; i <= rowIndex + insertNum; i++) {
+                        removeSource(sheet.getRow(i), tag);
+                    }
+                }
+                offset += insertNum;
+            }
+        }
+        return reserved;
+    }
+
+    private static boolean containsTag(NiceXSSFWorkbook workbook, PlannedTag tag) {
+        XSSFRow row = workbook.getSheetAt(tag.getSheetIndex()).getRow(tag.getRowIndex());
+        XSSFCell cell = null == row ? null : row.getCell(tag.getColumnIndex());
+        return null != cell && cell.getCellTypeEnum() == CellType.STRING
+                && cell.getStringCellValue().contains(tag.getSource());
+    }
+
+    private static void removeSource(XSSFRow row, PlannedTag tag) {
+        XSSFCell cell = null == row ? null : row.getCell(tag.getColumnIndex());
+        if (null == cell || cell.getCellTypeEnum() != CellType.STRING) return;
+        String text = cell.getStringCellValue();
+        if (text.contains(tag.getSource())) {
+            cell.setCellValue(text.replace(tag.getSource(), ""));
+        }
+    }
+
+}
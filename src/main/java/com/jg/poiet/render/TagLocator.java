@@ -0,0 +1,49 @@
+package com.jg.poiet.render;
+
+import com.jg.poiet.NiceXSSFWorkbook;
+import com.jg.poiet.template.PlannedTag;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 标签定位器：记录渲染过程中发生的行列移动，将标签计划中的原始坐标换算为当前坐标
+ */
+class TagLocator implements NiceXSSFWorkbook.ShiftListener {
+
+    private static final int ROW = 0;
+    private static final int COLUMN = 1;
+
+    /**
+     * {sheetIndex, 方向, 起始位置, 偏移量}，按发生顺序排列
+     */
+    private final List<int[]> shifts = new ArrayList<>();
+
+    @Override
+    public void onRowsShifted(int sheetIndex, int startRowIndex, int offset) {
+        shifts.add(new int[]{sheetIndex, ROW, startRowIndex, offset});
+    }
+
+    @Override
+    public void onColumnsShifted(int sheetIndex, int startColumnIndex, int offset) {
+        shifts.add(new int[]{sheetIndex, COLUMN, startColumnIndex, offset});
+    }
+
+    int locateRow(PlannedTag tag) {
+        return locate(tag.getSheetIndex(), ROW, tag.getRowIndex());
+    }
+
+    int locateColumn(PlannedTag tag) {
+        return locate(tag.getSheetIndex(), COLUMN, tag.getColumnIndex());
+    }
+
+    private int locate(int sheetIndex, int axis, int index) {
+        for (int[] shift : shifts) {
+            if (shift[0] == sheetIndex && shift[1] == axis && index >= shift[2]) {
+                index += shift[3];
+            }
+        }
+        return index;
+    }
+
+}
@@ -0,0 +1,118 @@
+package com.jg.poiet.render;
+
+import com.jg.poiet.config.Configure;
+import com.jg.poiet.el.Deferred;
+import com.jg.poiet.template.PlannedTag;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * 标签计划中各标签的数据，与标签一一对应
+ */
+abstract class TagValues {
+
+    /**
+     * 第index个标签的数据
+     *
+     * @param index 标签序号
+     * @return  数据
+     */
+    abstract Object get(int index) throws Exception;
+
+    /**
+     * 渲染结束（或失败）后释放未使用的计算
+     */
+    void cancel() {}
+
+    /**
+     * 在当前线程按顺序计算所有标签的数据，其中的延迟数据（Future、Callable、Supplier）同时计算，
+     * 耗时取决于最慢的一个而不是所有延迟数据之和。
+     * 使用ELObjectRenderDataCompute时，标签的值和作为前缀的延迟数据（如user.name中的user）在计算前一起同时计算，
+     * 其他计算器只同时计算标签的值
+     */
+    static TagValues compute(RenderDataCompute compute, List<PlannedTag> tags, final Configure config) {
+        if (compute instanceof ELObjectRenderDataCompute) {
+            List<String> els = new ArrayList<>(tags.size());
+            for (PlannedTag tag : tags) {
+                els.add(tag.getTagName());
+            }
+            //线程池在有Callable或Supplier需要计算时才创建
+            ((ELObjectRenderDataCompute) compute).resolveDeferred(els, new Executor() {
+                @Override
+                public void execute(Runnable command) {
+                    config.getDeferredExecutor().execute(command);
+                }
+            });
+        }
+        final List<Object> datas = new ArrayList<>(tags.size());
+        boolean deferred = false;
+        for (PlannedTag tag : tags) {
+            Object data = compute.compute(tag.getTagName());
+            deferred |= Deferred.isDeferred(data);
+            datas.add(data);
+        }
+        if (deferred) {
+            Deferred.resolveAll(datas, config.getDeferredExecutor(), config.getDeferredTimeoutMillis());
+        }
+        return new TagValues() {
+            @Override
+            Object get(int index) {
+                return datas.get(index);
+            }
+        };
+    }
+
+    /**
+     * 按标签计划顺序将所有标签的计算提交到executor，渲染线程按顺序取用。
+     * 取用时计算尚未开始则由渲染线程自己计算，线程池繁忙（如与批量渲染共用）时也不会互相等待。
+     * 延迟数据在计算线程中取得其值
+     */
+    static TagValues pipeline(final RenderDataCompute compute, List<PlannedTag> tags, Executor executor,
+                              final long deferredTimeoutMillis) {
+        final List<FutureTask<Object>> tasks = new ArrayList<>(tags.size());
+        for (final PlannedTag tag : tags) {
+            tasks.add(new FutureTask<>(new Callable<Object>() {
+                @Override
+                public Object call() {
+                    return Deferred.resolve(compute.compute(tag.getTagName()), deferredTimeoutMillis);
+                }
+            }));
+        }
+        for (FutureTask<Object> task : tasks) {
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException e) {
+                break;  //剩余的由渲染线程计算
+            }
+        }
+        return new TagValues() {
+            @Override
+            Object get(int index) throws Exception {
+                FutureTask<Object> task = tasks.get(index);
+                task.run();
+                try {
+                    return task.get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof Exception) throw (Exception) cause;
+                    if (cause instanceof Error) throw (Error) cause;
+                    throw e;
+                }
+            }
+
+            @Override
+            void cancel() {
+                for (FutureTask<Object> task : tasks) {
+                    task.cancel(false);
+                }
+            }
+        };
+    }
+
+}
@@ -0,0 +1,57 @@
+package com.jg.poiet.resolver;
+
+import org.apache.poi.xssf.model.SharedStringsTable;
+import org.apache.poi.xssf.usermodel.XSSFRichTextString;
+
+import java.util.BitSet;
+
+/**
+ * 共享字符串预过滤：标记共享字符串表(SST)中包含语法前缀的字符串序号，
+ * 扫描时引用其他序号的单元格无需读取字符串即可跳过。
+ * 新追加到SST中的字符串在查询时增量标记。非线程安全。
+ * 字符串数量按SST中实际的条目数计算，sst的uniqueCount属性是可选的，不一定存在或准确。
+ */
+public class SharedStringsFilter {
+
+    private final SharedStringsTable sharedStrings;
+    private final String prefix;
+    private final BitSet candidates = new BitSet();
+    private int scanned;
+
+    public SharedStringsFilter(SharedStringsTable sharedStrings, String prefix) {
+        this.sharedStrings = sharedStrings;
+        this.prefix = prefix;
+    }
+
+    /**
+     * 序号为index的共享字符串是否可能包含标签
+     *
+     * @param index SST序号
+     * @return  不包含语法前缀时返回false
+     */
+    public boolean mayContainTag(int index) {
+        if (index >= scanned) {
+            scan();
+        }
+        return candidates.get(index);
+    }
+
+    /**
+     * 标记尚未扫描的共享字符串
+     */
+    private void scan() {
+        int count = sharedStrings.getItems().size();
+        for (int i = scanned; i < count; i++) {
+            String text = new XSSFRichTextString(sharedStrings.getEntryAt(i)).getString();
+            if (null != text && text.contains(prefix)) {
+                candidates.set(i);
+            }
+        }
+        scanned = count;
+    }
+
+    public SharedStringsTable getSharedStrings() {
+        return sharedStrings;
+    }
+
+}
@@ -0,0 +1,218 @@
+package com.jg.poiet.resolver;
+
+import com.jg.poiet.config.Configure;
+import com.jg.poiet.exception.ResolverException;
+import com.jg.poiet.policy.RenderPolicy;
+import com.jg.poiet.template.PlannedTag;
+import com.jg.poiet.template.TagPlan;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.util.IOUtils;
+import org.apache.poi.util.SAXHelper;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.SharedStringsTable;
+import org.apache.poi.xssf.usermodel.XSSFRichTextString;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * 流式模板扫描器：基于XSSFReader和SAX逐个读取sheet的XML，直接得到标签坐标，
+ * 不构建XSSFWorkbook对象模型。扫描规则与TemplateVisitor一致：只有字符串单元格可能包含标签，
+ * 共享字符串先经SharedStringsFilter过滤。
+ */
+public class StreamingTemplateScanner {
+
+    private static Logger logger = LoggerFactory.getLogger(StreamingTemplateScanner.class);
+
+    private final Configure config;
+    private final TagTokenizer tokenizer;
+
+    public StreamingTemplateScanner(Configure config) {
+        this.config = config;
+        this.tokenizer = new TagTokenizer(config);
+    }
+
+    /**
+     * 扫描模板字节，生成标签计划
+     *
+     * @param data  模板字节
+     * @return  标签计划
+     */
+    public TagPlan scan(byte[] data) {
+        OPCPackage pkg = null;
+        try {
+            pkg = OPCPackage.open(new ByteArrayInputStream(data));
+            XSSFReader reader = new XSSFReader(pkg);
+            SharedStringsTable sharedStrings = reader.getSharedStringsTable();
+            SheetHandler handler = new SheetHandler(null == sharedStrings ? null
+                    : new SharedStringsFilter(sharedStrings, config.getGramerPrefix()), sharedStrings);
+            XMLReader parser = SAXHelper.newXMLReader();
+            parser.setContentHandler(handler);
+            Iterator<InputStream> sheets = reader.getSheetsData();
+            int sheetIndex = 0;
+            while (sheets.hasNext()) {
+                InputStream sheet = sheets.next();
+                try {
+                    handler.sheetIndex = sheetIndex++;
+                    parser.parse(new InputSource(sheet));
+                } finally {
+                    IOUtils.closeQuietly(sheet);
+                }
+            }
+            logger.info("Scan the document end, resolve {} tags.", handler.tags.size());
+            return new TagPlan(handler.tags);
+        } catch (ResolverException e) {
+            throw e;
+        } catch (Exception e) {
+            logger.error("Scan template failed", e);
+            throw new ResolverException("Scan template failed", e);
+        } finally {
+            if (null != pkg) pkg.revert();
+        }
+    }
+
+    private void addTags(List<PlannedTag> tags, int sheetIndex, int rowIndex, int columnIndex, String text) {
+        TagTokenizer.Cursor cursor = tokenizer.cursor(text);
+        while (cursor.next()) {
+            Character sign = cursor.getSign();
+            String tagName = cursor.getTagName();
+            RenderPolicy policy = config.getPolicy(tagName, sign);
+            if (null == policy) {
+                throw new ResolverException("Cannot find render policy: [" + tagName + "]");
+            }
+            tags.add(new PlannedTag(sheetIndex, rowIndex, columnIndex, sign, tagName, cursor.getSource(), policy));
+        }
+    }
+
+    /**
+     * sheet XML处理器，只关注&lt;row&gt;、&lt;c&gt;、&lt;v&gt;、&lt;f&gt;、&lt;is&gt;下的&lt;t&gt;
+     */
+    private class SheetHandler extends DefaultHandler {
+
+        private final SharedStringsFilter filter;
+        private final SharedStringsTable sharedStrings;
+        private final List<PlannedTag> tags = new ArrayList<>();
+        private final StringBuilder value = new StringBuilder();
+
+        private int sheetIndex;
+        private int rowIndex = -1;
+        private int columnIndex = -1;
+        private String cellType;
+        private boolean hasFormula;
+        private boolean collecting;
+        private boolean inInlineString;
+        private boolean inPhonetic;
+
+        SheetHandler(SharedStringsFilter filter, SharedStringsTable sharedStrings) {
+            this.filter = filter;
+            this.sharedStrings = sharedStrings;
+        }
+
+        @Override
+        public void startDocument() {
+            rowIndex = -1;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            if ("row".equals(localName)) {
+                String r = attributes.getValue("r");
+                rowIndex = null == r ? rowIndex + 1 : Integer.parseInt(r) - 1;
+                columnIndex = -1;
+            } else if ("c".equals(localName)) {
+                String r = attributes.getValue("r");
+                if (null == r) {
+                    columnIndex++;
+                } else {
+                    parseReference(r);
+                }
+                cellType = attributes.getValue("t");
+                hasFormula = false;
+                value.setLength(0);
+            } else if ("f".equals(localName)) {
+                hasFormula = true;
+            } else if ("v".equals(localName)) {
+                collecting = !inInlineString;
+            } else if ("is".equals(localName)) {
+                inInlineString = true;
+            } else if ("rPh".equals(localName)) {
+                inPhonetic = true;
+            } else if ("t".equals(localName)) {
+                collecting = inInlineString && !inPhonetic;
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            if ("v".equals(localName) || "t".equals(localName)) {
+                collecting = false;
+            } else if ("is".equals(localName)) {
+                inInlineString = false;
+            } else if ("rPh".equals(localName)) {
+                inPhonetic = false;
+            } else if ("c".equals(localName)) {
+                String text = getCandidateText();
+                if (null != text) addTags(tags, sheetIndex, rowIndex, columnIndex, text);
+                cellType = null;
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (collecting) value.append(ch, start, length);
+        }
+
+        /**
+         * 与TemplateVisitor一致：只处理字符串单元格，共享字符串先按序号过滤
+         */
+        private String getCandidateText() {
+            if ("s".equals(cellType)) {
+                if (value.length() == 0 || null == sharedStrings) return null;
+                int index = parseIndex(value);
+                if (!filter.mayContainTag(index)) return null;
+                return new XSSFRichTextString(sharedStrings.getEntryAt(index)).getString();
+            }
+            if ("inlineStr".equals(cellType) || ("str".equals(cellType) && !hasFormula)) {
+                return value.indexOf(config.getGramerPrefix()) < 0 ? null : value.toString();
+            }
+            return null;
+        }
+
+        /**
+         * 解析形如"AB12"的单元格引用，避免为每个单元格创建CellReference
+         */
+        private void parseReference(String r) {
+            int column = 0;
+            int row = 0;
+            for (int i = 0; i < r.length(); i++) {
+                char c = r.charAt(i);
+                if (c >= 'A' && c <= 'Z') {
+                    column = column * 26 + (c - 'A' + 1);
+                } else if (c >= '0' && c <= '9') {
+                    row = row * 10 + (c - '0');
+                }
+            }
+            columnIndex = column - 1;
+            rowIndex = row - 1;
+        }
+
+        private int parseIndex(CharSequence text) {
+            int index = 0;
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (c >= '0' && c <= '9') index = index * 10 + (c - '0');
+            }
+            return index;
+        }
+    }
+
+}
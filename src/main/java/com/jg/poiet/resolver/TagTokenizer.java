@@ -0,0 +1,167 @@
+package com.jg.poiet.resolver;
+
+import com.jg.poiet.config.Configure;
+
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 标签分词器：按Configure中的前缀、后缀和语法符号逐字符扫描文本，
+ * 一次遍历找出所有标签及其语法符号，不使用正则，也不生成中间字符串。
+ * 语义与"前缀 + 语法符号(可选) + 标签名 + 后缀"的正则查找一致，标签名中不能包含后缀。
+ * 该对象不可变，可在多线程间共享。
+ */
+public final class TagTokenizer {
+
+    private final String prefix;
+    private final String suffix;
+    private final char[] signs;
+    /**
+     * 自定义标签名正则，为null时使用默认规则：中文、字母、数字、下划线，以"."分隔
+     */
+    private final Pattern namePattern;
+
+    public TagTokenizer(Configure config) {
+        this.prefix = config.getGramerPrefix();
+        this.suffix = config.getGramerSuffix();
+        Set<Character> gramerChars = config.getGramerChars();
+        this.signs = new char[gramerChars.size()];
+        int i = 0;
+        for (Character c : gramerChars) {
+            signs[i++] = c;
+        }
+        this.namePattern = Configure.DEFAULT_GRAMER_REGEX.equals(config.getGrammerRegex()) ? null
+                : Pattern.compile(config.getGrammerRegex());
+    }
+
+    /**
+     * 创建遍历text中所有标签的游标
+     *
+     * @param text  文本
+     * @return  游标
+     */
+    public Cursor cursor(String text) {
+        return new Cursor(text);
+    }
+
+    boolean isSign(char c) {
+        for (char sign : signs) {
+            if (sign == c) return true;
+        }
+        return false;
+    }
+
+    /**
+     * 判断text在[start, end)之间是否为合法的标签名
+     */
+    boolean isName(String text, int start, int end, Matcher matcher) {
+        if (start >= end) return false;
+        if (null != matcher) {
+            return matcher.region(start, end).matches();
+        }
+        boolean afterDot = true;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c == '.') {
+                if (afterDot) return false;
+                afterDot = true;
+            } else if (isNameChar(c)) {
+                afterDot = false;
+            } else {
+                return false;
+            }
+        }
+        return !afterDot;
+    }
+
+    private static boolean isNameChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_'
+                || (c >= '\u4e00' && c <= '\u9fa5');
+    }
+
+    /**
+     * 标签游标，非线程安全
+     */
+    public final class Cursor {
+
+        private final String text;
+        private final Matcher matcher;
+        private int from;
+        private int start = -1;
+        private int end = -1;
+        private int contentStart;
+
+        Cursor(String text) {
+            this.text = text;
+            this.matcher = null == namePattern ? null : namePattern.matcher(text);
+        }
+
+        /**
+         * 查找下一个标签
+         *
+         * @return  找到返回true
+         */
+        public boolean next() {
+            int length = text.length();
+            while (from < length) {
+                int s = text.indexOf(prefix, from);
+                if (s < 0) break;
+                int p = s + prefix.length();
+                int e = text.indexOf(suffix, p);
+                if (e < 0) break;
+                // 优先匹配带语法符号的标签，失败则按无语法符号匹配
+                if ((p < e && isSign(text.charAt(p)) && isName(text, p + 1, e, matcher))
+                        || isName(text, p, e, matcher)) {
+                    start = s;
+                    contentStart = p;
+                    end = e + suffix.length();
+                    from = end;
+                    return true;
+                }
+                from = s + 1;
+            }
+            from = length;
+            start = end = -1;
+            return false;
+        }
+
+        /**
+         * 标签在文本中的起始位置
+         */
+        public int getStart() {
+            return start;
+        }
+
+        /**
+         * 标签在文本中的结束位置（不包含）
+         */
+        public int getEnd() {
+            return end;
+        }
+
+        /**
+         * 语法符号，无语法符号时为TemplateFactory.EMPTY_CHAR
+         */
+        public char getSign() {
+            char c = text.charAt(contentStart);
+            return isSign(c) ? c : TemplateFactory.EMPTY_CHAR;
+        }
+
+        /**
+         * 标签名（不含语法符号）
+         */
+        public String getTagName() {
+            int nameStart = isSign(text.charAt(contentStart)) ? contentStart + 1 : contentStart;
+            return text.substring(nameStart, end - suffix.length());
+        }
+
+        /**
+         * 标签原文，包含前缀和后缀
+         */
+        public String getSource() {
+            return text.substring(start, end);
+        }
+    }
+
+}
@@ -28,6 +28,24 @@ public class TemplateFactory {
         return template;
     }
 
+    /**
+     * 由分词结果创建单元格模板
+     *
+     * @param source    标签原文
+     * @param sign  语法符号
+     * @param tagName   标签名
+     * @param cell  单元格
+     * @return  单元格模板
+     */
+    public static CellTemplate createCellTemplate(String source, char sign, String tagName, XSSFCell cell) {
+        CellTemplate template = new CellTemplate();
+        template.setSource(source);
+        template.setTagName(tagName);
+        template.setSign(sign);
+        template.setCell(cell);
+        return template;
+    }
+
 
 
 }
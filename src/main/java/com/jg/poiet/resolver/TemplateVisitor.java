@@ -2,21 +2,20 @@ package com.jg.poiet.resolver;
 
 import com.jg.poiet.config.Configure;
 import com.jg.poiet.template.ElementTemplate;
-import com.jg.poiet.util.CellUtils;
-import com.jg.poiet.util.RegexUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.xssf.model.SharedStringsTable;
 import org.apache.poi.xssf.usermodel.XSSFCell;
 import org.apache.poi.xssf.usermodel.XSSFRow;
 import org.apache.poi.xssf.usermodel.XSSFSheet;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTCell;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.STCellType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * 模板解析器
@@ -28,15 +27,12 @@ public class TemplateVisitor implements Visitor {
     private Configure config;
     private List<ElementTemplate> eleTemplates;
 
-    private Pattern templatePattern;
-    private Pattern gramerPattern;
-
-    static final String FORMAT_TEMPLATE = "{0}{1}{2}{3}";
-    static final String FORMAT_GRAMER = "({0})|({1})";
+    private TagTokenizer tokenizer;
+    private SharedStringsFilter sharedStringsFilter;
 
     public TemplateVisitor(Configure config) {
         this.config = config;
-        initPattern();
+        this.tokenizer = new TagTokenizer(config);
     }
 
     @Override
@@ -55,21 +51,42 @@ public class TemplateVisitor implements Visitor {
 
     @Override
     public ElementTemplate visitCell(XSSFCell cell) {
-        if (null == cell) return null;
-        String text = CellUtils.getCellValue(cell);
-        if (StringUtils.isBlank(text)) return null;
+        String text = getCandidateText(cell);
+        if (null == text) return null;
         return parseTemplateFactory(text, cell);
     }
 
     @Override
     public List<ElementTemplate> visitCells(XSSFCell cell) {
-        if (null == cell) return null;
+        String text = getCandidateText(cell);
+        if (null == text) return null;
+        return parseTemplatesFactory(text, cell);
+    }
 
-        String text = CellUtils.getCellValue(cell);
+    /**
+     * 获取可能包含标签的单元格文本。只有字符串单元格可能包含标签，
+     * 引用共享字符串的单元格先按SST序号过滤，不包含语法前缀的直接跳过，不读取字符串
+     *
+     * @param cell  单元格
+     * @return  不可能包含标签时返回null
+     */
+    private String getCandidateText(XSSFCell cell) {
+        if (null == cell || cell.getCellTypeEnum() != CellType.STRING) return null;
+        CTCell ctCell = cell.getCTCell();
+        if (ctCell.getT() == STCellType.S && ctCell.isSetV()) {
+            if (!getSharedStringsFilter(cell).mayContainTag(Integer.parseInt(ctCell.getV()))) return null;
+        }
+        String text = cell.getStringCellValue();
         if (StringUtils.isBlank(text)) return null;
+        return text;
+    }
 
-
-        return parseTemplatesFactory(text, cell);
+    private SharedStringsFilter getSharedStringsFilter(XSSFCell cell) {
+        SharedStringsTable sharedStrings = cell.getSheet().getWorkbook().getSharedStringSource();
+        if (null == sharedStringsFilter || sharedStringsFilter.getSharedStrings() != sharedStrings) {
+            sharedStringsFilter = new SharedStringsFilter(sharedStrings, config.getGramerPrefix());
+        }
+        return sharedStringsFilter;
     }
 
     void visitSheet(XSSFSheet sheet) {
@@ -83,67 +100,30 @@ public class TemplateVisitor implements Visitor {
     void visitRow(XSSFRow row) {
         if (null == row) return;
         for (int i = 0; i <= row.getLastCellNum(); i++) {
-            XSSFCell cell = row.getCell(i);
-            if (null == cell) continue;
-            String text = CellUtils.getCellValue(cell);
-            if (StringUtils.isBlank(text)) continue;
-            ElementTemplate elementTemplate = parseTemplateFactory(text, cell);
-            if (null != elementTemplate) eleTemplates.add(elementTemplate);
+            List<ElementTemplate> templates = visitCells(row.getCell(i));
+            if (null != templates) eleTemplates.addAll(templates);
         }
     }
 
-    private <T> List<ElementTemplate> parseTemplatesFactory(String text,T obj){
-        Matcher m = templatePattern.matcher(text);
-
+    private List<ElementTemplate> parseTemplatesFactory(String text, XSSFCell cell) {
         List<ElementTemplate> res = new ArrayList<ElementTemplate>();
-
-        while (m.find()) {
-            ElementTemplate ele = parseTemplateFactory(m.group(),obj);
-            if (ele != null) {
-                res.add(ele);
-            }
+        TagTokenizer.Cursor cursor = tokenizer.cursor(text);
+        while (cursor.next()) {
+            res.add(TemplateFactory.createCellTemplate(cursor.getSource(), cursor.getSign(),
+                    cursor.getTagName(), cell));
         }
-
         return res;
     }
 
-    private <T> ElementTemplate parseTemplateFactory(String text, T obj) {
+    private ElementTemplate parseTemplateFactory(String text, XSSFCell cell) {
         logger.debug("Resolve text: {}, and create ElementTemplate", text);
-        // temp ,future need to word analyze
-        logger.debug("templatePattern :{}",templatePattern);
-        if (templatePattern.matcher(text).matches()) {
-            String tag = gramerPattern.matcher(text).replaceAll("").trim();
-            if (obj.getClass() == XSSFCell.class) {
-                return TemplateFactory.createCellTemplate(tag, config, (XSSFCell) obj);
-            }
+        TagTokenizer.Cursor cursor = tokenizer.cursor(text);
+        // 整个文本恰好是一个标签
+        if (cursor.next() && cursor.getStart() == 0 && cursor.getEnd() == text.length()) {
+            return TemplateFactory.createCellTemplate(cursor.getSource(), cursor.getSign(),
+                    cursor.getTagName(), cell);
         }
         return null;
     }
 
-    private void initPattern() {
-        String signRegex = getGramarRegex(config);
-        String prefixRegex = RegexUtils.escapeExprSpecialWord(config.getGramerPrefix());
-        String suffixRegex = RegexUtils.escapeExprSpecialWord(config.getGramerSuffix());
-
-        templatePattern = Pattern.compile(MessageFormat.format(FORMAT_TEMPLATE, prefixRegex,
-                signRegex, config.getGrammerRegex(), suffixRegex));
-        gramerPattern = Pattern
-                .compile(MessageFormat.format(FORMAT_GRAMER, prefixRegex, suffixRegex));
-    }
-
-    private String getGramarRegex(Configure config) {
-        List<Character> gramerChar = new ArrayList<>(config.getGramerChars());
-        StringBuilder reg = new StringBuilder("(");
-        for (int i = 0;; i++) {
-            Character chara = gramerChar.get(i);
-            String escapeExprSpecialWord = RegexUtils.escapeExprSpecialWord(chara.toString());
-            if (i == gramerChar.size() - 1) {
-                reg.append(escapeExprSpecialWord).append(")?");
-                break;
-            } else reg.append(escapeExprSpecialWord).append("|");
-        }
-        return reg.toString();
-    }
-
-
 }
@@ -0,0 +1,61 @@
+package com.jg.poiet.template;
+
+import com.jg.poiet.policy.RenderPolicy;
+
+/**
+ * 编译期解析出的标签，记录标签在模板中的原始坐标及绑定的渲染策略，不可变
+ */
+public final class PlannedTag {
+
+    private final int sheetIndex;
+    private final int rowIndex;
+    private final int columnIndex;
+    private final Character sign;
+    private final String tagName;
+    private final String source;
+    private final RenderPolicy policy;
+
+    public PlannedTag(int sheetIndex, int rowIndex, int columnIndex, Character sign, String tagName,
+                      String source, RenderPolicy policy) {
+        this.sheetIndex = sheetIndex;
+        this.rowIndex = rowIndex;
+        this.columnIndex = columnIndex;
+        this.sign = sign;
+        this.tagName = tagName;
+        this.source = source;
+        this.policy = policy;
+    }
+
+    public int getSheetIndex() {
+        return sheetIndex;
+    }
+
+    public int getRowIndex() {
+        return rowIndex;
+    }
+
+    public int getColumnIndex() {
+        return columnIndex;
+    }
+
+    public Character getSign() {
+        return sign;
+    }
+
+    public String getTagName() {
+        return tagName;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public RenderPolicy getPolicy() {
+        return policy;
+    }
+
+    @Override
+    public String toString() {
+        return source + "@" + sheetIndex + "_" + rowIndex + "_" + columnIndex;
+    }
+}
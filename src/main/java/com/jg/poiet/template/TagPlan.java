@@ -0,0 +1,63 @@
+package com.jg.poiet.template;
+
+import com.jg.poiet.config.Configure;
+import com.jg.poiet.exception.ResolverException;
+import com.jg.poiet.policy.RenderPolicy;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 标签计划：模板扫描一次后得到的全部标签（按sheet、行、列的扫描顺序排列），不可变，可被多次渲染共享
+ */
+public final class TagPlan {
+
+    private final List<PlannedTag> tags;
+
+    public TagPlan(List<PlannedTag> tags) {
+        this.tags = Collections.unmodifiableList(new ArrayList<>(tags));
+    }
+
+    public List<PlannedTag> getTags() {
+        return tags;
+    }
+
+    public int size() {
+        return tags.size();
+    }
+
+    public boolean isEmpty() {
+        return tags.isEmpty();
+    }
+
+    /**
+     * 按配置重新绑定各标签的渲染策略，标签及其坐标不变：语法（前后缀、标签名正则、语法符号）相同的配置扫描结果相同
+     *
+     * @param config    配置
+     * @return  标签计划，策略均未变化时返回自身
+     * @throws ResolverException    配置中找不到标签的渲染策略
+     */
+    public TagPlan bind(Configure config) {
+        List<PlannedTag> bound = new ArrayList<>(tags.size());
+        boolean changed = false;
+        for (PlannedTag tag : tags) {
+            RenderPolicy policy = config.getPolicy(tag.getTagName(), tag.getSign());
+            if (null == policy) {
+                throw new ResolverException("Cannot find render policy: [" + tag.getTagName() + "]");
+            }
+            if (policy != tag.getPolicy()) {
+                tag = new PlannedTag(tag.getSheetIndex(), tag.getRowIndex(), tag.getColumnIndex(), tag.getSign(),
+                        tag.getTagName(), tag.getSource(), policy);
+                changed = true;
+            }
+            bound.add(tag);
+        }
+        return changed ? new TagPlan(bound) : this;
+    }
+
+    @Override
+    public String toString() {
+        return tags.toString();
+    }
+}
@@ -8,6 +8,11 @@ public class CellTemplate extends ElementTemplate {
 
     protected XSSFCell cell;
 
+    /**
+     * 标签所在行之后需要的行已在布局阶段插入
+     */
+    protected boolean rowsReserved;
+
     public CellTemplate() {}
 
     public CellTemplate(String tagName, XSSFCell cell) {
@@ -43,4 +48,12 @@ public class CellTemplate extends ElementTemplate {
     public void setCell(XSSFCell cell) {
         this.cell = cell;
     }
+
+    public boolean isRowsReserved() {
+        return rowsReserved;
+    }
+
+    public void setRowsReserved(boolean rowsReserved) {
+        this.rowsReserved = rowsReserved;
+    }
 }
@@ -22,11 +22,59 @@ public class StyleUtils {
      */
     public static void styleCell(NiceXSSFWorkbook workbook, XSSFCell cell, Style style) {
         if (null == cell || null == style) return;
-        XSSFCellStyle oldCellStyle = cell.getCellStyle();
-        XSSFCellStyle cellStyle = style.getCellStyle(oldCellStyle);
+        XSSFCellStyle cellStyle = getCellStyle(workbook, cell.getCellStyle(), style);
         XSSFSheet sheet = cell.getSheet();
+        //设置样式
+        CellRangeAddress cellAddresses = workbook.getCellRangeAddress(cell);
+        if (null == cellAddresses) {    //非合并单元格
+            cell.setCellStyle(cellStyle);
+            //设置列宽（注：只有非合并单元格可以设置列宽）
+            if (style.getColumnWidth() >= 0) {
+                sheet.setColumnWidth(cell.getColumnIndex(), style.getColumnWidth());
+            }
+        } else {    //合并单元格
+            //只有当前单元格为合并单元格的第一个单元格可以设置样式
+            if (cellAddresses.getFirstRow() == cell.getRowIndex()
+                    && cellAddresses.getFirstColumn() == cell.getColumnIndex()) {
+                int firstRow = cellAddresses.getFirstRow();
+                int lastRow = cellAddresses.getLastRow();
+                int firstColumn = cellAddresses.getFirstColumn();
+                int lastColumn = cellAddresses.getLastColumn();
+                for (int i = firstRow; i <= lastRow; i++) {
+                    XSSFRow row = sheet.getRow(i);
+                    if (null == row) {
+                        row = sheet.createRow(i);
+                    }
+                    for (int j = firstColumn; j <= lastColumn; j++) {
+                        XSSFCell xssfCell = row.getCell(j);
+                        if (null == xssfCell) {
+                            xssfCell = row.createCell(j);
+                        }
+                        xssfCell.setCellStyle(cellStyle);
+                    }
+                }
+            }
+        }
+        //设置行高
+        if (style.getRowHeight() >= 0) {
+            cell.getRow().setHeightInPoints(style.getRowHeight());
+        }
+
+    }
+
+    /**
+     * 获取由原单元格样式和Style派生出的单元格样式，同一工作簿内按(Style, 原样式)缓存
+     *
+     * @param workbook  workbook
+     * @param oldCellStyle  原单元格样式
+     * @param style 样式对象
+     * @return  派生出的单元格样式，style为null时返回原样式
+     */
+    public static XSSFCellStyle getCellStyle(NiceXSSFWorkbook workbook, XSSFCellStyle oldCellStyle, Style style) {
+        if (null == style) return oldCellStyle;
+        XSSFCellStyle cellStyle = workbook.getDerivedCellStyle(style, oldCellStyle);
         if (null == cellStyle) {
-            cellStyle = sheet.getWorkbook().createCellStyle();
+            cellStyle = workbook.createCellStyle();
 
             //设置前景色
             if (null == style.getForegroundColor()) {
@@ -102,7 +150,7 @@ public class StyleUtils {
                 cellStyle.setBottomBorderColor(getXSSFColorFromRGB(style.getBottomBorderColor()));
             }
             //设置字体
-            XSSFFont font = sheet.getWorkbook().createFont();
+            XSSFFont font = workbook.createFont();
             XSSFFont oldFont = oldCellStyle.getFont();
             if (null == style.getColor()) {
                 font.setColor(oldFont.getXSSFColor());
@@ -135,44 +183,9 @@ public class StyleUtils {
                 font.setUnderline(style.getFontUnderline());
             }
             cellStyle.setFont(font);
-            style.setCellStyle(oldCellStyle, cellStyle);
+            workbook.putDerivedCellStyle(style, oldCellStyle, cellStyle);
         }
-        //设置样式
-        CellRangeAddress cellAddresses = workbook.getCellRangeAddress(cell);
-        if (null == cellAddresses) {    //非合并单元格
-            cell.setCellStyle(cellStyle);
-            //设置列宽（注：只有非合并单元格可以设置列宽）
-            if (style.getColumnWidth() >= 0) {
-                sheet.setColumnWidth(cell.getColumnIndex(), style.getColumnWidth());
-            }
-        } else {    //合并单元格
-            //只有当前单元格为合并单元格的第一个单元格可以设置样式
-            if (cellAddresses.getFirstRow() == cell.getRowIndex()
-                    && cellAddresses.getFirstColumn() == cell.getColumnIndex()) {
-                int firstRow = cellAddresses.getFirstRow();
-                int lastRow = cellAddresses.getLastRow();
-                int firstColumn = cellAddresses.getFirstColumn();
-                int lastColumn = cellAddresses.getLastColumn();
-                for (int i = firstRow; i <= lastRow; i++) {
-                    XSSFRow row = sheet.getRow(i);
-                    if (null == row) {
-                        row = sheet.createRow(i);
-                    }
-                    for (int j = firstColumn; j <= lastColumn; j++) {
-                        XSSFCell xssfCell = row.getCell(j);
-                        if (null == xssfCell) {
-                            xssfCell = row.createCell(j);
-                        }
-                        xssfCell.setCellStyle(cellStyle);
-                    }
-                }
-            }
-        }
-        //设置行高
-        if (style.getRowHeight() >= 0) {
-            cell.getRow().setHeightInPoints(style.getRowHeight());
-        }
-
+        return cellStyle;
     }
 
     /**
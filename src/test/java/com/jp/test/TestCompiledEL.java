@@ -0,0 +1,74 @@
+package com.jp.test;
+
+import com.jg.poiet.el.CompiledEL;
+import com.jg.poiet.el.ELObject;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 表达式全局缓存：同一表达式返回同一个编译结果；动态生成大量表达式时缓存数量不超过上限，
+ * 且不会淘汰期间仍在使用的表达式（多个线程同时编译时同样）
+ */
+public class TestCompiledEL {
+
+  public static void main(String[] args) throws Exception {
+    final int max = maxCacheSize();
+    final CompiledEL hot = CompiledEL.compile("hot.key");
+    if (hot != CompiledEL.compile("hot.key")) throw new IllegalStateException("Expression compiled twice");
+    check(ELObject.create(Collections.singletonMap("hot", Collections.singletonMap("key", "v"))).eval("hot.key"), "v");
+
+    for (int i = 0; i < max * 3; i++) {
+      CompiledEL.compile("dynamic.key" + i);
+      if (hot != CompiledEL.compile("hot.key")) throw new IllegalStateException("Hot expression evicted at " + i);
+      if (cacheSize() > max) throw new IllegalStateException("Cache size " + cacheSize() + " exceeds " + max);
+    }
+
+    final AtomicReference<Throwable> failure = new AtomicReference<>();
+    Thread[] threads = new Thread[4];
+    for (int t = 0; t < threads.length; t++) {
+      final int thread = t;
+      threads[t] = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            for (int i = 0; i < max * 2; i++) {
+              CompiledEL.compile("concurrent" + (i % 3 == 0 ? i : thread * max * 2 + i) + ".key");
+              if (hot != CompiledEL.compile("hot.key")) throw new IllegalStateException("Hot expression evicted");
+            }
+          } catch (Throwable e) {
+            failure.compareAndSet(null, e);
+          }
+        }
+      });
+      threads[t].start();
+    }
+    for (Thread thread : threads) thread.join();
+    if (null != failure.get()) throw new IllegalStateException(failure.get());
+    if (cacheSize() > max) throw new IllegalStateException("Cache size " + cacheSize() + " exceeds " + max);
+    System.out.println("OK");
+  }
+
+  /**
+   * 缓存数量与上限不公开，通过反射取得
+   */
+  private static int cacheSize() throws Exception {
+    Method size = CompiledEL.class.getDeclaredMethod("cacheSize");
+    size.setAccessible(true);
+    return (Integer) size.invoke(null);
+  }
+
+  private static int maxCacheSize() throws Exception {
+    Field max = CompiledEL.class.getDeclaredField("MAX_CACHE_SIZE");
+    max.setAccessible(true);
+    return max.getInt(null);
+  }
+
+  private static void check(Object actual, Object expected) {
+    if (!expected.equals(actual)) {
+      throw new IllegalStateException("Expected [" + expected + "] but was [" + actual + "]");
+    }
+  }
+}
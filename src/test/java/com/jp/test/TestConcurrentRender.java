@@ -0,0 +1,118 @@
+package com.jp.test;
+
+import com.jg.poiet.CompiledTemplate;
+import com.jg.poiet.XSSFTemplate;
+import com.jg.poiet.config.Configure;
+import com.jg.poiet.data.RowRenderData;
+import com.jg.poiet.data.TableRenderData;
+import com.jg.poiet.data.TextRenderData;
+import com.jg.poiet.data.style.Style;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 并发渲染压力测试：N个线程各自渲染独立的XSSFTemplate实例，共享Configure、Style和CompiledTemplate，
+ * 校验每个结果只包含自己的数据，并输出单线程与多线程的吞吐量
+ */
+public class TestConcurrentRender {
+
+  private static final Style SHARED_STYLE = new Style();
+
+  static {
+    SHARED_STYLE.setBold(true);
+  }
+
+  public static void main(String[] args) throws Exception {
+    int threads = Math.max(4, Runtime.getRuntime().availableProcessors());
+    int renders = 400;
+    final byte[] data = template();
+    final Configure config = Configure.createDefault();
+    final CompiledTemplate compiled = CompiledTemplate.compile(data, config);
+
+    for (int round = 0; round < 2; round++) {
+      System.out.println("compiled, 1 thread: " + run(1, renders, compiled, data, config, true) + " renders/s");
+      System.out.println("compiled, " + threads + " threads: " + run(threads, renders, compiled, data, config, true) + " renders/s");
+      System.out.println("scan, " + threads + " threads: " + run(threads, renders, compiled, data, config, false) + " renders/s");
+    }
+  }
+
+  private static long run(int threads, final int renders, final CompiledTemplate compiled, final byte[] data,
+                          final Configure config, final boolean useCompiled) throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    List<Future<Integer>> futures = new ArrayList<>();
+    long start = System.nanoTime();
+    for (int i = 0; i < renders; i++) {
+      final int id = i;
+      futures.add(executor.submit(new Callable<Integer>() {
+        @Override
+        public Integer call() throws Exception {
+          XSSFTemplate template = useCompiled ? compiled.newTemplate()
+              : XSSFTemplate.compile(new ByteArrayInputStream(data), config);
+          template.render(model(id));
+          verify(template.getXSSFWorkbook(), id);
+          return id;
+        }
+      }));
+    }
+    for (Future<Integer> future : futures) {
+      future.get();
+    }
+    long elapsed = System.nanoTime() - start;
+    executor.shutdown();
+    return renders * 1000000000L / elapsed;
+  }
+
+  private static void verify(XSSFWorkbook workbook, int id) {
+    XSSFSheet sheet = workbook.getSheetAt(0);
+    check(sheet.getRow(0).getCell(0).getStringCellValue(), "No." + id + " / user" + id);
+    check(sheet.getRow(1).getCell(0).getStringCellValue(), "name");
+    for (int i = 0; i < 20; i++) {
+      check(sheet.getRow(2 + i).getCell(1).getStringCellValue(), id + "-" + i);
+    }
+    check(sheet.getRow(22).getCell(0).getStringCellValue(), "total " + id);
+  }
+
+  private static void check(String actual, String expected) {
+    if (!expected.equals(actual)) {
+      throw new IllegalStateException("Expected [" + expected + "] but was [" + actual + "]");
+    }
+  }
+
+  private static Map<String, Object> model(int id) {
+    Map<String, Object> model = new HashMap<>();
+    model.put("no", id);
+    Map<String, Object> user = new HashMap<>();
+    user.put("name", "user" + id);
+    model.put("user", user);
+    List<RowRenderData> rows = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      rows.add(RowRenderData.build(new TextRenderData("row" + i, SHARED_STYLE), new TextRenderData(id + "-" + i)));
+    }
+    model.put("table", new TableRenderData(RowRenderData.build("name", "value"), rows, SHARED_STYLE, null));
+    model.put("total", new TextRenderData("total " + id, SHARED_STYLE));
+    return model;
+  }
+
+  private static byte[] template() throws IOException {
+    XSSFWorkbook workbook = new XSSFWorkbook();
+    XSSFSheet sheet = workbook.createSheet();
+    sheet.createRow(0).createCell(0).setCellValue("No.{{no}} / {{user.name}}");
+    sheet.createRow(1).createCell(0).setCellValue("{{#table}}");
+    sheet.createRow(2).createCell(0).setCellValue("{{total}}");
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    workbook.write(out);
+    return out.toByteArray();
+  }
+}
@@ -0,0 +1,211 @@
+package com.jp.test;
+
+import com.jg.poiet.XSSFTemplate;
+import com.jg.poiet.config.Configure;
+import com.jg.poiet.exception.RenderException;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 延迟数据测试：标签的值和作为前缀的延迟数据同时计算；超时和计算失败时渲染失败，
+ * 只取消提交到线程池的计算，不取消调用方的Future；线程池拒绝执行时在渲染线程中计算
+ */
+public class TestDeferred {
+
+  private static final long DELAY = 200;
+
+  public static void main(String[] args) throws Exception {
+    render(template("warm"), new HashMap<String, Object>(), Configure.createDefault());
+    concurrent();
+    valueTimeout();
+    prefixTimeout();
+    failure();
+    rejected();
+    System.out.println("OK");
+  }
+
+  /**
+   * 5个标签的值、1个Callable前缀和1个调用方的Future前缀各耗时DELAY，同时计算时约为1个DELAY，
+   * 逐个计算前缀时至少需要3个DELAY
+   */
+  private static void concurrent() throws Exception {
+    Map<String, Object> model = new HashMap<>();
+    for (int i = 0; i < 5; i++) model.put("a" + i, slow("a" + i));
+    model.put("user", slow(Collections.singletonMap("name", "Ann")));
+    final FutureTask<Object> order = new FutureTask<Object>(slow(Collections.singletonMap("no", "42")));
+    model.put("order", order);
+    byte[] template = template("a0", "a1", "a2", "a3", "a4", "user.name", "order.no");
+    long start = System.nanoTime();
+    new Thread(order).start();
+    XSSFSheet sheet = render(template, model, Configure.createDefault()).getSheetAt(0);
+    long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    for (int i = 0; i < 5; i++) check(sheet.getRow(i).getCell(0).getStringCellValue(), "a" + i);
+    check(sheet.getRow(5).getCell(0).getStringCellValue(), "Ann");
+    check(sheet.getRow(6).getCell(0).getStringCellValue(), "42");
+    System.out.println("7 deferred values of " + DELAY + " ms: " + elapsed + " ms");
+    if (elapsed >= 2 * DELAY) throw new IllegalStateException("Deferred values were resolved one by one");
+  }
+
+  /**
+   * 超时后取消提交的计算，调用方的Future不被取消
+   */
+  private static void valueTimeout() throws Exception {
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch interrupted = new CountDownLatch(1);
+    FutureTask<Object> pending = new FutureTask<Object>(slow("never"));
+    Map<String, Object> model = new HashMap<>();
+    model.put("pending", pending);
+    model.put("sleeping", sleeping(started, interrupted));
+    Configure config = Configure.newBuilder().buildDeferredTimeout(DELAY / 2).build();
+    expectFailure(template("sleeping", "pending"), model, config, "timed out");
+    checkCancelled(started, interrupted);
+    if (pending.isCancelled()) throw new IllegalStateException("Caller-owned future cancelled");
+  }
+
+  private static void prefixTimeout() throws Exception {
+    FutureTask<Object> pending = new FutureTask<Object>(slow("never"));
+    Map<String, Object> model = new HashMap<>();
+    model.put("user", pending);
+    Configure config = Configure.newBuilder().buildDeferredTimeout(DELAY / 2).build();
+    expectFailure(template("user.name"), model, config, "timed out");
+    if (pending.isCancelled()) throw new IllegalStateException("Caller-owned future cancelled");
+  }
+
+  /**
+   * 一个计算失败时取消其余提交的计算，调用方尚未完成的Future不被取消
+   */
+  private static void failure() throws Exception {
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch interrupted = new CountDownLatch(1);
+    FutureTask<Object> pending = new FutureTask<Object>(slow("never"));
+    Map<String, Object> model = new HashMap<>();
+    model.put("broken", new Callable<Object>() {
+      @Override
+      public Object call() {
+        throw new IllegalStateException("boom");
+      }
+    });
+    model.put("pending", pending);
+    model.put("sleeping", sleeping(started, interrupted));
+    expectFailure(template("broken", "pending", "sleeping"), model, Configure.createDefault(), "failed");
+    checkCancelled(started, interrupted);
+    if (pending.isCancelled()) throw new IllegalStateException("Caller-owned future cancelled");
+  }
+
+  /**
+   * 线程池拒绝执行时由渲染线程计算
+   */
+  private static void rejected() throws Exception {
+    final Thread renderThread = Thread.currentThread();
+    Callable<Object> value = new Callable<Object>() {
+      @Override
+      public Object call() {
+        if (Thread.currentThread() != renderThread) throw new IllegalStateException("Not run in the render thread");
+        return "value";
+      }
+    };
+    Callable<Object> user = new Callable<Object>() {
+      @Override
+      public Object call() {
+        if (Thread.currentThread() != renderThread) throw new IllegalStateException("Not run in the render thread");
+        return Collections.singletonMap("name", "Ann");
+      }
+    };
+    Map<String, Object> model = new HashMap<>();
+    model.put("value", value);
+    model.put("user", user);
+    Configure config = Configure.newBuilder().buildDeferredExecutor(new Executor() {
+      @Override
+      public void execute(Runnable command) {
+        throw new RejectedExecutionException("shut down");
+      }
+    }).build();
+    XSSFSheet sheet = render(template("value", "user.name"), model, config).getSheetAt(0);
+    check(sheet.getRow(0).getCell(0).getStringCellValue(), "value");
+    check(sheet.getRow(1).getCell(0).getStringCellValue(), "Ann");
+  }
+
+  private static Callable<Object> slow(final Object value) {
+    return new Callable<Object>() {
+      @Override
+      public Object call() throws InterruptedException {
+        Thread.sleep(DELAY);
+        return value;
+      }
+    };
+  }
+
+  private static Callable<Object> sleeping(final CountDownLatch started, final CountDownLatch interrupted) {
+    return new Callable<Object>() {
+      @Override
+      public Object call() {
+        started.countDown();
+        try {
+          Thread.sleep(10000);
+        } catch (InterruptedException e) {
+          interrupted.countDown();
+        }
+        return "late";
+      }
+    };
+  }
+
+  /**
+   * 提交的计算已开始时应被中断，取消时尚未开始的计算不再执行
+   */
+  private static void checkCancelled(CountDownLatch started, CountDownLatch interrupted) throws InterruptedException {
+    if (started.await(DELAY, TimeUnit.MILLISECONDS) && !interrupted.await(2, TimeUnit.SECONDS)) {
+      throw new IllegalStateException("Submitted task not cancelled");
+    }
+  }
+
+  private static void expectFailure(byte[] template, Map<String, Object> model, Configure config, String message) {
+    long start = System.nanoTime();
+    try {
+      render(template, model, config);
+    } catch (RenderException e) {
+      Throwable cause = e;
+      while (null != cause && (null == cause.getMessage() || !cause.getMessage().contains(message))) {
+        cause = cause.getCause();
+      }
+      if (null == cause) throw new IllegalStateException("Unexpected failure", e);
+      if (TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) > 5 * DELAY) {
+        throw new IllegalStateException("Failure reported too late");
+      }
+      return;
+    }
+    throw new IllegalStateException("Render did not fail: " + message);
+  }
+
+  private static XSSFWorkbook render(byte[] template, Map<String, Object> model, Configure config) {
+    return XSSFTemplate.compile(new ByteArrayInputStream(template), config).render(model).getXSSFWorkbook();
+  }
+
+  private static byte[] template(String... tags) throws IOException {
+    XSSFWorkbook workbook = new XSSFWorkbook();
+    XSSFSheet sheet = workbook.createSheet();
+    for (int i = 0; i < tags.length; i++) sheet.createRow(i).createCell(0).setCellValue("{{" + tags[i] + "}}");
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    workbook.write(out);
+    return out.toByteArray();
+  }
+
+  private static void check(String actual, String expected) {
+    if (!expected.equals(actual)) {
+      throw new IllegalStateException("Expected [" + expected + "] but was [" + actual + "]");
+    }
+  }
+}
@@ -0,0 +1,80 @@
+package com.jp.test;
+
+import com.jg.poiet.config.Name;
+import com.jg.poiet.el.FieldFinder;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+
+/**
+ * FieldFinder的属性索引：继承的属性、子类中同名的属性（覆盖父类）、@Name注解的属性，
+ * 查找顺序为子类优先于父类，同一个类中属性名优先于@Name；找不到时返回null，同一属性每次返回同一个Field
+ */
+public class TestFieldFinder {
+
+  public static void main(String[] args) throws Exception {
+    Child child = new Child();
+    //继承的属性，包括父类的父类
+    check(child, "root", Root.class, "root");
+    check(child, "base", Base.class, "base");
+    //子类中同名的属性覆盖父类
+    check(child, "shadow", Child.class, "child shadow");
+    check(new Base(), "shadow", Base.class, "base shadow");
+    //@Name注解的属性，包括继承的
+    check(child, "alias", Child.class, "child alias");
+    check(child, "baseAlias", Base.class, "base alias");
+    //同一个类中属性名优先于@Name，子类的@Name优先于父类的属性名
+    check(child, "title", Child.class, "title field");
+    check(child, "code", Child.class, "child code");
+    check(new Base(), "code", Base.class, "base code");
+    //找不到
+    if (null != find(Child.class, "missing")) throw new IllegalStateException("missing: unexpected field");
+    if (find(Child.class, "shadow") != find(Child.class, "shadow")) {
+      throw new IllegalStateException("shadow: field looked up twice");
+    }
+    System.out.println("OK");
+  }
+
+  private static void check(Object bean, String key, Class<?> declaringClass, Object value) throws Exception {
+    Field field = find(bean.getClass(), key);
+    if (null == field) throw new IllegalStateException(key + ": field not found");
+    if (field.getDeclaringClass() != declaringClass) {
+      throw new IllegalStateException(key + ": expected field of " + declaringClass + " but was " + field);
+    }
+    if (!value.equals(field.get(bean))) {
+      throw new IllegalStateException(key + ": expected [" + value + "] but was [" + field.get(bean) + "]");
+    }
+  }
+
+  /**
+   * FieldFinder.find不公开，通过反射调用
+   */
+  private static Field find(Class<?> clazz, String key) throws Exception {
+    Method find = FieldFinder.class.getDeclaredMethod("find", Class.class, String.class);
+    find.setAccessible(true);
+    return (Field) find.invoke(null, clazz, key);
+  }
+
+  static class Root {
+    private String root = "root";
+  }
+
+  static class Base extends Root {
+    private String base = "base";
+    private String shadow = "base shadow";
+    private String code = "base code";
+    @Name("baseAlias")
+    private String aliased = "base alias";
+  }
+
+  static class Child extends Base {
+    private String shadow = "child shadow";
+    @Name("alias")
+    private String nick = "child alias";
+    @Name("title")
+    private String caption = "caption";
+    private String title = "title field";
+    @Name("code")
+    private String childCode = "child code";
+  }
+}
@@ -0,0 +1,105 @@
+package com.jp.test;
+
+import com.jg.poiet.XSSFTemplate;
+import com.jg.poiet.data.ListRenderData;
+import org.apache.poi.ss.usermodel.FillPatternType;
+import org.apache.poi.ss.usermodel.IndexedColors;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.apache.poi.xssf.usermodel.XSSFRow;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 高sheet中的水平列表：插入点右侧有合并单元格、列宽与列样式，另有跨越插入点的合并单元格，
+ * 校验渲染后的单元格、合并单元格、列宽与列样式，并输出不同行数的耗时（每行只遍历一次，合并单元格一次调整）
+ */
+public class TestHorizontalList {
+
+  private static final String[] ITEMS = {"p", "q", "r", "s"};
+
+  public static void main(String[] args) throws Exception {
+    Map<String, Object> model = new HashMap<>();
+    model.put("hlist", ListRenderData.build(ITEMS).buildDirection(ListRenderData.DIRECTION.HORIZONTAL));
+    for (int rows : new int[]{2500, 10000, 40000}) {
+      byte[] template = template(rows);
+      long best = Long.MAX_VALUE;
+      for (int warm = 0; warm < 3; warm++) {
+        long start = System.nanoTime();
+        XSSFTemplate rendered = XSSFTemplate.compile(new ByteArrayInputStream(template)).render(model);
+        best = Math.min(best, System.nanoTime() - start);
+        verify(rendered.getXSSFWorkbook().getSheetAt(0), rows);
+        rendered.close();
+      }
+      System.out.println(rows + " rows: " + best / 1000000 + " ms");
+    }
+  }
+
+  /**
+   * 每行8列，列表标签在第0行第2列；每4行一个合并单元格，交替跨越插入点（1~3列）和位于插入点右侧（4~6列）；
+   * 第3列设置列宽，第5列设置列样式
+   */
+  private static byte[] template(int rows) throws IOException {
+    XSSFWorkbook workbook = new XSSFWorkbook();
+    XSSFSheet sheet = workbook.createSheet();
+    XSSFCellStyle style = workbook.createCellStyle();
+    style.setFillForegroundColor(IndexedColors.YELLOW.getIndex());
+    style.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+    sheet.setColumnWidth(3, 7000);
+    sheet.setDefaultColumnStyle(5, style);
+    for (int i = 0; i < rows; i++) {
+      XSSFRow row = sheet.createRow(i);
+      for (int j = 0; j < 8; j++) row.createCell(j).setCellValue(i * 10 + j);
+    }
+    sheet.getRow(0).getCell(2).setCellValue("{{*hlist}}");
+    for (int i = 1; i + 1 < rows; i += 4) {
+      int firstColumn = i % 8 == 1 ? 1 : 4;
+      sheet.addMergedRegionUnsafe(new CellRangeAddress(i, i + 1, firstColumn, firstColumn + 2));
+    }
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    workbook.write(out);
+    return out.toByteArray();
+  }
+
+  private static void verify(XSSFSheet sheet, int rows) {
+    int inserted = ITEMS.length - 1;
+    for (int j = 0; j < ITEMS.length; j++) {
+      if (!ITEMS[j].equals(sheet.getRow(0).getCell(2 + j).getStringCellValue())) {
+        throw new IllegalStateException("Unexpected item " + j);
+      }
+    }
+    for (int i = 1; i < rows; i++) {
+      XSSFRow row = sheet.getRow(i);
+      for (int j = 0; j < 8 + inserted; j++) {
+        //插入的列复制第2列，其右侧为原有的列
+        int column = j < 2 ? j : (j < 2 + ITEMS.length ? 2 : j - inserted);
+        if (row.getCell(j).getNumericCellValue() != i * 10 + column) {
+          throw new IllegalStateException("Unexpected cell " + i + "," + j);
+        }
+      }
+    }
+    Set<String> expected = new HashSet<>();
+    for (int i = 1; i + 1 < rows; i += 4) {
+      int firstColumn = i % 8 == 1 ? 1 : 4 + inserted;
+      int lastColumn = i % 8 == 1 ? 3 + inserted : 6 + inserted;
+      expected.add(new CellRangeAddress(i, i + 1, firstColumn, lastColumn).formatAsString());
+    }
+    Set<String> actual = new HashSet<>();
+    for (CellRangeAddress region : sheet.getMergedRegions()) actual.add(region.formatAsString());
+    if (!expected.equals(actual)) {
+      throw new IllegalStateException("Expected " + expected.size() + " merged regions but was " + actual.size());
+    }
+    if (sheet.getColumnWidth(3 + inserted) != 7000 || sheet.getColumnStyle(5 + inserted).getFillPatternEnum() != FillPatternType.SOLID_FOREGROUND
+        || sheet.getColumnStyle(5).getFillPatternEnum() == FillPatternType.SOLID_FOREGROUND) {
+      throw new IllegalStateException("Column definitions not shifted");
+    }
+  }
+}
@@ -0,0 +1,86 @@
+package com.jp.test;
+
+import com.jg.poiet.XSSFTemplate;
+import com.jg.poiet.data.CellRenderData;
+import com.jg.poiet.data.RowRenderData;
+import com.jg.poiet.data.TableRenderData;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 带合并单元格的表格渲染：每行一个跨列单元格，表格下方有合并单元格，
+ * 校验渲染后的合并单元格，并输出不同行数的耗时（合并单元格索引增量维护，耗时应随行数线性增长）
+ */
+public class TestMergedRegionTable {
+
+  private static final int FOOTERS = 50;
+
+  public static void main(String[] args) throws Exception {
+    byte[] template = template();
+    for (int rows : new int[]{250, 500, 1000, 2000}) {
+      List<RowRenderData> datas = new ArrayList<>();
+      for (int i = 0; i < rows; i++) {
+        datas.add(new RowRenderData(Arrays.asList(new CellRenderData("row" + i, 0, 1), null,
+            new CellRenderData(String.valueOf(i)))));
+      }
+      Map<String, Object> model = new HashMap<>();
+      model.put("table", new TableRenderData(datas));
+      long best = Long.MAX_VALUE;
+      for (int warm = 0; warm < 3; warm++) {
+        long start = System.nanoTime();
+        XSSFTemplate rendered = XSSFTemplate.compile(new ByteArrayInputStream(template)).render(model);
+        best = Math.min(best, System.nanoTime() - start);
+        verify(rendered.getXSSFWorkbook().getSheetAt(0), rows);
+        rendered.close();
+      }
+      System.out.println(rows + " rows: " + best / 1000000 + " ms");
+    }
+  }
+
+  private static void verify(XSSFSheet sheet, int rows) {
+    Set<String> expected = new HashSet<>();
+    for (int i = 0; i < rows; i++) {
+      expected.add(new CellRangeAddress(i, i, 0, 1).formatAsString());
+      if (!("row" + i).equals(sheet.getRow(i).getCell(0).getStringCellValue())) {
+        throw new IllegalStateException("Unexpected row " + i);
+      }
+    }
+    for (int i = 0; i < FOOTERS; i++) {
+      int row = rows + 1 + 2 * i;
+      expected.add(new CellRangeAddress(row, row + 1, 0, 2).formatAsString());
+      if (!("footer" + i).equals(sheet.getRow(row).getCell(0).getStringCellValue())) {
+        throw new IllegalStateException("Unexpected footer " + i);
+      }
+    }
+    Set<String> actual = new HashSet<>();
+    for (CellRangeAddress region : sheet.getMergedRegions()) actual.add(region.formatAsString());
+    if (!expected.equals(actual)) {
+      throw new IllegalStateException("Expected " + expected.size() + " merged regions but was " + actual.size());
+    }
+  }
+
+  private static byte[] template() throws IOException {
+    XSSFWorkbook workbook = new XSSFWorkbook();
+    XSSFSheet sheet = workbook.createSheet();
+    sheet.createRow(0).createCell(0).setCellValue("{{#table}}");
+    for (int i = 0; i < FOOTERS; i++) {
+      sheet.createRow(2 + 2 * i).createCell(0).setCellValue("footer" + i);
+      sheet.addMergedRegion(new CellRangeAddress(2 + 2 * i, 3 + 2 * i, 0, 2));
+    }
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    workbook.write(out);
+    return out.toByteArray();
+  }
+}
@@ -0,0 +1,83 @@
+package com.jp.test;
+
+import com.jg.poiet.exception.ExpressionEvalException;
+import com.jg.poiet.render.ELObjectRenderDataCompute;
+import com.jg.poiet.render.RenderDataCompute;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 标准模式下半数标签不存在时的计算基准：与按异常处理不存在标签的方式（严格模式计算并捕获异常）对比，
+ * 校验结果一致并输出耗时
+ */
+public class TestMissingKeys {
+
+  public static void main(String[] args) {
+    Map<String, Object> model = new HashMap<>();
+    model.put("user", new User("Ann", 30));
+    model.put("title", "report");
+    List<String> tags = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      switch (i % 4) {
+        case 0: tags.add(i % 8 == 0 ? "user.name" : "user.age"); break;
+        case 1: tags.add("title"); break;
+        case 2: tags.add("user.remark" + i); break;       // 属性不存在
+        default: tags.add("order" + i + ".no"); break;    // 前缀为null
+      }
+    }
+
+    for (String tag : tags) {
+      Object expected = caught(new ELObjectRenderDataCompute(model, true), tag);
+      Object actual = new ELObjectRenderDataCompute(model, false).compute(tag);
+      if (null == expected ? null != actual : !expected.equals(actual)) {
+        throw new IllegalStateException("Mismatch: " + tag + " " + expected + " " + actual);
+      }
+    }
+
+    int renders = 20000;
+    for (int warm = 0; warm < 3; warm++) {
+      long t0 = System.nanoTime();
+      int n = 0;
+      for (int r = 0; r < renders; r++) {
+        RenderDataCompute compute = new ELObjectRenderDataCompute(model, true);
+        for (String tag : tags) if (null != caught(compute, tag)) n++;
+      }
+      long t1 = System.nanoTime();
+      int m = 0;
+      for (int r = 0; r < renders; r++) {
+        RenderDataCompute compute = new ELObjectRenderDataCompute(model, false);
+        for (String tag : tags) if (null != compute.compute(tag)) m++;
+      }
+      long t2 = System.nanoTime();
+      long ops = (long) renders * tags.size();
+      System.out.println("exception: " + (t1 - t0) / ops + " ns/tag, absent: " + (t2 - t1) / ops
+          + " ns/tag, found: " + n + "/" + m);
+    }
+  }
+
+  private static Object caught(RenderDataCompute compute, String tag) {
+    try {
+      return compute.compute(tag);
+    } catch (ExpressionEvalException | NullPointerException e) {
+      return null;
+    }
+  }
+
+  public static class User {
+
+    private String name;
+    private Integer age;
+
+    User(String name, Integer age) {
+      this.name = name;
+      this.age = age;
+    }
+
+    public String getName() {
+      return name;
+    }
+  }
+}
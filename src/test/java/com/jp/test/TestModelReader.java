@@ -0,0 +1,127 @@
+package com.jp.test;
+
+import com.jg.poiet.el.ELObject;
+import com.jg.poiet.processor.ModelReaderProcessor;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * poi-et-processor测试：用注解处理器编译数据模型（src/test/resources/elmodel），
+ * 在独立的类加载器（不是线程上下文类加载器）中加载，校验使用生成的ModelReader，
+ * 且getter、@Name、static、覆盖父类的属性、继承的属性、private属性和内部类的读取结果与反射相同；
+ * 之后不再引用时类加载器可被回收
+ */
+public class TestModelReader {
+
+  private static final String[] KEYS = {"name", "alias", "title", "VERSION", "hidden", "shared", "code", "region",
+      "secret", "active", "amount", "address.city", "address.street", "missing", "class", "address.missing"};
+
+  public static void main(String[] args) throws Exception {
+    File sources = new File(TestModelReader.class.getResource("/elmodel").toURI());
+    File generated = compile(sources, true);
+    File reflective = compile(sources, false);
+
+    URLClassLoader withReaders = new URLClassLoader(new URL[]{generated.toURI().toURL()},
+        TestModelReader.class.getClassLoader());
+    URLClassLoader withoutReaders = new URLClassLoader(new URL[]{reflective.toURI().toURL()},
+        TestModelReader.class.getClassLoader());
+    Class<?> model = withReaders.loadClass("com.jp.model.SampleModel");
+    Class<?> address = withReaders.loadClass("com.jp.model.SampleModel$Address");
+    if (null == readerOf(model) || null == readerOf(address)) {
+      throw new IllegalStateException("Generated ModelReader not found through the class loader of the model");
+    }
+    Class<?> plain = withoutReaders.loadClass("com.jp.model.SampleModel");
+    if (null != readerOf(plain)) throw new IllegalStateException("Unexpected ModelReader");
+
+    ELObject read = ELObject.create(model.newInstance());
+    ELObject reflected = ELObject.create(plain.newInstance());
+    for (String key : KEYS) {
+      check(key, String.valueOf(read.lookup(key)), String.valueOf(reflected.lookup(key)));
+    }
+    check("name", read.eval("name"), "getter name");
+    check("alias", read.eval("alias"), "nick");
+    check("title", read.eval("title"), "title field");
+    check("shared", read.eval("shared"), "sample shared");
+    check("region", read.eval("region"), "base region");
+    check("amount", read.eval("amount"), 12);
+    check("address.street", read.eval("address.street"), "street");
+
+    WeakReference<ClassLoader> loader = new WeakReference<ClassLoader>(withReaders);
+    model = null;
+    address = null;
+    read = null;
+    withReaders.close();
+    withReaders = null;
+    for (int i = 0; i < 20 && null != loader.get(); i++) {
+      System.gc();
+      Thread.sleep(50);
+    }
+    if (null != loader.get()) throw new IllegalStateException("The class loader of the model was not released");
+    System.out.println("OK");
+  }
+
+  /**
+   * 编译数据模型，processor为false时不执行注解处理
+   */
+  private static File compile(File sources, boolean processor) throws Exception {
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+    File output = Files.createTempDirectory("elmodel").toFile();
+    try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, null, null)) {
+      List<String> options = new ArrayList<>(Arrays.asList("-d", output.getPath(),
+          "-classpath", System.getProperty("java.class.path"), "-encoding", "UTF-8"));
+      if (!processor) options.add("-proc:none");
+      JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics, options, null,
+          fileManager.getJavaFileObjectsFromFiles(javaFiles(sources, new ArrayList<File>())));
+      if (processor) task.setProcessors(Collections.singletonList(new ModelReaderProcessor()));
+      if (!task.call()) {
+        for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+          System.err.println(diagnostic);
+        }
+        throw new IllegalStateException("Cannot compile the sample model");
+      }
+    }
+    return output;
+  }
+
+  private static List<File> javaFiles(File dir, List<File> files) {
+    for (File file : dir.listFiles()) {
+      if (file.isDirectory()) {
+        javaFiles(file, files);
+      } else if (file.getName().endsWith(".java")) {
+        files.add(file);
+      }
+    }
+    return files;
+  }
+
+  /**
+   * ModelReaders不公开，通过反射取得类的ModelReader
+   */
+  private static Object readerOf(Class<?> clazz) throws Exception {
+    Method get = Class.forName("com.jg.poiet.el.ModelReaders").getDeclaredMethod("get", Class.class);
+    get.setAccessible(true);
+    return get.invoke(null, clazz);
+  }
+
+  private static void check(String key, Object actual, Object expected) {
+    if (!expected.equals(actual)) {
+      throw new IllegalStateException(key + ": expected [" + expected + "] but was [" + actual + "]");
+    }
+  }
+}
@@ -0,0 +1,71 @@
+package com.jp.test;
+
+import com.jg.poiet.render.ELObjectRenderDataCompute;
+import com.jg.poiet.render.RenderDataCompute;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * null和无法计算的结果的缓存：一次渲染（一个ELObjectRenderDataCompute）中，值为null的属性、
+ * 不存在的key、以null为前缀的表达式多次引用时只读取一次数据模型，下一次渲染重新读取
+ */
+public class TestNullCache {
+
+  private static final Map<String, AtomicInteger> READS = new ConcurrentHashMap<>();
+
+  private static final String[] TAGS = {"remark", "missing", "profile.nickname", "remark.text", "profile.remark"};
+
+  public static void main(String[] args) {
+    CountingMap model = new CountingMap();
+    model.put("remark", null);
+    model.put("profile", new Profile());
+    for (int render = 1; render <= 2; render++) {
+      RenderDataCompute compute = new ELObjectRenderDataCompute(model, false);
+      for (int i = 0; i < 3; i++) {
+        for (String tag : TAGS) {
+          if (null != compute.compute(tag)) throw new IllegalStateException(tag + ": expected null");
+        }
+      }
+      //第二次渲染重新读取，计数随之加一
+      check("remark", render);
+      check("missing", render);
+      check("profile", render);
+      check("nickname", render);
+    }
+    System.out.println("OK");
+  }
+
+  private static void check(String key, int expected) {
+    int reads = READS.containsKey(key) ? READS.get(key).get() : 0;
+    if (reads != expected) {
+      throw new IllegalStateException(key + ": expected " + expected + " reads but was " + reads);
+    }
+  }
+
+  private static void read(Object key) {
+    AtomicInteger reads = READS.get(key);
+    if (null == reads) {
+      READS.putIfAbsent(String.valueOf(key), new AtomicInteger());
+      reads = READS.get(key);
+    }
+    reads.incrementAndGet();
+  }
+
+  public static class CountingMap extends HashMap<String, Object> {
+    @Override
+    public Object get(Object key) {
+      read(key);
+      return super.get(key);
+    }
+  }
+
+  public static class Profile {
+    public String getNickname() {
+      read("nickname");
+      return null;
+    }
+  }
+}
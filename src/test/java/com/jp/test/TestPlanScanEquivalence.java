@@ -0,0 +1,204 @@
+package com.jp.test;
+
+import com.jg.poiet.CompiledTemplate;
+import com.jg.poiet.XSSFTemplate;
+import com.jg.poiet.config.Configure;
+import com.jg.poiet.data.ListRenderData;
+import com.jg.poiet.data.RowRenderData;
+import com.jg.poiet.data.TableRenderData;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.usermodel.XSSFRow;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 标签计划与逐次扫描的一致性测试：同一模板分别经CompiledTemplate（按编译期的标签计划）和XSSFTemplate.compile（每次渲染扫描整个工作簿）渲染，
+ * 模板包含表格、垂直列表（插入行）和水平列表（插入列），以及位于插入点右侧、下方和同一行的其他标签，
+ * 校验两者的单元格内容和合并单元格完全相同；并输出预热后两种方式在静态单元格较多的模板上的耗时
+ */
+public class TestPlanScanEquivalence {
+
+  private static final int ROUNDS = 15;
+
+  public static void main(String[] args) throws Exception {
+    byte[] data = template();
+    Configure config = Configure.createDefault();
+    CompiledTemplate compiled = CompiledTemplate.compile(data, config);
+
+    XSSFTemplate planned = compiled.render(model());
+    XSSFTemplate scanned = XSSFTemplate.compile(new ByteArrayInputStream(data), config).render(model());
+    verify(planned.getXSSFWorkbook());
+    List<String> expected = snapshot(scanned.getXSSFWorkbook());
+    List<String> actual = snapshot(planned.getXSSFWorkbook());
+    if (!expected.equals(actual)) {
+      throw new IllegalStateException("Plan and scan output differ:\n" + expected + "\n" + actual);
+    }
+    planned.close();
+    scanned.close();
+    System.out.println("plan and scan output equal, " + actual.size() + " cells and merged regions");
+
+    for (int cells : new int[]{200, 4000, 40000}) {
+      benchmark(cells);
+    }
+  }
+
+  private static Map<String, Object> model() {
+    Map<String, Object> model = new HashMap<>();
+    model.put("title", "Report");
+    model.put("date", "2018-01-01");
+    model.put("note", "N");
+    model.put("total", "42");
+    model.put("footer", "end");
+    model.put("name", "sheet2");
+    model.put("hlist", ListRenderData.build("h1", "h2", "h3").buildDirection(ListRenderData.DIRECTION.HORIZONTAL));
+    model.put("vlist", ListRenderData.build("v1", "v2", "v3", "v4"));
+    List<RowRenderData> body = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      body.add(RowRenderData.build("row" + i, String.valueOf(i)));
+    }
+    model.put("table", new TableRenderData(RowRenderData.build("name", "value"), body));
+    model.put("table2", new TableRenderData(RowRenderData.build("k", "v"),
+        Arrays.asList(RowRenderData.build("a", "1"), RowRenderData.build("b", "2"))));
+    return model;
+  }
+
+  /**
+   * 第一个sheet：第0行标题、水平列表及其右侧的日期；第1行表格、右侧同一行的标签和合并单元格；
+   * 第2行垂直列表；其下的合计行和跨两行的合并单元格。第二个sheet：表格及其下方的标签
+   */
+  private static byte[] template() throws IOException {
+    XSSFWorkbook workbook = new XSSFWorkbook();
+    XSSFSheet sheet = workbook.createSheet("main");
+    XSSFRow row0 = sheet.createRow(0);
+    row0.createCell(0).setCellValue("{{title}}");
+    row0.createCell(2).setCellValue("{{*hlist}}");
+    row0.createCell(5).setCellValue("date: {{date}}");
+    XSSFRow row1 = sheet.createRow(1);
+    row1.createCell(0).setCellValue("{{#table}}");
+    row1.createCell(3).setCellValue("merged");
+    row1.createCell(6).setCellValue("{{note}}");
+    sheet.addMergedRegion(new CellRangeAddress(1, 1, 3, 4));
+    sheet.createRow(2).createCell(0).setCellValue("{{*vlist}}");
+    sheet.createRow(3).createCell(0).setCellValue("sum {{total}}");
+    sheet.createRow(5).createCell(0).setCellValue("{{footer}}");
+    sheet.addMergedRegion(new CellRangeAddress(5, 6, 0, 1));
+
+    XSSFSheet second = workbook.createSheet("second");
+    second.createRow(0).createCell(0).setCellValue("{{#table2}}");
+    second.createRow(2).createCell(1).setCellValue("{{name}}");
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    workbook.write(out);
+    return out.toByteArray();
+  }
+
+  private static void verify(XSSFWorkbook workbook) {
+    Sheet sheet = workbook.getSheetAt(0);
+    check(value(sheet, 0, 0), "Report");
+    check(value(sheet, 0, 2), "h1");
+    check(value(sheet, 0, 4), "h3");
+    check(value(sheet, 0, 7), "date: 2018-01-01");
+    check(value(sheet, 1, 0), "name");
+    check(value(sheet, 6, 0), "row4");
+    check(value(sheet, 1, 8), "N");
+    check(value(sheet, 7, 0), "v1");
+    check(value(sheet, 10, 0), "v4");
+    check(value(sheet, 11, 0), "sum 42");
+    check(value(sheet, 13, 0), "end");
+    Sheet second = workbook.getSheetAt(1);
+    check(value(second, 2, 0), "b");
+    check(value(second, 4, 1), "sheet2");
+    for (String line : snapshot(workbook)) {
+      if (line.contains("{{")) throw new IllegalStateException("Tag left in the output: " + line);
+    }
+  }
+
+  /**
+   * 所有sheet的单元格内容及合并单元格
+   */
+  private static List<String> snapshot(XSSFWorkbook workbook) {
+    List<String> lines = new ArrayList<>();
+    for (Sheet sheet : workbook) {
+      for (Row row : sheet) {
+        for (Cell cell : row) {
+          if (cell.getCellTypeEnum() == CellType.BLANK) continue;
+          lines.add(sheet.getSheetName() + "!" + cell.getAddress() + "=" + cell);
+        }
+      }
+      List<String> regions = new ArrayList<>();
+      for (CellRangeAddress region : sheet.getMergedRegions()) {
+        regions.add(sheet.getSheetName() + "!" + region.formatAsString());
+      }
+      Collections.sort(regions);
+      lines.addAll(regions);
+    }
+    return lines;
+  }
+
+  /**
+   * 静态单元格较多、只有一个标签的模板，两种方式交替渲染，预热后取中位数
+   */
+  private static void benchmark(int cells) throws IOException {
+    XSSFWorkbook workbook = new XSSFWorkbook();
+    XSSFSheet sheet = workbook.createSheet();
+    int columns = 20;
+    for (int i = 0; i < Math.max(cells / columns, 1); i++) {
+      XSSFRow row = sheet.createRow(i);
+      for (int j = 0; j < Math.min(cells, columns); j++) {
+        row.createCell(j).setCellValue("static text " + i + "," + j);
+      }
+    }
+    sheet.getRow(0).getCell(0).setCellValue("{{title}}");
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    workbook.write(out);
+    byte[] data = out.toByteArray();
+    Configure config = Configure.createDefault();
+    CompiledTemplate compiled = CompiledTemplate.compile(data, config);
+    Map<String, Object> model = new HashMap<>();
+    model.put("title", "T");
+
+    long[] plan = new long[ROUNDS];
+    long[] scan = new long[ROUNDS];
+    for (int round = -5; round < ROUNDS; round++) {   //前5轮预热
+      long start = System.nanoTime();
+      compiled.render(model).close();
+      long planned = System.nanoTime() - start;
+      start = System.nanoTime();
+      XSSFTemplate.compile(new ByteArrayInputStream(data), config).render(model).close();
+      long scanned = System.nanoTime() - start;
+      if (round >= 0) {
+        plan[round] = planned;
+        scan[round] = scanned;
+      }
+    }
+    Arrays.sort(plan);
+    Arrays.sort(scan);
+    System.out.println(cells + " cells: plan " + plan[ROUNDS / 2] / 1000000 + " ms, scan "
+        + scan[ROUNDS / 2] / 1000000 + " ms (median of " + ROUNDS + ")");
+  }
+
+  private static String value(Sheet sheet, int rowIndex, int columnIndex) {
+    Row row = sheet.getRow(rowIndex);
+    Cell cell = null == row ? null : row.getCell(columnIndex);
+    return null == cell ? null : cell.toString();
+  }
+
+  private static void check(String actual, String expected) {
+    if (!expected.equals(actual)) {
+      throw new IllegalStateException("Expected [" + expected + "] but was [" + actual + "]");
+    }
+  }
+}
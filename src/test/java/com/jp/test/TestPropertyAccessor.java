@@ -0,0 +1,221 @@
+package com.jp.test;
+
+import com.jg.poiet.config.Name;
+import com.jg.poiet.el.ELObject;
+
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 属性读取测试：校验查找顺序（getter优先于属性，属性优先于@Name，isXxx只用于boolean/Boolean，忽略getClass），
+ * 并输出每个数据模型读取一个属性的耗时（纳秒），两者都包含每个数据模型创建ELObject的开销：
+ * 反射为原先的求值（按数据模型缓存结果，逐级getDeclaredField查找属性再读取），EL为ELObject.lookup（缓存的PropertyAccessor）。
+ * 每项先交替运行两者预热WARMUP_MILLIS毫秒，再交替测量ROUNDS轮，输出中位数及最小、最大值
+ */
+public class TestPropertyAccessor {
+
+  private static final int READS = 1000000;
+
+  private static final long WARMUP_MILLIS = 2000;
+
+  private static final int ROUNDS = 11;
+
+  private static volatile Object sink;
+
+  public static void main(String[] args) throws Exception {
+    lookupOrder();
+    User user = new User();
+    bench("name (getter)", user, "name");
+    bench("age (field)", user, "age");
+    bench("vip (field)", user, "vip");
+    bench("4 mixed keys", user, "name", "age", "vip", "address");
+    bench("missing key", user, "missing");
+    System.out.println("OK");
+  }
+
+  private static void lookupOrder() {
+    ELObject bean = ELObject.create(new OrderBean());
+    check(bean.eval("name"), "getter");
+    check(bean.eval("title"), "title field");
+    check(bean.eval("alias"), "nick");
+    check(bean.eval("display"), "display getter");
+    check(bean.eval("label"), "label field");
+    check(bean.lookup("code"), ELObject.ABSENT);
+    check(bean.eval("vip"), Boolean.TRUE);
+    check(bean.eval("active"), Boolean.TRUE);
+    check(bean.lookup("class"), ELObject.ABSENT);
+    //非公开的类使用反射读取，顺序相同
+    ELObject hidden = ELObject.create(new HiddenBean());
+    check(hidden.eval("name"), "getter");
+    check(hidden.eval("label"), "label field");
+  }
+
+  private static void bench(String title, User user, String... keys) throws Exception {
+    long end = System.currentTimeMillis() + WARMUP_MILLIS;
+    while (System.currentTimeMillis() < end) {
+      if (reflect(user, keys, 10000) != el(user, keys, 10000)) throw new IllegalStateException("Different values read");
+    }
+    double[] reflection = new double[ROUNDS];
+    double[] el = new double[ROUNDS];
+    int reads = "missing".equals(keys[0]) ? READS / 10 : READS;
+    for (int round = 0; round < ROUNDS; round++) {
+      long sum = 0;
+      for (int i = 0; i < 2; i++) {   //交替先后顺序
+        long start = System.nanoTime();
+        if ((round + i) % 2 == 0) {
+          sum += reflect(user, keys, reads);
+          reflection[round] = (System.nanoTime() - start) / (1.0 * reads * keys.length);
+        } else {
+          sum -= el(user, keys, reads);
+          el[round] = (System.nanoTime() - start) / (1.0 * reads * keys.length);
+        }
+      }
+      if (sum != 0) throw new IllegalStateException("Different values read");
+    }
+    System.out.println(String.format("%-16s reflection %s  EL %s", title, summary(reflection), summary(el)));
+  }
+
+  private static String summary(double[] times) {
+    Arrays.sort(times);
+    return String.format("%6.1f ns (%.1f-%.1f)", times[times.length / 2], times[0], times[times.length - 1]);
+  }
+
+  private static long reflect(Object bean, String[] keys, int reads) throws Exception {
+    long sum = 0;
+    for (int i = 0; i < reads; i++) {
+      //原先同样每个数据模型新建ELObject，结果缓存在其中的ConcurrentHashMap
+      sink = ELObject.create(bean);
+      Map<String, Object> cache = new ConcurrentHashMap<>(32);
+      for (String key : keys) {
+        Object value = cache.get(key);
+        if (null == value) {
+          Field field = findField(bean.getClass(), key);
+          value = null == field ? ELObject.ABSENT : field.get(bean);
+          cache.put(key, value);
+        }
+        sum += ELObject.ABSENT == value ? 0 : value.hashCode();
+      }
+    }
+    return sum;
+  }
+
+  private static long el(Object bean, String[] keys, int reads) {
+    long sum = 0;
+    for (int i = 0; i < reads; i++) {
+      ELObject elObject = ELObject.create(bean);
+      for (String key : keys) {
+        Object value = elObject.lookup(key);
+        sum += ELObject.ABSENT == value ? 0 : value.hashCode();
+      }
+    }
+    return sum;
+  }
+
+  /**
+   * 原先的属性查找：逐级getDeclaredField，找不到时查找@Name注解
+   */
+  private static Field findField(Class<?> objClass, String key) {
+    for (Class<?> clazz = objClass; clazz != Object.class; clazz = clazz.getSuperclass()) {
+      try {
+        Field field = clazz.getDeclaredField(key);
+        field.setAccessible(true);
+        return field;
+      } catch (NoSuchFieldException e) {
+        for (Field field : clazz.getDeclaredFields()) {
+          Name annotation = field.getAnnotation(Name.class);
+          if (null != annotation && key.equals(annotation.value())) {
+            field.setAccessible(true);
+            return field;
+          }
+        }
+      }
+    }
+    return null;
+  }
+
+  private static void check(Object actual, Object expected) {
+    if (!expected.equals(actual)) {
+      throw new IllegalStateException("Expected [" + expected + "] but was [" + actual + "]");
+    }
+  }
+
+  public static class Address {
+    private String city = "city";
+
+    public String getCity() {
+      return city;
+    }
+
+    @Override
+    public int hashCode() {
+      return city.hashCode();
+    }
+  }
+
+  public static class User {
+    private String name = "name";
+    private Integer age = 30;
+    private Boolean vip = true;
+    private Address address = new Address();
+
+    public String getName() {
+      return name;
+    }
+
+    public Address getAddress() {
+      return address;
+    }
+  }
+
+  public static class OrderBean {
+    private String name = "name field";
+    @Name("title")
+    private String caption = "caption";
+    private String title = "title field";
+    @Name("alias")
+    private String nick = "nick";
+    @Name("display")
+    private String shown = "shown";
+    private String label = "label field";
+    private boolean active = false;
+
+    public String getName() {
+      return "getter";
+    }
+
+    public String getDisplay() {
+      return "display getter";
+    }
+
+    public String isLabel() {
+      return "label method";
+    }
+
+    public String isCode() {
+      return "code method";
+    }
+
+    public Boolean isVip() {
+      return Boolean.TRUE;
+    }
+
+    public boolean isActive() {
+      return true;
+    }
+  }
+
+  private static class HiddenBean {
+    private String name = "name field";
+    private String label = "label field";
+
+    public String getName() {
+      return "getter";
+    }
+
+    public String isLabel() {
+      return "label method";
+    }
+  }
+}
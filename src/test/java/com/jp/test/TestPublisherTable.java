@@ -0,0 +1,180 @@
+package com.jp.test;
+
+import com.jg.poiet.XSSFTemplate;
+import com.jg.poiet.data.CellRenderData;
+import com.jg.poiet.data.ListRenderData;
+import com.jg.poiet.data.RowRenderData;
+import com.jg.poiet.data.TableRenderData;
+import com.jg.poiet.data.TextRenderData;
+import com.jg.poiet.data.flow.Flow;
+import org.apache.poi.xssf.usermodel.XSSFRow;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publisher数据源测试：生产者在独立线程中按请求数量发布行，校验渲染结果（复制出的行中不保留表格所在行的其他标签），
+ * 以及任意时刻已发布未写入的行数不超过两批（已到达未读取的一批和正在写入的一批）
+ */
+public class TestPublisherTable {
+
+  public static void main(String[] args) throws Exception {
+    int rows = 3000;
+    int batchSize = 64;
+    ExecutorService producer = Executors.newSingleThreadExecutor();
+    try {
+      final CountingPublisher<RowRenderData> tablePublisher = new CountingPublisher<RowRenderData>(producer, rows) {
+        @Override
+        RowRenderData create(int index) {
+          return new CountedRow(this, RowRenderData.build("row" + index, String.valueOf(index)));
+        }
+      };
+      CountingPublisher<CellRenderData> listPublisher = new CountingPublisher<CellRenderData>(producer, 10) {
+        @Override
+        CellRenderData create(int index) {
+          return new CellRenderData(new TextRenderData("item" + index));
+        }
+      };
+      Map<String, Object> model = new HashMap<>();
+      model.put("table", new TableRenderData(RowRenderData.build("name", "value"), tablePublisher, batchSize));
+      model.put("list", new ListRenderData(listPublisher, 4));
+      model.put("title", "T");
+      long start = System.nanoTime();
+      XSSFTemplate template = XSSFTemplate.compile(new ByteArrayInputStream(template())).render(model);
+      verify(template.getXSSFWorkbook(), rows);
+      System.out.println(rows + " rows in batches of " + batchSize + ": " + (System.nanoTime() - start) / 1000000
+          + " ms, max outstanding " + tablePublisher.maxOutstanding.get());
+      if (tablePublisher.maxOutstanding.get() > 2 * batchSize) {
+        throw new IllegalStateException("Backpressure violated: " + tablePublisher.maxOutstanding.get());
+      }
+      template.close();
+    } finally {
+      producer.shutdown();
+    }
+  }
+
+  private static void verify(XSSFWorkbook workbook, int rows) {
+    XSSFSheet sheet = workbook.getSheetAt(0);
+    check(sheet.getRow(0).getCell(0).getStringCellValue(), "name");
+    check(sheet.getRow(0).getCell(2).getStringCellValue(), "T total");
+    for (int i = 0; i < rows; i++) {
+      check(sheet.getRow(1 + i).getCell(0).getStringCellValue(), "row" + i);
+      check(sheet.getRow(1 + i).getCell(1).getStringCellValue(), String.valueOf(i));
+      check(sheet.getRow(1 + i).getCell(2).getStringCellValue(), " total");
+    }
+    for (int i = 0; i < 10; i++) {
+      check(sheet.getRow(1 + rows + i).getCell(0).getStringCellValue(), "item" + i);
+    }
+    check(sheet.getRow(11 + rows).getCell(0).getStringCellValue(), "end");
+  }
+
+  private static void check(String actual, String expected) {
+    if (!expected.equals(actual)) {
+      throw new IllegalStateException("Expected [" + expected + "] but was [" + actual + "]");
+    }
+  }
+
+  private static byte[] template() throws IOException {
+    XSSFWorkbook workbook = new XSSFWorkbook();
+    XSSFSheet sheet = workbook.createSheet();
+    XSSFRow tableRow = sheet.createRow(0);
+    tableRow.createCell(0).setCellValue("{{#table}}");
+    tableRow.createCell(2).setCellValue("{{title}} total");
+    sheet.createRow(1).createCell(0).setCellValue("{{*list}}");
+    sheet.createRow(2).createCell(0).setCellValue("end");
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    workbook.write(out);
+    return out.toByteArray();
+  }
+
+  /**
+   * 首次读取单元格时视为已写入
+   */
+  static class CountedRow extends RowRenderData {
+
+    private final CountingPublisher<?> publisher;
+    private boolean written;
+
+    CountedRow(CountingPublisher<?> publisher, RowRenderData row) {
+      super(row.getCellDatas());
+      this.publisher = publisher;
+    }
+
+    @Override
+    public List<CellRenderData> getCellDatas() {
+      if (!written) {
+        written = true;
+        publisher.outstanding.decrementAndGet();
+      }
+      return super.getCellDatas();
+    }
+  }
+
+  /**
+   * 在生产者线程中按请求数量发布元素，记录已发布未写入的最大元素数
+   */
+  abstract static class CountingPublisher<T> implements Flow.Publisher<T> {
+
+    private final ExecutorService producer;
+    private final int total;
+    final AtomicLong outstanding = new AtomicLong();
+    final AtomicLong maxOutstanding = new AtomicLong();
+
+    CountingPublisher(ExecutorService producer, int total) {
+      this.producer = producer;
+      this.total = total;
+    }
+
+    abstract T create(int index);
+
+    @Override
+    public void subscribe(final Flow.Subscriber<? super T> subscriber) {
+      final AtomicLong demand = new AtomicLong();
+      final AtomicLong emitted = new AtomicLong();
+      final AtomicBoolean cancelled = new AtomicBoolean();
+      subscriber.onSubscribe(new Flow.Subscription() {
+        @Override
+        public void request(long n) {
+          if (demand.getAndAdd(n) == 0) drain();
+        }
+
+        @Override
+        public void cancel() {
+          cancelled.set(true);
+        }
+
+        private void drain() {
+          producer.execute(new Runnable() {
+            @Override
+            public void run() {
+              long n = demand.get();
+              while (n > 0 && !cancelled.get()) {
+                for (long i = 0; i < n && emitted.get() < total; i++) {
+                  long current = outstanding.incrementAndGet();
+                  if (current > maxOutstanding.get()) maxOutstanding.set(current);
+                  subscriber.onNext(create((int) emitted.getAndIncrement()));
+                  demand.decrementAndGet();
+                }
+                if (emitted.get() >= total) {
+                  subscriber.onComplete();
+                  return;
+                }
+                n = demand.get();
+              }
+            }
+          });
+        }
+      });
+    }
+  }
+}
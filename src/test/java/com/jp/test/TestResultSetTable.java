@@ -0,0 +1,226 @@
+package com.jp.test;
+
+import com.jg.poiet.XSSFTemplate;
+import com.jg.poiet.config.Configure;
+import com.jg.poiet.data.ResultSetTableRenderData;
+import com.jg.poiet.data.style.Style;
+import com.jg.poiet.policy.ResultSetTableRenderPolicy;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.usermodel.XSSFRow;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ResultSet表格测试：以动态代理模拟数据库结果集（每次取数按fetchSize模拟一次网络往返），
+ * 分别校验forward-only和可滚动结果集的渲染结果，两者的单元格、公式和合并单元格应完全相同，并输出预热后的耗时
+ */
+public class TestResultSetTable {
+
+  private static final String[] LABELS = {"id", "name", "amount"};
+
+  public static void main(String[] args) throws Exception {
+    int rows = 2000;
+    byte[] data = template();
+    Configure config = Configure.newBuilder().customPolicy("detail", new ResultSetTableRenderPolicy()).build();
+    Style amountStyle = new Style();
+    amountStyle.setBold(true);
+
+    for (int round = 0; round < 2; round++) {   //第一轮预热
+      List<String> expected = null;
+      for (int type : new int[]{ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.TYPE_FORWARD_ONLY}) {
+        long start = System.nanoTime();
+        FakeResultSet fake = new FakeResultSet(rows, type, 2);
+        Map<String, Object> model = new HashMap<>();
+        model.put("detail", new ResultSetTableRenderData(fake.proxy())
+            .addColumn("name", "Name")
+            .addColumn("amount", "Amount", amountStyle)
+            .setFetchSize(500));
+        model.put("note", "N");
+        XSSFTemplate template = XSSFTemplate.compile(new ByteArrayInputStream(data), config).render(model);
+        long elapsed = (System.nanoTime() - start) / 1000000;
+        verify(template.getXSSFWorkbook(), rows);
+        // 分批写入与一次插入的结果应完全相同
+        List<String> actual = snapshot(template.getXSSFWorkbook());
+        if (null == expected) {
+          expected = actual;
+        } else if (!expected.equals(actual)) {
+          throw new IllegalStateException("Forward-only output differs from scrollable output");
+        }
+        if (round > 0) {
+          System.out.println((type == ResultSet.TYPE_FORWARD_ONLY ? "forward-only" : "scrollable") + ", " + rows
+              + " rows, " + fake.fetches + " fetches: " + elapsed + " ms");
+        }
+        template.close();
+      }
+    }
+  }
+
+  private static void verify(XSSFWorkbook workbook, int rows) {
+    XSSFSheet sheet = workbook.getSheetAt(0);
+    check(sheet.getRow(0).getCell(0).getStringCellValue(), "title");
+    check(sheet.getRow(1).getCell(0).getStringCellValue(), "Name");
+    check(sheet.getRow(1).getCell(1).getStringCellValue(), "Amount");
+    check(sheet.getRow(1).getCell(2).getStringCellValue(), "N");
+    for (int i = 0; i < rows; i++) {
+      check(sheet.getRow(2 + i).getCell(0).getStringCellValue(), "name" + i);
+      if (sheet.getRow(2 + i).getCell(1).getCellTypeEnum() != CellType.NUMERIC
+          || sheet.getRow(2 + i).getCell(1).getNumericCellValue() != i * 10) {
+        throw new IllegalStateException("Wrong amount at row " + (2 + i));
+      }
+      check(sheet.getRow(2 + i).getCell(2).getStringCellValue(), "");  //复制出的行不保留标签
+    }
+    check(sheet.getRow(2 + rows).getCell(0).getStringCellValue(), "total");
+    check(sheet.getRow(2 + rows).getCell(1).getCellFormula(), "A" + (3 + rows));
+    check(String.valueOf(sheet.getLastRowNum()), String.valueOf(2 + rows));
+    check(String.valueOf(sheet.getNumMergedRegions()), String.valueOf(rows + 1));
+  }
+
+  /**
+   * 工作表的全部单元格内容及合并单元格
+   */
+  private static List<String> snapshot(XSSFWorkbook workbook) {
+    XSSFSheet sheet = workbook.getSheetAt(0);
+    List<String> lines = new ArrayList<>();
+    for (Row row : sheet) {
+      for (Cell cell : row) {
+        lines.add(cell.getAddress() + "=" + (cell.getCellTypeEnum() == CellType.FORMULA ? cell.getCellFormula()
+            : cell.toString()));
+      }
+    }
+    List<String> regions = new ArrayList<>();
+    for (CellRangeAddress region : sheet.getMergedRegions()) {
+      regions.add(region.formatAsString());
+    }
+    Collections.sort(regions);
+    lines.addAll(regions);
+    return lines;
+  }
+
+  private static void check(String actual, String expected) {
+    if (!expected.equals(actual)) {
+      throw new IllegalStateException("Expected [" + expected + "] but was [" + actual + "]");
+    }
+  }
+
+  private static byte[] template() throws IOException {
+    XSSFWorkbook workbook = new XSSFWorkbook();
+    XSSFSheet sheet = workbook.createSheet();
+    sheet.createRow(0).createCell(0).setCellValue("title");
+    XSSFRow detailRow = sheet.createRow(1);
+    detailRow.createCell(0).setCellValue("{{#detail}}");
+    detailRow.createCell(2).setCellValue("{{note}}");
+    sheet.addMergedRegion(new CellRangeAddress(1, 1, 3, 4));
+    XSSFRow totalRow = sheet.createRow(2);
+    totalRow.createCell(0).setCellValue("total");
+    totalRow.createCell(1).setCellFormula("A3");
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    workbook.write(out);
+    return out.toByteArray();
+  }
+
+  /**
+   * 模拟的结果集：第i行为(i, "name" + i, i * 10)，每读取fetchSize行休眠latency毫秒
+   */
+  static class FakeResultSet implements InvocationHandler {
+
+    private final int rows;
+    private final int type;
+    private final long latency;
+    private int fetchSize = 10;
+    private int current;
+    private int fetches;
+
+    FakeResultSet(int rows, int type, long latency) {
+      this.rows = rows;
+      this.type = type;
+      this.latency = latency;
+    }
+
+    ResultSet proxy() {
+      return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class}, this);
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      switch (method.getName()) {
+        case "next":
+          if (current % fetchSize == 0 && current < rows) {
+            fetches++;
+            Thread.sleep(latency);
+          }
+          return ++current <= rows;
+        case "getType":
+          return type;
+        case "getRow":
+          return current > rows ? 0 : current;
+        case "last":
+          requireScrollable();
+          current = rows;
+          return rows > 0;
+        case "beforeFirst":
+          requireScrollable();
+          current = 0;
+          return null;
+        case "absolute":
+          requireScrollable();
+          current = (Integer) args[0];
+          return current > 0 && current <= rows;
+        case "setFetchSize":
+          fetchSize = (Integer) args[0];
+          return null;
+        case "getFetchSize":
+          return fetchSize;
+        case "findColumn":
+          for (int i = 0; i < LABELS.length; i++) {
+            if (LABELS[i].equalsIgnoreCase((String) args[0])) return i + 1;
+          }
+          throw new java.sql.SQLException("Unknown column " + args[0]);
+        case "getObject":
+          int index = current - 1;
+          switch ((Integer) args[0]) {
+            case 1:
+              return index;
+            case 2:
+              return "name" + index;
+            default:
+              return (long) index * 10;
+          }
+        case "getMetaData":
+          return Proxy.newProxyInstance(ResultSetMetaData.class.getClassLoader(), new Class<?>[]{ResultSetMetaData.class},
+              new InvocationHandler() {
+                @Override
+                public Object invoke(Object proxy, Method method, Object[] args) {
+                  if ("getColumnCount".equals(method.getName())) return LABELS.length;
+                  if ("getColumnLabel".equals(method.getName())) return LABELS[(Integer) args[0] - 1];
+                  throw new UnsupportedOperationException(method.getName());
+                }
+              });
+        case "close":
+          return null;
+        default:
+          throw new UnsupportedOperationException(method.getName());
+      }
+    }
+
+    private void requireScrollable() throws java.sql.SQLException {
+      if (type == ResultSet.TYPE_FORWARD_ONLY) throw new java.sql.SQLException("ResultSet is forward-only");
+    }
+  }
+}
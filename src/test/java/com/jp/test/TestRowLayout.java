@@ -0,0 +1,178 @@
+package com.jp.test;
+
+import com.jg.poiet.XSSFTemplate;
+import com.jg.poiet.config.Configure;
+import com.jg.poiet.data.ListRenderData;
+import com.jg.poiet.data.RowRenderData;
+import com.jg.poiet.data.TableRenderData;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.usermodel.XSSFRow;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 行布局测试：同一sheet中有多个表格和垂直列表时，默认方式与旧方式（supportLegacyLayout）结果相同；
+ * 同一行上有多个表格、垂直列表及其他标签时，默认方式共用按最大行数插入的行、复制出的行不保留标签，
+ * 旧方式各自插入行、复制出的标签也被渲染
+ */
+public class TestRowLayout {
+
+  public static void main(String[] args) throws Exception {
+    multiTable();
+    sameRow();
+    System.out.println("OK");
+  }
+
+  private static void multiTable() throws IOException {
+    XSSFWorkbook workbook = new XSSFWorkbook();
+    XSSFSheet sheet = workbook.createSheet("main");
+    sheet.createRow(0).createCell(0).setCellValue("{{title}}");
+    sheet.createRow(1).createCell(0).setCellValue("{{#t1}}");
+    sheet.createRow(2).createCell(0).setCellValue("between {{x}}");
+    sheet.createRow(3).createCell(0).setCellValue("{{*v}}");
+    XSSFRow row4 = sheet.createRow(4);
+    row4.createCell(0).setCellValue("{{#t2}}");
+    row4.createCell(3).setCellValue("merged");
+    sheet.addMergedRegion(new CellRangeAddress(4, 4, 3, 4));
+    sheet.createRow(5).createCell(0).setCellValue("end {{x}}");
+    XSSFSheet second = workbook.createSheet("second");
+    second.createRow(0).createCell(0).setCellValue("{{#t1}}");
+    second.createRow(1).createCell(0).setCellValue("{{#t2}}");
+    byte[] data = write(workbook);
+
+    Map<String, Object> model = new HashMap<>();
+    model.put("title", "Report");
+    model.put("x", "X");
+    model.put("t1", table("a", 3));
+    model.put("t2", table("b", 4));
+    model.put("v", ListRenderData.build("v1", "v2"));
+
+    XSSFTemplate planned = XSSFTemplate.compile(new ByteArrayInputStream(data)).render(model);
+    XSSFTemplate legacy = XSSFTemplate.compile(new ByteArrayInputStream(data),
+        Configure.newBuilder().supportLegacyLayout(true).build()).render(model);
+    Sheet result = planned.getXSSFWorkbook().getSheetAt(0);
+    check(value(result, 0, 0), "Report");
+    check(value(result, 1, 0), "name");
+    check(value(result, 4, 0), "a2");
+    check(value(result, 5, 0), "between X");
+    check(value(result, 6, 0), "v1");
+    check(value(result, 7, 0), "v2");
+    check(value(result, 8, 0), "name");
+    check(value(result, 12, 0), "b3");
+    check(value(result, 12, 3), "merged");
+    check(value(result, 13, 0), "end X");
+    check(String.valueOf(result.getLastRowNum()), "13");
+    Sheet resultSecond = planned.getXSSFWorkbook().getSheetAt(1);
+    check(value(resultSecond, 3, 0), "a2");
+    check(value(resultSecond, 4, 0), "name");
+    check(value(resultSecond, 8, 0), "b3");
+    // 各表格、列表位于不同行时，新旧方式结果相同
+    List<String> expected = snapshot(legacy.getXSSFWorkbook());
+    List<String> actual = snapshot(planned.getXSSFWorkbook());
+    if (!expected.equals(actual)) {
+      throw new IllegalStateException("Multi-table output differs from the legacy layout:\n" + expected + "\n" + actual);
+    }
+  }
+
+  private static void sameRow() throws IOException {
+    XSSFWorkbook workbook = new XSSFWorkbook();
+    XSSFSheet sheet = workbook.createSheet();
+    XSSFRow row0 = sheet.createRow(0);
+    row0.createCell(0).setCellValue("{{#table}}");
+    row0.createCell(3).setCellValue("{{*list}}");
+    row0.createCell(5).setCellValue("{{note}}");
+    sheet.createRow(1).createCell(0).setCellValue("end");
+    byte[] data = write(workbook);
+
+    Map<String, Object> model = new HashMap<>();
+    model.put("table", table("a", 2));
+    model.put("list", ListRenderData.build("l1", "l2", "l3", "l4"));
+    model.put("note", "N");
+
+    // 默认方式：按最大行数（列表的4行）插入，表格和列表共用；复制出的行去掉标签
+    Sheet result = XSSFTemplate.compile(new ByteArrayInputStream(data)).render(model).getXSSFWorkbook().getSheetAt(0);
+    check(value(result, 0, 0), "name");
+    check(value(result, 2, 0), "a1");
+    check(value(result, 3, 0), "");
+    for (int i = 0; i < 4; i++) {
+      check(value(result, i, 3), "l" + (i + 1));
+      check(value(result, i, 5), i == 0 ? "N" : "");
+    }
+    check(value(result, 4, 0), "end");
+    check(String.valueOf(result.getLastRowNum()), "4");
+
+    // 旧方式：表格先插入行，复制出的行中的列表和文本标签随后被扫描到并各自渲染，列表在每一行再插入行
+    Sheet legacy = XSSFTemplate.compile(new ByteArrayInputStream(data),
+        Configure.newBuilder().supportLegacyLayout(true).build()).render(model).getXSSFWorkbook().getSheetAt(0);
+    String[] tableRows = {"name", "a0", "a1"};
+    for (int i = 0; i < 12; i++) {
+      check(value(legacy, i, 0), tableRows[i / 4]);
+      check(value(legacy, i, 3), "l" + (i % 4 + 1));
+      check(value(legacy, i, 5), "N");
+    }
+    check(value(legacy, 12, 0), "end");
+    check(String.valueOf(legacy.getLastRowNum()), "12");
+  }
+
+  private static TableRenderData table(String prefix, int rows) {
+    List<RowRenderData> body = new ArrayList<>();
+    for (int i = 0; i < rows; i++) {
+      body.add(RowRenderData.build(prefix + i, String.valueOf(i)));
+    }
+    return new TableRenderData(RowRenderData.build("name", "value"), body);
+  }
+
+  private static byte[] write(XSSFWorkbook workbook) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    workbook.write(out);
+    workbook.close();
+    return out.toByteArray();
+  }
+
+  /**
+   * 所有sheet的单元格内容及合并单元格
+   */
+  private static List<String> snapshot(XSSFWorkbook workbook) {
+    List<String> lines = new ArrayList<>();
+    for (Sheet sheet : workbook) {
+      for (Row row : sheet) {
+        for (Cell cell : row) {
+          if (cell.getCellTypeEnum() == CellType.BLANK) continue;
+          lines.add(sheet.getSheetName() + "!" + cell.getAddress() + "=" + cell);
+        }
+      }
+      List<String> regions = new ArrayList<>();
+      for (CellRangeAddress region : sheet.getMergedRegions()) {
+        regions.add(sheet.getSheetName() + "!" + region.formatAsString());
+      }
+      Collections.sort(regions);
+      lines.addAll(regions);
+    }
+    return lines;
+  }
+
+  private static String value(Sheet sheet, int rowIndex, int columnIndex) {
+    Row row = sheet.getRow(rowIndex);
+    Cell cell = null == row ? null : row.getCell(columnIndex);
+    return null == cell ? null : cell.toString();
+  }
+
+  private static void check(String actual, String expected) {
+    if (!expected.equals(actual)) {
+      throw new IllegalStateException("Expected [" + expected + "] but was [" + actual + "]");
+    }
+  }
+}
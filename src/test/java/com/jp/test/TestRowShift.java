@@ -0,0 +1,76 @@
+package com.jp.test;
+
+import com.jg.poiet.NiceXSSFWorkbook;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.usermodel.XSSFRow;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+
+/**
+ * 在大量行之上插入行：插入点之下分别有1万、10万、50万行，输出整体移动行的耗时，
+ * 1万、10万行时与逐行copyRow下移的耗时对比，并校验移动后的值、公式与合并单元格
+ */
+public class TestRowShift {
+
+  private static final int INSERT = 100;
+
+  public static void main(String[] args) {
+    for (int rows : new int[]{10000, 100000, 500000}) {
+      NiceXSSFWorkbook shifted = workbook(rows);
+      long t0 = System.nanoTime();
+      shifted.insertRowsAfter(0, 0, INSERT);
+      long t1 = System.nanoTime();
+      verify(shifted, rows);
+      String line = rows + " rows below: shift " + (t1 - t0) / 1000000 + " ms";
+      shifted = null;
+      if (rows <= 100000) {
+        NiceXSSFWorkbook copied = workbook(rows);
+        long t2 = System.nanoTime();
+        XSSFSheet sheet = copied.getSheetAt(0);
+        for (int i = sheet.getLastRowNum(); i > 0; i--) {   //逐行下移，与原insertRowsAfter相同
+          copied.copyRow(0, i + INSERT, i);
+        }
+        for (int i = 1; i <= INSERT; i++) sheet.createRow(i);
+        long t3 = System.nanoTime();
+        verify(copied, rows);
+        line += ", copyRow " + (t3 - t2) / 1000000 + " ms";
+      }
+      System.out.println(line);
+    }
+  }
+
+  /**
+   * 第0行之下rows行，每行一个数值和引用该数值的公式，每100行一个跨两行的合并单元格
+   */
+  private static NiceXSSFWorkbook workbook(int rows) {
+    NiceXSSFWorkbook workbook = new NiceXSSFWorkbook();
+    XSSFSheet sheet = workbook.getSheetAt(0);
+    for (int i = 0; i <= rows; i++) {
+      XSSFRow row = sheet.createRow(i);
+      row.createCell(0).setCellValue(i);
+      row.createCell(1).setCellFormula("A" + (i + 1) + "*2");
+    }
+    for (int i = 1; i + 1 <= rows; i += 100) {
+      sheet.addMergedRegionUnsafe(new CellRangeAddress(i, i + 1, 2, 3));
+    }
+    workbook.updateCellRangeAddress();
+    return workbook;
+  }
+
+  private static void verify(NiceXSSFWorkbook workbook, int rows) {
+    XSSFSheet sheet = workbook.getSheetAt(0);
+    for (int i = 1; i <= rows; i += 997) {
+      XSSFRow row = sheet.getRow(i + INSERT);
+      if (row.getCell(0).getNumericCellValue() != i
+          || !("A" + (i + INSERT + 1) + "*2").equals(row.getCell(1).getCellFormula())) {
+        throw new IllegalStateException("Unexpected row " + (i + INSERT));
+      }
+    }
+    for (int i = 1; i <= INSERT; i++) {
+      if (sheet.getRow(i).getPhysicalNumberOfCells() != 0) throw new IllegalStateException("Row " + i + " not empty");
+    }
+    CellRangeAddress region = workbook.getCellRangeAddress(0, 1 + INSERT, 2);
+    if (null == region || region.getLastRow() != 2 + INSERT || sheet.getNumMergedRegions() != rows / 100) {
+      throw new IllegalStateException("Unexpected merged regions");
+    }
+  }
+}
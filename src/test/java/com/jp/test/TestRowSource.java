@@ -0,0 +1,86 @@
+package com.jp.test;
+
+import com.jg.poiet.XSSFTemplate;
+import com.jg.poiet.data.RowRenderData;
+import com.jg.poiet.data.RowSource;
+import com.jg.poiet.data.TableRenderData;
+import com.jg.poiet.exception.RenderException;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * RowSource测试：行数未知的数据源按实际读到的行数插入行且不修改调用方的数据，
+ * 行数未知的空数据源不视为有数据行，行数与实际不一致时渲染失败而不是覆盖表格下方的内容
+ */
+public class TestRowSource {
+
+  public static void main(String[] args) throws Exception {
+    byte[] template = template();
+
+    TableRenderData unknown = new TableRenderData(RowRenderData.build("name"), RowSource.of(rows(5).iterator()));
+    XSSFSheet sheet = render(template, unknown).getSheetAt(0);
+    for (int i = 0; i < 5; i++) check(sheet.getRow(1 + i).getCell(0).getStringCellValue(), "row" + i);
+    check(sheet.getRow(6).getCell(0).getStringCellValue(), "end");
+    if (null == unknown.getRowSource() || null != unknown.getRowDatas()) {
+      throw new IllegalStateException("The render data was modified");
+    }
+
+    RowSource empty = RowSource.of(Collections.<RowRenderData>emptyList().iterator());
+    if (new TableRenderData(null, empty).isSetBody()) throw new IllegalStateException("Empty source has a body");
+    RowSource peeked = RowSource.of(rows(3).iterator());
+    if (peeked.isEmpty()) throw new IllegalStateException("Non-empty source is empty");
+    int count = 0;
+    for (RowRenderData ignored : peeked) count++;
+    if (count != 3) throw new IllegalStateException("isEmpty consumed a row: " + count);
+
+    expectFailure(template, RowSource.of(rows(5).iterator(), 3));
+    expectFailure(template, RowSource.of(rows(3).iterator(), 5));
+    System.out.println("OK");
+  }
+
+  private static XSSFWorkbook render(byte[] template, TableRenderData table) {
+    Map<String, Object> model = new HashMap<>();
+    model.put("table", table);
+    return XSSFTemplate.compile(new ByteArrayInputStream(template)).render(model).getXSSFWorkbook();
+  }
+
+  private static void expectFailure(byte[] template, RowSource source) {
+    try {
+      render(template, new TableRenderData(RowRenderData.build("name"), source));
+    } catch (RenderException e) {
+      return;
+    }
+    throw new IllegalStateException("Size mismatch not detected: " + source.size());
+  }
+
+  private static List<RowRenderData> rows(int count) {
+    List<RowRenderData> rows = new ArrayList<>();
+    for (int i = 0; i < count; i++) rows.add(RowRenderData.build("row" + i));
+    return rows;
+  }
+
+  private static byte[] template() throws IOException {
+    XSSFWorkbook workbook = new XSSFWorkbook();
+    XSSFSheet sheet = workbook.createSheet();
+    sheet.createRow(0).createCell(0).setCellValue("{{#table}}");
+    sheet.createRow(1).createCell(0).setCellValue("end");
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    workbook.write(out);
+    return out.toByteArray();
+  }
+
+  private static void check(String actual, String expected) {
+    if (!expected.equals(actual)) {
+      throw new IllegalStateException("Expected [" + expected + "] but was [" + actual + "]");
+    }
+  }
+}
@@ -0,0 +1,84 @@
+package com.jp.test;
+
+import com.jg.poiet.XSSFTemplate;
+import com.jg.poiet.config.Configure;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * 每次渲染新建Configure时线程数不随渲染次数增长：流水线渲染的标签数据计算线程池由线程数相同的配置共用，
+ * 延迟数据（Callable）的线程池由所有配置共用
+ */
+public class TestSharedExecutors {
+
+  private static final int RENDERS = 50;
+
+  private static final int THREADS = 2;
+
+  public static void main(String[] args) throws Exception {
+    byte[] template = template(10);
+    for (int i = 0; i < RENDERS; i++) {
+      Configure config = Configure.newBuilder().supportPipelinedRender(THREADS).build();
+      Map<String, Object> model = new HashMap<>();
+      for (int j = 0; j < 10; j++) model.put("a" + j, "v" + i + "-" + j);
+      XSSFSheet sheet = XSSFTemplate.compile(new ByteArrayInputStream(template), config).render(model)
+          .getXSSFWorkbook().getSheetAt(0);
+      for (int j = 0; j < 10; j++) check(sheet.getRow(j).getCell(0).getStringCellValue(), "v" + i + "-" + j);
+    }
+    int evaluators = threads("poi-et-evaluator-");
+    System.out.println(RENDERS + " renders with a new Configure each: " + evaluators + " evaluator threads");
+    if (evaluators > THREADS) throw new IllegalStateException("Evaluator threads leaked: " + evaluators);
+
+    for (int i = 0; i < RENDERS; i++) {
+      Map<String, Object> model = new HashMap<>();
+      for (int j = 0; j < 10; j++) model.put("a" + j, value("d" + i + "-" + j));
+      XSSFSheet sheet = XSSFTemplate.compile(new ByteArrayInputStream(template), Configure.createDefault())
+          .render(model).getXSSFWorkbook().getSheetAt(0);
+      for (int j = 0; j < 10; j++) check(sheet.getRow(j).getCell(0).getStringCellValue(), "d" + i + "-" + j);
+    }
+    //未使用虚拟线程时为按需创建的守护线程，约为一次渲染中同时计算的延迟数据数量（刚完成的线程尚未取任务时会另建线程）
+    int deferred = threads("poi-et-deferred-");
+    System.out.println(RENDERS + " renders with deferred values: " + deferred + " deferred threads");
+    if (deferred > 20) throw new IllegalStateException("Deferred threads leaked: " + deferred);
+    System.out.println("OK");
+  }
+
+  private static Callable<Object> value(final String value) {
+    return new Callable<Object>() {
+      @Override
+      public Object call() {
+        return value;
+      }
+    };
+  }
+
+  private static int threads(String prefix) {
+    int count = 0;
+    for (Thread thread : Thread.getAllStackTraces().keySet()) {
+      if (thread.getName().startsWith(prefix)) count++;
+    }
+    return count;
+  }
+
+  private static byte[] template(int tags) throws IOException {
+    XSSFWorkbook workbook = new XSSFWorkbook();
+    XSSFSheet sheet = workbook.createSheet();
+    for (int i = 0; i < tags; i++) sheet.createRow(i).createCell(0).setCellValue("{{a" + i + "}}");
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    workbook.write(out);
+    return out.toByteArray();
+  }
+
+  private static void check(String actual, String expected) {
+    if (!expected.equals(actual)) {
+      throw new IllegalStateException("Expected [" + expected + "] but was [" + actual + "]");
+    }
+  }
+}
@@ -0,0 +1,89 @@
+package com.jp.test;
+
+import com.jg.poiet.CompiledTemplate;
+import com.jg.poiet.XSSFTemplate;
+import com.jg.poiet.config.Configure;
+import org.apache.poi.util.IOUtils;
+import org.apache.poi.xssf.usermodel.XSSFRow;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * 共享字符串表(sharedStrings.xml)没有count、uniqueCount属性的模板（属性是可选的，部分工具生成的文件不写出），
+ * 校验逐单元格扫描（XSSFTemplate）与流式扫描（CompiledTemplate）都能找到全部标签
+ */
+public class TestSharedStringsCount {
+
+  public static void main(String[] args) throws Exception {
+    byte[] template = withoutUniqueCount(template());
+    Map<String, Object> model = new HashMap<>();
+    model.put("name", "Ann");
+    model.put("title", "report");
+
+    XSSFTemplate visited = XSSFTemplate.compile(new ByteArrayInputStream(template)).render(model);
+    verify(visited.getXSSFWorkbook().getSheetAt(0));
+    visited.close();
+
+    CompiledTemplate compiled = CompiledTemplate.compile(template, Configure.createDefault());
+    if (compiled.getTagPlan().size() != 2) {
+      throw new IllegalStateException("Expected 2 tags but was " + compiled.getTagPlan());
+    }
+    XSSFTemplate scanned = compiled.render(model);
+    verify(scanned.getXSSFWorkbook().getSheetAt(0));
+    scanned.close();
+    System.out.println("OK");
+  }
+
+  private static byte[] template() throws IOException {
+    XSSFWorkbook workbook = new XSSFWorkbook();
+    XSSFRow row = workbook.createSheet().createRow(0);
+    row.createCell(0).setCellValue("text");
+    row.createCell(1).setCellValue("{{name}}");
+    row.createCell(2).setCellValue("{{title}}");
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    workbook.write(out);
+    return out.toByteArray();
+  }
+
+  /**
+   * 去掉sst元素的count、uniqueCount属性
+   */
+  private static byte[] withoutUniqueCount(byte[] data) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(data));
+         ZipOutputStream zip = new ZipOutputStream(out)) {
+      for (ZipEntry entry = in.getNextEntry(); null != entry; entry = in.getNextEntry()) {
+        byte[] bytes = IOUtils.toByteArray(in);
+        if ("xl/sharedStrings.xml".equals(entry.getName())) {
+          String xml = new String(bytes, StandardCharsets.UTF_8);
+          String stripped = xml.replaceAll(" (count|uniqueCount)=\"\\d+\"", "");
+          if (stripped.equals(xml)) throw new IllegalStateException("No count attributes in " + xml);
+          bytes = stripped.getBytes(StandardCharsets.UTF_8);
+        }
+        zip.putNextEntry(new ZipEntry(entry.getName()));
+        zip.write(bytes);
+        zip.closeEntry();
+      }
+    }
+    return out.toByteArray();
+  }
+
+  private static void verify(XSSFSheet sheet) {
+    XSSFRow row = sheet.getRow(0);
+    if (!"text".equals(row.getCell(0).getStringCellValue())
+        || !"Ann".equals(row.getCell(1).getStringCellValue())
+        || !"report".equals(row.getCell(2).getStringCellValue())) {
+      throw new IllegalStateException("Tags not rendered: " + row.getCell(1) + ", " + row.getCell(2));
+    }
+  }
+}
@@ -0,0 +1,130 @@
+package com.jp.test;
+
+import com.jg.poiet.NiceXSSFWorkbook;
+import com.jg.poiet.SheetBatch;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.usermodel.XSSFCell;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.apache.poi.xssf.usermodel.XSSFRow;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 批量结构修改：多处删除行、插入行、合并单元格，与依次调用对应方法的结果对比，并输出两者的耗时；
+ * 之后对比多处插入、删除列以及在行前插入行（样式取自下一行）
+ */
+public class TestSheetBatch {
+
+  private static final int ROWS = 1000;
+
+  public static void main(String[] args) {
+    for (int warm = 0; warm < 3; warm++) {
+      NiceXSSFWorkbook sequential = workbook();
+      long t0 = System.nanoTime();
+      for (int i = (ROWS - 1) / 30 * 30; i >= 0; i -= 30) {    // 自下而上，行号不受之前操作的影响
+        sequential.removeRow(0, i);
+      }
+      for (int i = (ROWS - 1) / 25 * 25; i >= 0; i -= 25) {
+        int removed = i / 30 + 1;                     // 行号不大于i的删除行数
+        sequential.insertRowsAfter(0, i - removed, 2);
+      }
+      sequential.addMergedRegion(0, ROWS + 500, ROWS + 501, 0, 1);
+      long t1 = System.nanoTime();
+
+      NiceXSSFWorkbook batched = workbook();
+      batched.batch(0, new NiceXSSFWorkbook.BatchOperation() {
+        @Override
+        public void apply(SheetBatch batch) {
+          for (int i = 0; i < ROWS; i += 30) batch.removeRow(i);
+          for (int i = 0; i < ROWS; i += 25) batch.insertRowsAfter(i, 2);
+          batch.addMergedRegion(ROWS + 500, ROWS + 501, 0, 1);
+        }
+      });
+      long t2 = System.nanoTime();
+
+      String expected = dump(sequential);
+      if (!expected.equals(dump(batched))) {
+        throw new IllegalStateException("Batch result differs from sequential calls");
+      }
+      System.out.println("sequential: " + (t1 - t0) / 1000000 + " ms, batch: " + (t2 - t1) / 1000000 + " ms");
+    }
+    columnsAndRowsBefore();
+    System.out.println("OK");
+  }
+
+  private static void columnsAndRowsBefore() {
+    NiceXSSFWorkbook sequential = workbook();
+    sequential.insertRowsBefore(0, 53, 2);                  // 自下而上、自右向左依次执行，插入点均在合并单元格中
+    sequential.insertRowsAfter(0, 52, 1);
+    sequential.insertRowsBefore(0, 3, 1);
+    sequential.removeColumn(0, 5);
+    sequential.insertColumnsAfter(0, 3, 2);
+    sequential.removeColumn(0, 0);
+
+    NiceXSSFWorkbook batched = workbook();
+    batched.batch(0, new NiceXSSFWorkbook.BatchOperation() {
+      @Override
+      public void apply(SheetBatch batch) {
+        batch.removeColumn(0).insertColumnsAfter(3, 2).removeColumn(5);
+        batch.insertRowsBefore(3, 1).insertRowsAfter(52, 1).insertRowsBefore(53, 2);
+      }
+    });
+    if (!dump(sequential).equals(dump(batched))) {
+      throw new IllegalStateException("Batch column inserts/removals differ from sequential calls");
+    }
+  }
+
+  private static NiceXSSFWorkbook workbook() {
+    NiceXSSFWorkbook workbook = new NiceXSSFWorkbook();
+    XSSFSheet sheet = workbook.getSheetAt(0);
+    XSSFCellStyle[] styles = new XSSFCellStyle[3];
+    for (int i = 0; i < styles.length; i++) {
+      styles[i] = workbook.createCellStyle();
+      styles[i].setIndention((short) i);
+    }
+    for (int i = 0; i < ROWS; i++) {
+      XSSFRow row = sheet.createRow(i);
+      for (int j = 0; j < 6; j++) {
+        XSSFCell cell = row.createCell(j);
+        cell.setCellValue(i * 10 + j);
+        cell.setCellStyle(styles[i % styles.length]);
+      }
+    }
+    for (int i = 0; i + 3 < ROWS; i += 10) {
+      sheet.addMergedRegion(new CellRangeAddress(i + 1, i + 3, 1, 2));
+    }
+    for (int i = 0; i + 6 < ROWS; i += 10) {
+      sheet.addMergedRegion(new CellRangeAddress(i + 5, i + 6, 3, 4));
+    }
+    return workbook;
+  }
+
+  /**
+   * 合并单元格及单元格的值和样式，合并单元格中除左上角外的单元格只比较样式
+   */
+  private static String dump(NiceXSSFWorkbook workbook) {
+    XSSFSheet sheet = workbook.getSheetAt(0);
+    List<String> regions = new ArrayList<>();
+    for (CellRangeAddress region : sheet.getMergedRegions()) regions.add(region.formatAsString());
+    Collections.sort(regions);
+    StringBuilder sb = new StringBuilder(regions.toString());
+    for (int i = 0; i <= sheet.getLastRowNum(); i++) {
+      XSSFRow row = sheet.getRow(i);
+      sb.append('\n').append(i).append(':');
+      if (null == row) continue;
+      for (int j = 0; j < row.getLastCellNum(); j++) {
+        CellRangeAddress region = workbook.getCellRangeAddress(0, i, j);
+        XSSFCell cell = row.getCell(j);
+        if (null != region && (region.getFirstRow() != i || region.getFirstColumn() != j)) {
+          sb.append(null == cell ? "*" : "*" + cell.getCellStyle().getIndex()).append(',');
+        } else {
+          sb.append(null == cell ? "" : cell.toString() + "/" + cell.getCellStyle().getIndex()).append(',');
+        }
+      }
+    }
+    return sb.toString();
+  }
+}
@@ -0,0 +1,139 @@
+package com.jp.test;
+
+import com.jg.poiet.XSSFTemplate;
+import com.jg.poiet.config.Configure;
+import com.jg.poiet.data.RowRenderData;
+import com.jg.poiet.data.TableRenderData;
+import com.jg.poiet.policy.StreamingTableRenderPolicy;
+import org.apache.poi.common.usermodel.HyperlinkType;
+import org.apache.poi.ss.usermodel.ClientAnchor;
+import org.apache.poi.ss.usermodel.DataValidationHelper;
+import org.apache.poi.ss.util.CellAddress;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.ss.util.CellRangeAddressList;
+import org.apache.poi.xssf.usermodel.XSSFCell;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.apache.poi.xssf.usermodel.XSSFDataValidation;
+import org.apache.poi.xssf.usermodel.XSSFFont;
+import org.apache.poi.xssf.usermodel.XSSFHyperlink;
+import org.apache.poi.xssf.usermodel.XSSFRichTextString;
+import org.apache.poi.xssf.usermodel.XSSFRow;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 流式表格测试：表格下方只有值、样式和合并单元格时流式写出，校验下方的行随之下移；
+ * 表格下方有公式、富文本、超链接、批注和数据有效性时改为在内存中渲染，校验这些内容按插入的行数调整
+ */
+public class TestStreamingTable {
+
+  private static final int ROWS = 1000;
+
+  public static void main(String[] args) throws Exception {
+    Configure config = Configure.newBuilder().customPolicy("detail", new StreamingTableRenderPolicy()).build();
+
+    XSSFTemplate plain = XSSFTemplate.compile(new ByteArrayInputStream(template(false)), config).render(model());
+    if (!"total".equals(plain.getXSSFWorkbook().getSheetAt(0).getRow(2).getCell(0).getStringCellValue())) {
+      throw new IllegalStateException("Plain content after the table was not streamed");
+    }
+    XSSFSheet sheet = write(plain).getSheetAt(0);
+    verifyTable(sheet);
+    int tail = 2 + ROWS;
+    check(sheet.getRow(tail).getCell(0).getStringCellValue(), "total");
+    check(sheet.getRow(tail + 1).getCell(0).getStringCellValue(), "note");
+    check(sheet.getMergedRegions().toString(), "[" + new CellRangeAddress(tail + 1, tail + 1, 0, 1) + "]");
+
+    XSSFTemplate rich = XSSFTemplate.compile(new ByteArrayInputStream(template(true)), config).render(model());
+    if (!"total".equals(rich.getXSSFWorkbook().getSheetAt(0).getRow(tail).getCell(0).getStringCellValue())) {
+      throw new IllegalStateException("Rich content after the table was streamed");
+    }
+    sheet = write(rich).getSheetAt(0);
+    verifyTable(sheet);
+    check(sheet.getRow(tail).getCell(1).getCellFormula(), "A" + (tail + 2) + "*2");
+    check(String.valueOf(sheet.getRow(tail).getCell(2).getRichStringCellValue().numFormattingRuns() > 0), "true");
+    check(sheet.getHyperlinkList().get(0).getCellRef(), new CellAddress(tail + 1, 0).formatAsString());
+    check(String.valueOf(sheet.getCellComments().keySet()), "[" + new CellAddress(tail + 1, 1) + "]");
+    XSSFDataValidation validation = sheet.getDataValidations().get(0);
+    check(validation.getRegions().getCellRangeAddress(0).formatAsString(), new CellAddress(tail, 3).formatAsString());
+    System.out.println("OK");
+  }
+
+  private static Map<String, Object> model() {
+    List<RowRenderData> rows = new ArrayList<>();
+    for (int i = 0; i < ROWS; i++) rows.add(RowRenderData.build("name" + i, String.valueOf(i)));
+    Map<String, Object> model = new HashMap<>();
+    model.put("detail", new TableRenderData(RowRenderData.build("Name", "Value"), rows));
+    return model;
+  }
+
+  /**
+   * 第0行标题，第1行表格标签，第2行合计，第3行备注；rich为true时合计行有公式、富文本和数据有效性，
+   * 备注行有超链接和批注
+   */
+  private static byte[] template(boolean rich) throws IOException {
+    XSSFWorkbook workbook = new XSSFWorkbook();
+    XSSFSheet sheet = workbook.createSheet();
+    sheet.createRow(0).createCell(0).setCellValue("title");
+    sheet.createRow(1).createCell(0).setCellValue("{{detail}}");
+    XSSFRow total = sheet.createRow(2);
+    total.createCell(0).setCellValue("total");
+    XSSFRow note = sheet.createRow(3);
+    note.createCell(0).setCellValue("note");
+    if (rich) {
+      note.createCell(1).setCellValue(21);
+      total.createCell(1).setCellFormula("A4*2");
+      XSSFFont font = workbook.createFont();
+      font.setBold(true);
+      XSSFRichTextString text = new XSSFRichTextString("bold plain");
+      text.applyFont(0, 4, font);
+      total.createCell(2).setCellValue(text);
+      XSSFHyperlink hyperlink = workbook.getCreationHelper().createHyperlink(HyperlinkType.URL);
+      hyperlink.setAddress("http://example.com");
+      note.getCell(0).setHyperlink(hyperlink);
+      ClientAnchor anchor = workbook.getCreationHelper().createClientAnchor();
+      XSSFComment comment = sheet.createDrawingPatriarch().createCellComment(anchor);
+      comment.setString("comment");
+      note.getCell(1).setCellComment(comment);
+      DataValidationHelper helper = sheet.getDataValidationHelper();
+      sheet.addValidationData(helper.createValidation(helper.createExplicitListConstraint(new String[]{"a", "b"}),
+          new CellRangeAddressList(2, 2, 3, 3)));
+    } else {
+      XSSFCell cell = note.createCell(1);
+      cell.setCellStyle(workbook.createCellStyle());
+      sheet.addMergedRegion(new CellRangeAddress(3, 3, 0, 1));
+    }
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    workbook.write(out);
+    return out.toByteArray();
+  }
+
+  private static XSSFWorkbook write(XSSFTemplate template) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    template.write(out);
+    template.close();
+    return new XSSFWorkbook(new ByteArrayInputStream(out.toByteArray()));
+  }
+
+  private static void verifyTable(XSSFSheet sheet) {
+    check(sheet.getRow(0).getCell(0).getStringCellValue(), "title");
+    check(sheet.getRow(1).getCell(0).getStringCellValue(), "Name");
+    for (int i = 0; i < ROWS; i++) {
+      check(sheet.getRow(2 + i).getCell(0).getStringCellValue(), "name" + i);
+      check(sheet.getRow(2 + i).getCell(1).getStringCellValue(), String.valueOf(i));
+    }
+  }
+
+  private static void check(String actual, String expected) {
+    if (!expected.equals(actual)) {
+      throw new IllegalStateException("Expected [" + expected + "] but was [" + actual + "]");
+    }
+  }
+}
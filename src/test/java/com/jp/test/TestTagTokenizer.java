@@ -0,0 +1,106 @@
+package com.jp.test;
+
+import com.jg.poiet.config.Configure;
+import com.jg.poiet.resolver.TagTokenizer;
+import com.jg.poiet.util.RegexUtils;
+
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * TagTokenizer与原正则解析流程的对比基准：校验结果一致并输出耗时
+ */
+public class TestTagTokenizer {
+
+  public static void main(String[] args) {
+    Configure config = Configure.createDefault();
+    List<String> texts = new ArrayList<>();
+    for (int i = 0; i < 5000; i++) {
+      switch (i % 5) {
+        case 0: texts.add("合计金额 " + i); break;
+        case 1: texts.add("{{name" + i + "}}"); break;
+        case 2: texts.add("编号：{{order.no}} 日期：{{order.date}} 备注 {{ bad}} {{#table" + i + "}}"); break;
+        case 3: texts.add("{{*list}}{{@pic}}{{a..b}}{{{{x.y}}}}"); break;
+        default: texts.add("plain text without any tag, just a long description of row " + i); break;
+      }
+    }
+
+    TagTokenizer tokenizer = new TagTokenizer(config);
+    LegacyParser legacy = new LegacyParser(config);
+    for (String text : texts) {
+      if (!legacy.parse(text).equals(tokenize(tokenizer, text))) {
+        throw new IllegalStateException("Mismatch: " + text + " " + legacy.parse(text) + " " + tokenize(tokenizer, text));
+      }
+    }
+
+    int rounds = 200;
+    for (int warm = 0; warm < 2; warm++) {
+      long t0 = System.nanoTime();
+      int n = 0;
+      for (int r = 0; r < rounds; r++) for (String text : texts) n += legacy.parse(text).size();
+      long t1 = System.nanoTime();
+      int m = 0;
+      for (int r = 0; r < rounds; r++) for (String text : texts) m += tokenize(tokenizer, text).size();
+      long t2 = System.nanoTime();
+      long ops = (long) rounds * texts.size();
+      System.out.println("regex: " + (t1 - t0) / ops + " ns/cell, tokenizer: " + (t2 - t1) / ops
+          + " ns/cell, tags: " + n + "/" + m);
+    }
+  }
+
+  private static List<String> tokenize(TagTokenizer tokenizer, String text) {
+    List<String> res = new ArrayList<>();
+    TagTokenizer.Cursor cursor = tokenizer.cursor(text);
+    while (cursor.next()) {
+      res.add(cursor.getSign() + "|" + cursor.getTagName() + "|" + cursor.getSource());
+    }
+    return res;
+  }
+
+  /**
+   * 原TemplateVisitor + TemplateFactory的正则解析流程
+   */
+  static class LegacyParser {
+    Pattern templatePattern;
+    Pattern gramerPattern;
+    Set<Character> gramerChars;
+
+    LegacyParser(Configure config) {
+      gramerChars = config.getGramerChars();
+      StringBuilder sign = new StringBuilder("(");
+      List<Character> chars = new ArrayList<>(gramerChars);
+      for (int i = 0; i < chars.size(); i++) {
+        sign.append(RegexUtils.escapeExprSpecialWord(chars.get(i).toString()))
+            .append(i == chars.size() - 1 ? ")?" : "|");
+      }
+      String prefix = RegexUtils.escapeExprSpecialWord(config.getGramerPrefix());
+      String suffix = RegexUtils.escapeExprSpecialWord(config.getGramerSuffix());
+      templatePattern = Pattern.compile(MessageFormat.format("{0}{1}{2}{3}", prefix, sign.toString(),
+          config.getGrammerRegex(), suffix));
+      gramerPattern = Pattern.compile(MessageFormat.format("({0})|({1})", prefix, suffix));
+    }
+
+    List<String> parse(String text) {
+      List<String> res = new ArrayList<>();
+      Matcher m = templatePattern.matcher(text);
+      while (m.find()) {
+        String source = m.group();
+        if (!templatePattern.matcher(source).matches()) continue;
+        String tag = gramerPattern.matcher(source).replaceAll("").trim();
+        char symbol = '\0';
+        for (Character c : gramerChars) {
+          if (c.equals(tag.charAt(0))) {
+            symbol = c;
+            break;
+          }
+        }
+        res.add(symbol + "|" + (symbol == '\0' ? tag : tag.substring(1)) + "|" + source);
+      }
+      return res;
+    }
+  }
+}
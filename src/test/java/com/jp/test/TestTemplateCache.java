@@ -0,0 +1,166 @@
+package com.jp.test;
+
+import com.jg.poiet.CompiledTemplate;
+import com.jg.poiet.TemplateCache;
+import com.jg.poiet.XSSFTemplate;
+import com.jg.poiet.config.Configure;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * TemplateCache测试：命中（含每次新建的Configure）、文件被touch但内容未变、内容变化、按内存淘汰、
+ * 单个超过上限的模板、并发未命中只编译一次
+ */
+public class TestTemplateCache {
+
+  public static void main(String[] args) throws Exception {
+    File dir = new File(System.getProperty("java.io.tmpdir"), "poiet-cache-" + System.nanoTime());
+    dir.mkdirs();
+    try {
+      hit(dir);
+      touched(dir);
+      changed(dir);
+      eviction(dir);
+      oversize(dir);
+      concurrentMiss(dir);
+      System.out.println("all passed");
+    } finally {
+      File[] files = dir.listFiles();
+      if (null != files) for (File file : files) file.delete();
+      dir.delete();
+    }
+  }
+
+  private static void hit(File dir) throws Exception {
+    File file = write(new File(dir, "hit.xlsx"), "{{name}}");
+    TemplateCache cache = new TemplateCache(TemplateCache.DEFAULT_MAX_BYTES);
+    Configure config = Configure.createDefault();
+    CompiledTemplate first = cache.get(file, config);
+    check(cache.get(file, config) == first, "same config should hit the same instance");
+
+    Configure fresh = Configure.createDefault();
+    CompiledTemplate rebound = cache.get(file, fresh);
+    check(rebound.getConfig() == fresh, "hit should render with the caller's config");
+    check(dataOf(rebound) == dataOf(first), "fresh config with the same syntax should not recompile");
+    check(cache.size() == 1, "fresh config should share the entry, size " + cache.size());
+    check("Tom".equals(render(rebound, "name", "Tom")), "rebound template renders");
+
+    Configure other = Configure.newBuilder().buildGramer("${", "}").build();
+    CompiledTemplate otherSyntax = cache.get(file, other);
+    check(dataOf(otherSyntax) != dataOf(first), "different syntax should compile separately");
+    check(cache.size() == 2, "different syntax should add an entry, size " + cache.size());
+  }
+
+  private static void touched(File dir) throws Exception {
+    File file = write(new File(dir, "touched.xlsx"), "{{name}}");
+    TemplateCache cache = new TemplateCache(TemplateCache.DEFAULT_MAX_BYTES);
+    Configure config = Configure.createDefault();
+    CompiledTemplate first = cache.get(file, config);
+    check(file.setLastModified(file.lastModified() + 5000), "setLastModified");
+    check(cache.get(file, config) == first, "touched but unchanged file should not recompile");
+    check(cache.get(file, config) == first, "touched file should hit after the stats are refreshed");
+  }
+
+  private static void changed(File dir) throws Exception {
+    File file = write(new File(dir, "changed.xlsx"), "{{name}}");
+    TemplateCache cache = new TemplateCache(TemplateCache.DEFAULT_MAX_BYTES);
+    Configure config = Configure.createDefault();
+    CompiledTemplate first = cache.get(file, config);
+    long lastModified = file.lastModified();
+    write(file, "{{title}} and more text");
+    file.setLastModified(lastModified + 5000);
+    CompiledTemplate second = cache.get(file, config);
+    check(second != first, "changed content should recompile");
+    check("Report and more text".equals(render(second, "title", "Report")), "recompiled template renders the new tag");
+    check(cache.size() == 1, "changed content should replace the entry, size " + cache.size());
+  }
+
+  private static void eviction(File dir) throws Exception {
+    File a = write(new File(dir, "a.xlsx"), "{{a}}");
+    File b = write(new File(dir, "b.xlsx"), "{{b}}");
+    Configure config = Configure.createDefault();
+    long size = CompiledTemplate.compile(a, config).retainedSize();
+    TemplateCache cache = new TemplateCache(size * 3 / 2);
+    CompiledTemplate first = cache.get(a, config);
+    cache.get(b, config);
+    check(cache.size() == 1, "only the newest template fits, size " + cache.size());
+    check(cache.getRetainedBytes() <= cache.getMaxBytes(), "retained bytes within the budget");
+    CompiledTemplate again = cache.get(a, config);
+    check(again != first, "evicted template should be recompiled");
+    check(cache.get(a, config) == again, "recompiled template should be cached");
+  }
+
+  private static void oversize(File dir) throws Exception {
+    File file = write(new File(dir, "oversize.xlsx"), "{{name}}");
+    TemplateCache cache = new TemplateCache(1);
+    Configure config = Configure.createDefault();
+    CompiledTemplate first = cache.get(file, config);
+    check(cache.size() == 1, "a single oversize template should stay cached");
+    check(cache.get(file, config) == first, "oversize template should hit");
+  }
+
+  private static void concurrentMiss(File dir) throws Exception {
+    final File file = write(new File(dir, "concurrent.xlsx"), "{{name}}");
+    final TemplateCache cache = new TemplateCache(TemplateCache.DEFAULT_MAX_BYTES);
+    final Configure config = Configure.createDefault();
+    int threads = 8;
+    final CountDownLatch start = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    List<Future<CompiledTemplate>> futures = new ArrayList<>();
+    for (int i = 0; i < threads; i++) {
+      futures.add(executor.submit(new Callable<CompiledTemplate>() {
+        @Override
+        public CompiledTemplate call() throws Exception {
+          start.await();
+          return cache.get(file, config);
+        }
+      }));
+    }
+    start.countDown();
+    CompiledTemplate first = futures.get(0).get();
+    for (Future<CompiledTemplate> future : futures) {
+      check(future.get() == first, "concurrent misses should share one compilation");
+    }
+    executor.shutdown();
+  }
+
+  private static File write(File file, String text) throws IOException {
+    XSSFWorkbook workbook = new XSSFWorkbook();
+    workbook.createSheet("sheet1").createRow(0).createCell(0).setCellValue(text);
+    try (FileOutputStream out = new FileOutputStream(file)) {
+      workbook.write(out);
+    }
+    workbook.close();
+    return file;
+  }
+
+  private static String render(CompiledTemplate template, String key, String value) {
+    Map<String, Object> model = new HashMap<>();
+    model.put(key, value);
+    XSSFTemplate rendered = template.render(model);
+    return rendered.getXSSFWorkbook().getSheetAt(0).getRow(0).getCell(0).getStringCellValue();
+  }
+
+  private static Object dataOf(CompiledTemplate template) throws Exception {
+    Field field = CompiledTemplate.class.getDeclaredField("data");
+    field.setAccessible(true);
+    return field.get(template);
+  }
+
+  private static void check(boolean condition, String message) {
+    if (!condition) throw new AssertionError(message);
+  }
+}
@@ -0,0 +1,62 @@
+package com.jp.model;
+
+import com.jg.poiet.config.ELModel;
+import com.jg.poiet.config.Name;
+import com.jp.model.base.BaseModel;
+
+/**
+ * TestModelReader使用的数据模型：getter、@Name、static、覆盖父类的属性、继承的属性、private属性和内部类
+ */
+@ELModel
+public class SampleModel extends BaseModel {
+
+    public static String VERSION = "1.0";
+
+    String name = "name field";
+
+    @Name("alias")
+    String nick = "nick";
+
+    @Name("title")
+    String caption = "caption";
+
+    String title = "title field";
+
+    private String hidden = "hidden";
+
+    public String shared = "sample shared";
+
+    private boolean active = true;
+
+    private Integer amount = 12;
+
+    private Address address = new Address();
+
+    public String getName() {
+        return "getter name";
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    public Integer isAmount() {
+        return -1;
+    }
+
+    public Address getAddress() {
+        return address;
+    }
+
+    @ELModel
+    public static class Address {
+
+        String city = "city";
+
+        public String getStreet() {
+            return "street";
+        }
+
+    }
+
+}
@@ -0,0 +1,16 @@
+package com.jp.model.base;
+
+/**
+ * 其他包中的父类：生成的ModelReader可直接读取public属性，protected、private属性由反射读取
+ */
+public class BaseModel {
+
+    public String code = "base code";
+
+    public String shared = "base shared";
+
+    protected String region = "base region";
+
+    private String secret = "base secret";
+
+}